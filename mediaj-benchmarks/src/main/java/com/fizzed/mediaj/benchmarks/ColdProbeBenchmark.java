@@ -0,0 +1,75 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.benchmarks;
+
+import com.fizzed.mediaj.ImageProber;
+import com.fizzed.mediaj.ProbeResult;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cold (first call in a fresh JVM) cost of ImageProber.probe, which includes
+ * loading the signature registry, ImageIO plugins and the XML factory.  Each
+ * fork measures exactly one call, so many forks are used.
+ *
+ * @author jjlauer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1, batchSize = 1)
+@Fork(20)
+public class ColdProbeBenchmark {
+    
+    @Param({ "jpg", "png", "gif", "webp", "svg", "pdf" })
+    public String fixture;
+    
+    private Fixtures fixtures;
+    
+    @Setup
+    public void setup() throws IOException {
+        this.fixtures = Fixtures.load(fixture);
+    }
+    
+    @TearDown
+    public void tearDown() throws IOException {
+        this.fixtures.delete();
+    }
+    
+    @Benchmark
+    public ProbeResult bytes() throws IOException {
+        return ImageProber.probe(fixtures.getBytes());
+    }
+    
+    @Benchmark
+    public ProbeResult path() throws IOException {
+        return ImageProber.probe(fixtures.getFile());
+    }
+    
+}
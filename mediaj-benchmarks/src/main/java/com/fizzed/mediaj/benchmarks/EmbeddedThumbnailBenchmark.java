@@ -0,0 +1,89 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.benchmarks;
+
+import com.fizzed.mediaj.EmbeddedThumbnail;
+import com.fizzed.mediaj.ImageDownscaler;
+import com.fizzed.mediaj.ImageProber;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Average time to get a preview of a large camera jpg: extracting its embedded
+ * EXIF thumbnail vs. a subsampled downscale vs. decoding the full image.  Run
+ * with "-prof gc" to compare their allocation too.
+ *
+ * @author jjlauer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmbeddedThumbnailBenchmark {
+    
+    private Fixtures fixtures;
+    private ImageDownscaler downscaler;
+    
+    @Setup
+    public void setup() throws IOException {
+        this.fixtures = Fixtures.load("camera-jpg");
+        this.downscaler = ImageDownscaler.builder()
+            .size(320, 320)
+            .build();
+    }
+    
+    @TearDown
+    public void tearDown() throws IOException {
+        this.fixtures.delete();
+    }
+    
+    @Benchmark
+    public EmbeddedThumbnail bytes() throws IOException {
+        return ImageProber.extractEmbeddedThumbnail(fixtures.getBytes());
+    }
+    
+    @Benchmark
+    public EmbeddedThumbnail path() throws IOException {
+        return ImageProber.extractEmbeddedThumbnail(fixtures.getFile());
+    }
+    
+    @Benchmark
+    public BufferedImage downscale() throws IOException {
+        return downscaler.downscale(fixtures.getBytes());
+    }
+    
+    @Benchmark
+    public BufferedImage decode() throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(fixtures.getBytes()));
+    }
+    
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.benchmarks;
+
+import com.fizzed.crux.util.Resources;
+import com.fizzed.mediaj.SampleImages;
+import java.awt.Graphics2D;
+import java.awt.GradientPaint;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.imageio.ImageIO;
+
+/**
+ * Loads the fixtures shared from mediaj-core's tests (or generates large
+ * ones) and copies them to a temp file so every input type can be benchmarked.
+ *
+ * @author jjlauer
+ */
+public class Fixtures {
+    
+    // large images are generated since ImageIO can write these formats
+    static public final int LARGE_WIDTH = 6000;
+    static public final int LARGE_HEIGHT = 4000;
+    
+    final private byte[] bytes;
+    final private Path file;
+
+    private Fixtures(
+            byte[] bytes,
+            Path file) {
+        
+        this.bytes = bytes;
+        this.file = file;
+    }
+
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+    
+    public void delete() throws IOException {
+        Files.deleteIfExists(this.file);
+    }
+    
+    /**
+     * Loads a fixture such as "jpg" (sample1.jpg), "large-png" (a generated
+     * LARGE_WIDTH x LARGE_HEIGHT png) or "camera-jpg" (a large jpg with an
+     * EXIF thumbnail like cameras write).
+     * 
+     * @param name The name of the fixture
+     * @return The fixture
+     * @throws IOException 
+     */
+    static public Fixtures load(
+            String name) throws IOException {
+        
+        byte[] bytes;
+        String extension;
+        
+        if (name.startsWith("large-")) {
+            extension = name.substring(6);
+            bytes = generate(extension);
+        } else if (name.equals("camera-jpg")) {
+            extension = "jpg";
+            bytes = SampleImages.withExifThumbnail(generate("jpg"), generate("jpg", 160, 120));
+        } else {
+            extension = name;
+            bytes = Resources.readAllBytes("/fixtures/sample1." + extension);
+        }
+        
+        Path file = Files.createTempFile("mediaj-bench-", "." + extension);
+        Files.write(file, bytes);
+        
+        return new Fixtures(bytes, file);
+    }
+    
+    static private byte[] generate(
+            String format) throws IOException {
+        
+        return generate(format, LARGE_WIDTH, LARGE_HEIGHT);
+    }
+    
+    static private byte[] generate(
+            String format,
+            int width,
+            int height) throws IOException {
+        
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setPaint(new GradientPaint(0, 0, Color.RED, width, height, Color.BLUE));
+            g.fillRect(0, 0, width, height);
+        } finally {
+            g.dispose();
+        }
+        
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        if (!ImageIO.write(image, "jpg".equals(format) ? "jpeg" : format, output)) {
+            throw new IOException("No ImageIO writer for " + format);
+        }
+        return output.toByteArray();
+    }
+    
+}
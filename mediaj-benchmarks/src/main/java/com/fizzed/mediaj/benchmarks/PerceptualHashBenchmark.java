@@ -0,0 +1,86 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.benchmarks;
+
+import com.fizzed.mediaj.HashAlgorithm;
+import com.fizzed.mediaj.PerceptualHash;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Average time to compute a perceptual hash from a subsampled decode vs. just
+ * decoding the full image (what hashing has to do w/o subsampling).  Run with
+ * "-prof gc" to compare their allocation too.
+ *
+ * @author jjlauer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PerceptualHashBenchmark {
+    
+    @Param({ "jpg", "png", "large-jpg", "large-png" })
+    public String fixture;
+    
+    @Param({ "AVERAGE", "DIFFERENCE", "PERCEPTUAL" })
+    public HashAlgorithm algorithm;
+    
+    private Fixtures fixtures;
+    
+    @Setup
+    public void setup() throws IOException {
+        this.fixtures = Fixtures.load(fixture);
+    }
+    
+    @TearDown
+    public void tearDown() throws IOException {
+        this.fixtures.delete();
+    }
+    
+    @Benchmark
+    public long bytes() throws IOException {
+        return PerceptualHash.hash(algorithm, fixtures.getBytes());
+    }
+    
+    @Benchmark
+    public long path() throws IOException {
+        return PerceptualHash.hash(algorithm, fixtures.getFile());
+    }
+    
+    @Benchmark
+    public BufferedImage decode() throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(fixtures.getBytes()));
+    }
+    
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.benchmarks;
+
+import com.fizzed.crux.mediatype.KnownMediaType;
+import com.fizzed.crux.util.Size2D;
+import com.fizzed.mediaj.ImageProber;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Steady state (warm) throughput of ImageProber.probeSize for each input
+ * type.  Run with "-prof gc" for gc.alloc.rate.norm.
+ *
+ * @author jjlauer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProbeSizeBenchmark {
+    
+    @Param({ "jpg", "png", "gif", "webp", "svg", "pdf", "large-jpg", "large-png" })
+    public String fixture;
+    
+    private Fixtures fixtures;
+    private KnownMediaType mediaType;
+    
+    @Setup
+    public void setup() throws IOException {
+        this.fixtures = Fixtures.load(fixture);
+        this.mediaType = ImageProber.probeMediaType(fixtures.getBytes());
+    }
+    
+    @TearDown
+    public void tearDown() throws IOException {
+        this.fixtures.delete();
+    }
+    
+    @Benchmark
+    public Size2D bytes() throws IOException {
+        return ImageProber.probeSize(mediaType, fixtures.getBytes());
+    }
+    
+    @Benchmark
+    public Size2D path() throws IOException {
+        return ImageProber.probeSize(mediaType, fixtures.getFile());
+    }
+    
+    @Benchmark
+    public Size2D inputStream() throws IOException {
+        try (InputStream input = new ByteArrayInputStream(fixtures.getBytes())) {
+            return ImageProber.probeSize(mediaType, input);
+        }
+    }
+    
+    @Benchmark
+    public Size2D fileInputStream() throws IOException {
+        try (InputStream input = new BufferedInputStream(Files.newInputStream(fixtures.getFile()))) {
+            return ImageProber.probeSize(mediaType, input);
+        }
+    }
+    
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.benchmarks;
+
+import com.fizzed.mediaj.MetadataStripper;
+import com.fizzed.mediaj.StripResult;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Average time to strip the metadata from an image by passing its segments
+ * or chunks through vs. decoding and re-encoding it.  Run with "-prof gc" to
+ * compare their allocation too.
+ *
+ * @author jjlauer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StripMetadataBenchmark {
+    
+    @Param({ "camera-jpg", "large-png" })
+    public String fixture;
+    
+    private Fixtures fixtures;
+    private MetadataStripper stripper;
+    private Path target;
+    
+    @Setup
+    public void setup() throws IOException {
+        this.fixtures = Fixtures.load(fixture);
+        this.stripper = MetadataStripper.builder().build();
+        this.target = Files.createTempFile("mediaj-bench-stripped-", ".tmp");
+    }
+    
+    @TearDown
+    public void tearDown() throws IOException {
+        this.fixtures.delete();
+        Files.deleteIfExists(this.target);
+    }
+    
+    @Benchmark
+    public byte[] bytes() throws IOException {
+        return stripper.strip(fixtures.getBytes());
+    }
+    
+    @Benchmark
+    public StripResult path() throws IOException {
+        return stripper.strip(fixtures.getFile(), target);
+    }
+    
+    @Benchmark
+    public byte[] reencode() throws IOException {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(fixtures.getBytes()));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, fixture.endsWith("png") ? "png" : "jpeg", output);
+        return output.toByteArray();
+    }
+    
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.benchmarks;
+
+import com.fizzed.mediaj.ImageProber;
+import com.fizzed.mediaj.ValidationResult;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Average time of the streaming ImageProber.validate vs. a plain CRC32 of the
+ * same bytes (i.e. about as fast as the data can be read).
+ *
+ * @author jjlauer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidateBenchmark {
+    
+    @Param({ "jpg", "png", "gif", "webp", "pdf", "large-jpg", "large-png" })
+    public String fixture;
+    
+    private Fixtures fixtures;
+    
+    @Setup
+    public void setup() throws IOException {
+        this.fixtures = Fixtures.load(fixture);
+    }
+    
+    @TearDown
+    public void tearDown() throws IOException {
+        this.fixtures.delete();
+    }
+    
+    @Benchmark
+    public ValidationResult bytes() throws IOException {
+        return ImageProber.validate(fixtures.getBytes());
+    }
+    
+    @Benchmark
+    public ValidationResult path() throws IOException {
+        return ImageProber.validate(fixtures.getFile());
+    }
+    
+    @Benchmark
+    public ValidationResult inputStream() throws IOException {
+        try (InputStream input = new ByteArrayInputStream(fixtures.getBytes())) {
+            return ImageProber.validate(input);
+        }
+    }
+    
+    @Benchmark
+    public long crc32() {
+        CRC32 crc = new CRC32();
+        crc.update(fixtures.getBytes(), 0, fixtures.getBytes().length);
+        return crc.getValue();
+    }
+    
+}
@@ -0,0 +1,403 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+import com.fizzed.mediaj.core.BatchExecutors;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Probes many files concurrently.  Results are streamed back lazily, either
+ * in the order of the files or as they complete, and files are only pulled
+ * from the source as results are consumed so no more than the concurrency
+ * limit are ever in flight (backpressure).  A failure is isolated to the
+ * {@link BatchResult} of the file it occurred on.
+ *
+ * <pre>
+ * try (BatchProber prober = BatchProber.builder().build();
+ *      Stream&lt;BatchResult&gt; results = prober.probeTree(dir)) {
+ *     results.forEach(...);
+ * }
+ * </pre>
+ *
+ * Unless an executor is supplied, one is created (virtual threads where the
+ * runtime has them, otherwise a fork-join pool) and shut down on close.  With
+ * pooled threads each worker reuses ImageProber's thread local buffers.
+ *
+ * @author jjlauer
+ */
+public class BatchProber implements Closeable {
+
+    final private Executor executor;
+    final private boolean ownsExecutor;
+    final private int concurrency;
+    final private boolean ordered;
+    final private FileReadMode readMode;
+    final private HashAlgorithm hashAlgorithm;
+
+    private BatchProber(
+            Executor executor,
+            boolean ownsExecutor,
+            int concurrency,
+            boolean ordered,
+            FileReadMode readMode,
+            HashAlgorithm hashAlgorithm) {
+
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.concurrency = concurrency;
+        this.ordered = ordered;
+        this.readMode = readMode;
+        this.hashAlgorithm = hashAlgorithm;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    public HashAlgorithm getHashAlgorithm() {
+        return hashAlgorithm;
+    }
+
+    /**
+     * Probes every regular file in the tree.  The returned stream must be
+     * closed to release the directory handles and cancel in-flight probes.
+     * A directory (or file) the walk can't read is returned as a failed
+     * result for its path and the walk carries on past it.
+     *
+     * @param root The root directory
+     * @return The lazy stream of results
+     * @throws IOException
+     */
+    public Stream<BatchResult> probeTree(
+            Path root) throws IOException {
+
+        Objects.requireNonNull(root, "root was null");
+
+        Stream<Path> files = Files.walk(root)
+            .filter(Files::isRegularFile);
+
+        return this.probeAll(files, root);
+    }
+
+    /**
+     * Probes every file in the stream.  The returned stream must be closed
+     * to cancel in-flight probes and it closes the source stream too.
+     *
+     * @param files The files to probe
+     * @return The lazy stream of results
+     */
+    public Stream<BatchResult> probeAll(
+            Stream<Path> files) {
+
+        return this.probeAll(files, null);
+    }
+
+    private Stream<BatchResult> probeAll(
+            Stream<Path> files,
+            Path root) {
+
+        Objects.requireNonNull(files, "files was null");
+
+        BatchIterator iterator = new BatchIterator(files.iterator(), root);
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.NONNULL | (ordered ? Spliterator.ORDERED : 0)), false)
+            .onClose(iterator::cancel)
+            .onClose(files::close);
+    }
+
+    BatchResult probeOne(
+            Path file) {
+
+        ProbeResult result;
+        try {
+            result = ImageProber.probe(file, readMode);
+        } catch (Exception e) {
+            return new BatchResult(file, null, e);
+        }
+
+        // the probe's size picks the subsampling, so it's not probed again
+        try {
+            if (hashAlgorithm != null && result.getSize() != null
+                    && PerceptualHash.isSupported(result.getMediaType())) {
+                long hash = PerceptualHash.hash(hashAlgorithm, file, result, readMode);
+                return new BatchResult(file, result, hashAlgorithm, hash, null);
+            }
+
+            return new BatchResult(file, result, null);
+        } catch (Exception e) {
+            // the probe still stands
+            return new BatchResult(file, result, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            ((ExecutorService)executor).shutdownNow();
+        }
+    }
+
+    /**
+     * Pulls files from the source only as results are taken, keeping at most
+     * concurrency probes in flight.
+     */
+    private class BatchIterator implements Iterator<BatchResult> {
+
+        final private Iterator<Path> source;
+        final private Path root;
+        final private ArrayDeque<ProbeTask> pending;
+        final private BlockingQueue<ProbeTask> completed;
+
+        BatchIterator(
+                Iterator<Path> source,
+                Path root) {
+
+            this.source = source;
+            this.root = root;
+            this.pending = new ArrayDeque<>(concurrency);
+            this.completed = new LinkedBlockingQueue<>();
+        }
+
+        private void fill() {
+            while (pending.size() < concurrency) {
+                Path file;
+                try {
+                    if (!source.hasNext()) {
+                        return;
+                    }
+                    file = source.next();
+                } catch (UncheckedIOException e) {
+                    // e.g. a directory the walk can't read, which it skips
+                    this.fail(pathOf(e.getCause()), e.getCause());
+                    continue;
+                }
+
+                // only unordered results are taken in order of completion
+                ProbeTask task = new ProbeTask(() -> probeOne(file), ordered ? null : completed);
+                pending.add(task);
+                try {
+                    executor.execute(task);
+                } catch (RejectedExecutionException e) {
+                    // e.g. a bounded or shut down executor, the task never runs
+                    pending.removeLast();
+                    this.fail(file, e);
+                }
+            }
+        }
+
+        /**
+         * Adds a task already completed w/ a failed result for the file.
+         */
+        private void fail(
+                Path file,
+                Exception error) {
+
+            ProbeTask task = new ProbeTask(() -> new BatchResult(file, null, error),
+                ordered ? null : completed);
+            pending.add(task);
+            task.run();
+        }
+
+        private Path pathOf(
+                IOException error) {
+
+            if (error instanceof FileSystemException && ((FileSystemException)error).getFile() != null) {
+                String file = ((FileSystemException)error).getFile();
+                return root != null ? root.getFileSystem().getPath(file) : Paths.get(file);
+            }
+            return root;
+        }
+
+        @Override
+        public boolean hasNext() {
+            this.fill();
+            return !pending.isEmpty();
+        }
+
+        @Override
+        public BatchResult next() {
+            this.fill();
+
+            if (pending.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+
+            try {
+                ProbeTask task;
+                if (ordered) {
+                    task = pending.poll();
+                } else {
+                    task = completed.take();
+                    pending.remove(task);
+                }
+                return task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                this.cancel();
+                throw new CancellationException("Interrupted waiting for a probe");
+            } catch (ExecutionException e) {
+                // probes never throw, failures are returned as results
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        void cancel() {
+            for (ProbeTask task : pending) {
+                task.cancel(true);
+            }
+            pending.clear();
+        }
+
+    }
+
+    private class ProbeTask extends FutureTask<BatchResult> {
+
+        final private BlockingQueue<ProbeTask> completed;
+
+        ProbeTask(
+                Callable<BatchResult> probe,
+                BlockingQueue<ProbeTask> completed) {
+
+            super(probe);
+            this.completed = completed;
+        }
+
+        @Override
+        protected void done() {
+            if (this.completed != null) {
+                this.completed.add(this);
+            }
+        }
+
+    }
+
+    static public Builder builder() {
+        return new Builder();
+    }
+
+    static public class Builder {
+
+        private Executor executor;
+        private int concurrency;
+        private boolean ordered;
+        private FileReadMode readMode;
+        private HashAlgorithm hashAlgorithm;
+
+        private Builder() {
+            // probes are mostly waiting on i/o
+            this.concurrency = Runtime.getRuntime().availableProcessors() * 4;
+            this.ordered = true;
+            this.readMode = FileReadMode.AUTO;
+        }
+
+        /**
+         * The executor probes run on, which is not shut down when the
+         * prober is closed.  Defaults to one the prober creates and owns.
+         */
+        public Builder executor(
+                Executor executor) {
+
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * The max number of probes in flight (and threads in a default
+         * fork-join pool).  Defaults to 4x the available processors.
+         */
+        public Builder concurrency(
+                int concurrency) {
+
+            if (concurrency < 1) {
+                throw new IllegalArgumentException("Concurrency must be >= 1");
+            }
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        /**
+         * Whether results are returned in the order of the files (the
+         * default) or as soon as each completes.
+         */
+        public Builder ordered(
+                boolean ordered) {
+
+            this.ordered = ordered;
+            return this;
+        }
+
+        public Builder readMode(
+                FileReadMode readMode) {
+
+            Objects.requireNonNull(readMode, "readMode was null");
+            this.readMode = readMode;
+            return this;
+        }
+
+        /**
+         * Computes a perceptual hash of every image ImageIO can decode after
+         * probing it (see {@link PerceptualHash}), which reads the file again
+         * but reuses the probed size.  An image that fails to decode fails
+         * its result, which keeps the probe result.  Defaults to null (no
+         * hashing).
+         */
+        public Builder hash(
+                HashAlgorithm hashAlgorithm) {
+
+            this.hashAlgorithm = hashAlgorithm;
+            return this;
+        }
+
+        public BatchProber build() {
+            if (this.executor != null) {
+                return new BatchProber(this.executor, false, this.concurrency, this.ordered,
+                    this.readMode, this.hashAlgorithm);
+            }
+            return new BatchProber(BatchExecutors.newDefault(this.concurrency), true,
+                this.concurrency, this.ordered, this.readMode, this.hashAlgorithm);
+        }
+
+    }
+
+}
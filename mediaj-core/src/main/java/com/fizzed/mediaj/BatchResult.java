@@ -0,0 +1,112 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+import java.nio.file.Path;
+
+/**
+ * Immutable result of probing one file of a batch.  Failures are isolated to
+ * the file they occurred on, so a result has either a probe result or an
+ * error, or both if the probe succeeded but hashing the image failed.
+ *
+ * @author jjlauer
+ */
+public class BatchResult {
+
+    final private Path file;
+    final private ProbeResult result;
+    final private HashAlgorithm hashAlgorithm;
+    final private long hash;
+    final private Exception error;
+
+    public BatchResult(
+            Path file,
+            ProbeResult result,
+            Exception error) {
+
+        this(file, result, null, 0L, error);
+    }
+
+    public BatchResult(
+            Path file,
+            ProbeResult result,
+            HashAlgorithm hashAlgorithm,
+            long hash,
+            Exception error) {
+
+        this.file = file;
+        this.result = result;
+        this.hashAlgorithm = hashAlgorithm;
+        this.hash = hash;
+        this.error = error;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * The result of the probe.
+     * @return The result or null if the probe failed
+     */
+    public ProbeResult getResult() {
+        return result;
+    }
+
+    /**
+     * The algorithm the perceptual hash was computed with.
+     * @return The algorithm or null if not hashed (hashing was not enabled
+     *      or the media type can't be decoded)
+     */
+    public HashAlgorithm getHashAlgorithm() {
+        return hashAlgorithm;
+    }
+
+    /**
+     * Whether a perceptual hash was computed.
+     * @return True if hashed
+     */
+    public boolean hasHash() {
+        return hashAlgorithm != null;
+    }
+
+    /**
+     * The perceptual hash of the image.
+     * @return The hash or 0 if not hashed
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * The exception the probe failed with.
+     * @return The error or null if the probe (and any hash) succeeded
+     */
+    public Exception getError() {
+        return error;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    @Override
+    public String toString() {
+        return file + ": " + (error != null ? "error=" + error : result)
+            + (hashAlgorithm != null ? ", hash=" + Long.toHexString(hash) : "");
+    }
+
+}
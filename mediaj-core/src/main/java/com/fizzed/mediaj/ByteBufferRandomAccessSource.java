@@ -0,0 +1,61 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads of a byte array or buffer (heap, direct or mapped) w/o modifying it.
+ *
+ * @author jjlauer
+ */
+class ByteBufferRandomAccessSource implements RandomAccessSource {
+
+    final private ByteBuffer buffer;
+
+    ByteBufferRandomAccessSource(
+            ByteBuffer buffer) {
+
+        // positioned at 0 thru its limit
+        this.buffer = buffer.duplicate();
+    }
+
+    @Override
+    public long size() {
+        return buffer.limit();
+    }
+
+    @Override
+    public int readAt(
+            long position,
+            ByteBuffer dst) {
+
+        if (position >= buffer.limit()) {
+            return -1;
+        }
+
+        int length = (int)Math.min(buffer.limit() - position, dst.remaining());
+
+        ByteBuffer src = buffer.duplicate();
+        ((Buffer)src).position((int)position);
+        ((Buffer)src).limit((int)position + length);
+        dst.put(src);
+
+        return length;
+    }
+
+}
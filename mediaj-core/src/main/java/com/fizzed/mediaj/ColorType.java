@@ -0,0 +1,38 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+/**
+ * The color model an image's samples are stored in.
+ *
+ * @author jjlauer
+ */
+public enum ColorType {
+
+    /** Grayscale (luminance only) */
+    GRAY,
+    /** Red, green and blue */
+    RGB,
+    /** Indexes into a color table (e.g. GIF or an 8-bit PNG) */
+    PALETTE,
+    /** Luminance and chroma (typical of JPEG) */
+    YCBCR,
+    /** Cyan, magenta, yellow and black */
+    CMYK,
+    /** YCbCr with black (Adobe JPEG) */
+    YCCK
+
+}
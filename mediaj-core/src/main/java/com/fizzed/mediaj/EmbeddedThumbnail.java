@@ -0,0 +1,99 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+import com.fizzed.crux.mediatype.KnownMediaType;
+import com.fizzed.crux.util.Size2D;
+import java.nio.ByteBuffer;
+
+/**
+ * Immutable preview image embedded in the header of another image (e.g. the
+ * JPEG thumbnail in a camera JPEG's EXIF block).  Its bytes are a complete
+ * image of their own that can be served or decoded as-is.
+ *
+ * @author jjlauer
+ */
+public class EmbeddedThumbnail {
+
+    final private KnownMediaType mediaType;
+    final private Size2D size;
+    final private long offset;
+    final private ByteBuffer data;
+
+    public EmbeddedThumbnail(
+            KnownMediaType mediaType,
+            Size2D size,
+            long offset,
+            ByteBuffer data) {
+
+        this.mediaType = mediaType;
+        this.size = size;
+        this.offset = offset;
+        this.data = data;
+    }
+
+    /**
+     * The media type of the thumbnail (always a JPEG for now).
+     * @return The media type
+     */
+    public KnownMediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * The dimensions of the thumbnail from its own frame header.
+     * @return The size
+     */
+    public Size2D getSize() {
+        return size;
+    }
+
+    /**
+     * The position of the thumbnail within the source it was extracted from.
+     * @return The offset in bytes
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * The length of the thumbnail.
+     * @return The length in bytes
+     */
+    public int getLength() {
+        return data.remaining();
+    }
+
+    /**
+     * The bytes of the thumbnail.  For byte arrays, buffers and files this is
+     * a view of the source (nothing is copied) and only streams are copied
+     * onto the heap.  A new view is returned on every call so its position
+     * may be changed freely.
+     * @return The bytes from position 0 thru its limit
+     */
+    public ByteBuffer getData() {
+        return data.duplicate();
+    }
+
+    @Override
+    public String toString() {
+        return "mediaType=" + mediaType
+            + ", size=" + (size != null ? size.getWidth() + "x" + size.getHeight() : null)
+            + ", offset=" + offset
+            + ", length=" + data.remaining();
+    }
+
+}
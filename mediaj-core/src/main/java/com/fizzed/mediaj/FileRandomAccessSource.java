@@ -0,0 +1,57 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Positional reads of a file.
+ *
+ * @author jjlauer
+ */
+class FileRandomAccessSource implements RandomAccessSource {
+
+    final private FileChannel channel;
+
+    FileRandomAccessSource(
+            Path file) throws IOException {
+
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+    }
+
+    @Override
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    @Override
+    public int readAt(
+            long position,
+            ByteBuffer buffer) throws IOException {
+
+        return channel.read(buffer, position);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
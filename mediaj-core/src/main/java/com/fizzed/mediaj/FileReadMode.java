@@ -0,0 +1,49 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+/**
+ * How a file is read when probing a Path.
+ *
+ * @author jjlauer
+ */
+public enum FileReadMode {
+
+    /**
+     * Positional reads for most files and a memory map for large files.
+     */
+    AUTO,
+
+    /**
+     * Positional FileChannel reads of a small window around whatever the
+     * parser needs.  Cheapest for probing typical files.
+     */
+    CHANNEL,
+
+    /**
+     * Memory maps the file so only the pages a parser touches are faulted in
+     * and nothing is copied onto the heap.  Best when a parser may jump
+     * around a large file, but the mapping is only released when garbage
+     * collected.
+     */
+    MAPPED;
+
+    /**
+     * The file size at or above which AUTO maps the file.
+     */
+    static public final long AUTO_MAPPED_THRESHOLD = 16L * 1024L * 1024L;
+
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+/**
+ * The perceptual hash computed by {@link PerceptualHash}.
+ *
+ * @author jjlauer
+ */
+public enum HashAlgorithm {
+
+    /** aHash: each cell of an 8x8 grid vs. the mean (fastest, least robust) */
+    AVERAGE,
+    /** dHash: each cell of a 9x8 grid vs. its neighbor (horizontal gradient) */
+    DIFFERENCE,
+    /** pHash: the lowest 8x8 frequencies of a 32x32 DCT vs. their median */
+    PERCEPTUAL
+
+}
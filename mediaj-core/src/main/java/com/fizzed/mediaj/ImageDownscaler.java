@@ -0,0 +1,251 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+import com.fizzed.crux.util.Size2D;
+import com.fizzed.mediaj.core.ByteArrayImageInputStream;
+import com.fizzed.mediaj.core.Resampler;
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Objects;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Downscales images to fit (or fill) a box w/o decoding them at full
+ * resolution.  The size from a probe picks an ImageIO source subsampling
+ * (and source region when cropping) so the decode produces close to the
+ * target size directly, then a high quality scale step finishes it.  Peak
+ * memory is bounded by the target size (at most 4x in each dimension) rather
+ * than the source's.
+ *
+ * <pre>
+ * ImageDownscaler downscaler = ImageDownscaler.builder()
+ *     .size(320, 320)
+ *     .build();
+ *
+ * ProbeResult probed = ImageProber.probe(file);
+ * BufferedImage thumbnail = downscaler.downscale(file, probed);
+ * </pre>
+ *
+ * A downscaler is thread safe and decodes w/ ImageReaders pooled across the
+ * library, so share one across a batch rather than creating one per image.
+ *
+ * @author jjlauer
+ */
+public class ImageDownscaler {
+
+    final private int maxWidth;
+    final private int maxHeight;
+    final private boolean crop;
+    final private FileReadMode readMode;
+
+    private ImageDownscaler(
+            int maxWidth,
+            int maxHeight,
+            boolean crop,
+            FileReadMode readMode) {
+
+        this.maxWidth = maxWidth;
+        this.maxHeight = maxHeight;
+        this.crop = crop;
+        this.readMode = readMode;
+    }
+
+    public int getMaxWidth() {
+        return maxWidth;
+    }
+
+    public int getMaxHeight() {
+        return maxHeight;
+    }
+
+    public boolean isCrop() {
+        return crop;
+    }
+
+    /**
+     * Downscales the image in the byte array.
+     * @param data The byte array
+     * @return The downscaled image
+     * @throws IOException If the media type or size could not be probed or
+     *      ImageIO can't decode it
+     */
+    public BufferedImage downscale(
+            byte[] data) throws IOException {
+
+        return downscale(data, null);
+    }
+
+    /**
+     * Downscales the image in the byte array using the result of an earlier
+     * probe of it (nothing is probed again).
+     * @param data The byte array
+     * @param probed The result of probing the byte array or null to probe it
+     * @return The downscaled image
+     * @throws IOException If the media type or size could not be probed or
+     *      ImageIO can't decode it
+     */
+    public BufferedImage downscale(
+            byte[] data,
+            ProbeResult probed) throws IOException {
+
+        Objects.requireNonNull(data, "data was null");
+
+        try (ImageInputStream imageInput = new ByteArrayImageInputStream(data)) {
+            return downscale(imageInput, probed);
+        }
+    }
+
+    /**
+     * Downscales the image in the file.
+     * @param file The file
+     * @return The downscaled image
+     * @throws IOException If the media type or size could not be probed or
+     *      ImageIO can't decode it
+     */
+    public BufferedImage downscale(
+            Path file) throws IOException {
+
+        return downscale(file, null);
+    }
+
+    /**
+     * Downscales the image in the file using the result of an earlier probe
+     * of it (nothing is probed again).
+     * @param file The file
+     * @param probed The result of probing the file or null to probe it
+     * @return The downscaled image
+     * @throws IOException If the media type or size could not be probed or
+     *      ImageIO can't decode it
+     */
+    public BufferedImage downscale(
+            Path file,
+            ProbeResult probed) throws IOException {
+
+        Objects.requireNonNull(file, "file was null");
+
+        try (ImageInputStream imageInput = ImageProber.openImageInput(file, this.readMode)) {
+            return downscale(imageInput, probed);
+        }
+    }
+
+    /**
+     * Downscales the image in the stream.  The stream is consumed by this
+     * call and anything past the first 1MB of it is spilled to a temp file
+     * rather than held on the heap.
+     * @param input The stream
+     * @return The downscaled image
+     * @throws IOException If the media type or size could not be probed or
+     *      ImageIO can't decode it
+     */
+    public BufferedImage downscale(
+            InputStream input) throws IOException {
+
+        Objects.requireNonNull(input, "input was null");
+
+        try (ImageInputStream imageInput = ImageProber.newImageInput(input, ProbeOptions.DEFAULT)) {
+            return downscale(imageInput, null);
+        }
+    }
+
+    private BufferedImage downscale(
+            ImageInputStream imageInput,
+            ProbeResult probed) throws IOException {
+
+        probed = SubsampledDecoder.probe(imageInput, probed);
+
+        Size2D size = probed.getSize();
+        int width = (int) size.getWidth();
+        int height = (int) size.getHeight();
+
+        Rectangle region = this.crop
+            ? Resampler.cover(width, height, this.maxWidth, this.maxHeight)
+            : new Rectangle(0, 0, width, height);
+
+        Dimension target = Resampler.fit(region.width, region.height, this.maxWidth, this.maxHeight);
+
+        int subsampling = Resampler.subsampling(region.width, region.height, target.width, target.height);
+
+        BufferedImage decoded = SubsampledDecoder.decode(imageInput, probed, region, subsampling);
+
+        return Resampler.scale(decoded, target.width, target.height);
+    }
+
+    static public Builder builder() {
+        return new Builder();
+    }
+
+    static public class Builder {
+
+        private int maxWidth;
+        private int maxHeight;
+        private boolean crop;
+        private FileReadMode readMode;
+
+        private Builder() {
+            this.readMode = FileReadMode.AUTO;
+        }
+
+        /**
+         * The box images are downscaled to fit within (or fill if cropped).
+         * Images smaller than the box are never upscaled.
+         */
+        public Builder size(
+                int maxWidth,
+                int maxHeight) {
+
+            if (maxWidth < 1 || maxHeight < 1) {
+                throw new IllegalArgumentException("Size must be >= 1x1");
+            }
+            this.maxWidth = maxWidth;
+            this.maxHeight = maxHeight;
+            return this;
+        }
+
+        /**
+         * Whether images fill the box by cropping the center of the image to
+         * the box's aspect ratio (only that region is decoded) rather than
+         * fitting within it.  Defaults to false.
+         */
+        public Builder crop(
+                boolean crop) {
+
+            this.crop = crop;
+            return this;
+        }
+
+        public Builder readMode(
+                FileReadMode readMode) {
+
+            Objects.requireNonNull(readMode, "readMode was null");
+            this.readMode = readMode;
+            return this;
+        }
+
+        public ImageDownscaler build() {
+            if (this.maxWidth < 1) {
+                throw new IllegalStateException("Size is required");
+            }
+            return new ImageDownscaler(this.maxWidth, this.maxHeight, this.crop, this.readMode);
+        }
+
+    }
+
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+import com.fizzed.crux.mediatype.KnownMediaType;
+import com.fizzed.crux.util.Size2D;
+
+/**
+ * Immutable result of an extended metadata probe: the size plus the color
+ * type, bit depth, orientation and frame count read from the image's headers
+ * (nothing is decoded).  Anything a format doesn't carry or that was not
+ * found is reported as unknown (null, 0 or false).
+ *
+ * @author jjlauer
+ */
+public class ImageInfo {
+
+    final private KnownMediaType mediaType;
+    final private Size2D size;
+    final private int orientation;
+    final private ColorType colorType;
+    final private int bitDepth;
+    final private boolean alpha;
+    final private boolean iccProfile;
+    final private boolean progressive;
+    final private int frameCount;
+    final private boolean animated;
+    final private long bytesRead;
+
+    private ImageInfo(
+            Builder builder) {
+
+        this.mediaType = builder.mediaType;
+        this.size = builder.size;
+        this.orientation = builder.orientation;
+        this.colorType = builder.colorType;
+        this.bitDepth = builder.bitDepth;
+        this.alpha = builder.alpha;
+        this.iccProfile = builder.iccProfile;
+        this.progressive = builder.progressive;
+        this.frameCount = builder.frameCount;
+        this.animated = builder.animated;
+        this.bytesRead = builder.bytesRead;
+    }
+
+    /**
+     * The detected media type.
+     * @return The media type or null if it could not be detected
+     */
+    public KnownMediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * The dimensions as stored, before any orientation is applied.  For a PDF
+     * this is the first page's crop (or media) box in points.
+     * @return The size or null if the media type was not detected or its
+     *      dimensions are not supported
+     */
+    public Size2D getSize() {
+        return size;
+    }
+
+    /**
+     * The dimensions as displayed once the EXIF orientation is applied, where
+     * orientations 5 thru 8 (rotated 90 or 270 degrees) swap the width and
+     * height.
+     * @return The size or null if the stored size is null
+     */
+    public Size2D getDisplaySize() {
+        if (size != null && isTransposed()) {
+            return new Size2D(size.getHeight(), size.getWidth());
+        }
+        return size;
+    }
+
+    /**
+     * The EXIF orientation.
+     * @return The orientation (1 thru 8) which is 1 (normal) if the image
+     *      has none
+     */
+    public int getOrientation() {
+        return orientation;
+    }
+
+    /**
+     * Whether the orientation rotates the image by 90 or 270 degrees.
+     * @return True if the width and height are swapped for display
+     */
+    public boolean isTransposed() {
+        return orientation >= 5;
+    }
+
+    /**
+     * The color model of the samples.
+     * @return The color type or null if unknown
+     */
+    public ColorType getColorType() {
+        return colorType;
+    }
+
+    /**
+     * The bits per sample (or per palette index).
+     * @return The bit depth or 0 if unknown
+     */
+    public int getBitDepth() {
+        return bitDepth;
+    }
+
+    /**
+     * Whether the image has an alpha channel or a transparent color.
+     * @return True if it has alpha
+     */
+    public boolean hasAlpha() {
+        return alpha;
+    }
+
+    /**
+     * Whether an ICC color profile is embedded.
+     * @return True if it has a profile
+     */
+    public boolean hasIccProfile() {
+        return iccProfile;
+    }
+
+    /**
+     * Whether the image is progressive (JPEG) or interlaced (PNG, GIF).
+     * @return True if progressive
+     */
+    public boolean isProgressive() {
+        return progressive;
+    }
+
+    /**
+     * The number of frames (GIF, APNG and WebP animations) which is 1 for a
+     * still image, or the number of pages of a PDF.
+     * @return The frame count or 0 if unknown
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Whether the image is animated.
+     * @return True if animated
+     */
+    public boolean isAnimated() {
+        return animated;
+    }
+
+    /**
+     * The number of bytes of the source consumed to produce this result.
+     * @return The number of bytes
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    @Override
+    public String toString() {
+        return "mediaType=" + mediaType
+            + ", size=" + (size != null ? size.getWidth() + "x" + size.getHeight() : null)
+            + ", orientation=" + orientation
+            + ", colorType=" + colorType
+            + ", bitDepth=" + bitDepth
+            + ", alpha=" + alpha
+            + ", iccProfile=" + iccProfile
+            + ", progressive=" + progressive
+            + ", frameCount=" + frameCount
+            + ", animated=" + animated
+            + ", bytesRead=" + bytesRead;
+    }
+
+    static public Builder builder() {
+        return new Builder();
+    }
+
+    static public class Builder {
+
+        private KnownMediaType mediaType;
+        private Size2D size;
+        private int orientation;
+        private ColorType colorType;
+        private int bitDepth;
+        private boolean alpha;
+        private boolean iccProfile;
+        private boolean progressive;
+        private int frameCount;
+        private boolean animated;
+        private long bytesRead;
+
+        private Builder() {
+            this.orientation = 1;
+        }
+
+        public Builder mediaType(
+                KnownMediaType mediaType) {
+
+            this.mediaType = mediaType;
+            return this;
+        }
+
+        public Builder size(
+                Size2D size) {
+
+            this.size = size;
+            return this;
+        }
+
+        /**
+         * Sets the EXIF orientation, where anything outside 1 thru 8 (e.g. 0
+         * for missing) is normalized to 1.
+         *
+         * @param orientation The orientation
+         * @return This builder
+         */
+        public Builder orientation(
+                int orientation) {
+
+            this.orientation = orientation >= 1 && orientation <= 8 ? orientation : 1;
+            return this;
+        }
+
+        public Builder colorType(
+                ColorType colorType) {
+
+            this.colorType = colorType;
+            return this;
+        }
+
+        public Builder bitDepth(
+                int bitDepth) {
+
+            this.bitDepth = bitDepth;
+            return this;
+        }
+
+        public Builder alpha(
+                boolean alpha) {
+
+            this.alpha = alpha;
+            return this;
+        }
+
+        public Builder iccProfile(
+                boolean iccProfile) {
+
+            this.iccProfile = iccProfile;
+            return this;
+        }
+
+        public Builder progressive(
+                boolean progressive) {
+
+            this.progressive = progressive;
+            return this;
+        }
+
+        public Builder frameCount(
+                int frameCount) {
+
+            this.frameCount = frameCount;
+            return this;
+        }
+
+        public Builder animated(
+                boolean animated) {
+
+            this.animated = animated;
+            return this;
+        }
+
+        public Builder bytesRead(
+                long bytesRead) {
+
+            this.bytesRead = bytesRead;
+            return this;
+        }
+
+        public ImageInfo build() {
+            return new ImageInfo(this);
+        }
+
+    }
+
+}
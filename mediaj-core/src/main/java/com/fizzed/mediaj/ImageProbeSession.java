@@ -0,0 +1,211 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+import com.fizzed.crux.mediatype.KnownMediaType;
+import com.fizzed.mediaj.core.SizeScanner;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Incremental (non-blocking) probe for bytes as they arrive off the network.
+ * Each chunk is offered to the session, which returns NEED_MORE_DATA until
+ * the media type and size are known (or known to be undetectable), at which
+ * point it returns COMPLETE.  Nothing is ever buffered beyond the signature
+ * header and, for SVG, its prolog and root start tag.  JPEG segments are
+ * skipped by count so the first SOF is found without retaining any EXIF.
+ *
+ * <pre>
+ * ImageProbeSession session = new ImageProbeSession();
+ * while (session.offer(chunk) == ImageProbeSession.Status.NEED_MORE_DATA) { ... }
+ * ProbeResult result = session.getResult();
+ * </pre>
+ *
+ * Not thread safe: a session is meant to be driven by a single connection.
+ *
+ * @author jjlauer
+ */
+public class ImageProbeSession {
+
+    public enum Status {
+        NEED_MORE_DATA,
+        COMPLETE
+    }
+
+    final private SignatureRegistry registry;
+    final private byte[] header;
+    private int headerLength;
+    private long bytesRead;
+    private KnownMediaType mediaType;
+    private SizeScanner scanner;
+    private boolean complete;
+    private ProbeResult result;
+
+    public ImageProbeSession() {
+        this(SignatureRegistry.getDefault());
+    }
+
+    public ImageProbeSession(
+            SignatureRegistry registry) {
+
+        Objects.requireNonNull(registry, "registry was null");
+        this.registry = registry;
+        this.header = new byte[registry.getHeaderLength()];
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * The number of bytes consumed from the chunks offered so far.
+     * @return The number of bytes
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * The result once the session is complete.
+     * @return The result or null if not yet complete
+     */
+    public ProbeResult getResult() {
+        return result;
+    }
+
+    public Status offer(
+            byte[] data,
+            int offset,
+            int length) throws IOException {
+
+        return this.offer(ByteBuffer.wrap(data, offset, length));
+    }
+
+    /**
+     * Offers the next chunk of bytes.  The chunk's position is advanced past
+     * the bytes consumed, which once complete may be less than all of them.
+     *
+     * @param chunk The next bytes (from its position to its limit)
+     * @return The status of the session
+     * @throws IOException
+     */
+    public Status offer(
+            ByteBuffer chunk) throws IOException {
+
+        Objects.requireNonNull(chunk, "chunk was null");
+
+        if (complete) {
+            return Status.COMPLETE;
+        }
+
+        int start = chunk.position();
+
+        if (scanner == null) {
+            this.detect(chunk);
+        }
+
+        if (!complete && scanner != null && chunk.hasRemaining()) {
+            this.complete = scanner.scan(chunk);
+        }
+
+        this.bytesRead += chunk.position() - start;
+
+        if (complete) {
+            this.result = this.buildResult();
+            return Status.COMPLETE;
+        }
+
+        return Status.NEED_MORE_DATA;
+    }
+
+    /**
+     * Signals the end of the input.  The session is always complete after,
+     * though its result may be missing a media type or size.
+     *
+     * @return The result
+     * @throws IOException
+     */
+    public ProbeResult finish() throws IOException {
+        if (!complete) {
+            if (scanner == null) {
+                // whatever header we have is all we will get
+                this.mediaType = registry.match(header, 0, headerLength);
+                if (mediaType != null) {
+                    this.startScanner();
+                }
+            }
+            if (!complete && scanner != null) {
+                scanner.finish();
+            }
+            this.complete = true;
+            this.result = this.buildResult();
+        }
+        return result;
+    }
+
+    private void detect(
+            ByteBuffer chunk) throws IOException {
+
+        // signatures are only evaluated once all of their bytes are available,
+        // but sniffers (e.g. svg) may succeed with a partial header
+        final int signatureLength = registry.getSignatureLength();
+
+        while (true) {
+            int want = headerLength < signatureLength ? signatureLength : header.length;
+            int n = Math.min(chunk.remaining(), want - headerLength);
+            chunk.get(header, headerLength, n);
+            headerLength += n;
+
+            if (headerLength < signatureLength) {
+                return;     // chunk exhausted
+            }
+
+            this.mediaType = registry.match(header, 0, headerLength);
+
+            if (mediaType != null) {
+                this.startScanner();
+                return;
+            }
+
+            if (headerLength >= header.length) {
+                this.complete = true;   // undetectable
+                return;
+            }
+
+            if (!chunk.hasRemaining()) {
+                return;
+            }
+        }
+    }
+
+    private void startScanner() throws IOException {
+        this.scanner = SizeScanner.of(mediaType);
+
+        if (scanner == null) {
+            this.complete = true;       // detected, but no size support
+            return;
+        }
+
+        // replay what was buffered for detection
+        this.complete = scanner.scan(ByteBuffer.wrap(header, 0, headerLength));
+    }
+
+    private ProbeResult buildResult() {
+        return new ProbeResult(mediaType, scanner != null ? scanner.getSize() : null, bytesRead);
+    }
+
+}
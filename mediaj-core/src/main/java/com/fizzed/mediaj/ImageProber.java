@@ -16,48 +16,138 @@
 package com.fizzed.mediaj;
 
 import com.fizzed.crux.mediatype.KnownMediaType;
-import com.fizzed.crux.util.Base16;
 import com.fizzed.crux.util.Size2D;
 import com.fizzed.mediaj.core.ByteArrayImageInputStream;
+import com.fizzed.mediaj.core.BoundedImageInputStream;
+import com.fizzed.mediaj.core.ByteBufferImageInputStream;
+import com.fizzed.mediaj.core.RandomAccessImageInputStream;
+import com.fizzed.mediaj.core.GIFHeader;
+import com.fizzed.mediaj.core.HeaderInfo;
+import com.fizzed.mediaj.core.ImageInputStreamAdapter;
+import com.fizzed.mediaj.core.ImageReaderPool;
+import com.fizzed.mediaj.core.ImageValidator;
+import com.fizzed.mediaj.core.InputStreamImageInputStream;
+import com.fizzed.mediaj.core.JPEGHeader;
+import com.fizzed.mediaj.core.PDFHeader;
+import com.fizzed.mediaj.core.PNGHeader;
 import com.fizzed.mediaj.core.StreamingSVGDocument;
-import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
-import java.io.FileInputStream;
+import com.fizzed.mediaj.core.ValidationInfo;
+import com.fizzed.mediaj.core.WebPHeader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.nio.file.StandardOpenOption;
 import java.util.Objects;
-import javax.imageio.ImageIO;
 import javax.imageio.ImageReader;
 import javax.imageio.stream.ImageInputStream;
-import javax.imageio.stream.MemoryCacheImageInputStream;
 
 public class ImageProber {
  
-    static private final int MAGIC_MAX_LENGTH;
-    static private final Map<byte[],KnownMediaType> MAGIC_NUMBERS;
-    static {
-        MAGIC_NUMBERS = new LinkedHashMap<>();
-        MAGIC_NUMBERS.put(Base16.decode("ffd8ff"), KnownMediaType.IMAGE_JPEG);
-        MAGIC_NUMBERS.put(Base16.decode("89504e470d0a1a0a"), KnownMediaType.IMAGE_PNG);
-        MAGIC_NUMBERS.put(Base16.decode("25504446"), KnownMediaType.APPLICATION_PDF);
-        MAGIC_NUMBERS.put(Base16.decode("474946383961"), KnownMediaType.IMAGE_GIF);
-        MAGIC_NUMBERS.put(Base16.decode("474946383761"), KnownMediaType.IMAGE_GIF);
-        MAGIC_NUMBERS.put(Base16.decode("524946460000000057454250"), KnownMediaType.IMAGE_WEBP);
-
-        // what's the max number of bytes we need to analyze?
-        MAGIC_MAX_LENGTH = MAGIC_NUMBERS.keySet().stream()
-            .mapToInt(v -> v.length)
-            .max()
-            .orElse(10);
+    static private final SignatureRegistry SIGNATURES = SignatureRegistry.getDefault();
+    
+    // reusable buffer for reading headers from streams
+    static private final ThreadLocal<byte[]> HEADER_BUFFERS
+        = ThreadLocal.withInitial(() -> new byte[SIGNATURES.getHeaderLength()]);
+    
+    // readers for formats the native header parsers don't cover (and for
+    // decoding, see SubsampledDecoder)
+    static final ImageReaderPool READERS
+        = new ImageReaderPool(Runtime.getRuntime().availableProcessors() * 2);
+    
+    // bytes buffered on the heap from an unbudgeted stream before spilling
+    static private final long SPILL_THRESHOLD = 1024L * 1024L;
+    
+    static private volatile ProbeListener LISTENER = ProbeListener.NOOP;
+    
+    /**
+     * The listener receiving metrics/tracing events for every probe.
+     * @return The listener (never null)
+     */
+    static public ProbeListener getListener() {
+        return LISTENER;
+    }
+    
+    /**
+     * Installs a listener to receive metrics/tracing events for every probe
+     * in this JVM, replacing any listener installed before.
+     * @param listener The listener or null to remove it
+     */
+    static public void setListener(
+            ProbeListener listener) {
+        
+        LISTENER = listener != null ? listener : ProbeListener.NOOP;
+    }
+    
+    static private long startTimer(
+            ProbeListener listener) {
+        
+        return listener != ProbeListener.NOOP ? System.nanoTime() : 0L;
+    }
+    
+    static private void completed(
+            ProbeListener listener,
+            ProbeListener.Operation operation,
+            KnownMediaType mediaType,
+            long start,
+            long bytesRead) {
+        
+        if (listener != ProbeListener.NOOP) {
+            listener.onComplete(operation, mediaType, System.nanoTime() - start, bytesRead);
+        }
+    }
+    
+    static private void failed(
+            ProbeListener listener,
+            ProbeListener.Operation operation,
+            KnownMediaType mediaType,
+            Throwable error) {
+        
+        if (listener != ProbeListener.NOOP) {
+            listener.onError(operation, mediaType, error);
+        }
+    }
+    
+    /**
+     * W/o a budget bounding what's buffered from a stream, anything past the
+     * spill threshold moves to a temp file (e.g. a PDF is read to its end to
+     * find its xref) rather than holding the whole stream on the heap.
+     */
+    static InputStreamImageInputStream newImageInput(
+            InputStream input,
+            ProbeOptions options) {
+        
+        Objects.requireNonNull(options, "options was null");
+        
+        long spillThreshold = options.getMaxBytesRead() == Long.MAX_VALUE ? SPILL_THRESHOLD : Long.MAX_VALUE;
+        return new InputStreamImageInputStream(input, spillThreshold);
+    }
+    
+    /**
+     * Tracks the furthest byte read w/o a budget, so the bytes read reported
+     * to the listener mean the same for every probe.
+     */
+    static private BoundedImageInputStream unbounded(
+            ImageInputStream input) throws IOException {
+        
+        return new BoundedImageInputStream(input, Long.MAX_VALUE);
+    }
+    
+    static private void svgParseFailed(
+            Throwable error) {
+        
+        final ProbeListener listener = LISTENER;
+        if (listener != ProbeListener.NOOP) {
+            listener.onSvgParseFailure(error);
+        }
     }
     
     /**
      * Probes the byte array to detect what kind of media type it contains.
      * Only a small subset of files are supported such as PNG, JPEG, PDF, etc.
+     * Additional formats may be registered with a {@link SignatureProvider}.
      * @param data The byte array
      * @return The detected media type or null if none detected.
      * @throws IOException 
@@ -65,13 +155,17 @@ public class ImageProber {
     static public KnownMediaType probeMediaType(
             byte[] data) throws IOException {
         
-        if (data == null || data.length == 0) {
-            return null;
-        }
+        final ProbeListener listener = LISTENER;
+        final long start = startTimer(listener);
         
-        try (ByteArrayInputStream input = new ByteArrayInputStream(data)) {
-            return probeMediaType(input);
+        KnownMediaType mediaType = null;
+        if (data != null && data.length > 0) {
+            mediaType = SIGNATURES.match(data, 0, data.length);
         }
+        
+        completed(listener, ProbeListener.Operation.MEDIA_TYPE, mediaType, start, -1L);
+        
+        return mediaType;
     }
     
     /**
@@ -84,57 +178,136 @@ public class ImageProber {
     static public KnownMediaType probeMediaType(
             Path file) throws IOException {
         
+        return probeMediaType(file, FileReadMode.AUTO);
+    }
+    
+    /**
+     * Probes the file to detect what kind of media type it contains.
+     * Only a small subset of files are supported such as PNG, JPEG, PDF, etc.
+     * @param file The file to check
+     * @param readMode How the file is read
+     * @return The detected media type or null if none detected.
+     * @throws IOException 
+     */
+    static public KnownMediaType probeMediaType(
+            Path file,
+            FileReadMode readMode) throws IOException {
+        
         if (file == null) {
             return null;
         }
         
-        // must wrap it in a buffer to get mark support
-        try (BufferedInputStream input = new BufferedInputStream(new FileInputStream(file.toFile()))) {
-            return probeMediaType(input);
+        final ProbeListener listener = LISTENER;
+        final long start = startTimer(listener);
+        
+        try (ImageInputStream imageInput = openImageInput(file, readMode)) {
+            KnownMediaType mediaType = matchHeader(imageInput);
+            completed(listener, ProbeListener.Operation.MEDIA_TYPE, mediaType, start, imageInput.getStreamPosition());
+            return mediaType;
+        } catch (IOException | RuntimeException e) {
+            failed(listener, ProbeListener.Operation.MEDIA_TYPE, null, e);
+            throw e;
+        }
+    }
+    
+    /**
+     * Probes the remaining bytes of the buffer to detect what kind of media
+     * type it contains.  Works with heap, direct or mapped buffers w/o copying
+     * and does not modify the buffer's position.
+     * @param buffer The buffer
+     * @return The detected media type or null if none detected.
+     * @throws IOException 
+     */
+    static public KnownMediaType probeMediaType(
+            ByteBuffer buffer) throws IOException {
+        
+        if (buffer == null || !buffer.hasRemaining()) {
+            return null;
+        }
+        
+        final ProbeListener listener = LISTENER;
+        final long start = startTimer(listener);
+        
+        if (buffer.hasArray()) {
+            KnownMediaType mediaType
+                = SIGNATURES.match(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            completed(listener, ProbeListener.Operation.MEDIA_TYPE, mediaType, start, -1L);
+            return mediaType;
+        }
+        
+        try (ImageInputStream imageInput = new ByteBufferImageInputStream(buffer)) {
+            KnownMediaType mediaType = matchHeader(imageInput);
+            completed(listener, ProbeListener.Operation.MEDIA_TYPE, mediaType, start, imageInput.getStreamPosition());
+            return mediaType;
+        } catch (IOException | RuntimeException e) {
+            failed(listener, ProbeListener.Operation.MEDIA_TYPE, null, e);
+            throw e;
         }
     }
     
+    /**
+     * Probes the stream to detect what kind of media type it contains. The
+     * stream must support mark/reset since it will be reset back to where it
+     * was before this call.
+     * @param input The stream to check
+     * @return The detected media type or null if none detected.
+     * @throws IOException 
+     */
     static public KnownMediaType probeMediaType(
             InputStream input) throws IOException {
         
-        // https://en.wikipedia.org/wiki/Magic_number_%28programming%29#Magic_numbers_in_files
-        // jpeg: FF D8 FF
-        // png: 89 50 4E 47 0D 0A 1A 0A
-        // pdf: 25 50 44 46
-        // gif: 47 49 46 38 39 61   OR    47 49 46 38 37 61
+        final ProbeListener listener = LISTENER;
+        final long start = startTimer(listener);
         
-        byte[] bytes = new byte[MAGIC_MAX_LENGTH];
-        input.mark(bytes.length);     // 10 bytes should do it
+        input.mark(SIGNATURES.getHeaderLength());
         try {
-            for (int i = 0; i < bytes.length; i++) {
-                int read = input.read(bytes, i, 1);
-                if (read < 0) {
-                    return null;        // unable to detect media type
-                }
-                MAGIC_LOOP:
-                for (Map.Entry<byte[],KnownMediaType> entry : MAGIC_NUMBERS.entrySet()) {
-                    // only evaluate entries that we have a full length for
-                    if (entry.getKey().length - 1 == i) {
-                        // does it match?
-                        for (int j = 0; j < entry.getKey().length; j++) {
-                            // skip validating 0x00?
-                            if (bytes[j] != (byte)0 && entry.getKey()[j] == (byte)0) {
-                                // wildcard, allow it like it matched
-                            }
-                            else if (bytes[j] != entry.getKey()[j]) {
-                                continue MAGIC_LOOP;  // move onto next
-                            }
-                        }
-                        // it MUST have matched
-                        return entry.getValue();
-                    }
-                }
-            }
+            KnownMediaType mediaType = matchHeader(input);
+            completed(listener, ProbeListener.Operation.MEDIA_TYPE, mediaType, start, -1L);
+            return mediaType;
+        } catch (IOException | RuntimeException e) {
+            failed(listener, ProbeListener.Operation.MEDIA_TYPE, null, e);
+            throw e;
         } finally {
             input.reset();
         }
+    }
+    
+    static private KnownMediaType matchHeader(
+            InputStream input) throws IOException {
+        
+        byte[] header = HEADER_BUFFERS.get();
+        
+        int length = readHeader(input, header, 0, SIGNATURES.getSignatureLength());
+        KnownMediaType mediaType = SIGNATURES.matchSignature(header, 0, length);
+        
+        if (mediaType == null && !SIGNATURES.getSniffers().isEmpty()) {
+            // only read the rest of the header if a sniffer needs it
+            length += readHeader(input, header, length, header.length - length);
+            mediaType = SIGNATURES.match(header, 0, length);
+        }
         
-        return null;
+        return mediaType;
+    }
+    
+    /**
+     * Reads as much of the header as possible into the buffer with as few
+     * reads as the stream allows (usually one).
+     */
+    static private int readHeader(
+            InputStream input,
+            byte[] header,
+            int offset,
+            int length) throws IOException {
+        
+        int total = 0;
+        while (total < length) {
+            int read = input.read(header, offset + total, length - total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
     }
     
     static public Size2D probeSize(
@@ -143,27 +316,88 @@ public class ImageProber {
         
         Objects.requireNonNull(mediaType, "mediaType was null");
         
+        final ProbeListener listener = LISTENER;
+        final long start = startTimer(listener);
+        
+        try {
             // special handling for svg
             if (mediaType == KnownMediaType.IMAGE_SVG_XML) {
-                try (InputStream byteInput = new ByteArrayInputStream(data)) {
-                    return StreamingSVGDocument.load(byteInput).getSize();
-                }
+                Size2D size = readSvgSize(data);
+                completed(listener, ProbeListener.Operation.SIZE, mediaType, start, -1L);
+                return size;
             }
 
-            // fallback to ImageIO
-            try (ImageInputStream imageInput = new ByteArrayImageInputStream(data)) {
-                return probeSize(mediaType, imageInput);
+            try (ImageInputStream source = new ByteArrayImageInputStream(data)) {
+                BoundedImageInputStream imageInput = unbounded(source);
+                Size2D size = probeSize(mediaType, imageInput);
+                completed(listener, ProbeListener.Operation.SIZE, mediaType, start, imageInput.getBytesRead());
+                return size;
             }
+        } catch (IOException | RuntimeException e) {
+            failed(listener, ProbeListener.Operation.SIZE, mediaType, e);
+            throw e;
+        }
     }
     
     static public Size2D probeSize(
             KnownMediaType mediaType,
             Path file) throws IOException {
         
+        return probeSize(mediaType, file, FileReadMode.AUTO);
+    }
+    
+    static public Size2D probeSize(
+            KnownMediaType mediaType,
+            Path file,
+            FileReadMode readMode) throws IOException {
+        
+        Objects.requireNonNull(mediaType, "mediaType was null");
         Objects.requireNonNull(file, "file was null");
         
-        try (FileInputStream input = new FileInputStream(file.toFile())) {
-            return probeSize(mediaType, input);
+        final ProbeListener listener = LISTENER;
+        final long start = startTimer(listener);
+        
+        try (ImageInputStream source = openImageInput(file, readMode)) {
+            BoundedImageInputStream imageInput = unbounded(source);
+            Size2D size;
+            // special handling for svg
+            if (mediaType == KnownMediaType.IMAGE_SVG_XML) {
+                size = readSvgSize(new ImageInputStreamAdapter(imageInput));
+            } else {
+                size = probeSize(mediaType, imageInput);
+            }
+            completed(listener, ProbeListener.Operation.SIZE, mediaType, start, imageInput.getBytesRead());
+            return size;
+        } catch (IOException | RuntimeException e) {
+            failed(listener, ProbeListener.Operation.SIZE, mediaType, e);
+            throw e;
+        }
+    }
+    
+    static public Size2D probeSize(
+            KnownMediaType mediaType,
+            ByteBuffer buffer) throws IOException {
+        
+        Objects.requireNonNull(mediaType, "mediaType was null");
+        Objects.requireNonNull(buffer, "buffer was null");
+        
+        final ProbeListener listener = LISTENER;
+        final long start = startTimer(listener);
+        
+        try (ImageInputStream source = new ByteBufferImageInputStream(buffer)) {
+            BoundedImageInputStream imageInput = unbounded(source);
+            Size2D size;
+            // special handling for svg
+            if (mediaType == KnownMediaType.IMAGE_SVG_XML) {
+                size = readSvgSize(new ImageInputStreamAdapter(imageInput));
+            } else {
+                size = probeSize(mediaType, imageInput);
+            }
+            completed(listener, ProbeListener.Operation.SIZE, mediaType, start, imageInput.getBytesRead());
+            return size;
+        } catch (IOException | RuntimeException e) {
+            failed(listener, ProbeListener.Operation.SIZE, mediaType, e);
+            throw e;
         }
     }
     
@@ -173,36 +407,947 @@ public class ImageProber {
         
         Objects.requireNonNull(mediaType, "mediaType was null");
         
-        // special handling for svg
-        if (mediaType == KnownMediaType.IMAGE_SVG_XML) {
-            return StreamingSVGDocument.load(input).getSize();
+        final ProbeListener listener = LISTENER;
+        final long start = startTimer(listener);
+        
+        try {
+            // special handling for svg
+            if (mediaType == KnownMediaType.IMAGE_SVG_XML) {
+                Size2D size = readSvgSize(input);
+                completed(listener, ProbeListener.Operation.SIZE, mediaType, start, -1L);
+                return size;
+            }
+
+            try (InputStreamImageInputStream source = newImageInput(input, ProbeOptions.DEFAULT)) {
+                BoundedImageInputStream imageInput = unbounded(source);
+                Size2D size = probeSize(mediaType, imageInput);
+                completed(listener, ProbeListener.Operation.SIZE, mediaType, start, imageInput.getBytesRead());
+                return size;
+            }
+        } catch (IOException | RuntimeException e) {
+            failed(listener, ProbeListener.Operation.SIZE, mediaType, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Probes the byte array for its media type and size in a single pass.
+     * @param data The byte array
+     * @return The result, which will have a null media type if it was not
+     *      detected and a null size if its dimensions are not supported.
+     * @throws IOException 
+     */
+    static public ProbeResult probe(
+            byte[] data) throws IOException {
+        
+        return probe(data, ProbeOptions.DEFAULT);
+    }
+    
+    /**
+     * Probes the byte array for its media type and size in a single pass.
+     * @param data The byte array
+     * @param options The options such as the max bytes read
+     * @return The result, which will have a null media type if it was not
+     *      detected and a null size if its dimensions are not supported.
+     * @throws ReadBudgetExceededException If the probe needed to read more
+     *      than the options allow
+     * @throws IOException 
+     */
+    static public ProbeResult probe(
+            byte[] data,
+            ProbeOptions options) throws IOException {
+        
+        Objects.requireNonNull(data, "data was null");
+        
+        try (ImageInputStream imageInput = new ByteArrayImageInputStream(data)) {
+            return probe(imageInput, options);
+        }
+    }
+    
+    /**
+     * Probes the file for its media type and size with a single open and read
+     * of its header.
+     * @param file The file
+     * @return The result, which will have a null media type if it was not
+     *      detected and a null size if its dimensions are not supported.
+     * @throws IOException 
+     */
+    static public ProbeResult probe(
+            Path file) throws IOException {
+        
+        return probe(file, ProbeOptions.DEFAULT);
+    }
+    
+    /**
+     * Probes the file for its media type and size with a single open and read
+     * of its header.
+     * @param file The file
+     * @param readMode How the file is read
+     * @return The result, which will have a null media type if it was not
+     *      detected and a null size if its dimensions are not supported.
+     * @throws IOException 
+     */
+    static public ProbeResult probe(
+            Path file,
+            FileReadMode readMode) throws IOException {
+        
+        Objects.requireNonNull(readMode, "readMode was null");
+        
+        return probe(file, ProbeOptions.builder().readMode(readMode).build());
+    }
+    
+    /**
+     * Probes the file for its media type and size with a single open and read
+     * of its header.
+     * @param file The file
+     * @param options The options such as how the file is read and the max
+     *      bytes read
+     * @return The result, which will have a null media type if it was not
+     *      detected and a null size if its dimensions are not supported.
+     * @throws ReadBudgetExceededException If the probe needed to read more
+     *      than the options allow
+     * @throws IOException 
+     */
+    static public ProbeResult probe(
+            Path file,
+            ProbeOptions options) throws IOException {
+        
+        Objects.requireNonNull(file, "file was null");
+        Objects.requireNonNull(options, "options was null");
+        
+        try (ImageInputStream imageInput = openImageInput(file, options.getReadMode())) {
+            return probe(imageInput, options);
+        }
+    }
+    
+    static ImageInputStream openImageInput(
+            Path file,
+            FileReadMode readMode) throws IOException {
+        
+        Objects.requireNonNull(readMode, "readMode was null");
+        
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            
+            boolean mapped = readMode == FileReadMode.MAPPED
+                || (readMode == FileReadMode.AUTO && size >= FileReadMode.AUTO_MAPPED_THRESHOLD);
+            
+            // a mapping is limited to 2GB, positional reads are not
+            if (mapped && size > 0 && size <= Integer.MAX_VALUE) {
+                // mapping remains valid after the channel is closed
+                try {
+                    return new ByteBufferImageInputStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+                } finally {
+                    channel.close();
+                }
+            }
+            
+            return new RandomAccessImageInputStream(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
         }
+    }
+    
+    /**
+     * Probes the remaining bytes of the buffer for its media type and size in
+     * a single pass.  Works with heap, direct or mapped buffers w/o copying
+     * and does not modify the buffer's position.
+     * @param buffer The buffer
+     * @return The result, which will have a null media type if it was not
+     *      detected and a null size if its dimensions are not supported.
+     * @throws IOException 
+     */
+    static public ProbeResult probe(
+            ByteBuffer buffer) throws IOException {
+        
+        return probe(buffer, ProbeOptions.DEFAULT);
+    }
+    
+    /**
+     * Probes the remaining bytes of the buffer for its media type and size in
+     * a single pass.  Works with heap, direct or mapped buffers w/o copying
+     * and does not modify the buffer's position.
+     * @param buffer The buffer
+     * @param options The options such as the max bytes read
+     * @return The result, which will have a null media type if it was not
+     *      detected and a null size if its dimensions are not supported.
+     * @throws ReadBudgetExceededException If the probe needed to read more
+     *      than the options allow
+     * @throws IOException 
+     */
+    static public ProbeResult probe(
+            ByteBuffer buffer,
+            ProbeOptions options) throws IOException {
+        
+        Objects.requireNonNull(buffer, "buffer was null");
+        
+        try (ImageInputStream imageInput = new ByteBufferImageInputStream(buffer)) {
+            return probe(imageInput, options);
+        }
+    }
+    
+    /**
+     * Probes the source for its media type and size with a few ranged reads,
+     * jumping over anything the parsers don't need.  The source is not closed.
+     * @param source The source
+     * @return The result, which will have a null media type if it was not
+     *      detected and a null size if its dimensions are not supported.
+     * @throws IOException 
+     */
+    static public ProbeResult probe(
+            RandomAccessSource source) throws IOException {
+        
+        return probe(source, ProbeOptions.DEFAULT);
+    }
+    
+    /**
+     * Probes the source for its media type and size with a few ranged reads,
+     * jumping over anything the parsers don't need.  The source is not closed.
+     * @param source The source
+     * @param options The options such as the max bytes read
+     * @return The result, which will have a null media type if it was not
+     *      detected and a null size if its dimensions are not supported.
+     * @throws ReadBudgetExceededException If the probe needed to read more
+     *      than the options allow
+     * @throws IOException 
+     */
+    static public ProbeResult probe(
+            RandomAccessSource source,
+            ProbeOptions options) throws IOException {
+        
+        Objects.requireNonNull(source, "source was null");
         
-        try (ImageInputStream imageInput = new MemoryCacheImageInputStream(input)) {
-            return probeSize(mediaType, imageInput);
+        try (ImageInputStream imageInput = new RandomAccessImageInputStream(
+                adapt(source), RandomAccessImageInputStream.DEFAULT_WINDOW_SIZE)) {
+            return probe(imageInput, options);
         }
     }
+    
+    static private RandomAccessImageInputStream.Source adapt(
+            RandomAccessSource source) {
+        
+        return new RandomAccessImageInputStream.Source() {
+            @Override
+            public long size() throws IOException {
+                return source.size();
+            }
+            
+            @Override
+            public int readAt(long position, ByteBuffer buffer) throws IOException {
+                return source.readAt(position, buffer);
+            }
+        };
+    }
+    
+    /**
+     * Probes the stream for its media type and size in a single pass.  The
+     * stream does not need to support mark/reset and is only buffered once,
+     * but it is consumed by this call.
+     * @param input The stream
+     * @return The result, which will have a null media type if it was not
+     *      detected and a null size if its dimensions are not supported.
+     * @throws IOException 
+     */
+    static public ProbeResult probe(
+            InputStream input) throws IOException {
+        
+        return probe(input, ProbeOptions.DEFAULT);
+    }
+    
+    /**
+     * Probes the stream for its media type and size in a single pass.  The
+     * stream does not need to support mark/reset and is only buffered once,
+     * but it is consumed by this call.  The max bytes read of the options also
+     * bounds how much of the stream is buffered, w/o one anything past 1MB is
+     * buffered in a temp file instead of on the heap.
+     * @param input The stream
+     * @param options The options such as the max bytes read
+     * @return The result, which will have a null media type if it was not
+     *      detected and a null size if its dimensions are not supported.
+     * @throws ReadBudgetExceededException If the probe needed to read more
+     *      than the options allow
+     * @throws IOException 
+     */
+    static public ProbeResult probe(
+            InputStream input,
+            ProbeOptions options) throws IOException {
+        
+        Objects.requireNonNull(input, "input was null");
+        
+        try (InputStreamImageInputStream imageInput = newImageInput(input, options)) {
+            ProbeResult result = probe(imageInput, options);
+            return new ProbeResult(result.getMediaType(), result.getSize(),
+                result.getBytesRead(), imageInput.getBytesBuffered());
+        }
+    }
+    
+    static ProbeResult probe(
+            ImageInputStream source,
+            ProbeOptions options) throws IOException {
+        
+        Objects.requireNonNull(options, "options was null");
+        
+        final ProbeListener listener = LISTENER;
+        final long start = startTimer(listener);
+        
+        BoundedImageInputStream imageInput = new BoundedImageInputStream(source, options.getMaxBytesRead());
+        KnownMediaType mediaType = null;
+        try {
+            mediaType = matchHeader(imageInput);
+
+            if (mediaType == null) {
+                completed(listener, ProbeListener.Operation.PROBE, null, start, imageInput.getBytesRead());
+                return new ProbeResult(null, null, imageInput.getBytesRead());
+            }
+
+            // probe size from the same stream w/o re-reading the source
+            imageInput.seek(0);
 
+            Size2D size;
+            if (mediaType == KnownMediaType.IMAGE_SVG_XML) {
+                size = readSvgSize(new ImageInputStreamAdapter(imageInput));
+            } else {
+                size = probeImageSize(mediaType, imageInput);
+            }
+
+            completed(listener, ProbeListener.Operation.PROBE, mediaType, start, imageInput.getBytesRead());
+            return new ProbeResult(mediaType, size, imageInput.getBytesRead());
+        } catch (IOException e) {
+            // parsers may have wrapped it
+            if (imageInput.isExceeded()) {
+                e = new ReadBudgetExceededException(options.getMaxBytesRead(), e);
+            }
+            failed(listener, ProbeListener.Operation.PROBE, mediaType, e);
+            throw e;
+        } catch (RuntimeException e) {
+            failed(listener, ProbeListener.Operation.PROBE, mediaType, e);
+            throw e;
+        }
+    }
+    
+    /**
+     * Probes the byte array for its extended metadata (orientation, color
+     * type, bit depth, frame count, etc.) from a walk of its headers w/o
+     * decoding any pixels.
+     * @param data The byte array
+     * @return The info, which will have a null media type if it was not
+     *      detected
+     * @throws IOException 
+     */
+    static public ImageInfo probeInfo(
+            byte[] data) throws IOException {
+        
+        return probeInfo(data, ProbeOptions.DEFAULT);
+    }
+    
+    /**
+     * Probes the byte array for its extended metadata (orientation, color
+     * type, bit depth, frame count, etc.) from a walk of its headers w/o
+     * decoding any pixels.
+     * @param data The byte array
+     * @param options The options such as the max bytes read
+     * @return The info, which will have a null media type if it was not
+     *      detected
+     * @throws ReadBudgetExceededException If the probe needed to read more
+     *      than the options allow
+     * @throws IOException 
+     */
+    static public ImageInfo probeInfo(
+            byte[] data,
+            ProbeOptions options) throws IOException {
+        
+        Objects.requireNonNull(data, "data was null");
+        
+        try (ImageInputStream imageInput = new ByteArrayImageInputStream(data)) {
+            return probeInfo(imageInput, options);
+        }
+    }
+    
+    /**
+     * Probes the file for its extended metadata (orientation, color type, bit
+     * depth, frame count, etc.) from a walk of its headers w/o decoding any
+     * pixels.
+     * @param file The file
+     * @return The info, which will have a null media type if it was not
+     *      detected
+     * @throws IOException 
+     */
+    static public ImageInfo probeInfo(
+            Path file) throws IOException {
+        
+        return probeInfo(file, ProbeOptions.DEFAULT);
+    }
+    
+    /**
+     * Probes the file for its extended metadata (orientation, color type, bit
+     * depth, frame count, etc.) from a walk of its headers w/o decoding any
+     * pixels.
+     * @param file The file
+     * @param options The options such as how the file is read and the max
+     *      bytes read
+     * @return The info, which will have a null media type if it was not
+     *      detected
+     * @throws ReadBudgetExceededException If the probe needed to read more
+     *      than the options allow
+     * @throws IOException 
+     */
+    static public ImageInfo probeInfo(
+            Path file,
+            ProbeOptions options) throws IOException {
+        
+        Objects.requireNonNull(file, "file was null");
+        Objects.requireNonNull(options, "options was null");
+        
+        try (ImageInputStream imageInput = openImageInput(file, options.getReadMode())) {
+            return probeInfo(imageInput, options);
+        }
+    }
+    
+    /**
+     * Probes the stream for its extended metadata (orientation, color type,
+     * bit depth, frame count, etc.) from a walk of its headers w/o decoding
+     * any pixels.  The stream is consumed by this call.
+     * @param input The stream
+     * @return The info, which will have a null media type if it was not
+     *      detected
+     * @throws IOException 
+     */
+    static public ImageInfo probeInfo(
+            InputStream input) throws IOException {
+        
+        return probeInfo(input, ProbeOptions.DEFAULT);
+    }
+    
+    /**
+     * Probes the stream for its extended metadata (orientation, color type,
+     * bit depth, frame count, etc.) from a walk of its headers w/o decoding
+     * any pixels.  The stream is consumed by this call.
+     * @param input The stream
+     * @param options The options such as the max bytes read
+     * @return The info, which will have a null media type if it was not
+     *      detected
+     * @throws ReadBudgetExceededException If the probe needed to read more
+     *      than the options allow
+     * @throws IOException 
+     */
+    static public ImageInfo probeInfo(
+            InputStream input,
+            ProbeOptions options) throws IOException {
+        
+        Objects.requireNonNull(input, "input was null");
+        
+        try (ImageInputStream imageInput = newImageInput(input, options)) {
+            return probeInfo(imageInput, options);
+        }
+    }
+    
+    static private ImageInfo probeInfo(
+            ImageInputStream source,
+            ProbeOptions options) throws IOException {
+        
+        Objects.requireNonNull(options, "options was null");
+        
+        final ProbeListener listener = LISTENER;
+        final long start = startTimer(listener);
+        
+        BoundedImageInputStream imageInput = new BoundedImageInputStream(source, options.getMaxBytesRead());
+        KnownMediaType mediaType = null;
+        try {
+            mediaType = matchHeader(imageInput);
+            
+            ImageInfo.Builder info = ImageInfo.builder()
+                .mediaType(mediaType);
+            
+            if (mediaType != null) {
+                imageInput.seek(0);
+                
+                HeaderInfo header = new HeaderInfo();
+                
+                if (probeHeaderInfo(mediaType, imageInput, header)) {
+                    info.size(header.hasSize() ? new Size2D(header.getWidth(), header.getHeight()) : null)
+                        .orientation(header.getOrientation())
+                        .colorType(toColorType(header.getColorType()))
+                        .bitDepth(header.getBitDepth())
+                        .alpha(header.isAlpha())
+                        .iccProfile(header.isIccProfile())
+                        .progressive(header.isProgressive())
+                        .frameCount(header.getFrameCount())
+                        .animated(header.isAnimated());
+                } else {
+                    // size only (e.g. svg or an ImageIO supported format)
+                    imageInput.seek(0);
+                    if (mediaType == KnownMediaType.IMAGE_SVG_XML) {
+                        info.size(readSvgSize(new ImageInputStreamAdapter(imageInput)));
+                    } else {
+                        info.size(probeImageSize(mediaType, imageInput));
+                    }
+                }
+            }
+            
+            completed(listener, ProbeListener.Operation.INFO, mediaType, start, imageInput.getBytesRead());
+            return info.bytesRead(imageInput.getBytesRead()).build();
+        } catch (IOException e) {
+            if (imageInput.isExceeded()) {
+                e = new ReadBudgetExceededException(options.getMaxBytesRead(), e);
+            }
+            failed(listener, ProbeListener.Operation.INFO, mediaType, e);
+            throw e;
+        } catch (RuntimeException e) {
+            failed(listener, ProbeListener.Operation.INFO, mediaType, e);
+            throw e;
+        }
+    }
+    
+    /**
+     * Extracts the preview JPEG embedded in the header of a JPEG (from its
+     * EXIF IFD1 or a JFIF extension segment) w/o decoding anything.  Only the
+     * segments ahead of the frame header are walked, the same as probeSize.
+     * @param data The byte array
+     * @return The thumbnail, which shares the byte array, or null if the
+     *      data is not a JPEG or it has no embedded thumbnail
+     * @throws IOException 
+     */
+    static public EmbeddedThumbnail extractEmbeddedThumbnail(
+            byte[] data) throws IOException {
+        
+        Objects.requireNonNull(data, "data was null");
+        
+        try (ImageInputStream imageInput = new ByteArrayImageInputStream(data)) {
+            return extractEmbeddedThumbnail(imageInput, ProbeOptions.DEFAULT,
+                (offset, length) -> ByteBuffer.wrap(data, (int) offset, length).slice());
+        }
+    }
+    
+    /**
+     * Extracts the preview JPEG embedded in the header of a JPEG (from its
+     * EXIF IFD1 or a JFIF extension segment) w/o decoding anything.  Only the
+     * segments ahead of the frame header are walked, the same as probeSize.
+     * The buffer's position is not modified.
+     * @param buffer The buffer
+     * @return The thumbnail, which shares the buffer's content and whose
+     *      offset is relative to the buffer's position, or null if the buffer
+     *      is not a JPEG or it has no embedded thumbnail
+     * @throws IOException 
+     */
+    static public EmbeddedThumbnail extractEmbeddedThumbnail(
+            ByteBuffer buffer) throws IOException {
+        
+        Objects.requireNonNull(buffer, "buffer was null");
+        
+        try (ImageInputStream imageInput = new ByteBufferImageInputStream(buffer)) {
+            return extractEmbeddedThumbnail(imageInput, ProbeOptions.DEFAULT, (offset, length) -> {
+                ByteBuffer slice = buffer.duplicate();
+                slice.position(buffer.position() + (int) offset);
+                slice.limit(buffer.position() + (int) offset + length);
+                return slice.slice();
+            });
+        }
+    }
+    
+    /**
+     * Extracts the preview JPEG embedded in the header of a JPEG (from its
+     * EXIF IFD1 or a JFIF extension segment) w/o decoding anything.  Only the
+     * segments ahead of the frame header are walked, the same as probeSize.
+     * @param file The file
+     * @return The thumbnail, which is a read-only mapping of its range of the
+     *      file, or null if the file is not a JPEG or it has no embedded
+     *      thumbnail
+     * @throws IOException 
+     */
+    static public EmbeddedThumbnail extractEmbeddedThumbnail(
+            Path file) throws IOException {
+        
+        Objects.requireNonNull(file, "file was null");
+        
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        
+        // mapping remains valid after the channel is closed
+        try (ImageInputStream imageInput = new RandomAccessImageInputStream(channel)) {
+            return extractEmbeddedThumbnail(imageInput, ProbeOptions.DEFAULT,
+                (offset, length) -> channel.map(FileChannel.MapMode.READ_ONLY, offset, length));
+        }
+    }
+    
+    /**
+     * Extracts the preview JPEG embedded in the header of a JPEG (from its
+     * EXIF IFD1 or a JFIF extension segment) w/o decoding anything.  Only the
+     * segments ahead of the frame header are read, the same as probeSize.
+     * The stream is consumed by this call.
+     * @param input The stream
+     * @return The thumbnail, which is copied onto the heap, or null if the
+     *      stream is not a JPEG or it has no embedded thumbnail
+     * @throws IOException 
+     */
+    static public EmbeddedThumbnail extractEmbeddedThumbnail(
+            InputStream input) throws IOException {
+        
+        return extractEmbeddedThumbnail(input, ProbeOptions.DEFAULT);
+    }
+    
+    /**
+     * Extracts the preview JPEG embedded in the header of a JPEG (from its
+     * EXIF IFD1 or a JFIF extension segment) w/o decoding anything.  Only the
+     * segments ahead of the frame header are read, the same as probeSize.
+     * The stream is consumed by this call.  The max bytes read of the options
+     * also bounds how much of the stream is buffered, w/o one anything past
+     * 1MB is buffered in a temp file instead of on the heap.
+     * @param input The stream
+     * @param options The options such as the max bytes read
+     * @return The thumbnail, which is copied onto the heap, or null if the
+     *      stream is not a JPEG or it has no embedded thumbnail
+     * @throws ReadBudgetExceededException If finding the thumbnail needed to
+     *      read more than the options allow
+     * @throws IOException 
+     */
+    static public EmbeddedThumbnail extractEmbeddedThumbnail(
+            InputStream input,
+            ProbeOptions options) throws IOException {
+        
+        Objects.requireNonNull(input, "input was null");
+        
+        try (ImageInputStream imageInput = newImageInput(input, options)) {
+            return extractEmbeddedThumbnail(imageInput, options, (offset, length) -> {
+                byte[] data = new byte[length];
+                imageInput.seek(offset);
+                imageInput.readFully(data);
+                return ByteBuffer.wrap(data);
+            });
+        }
+    }
+    
+    /**
+     * Creates the view of (or copies) a range of a source.
+     */
+    static private interface Slicer {
+        
+        ByteBuffer slice(long offset, int length) throws IOException;
+        
+    }
+    
+    static private EmbeddedThumbnail extractEmbeddedThumbnail(
+            ImageInputStream source,
+            ProbeOptions options,
+            Slicer slicer) throws IOException {
+        
+        final ProbeListener listener = LISTENER;
+        final long start = startTimer(listener);
+        
+        BoundedImageInputStream imageInput
+            = new BoundedImageInputStream(source, options.getMaxBytesRead());
+        KnownMediaType mediaType = null;
+        try {
+            mediaType = matchHeader(imageInput);
+            
+            EmbeddedThumbnail thumbnail = null;
+            
+            if (mediaType == KnownMediaType.IMAGE_JPEG) {
+                imageInput.seek(0);
+                
+                HeaderInfo header = new HeaderInfo();
+                
+                if (JPEGHeader.readThumbnail(imageInput, header)) {
+                    long offset = header.getThumbnailOffset();
+                    int length = header.getThumbnailLength();
+                    
+                    // a segment's length may claim more than the source has
+                    long sourceLength = imageInput.length();
+                    boolean inRange = sourceLength < 0 || offset + length <= sourceLength;
+                    
+                    // the thumbnail is a complete jpeg whose frame header must
+                    // be within its own bytes
+                    imageInput.seek(offset);
+                    Size2D size = inRange ? JPEGHeader.readSize(imageInput) : null;
+                    
+                    if (size != null && imageInput.getStreamPosition() <= offset + length) {
+                        thumbnail = new EmbeddedThumbnail(KnownMediaType.IMAGE_JPEG,
+                            size, offset, slicer.slice(offset, length));
+                    }
+                }
+            }
+            
+            completed(listener, ProbeListener.Operation.THUMBNAIL, mediaType, start, imageInput.getBytesRead());
+            return thumbnail;
+        } catch (IOException e) {
+            if (imageInput.isExceeded()) {
+                e = new ReadBudgetExceededException(options.getMaxBytesRead(), e);
+            }
+            failed(listener, ProbeListener.Operation.THUMBNAIL, mediaType, e);
+            throw e;
+        } catch (RuntimeException e) {
+            failed(listener, ProbeListener.Operation.THUMBNAIL, mediaType, e);
+            throw e;
+        }
+    }
+    
+    /**
+     * Checks the image's structure end to end (e.g. JPEG markers through EOI,
+     * PNG chunk CRCs through IEND) in a single pass w/o decoding any pixels,
+     * which catches truncated uploads and corrupt files a header probe would
+     * accept.  JPEG, PNG, GIF, WebP and PDF are supported.
+     * @param data The byte array
+     * @return The verdict
+     * @throws IOException 
+     */
+    static public ValidationResult validate(
+            byte[] data) throws IOException {
+        
+        Objects.requireNonNull(data, "data was null");
+        
+        KnownMediaType mediaType = data.length > 0 ? SIGNATURES.match(data, 0, data.length) : null;
+        
+        return validate(mediaType, data, data.length, null);
+    }
+    
+    /**
+     * Checks the image's structure end to end (e.g. JPEG markers through EOI,
+     * PNG chunk CRCs through IEND) in a single sequential read of the file
+     * w/o decoding any pixels.  JPEG, PNG, GIF, WebP and PDF are supported.
+     * @param file The file
+     * @return The verdict
+     * @throws IOException 
+     */
+    static public ValidationResult validate(
+            Path file) throws IOException {
+        
+        Objects.requireNonNull(file, "file was null");
+        
+        try (InputStream input = Files.newInputStream(file)) {
+            return validate(input);
+        }
+    }
+    
+    /**
+     * Checks the image's structure end to end (e.g. JPEG markers through EOI,
+     * PNG chunk CRCs through IEND) in a single pass w/o decoding any pixels.
+     * The stream is read in large chunks (no buffering needed) and consumed
+     * by this call.  JPEG, PNG, GIF, WebP and PDF are supported.
+     * @param input The stream
+     * @return The verdict
+     * @throws IOException 
+     */
+    static public ValidationResult validate(
+            InputStream input) throws IOException {
+        
+        Objects.requireNonNull(input, "input was null");
+        
+        byte[] header = HEADER_BUFFERS.get();
+        int length = readHeader(input, header, 0, header.length);
+        KnownMediaType mediaType = length > 0 ? SIGNATURES.match(header, 0, length) : null;
+        
+        return validate(mediaType, header, length, input);
+    }
+    
+    static private ValidationResult validate(
+            KnownMediaType mediaType,
+            byte[] prefix,
+            int prefixLength,
+            InputStream input) throws IOException {
+        
+        final ProbeListener listener = LISTENER;
+        final long start = startTimer(listener);
+        
+        if (mediaType == null || !ImageValidator.isSupported(mediaType)) {
+            completed(listener, ProbeListener.Operation.VALIDATE, mediaType, start, prefixLength);
+            return new ValidationResult(mediaType, ValidationResult.Status.UNSUPPORTED, -1L,
+                mediaType != null ? "Unsupported media type " + mediaType : null, prefixLength);
+        }
+        
+        try {
+            ValidationInfo info = new ValidationInfo();
+            ImageValidator.validate(mediaType, prefix, prefixLength, input, info);
+            completed(listener, ProbeListener.Operation.VALIDATE, mediaType, start, info.getBytesRead());
+            return new ValidationResult(mediaType, toStatus(info.getStatus()), info.getOffset(),
+                info.getMessage(), info.getBytesRead());
+        } catch (IOException | RuntimeException e) {
+            failed(listener, ProbeListener.Operation.VALIDATE, mediaType, e);
+            throw e;
+        }
+    }
+    
+    static private ValidationResult.Status toStatus(
+            int status) {
+        
+        switch (status) {
+            case ValidationInfo.TRUNCATED:
+                return ValidationResult.Status.TRUNCATED;
+            case ValidationInfo.CORRUPT:
+                return ValidationResult.Status.CORRUPT;
+            default:
+                return ValidationResult.Status.VALID;
+        }
+    }
+    
+    static private boolean probeHeaderInfo(
+            KnownMediaType mediaType,
+            ImageInputStream imageInput,
+            HeaderInfo header) throws IOException {
+        
+        switch (mediaType) {
+            case IMAGE_JPEG:
+                return JPEGHeader.readInfo(imageInput, header);
+            case IMAGE_PNG:
+                return PNGHeader.readInfo(imageInput, header);
+            case IMAGE_GIF:
+                return GIFHeader.readInfo(imageInput, header);
+            case IMAGE_WEBP:
+                return WebPHeader.readInfo(imageInput, header);
+            case APPLICATION_PDF:
+                return PDFHeader.readInfo(imageInput, header);
+            default:
+                return false;
+        }
+    }
+    
+    static private ColorType toColorType(
+            int colorType) {
+        
+        switch (colorType) {
+            case HeaderInfo.COLOR_GRAY:
+                return ColorType.GRAY;
+            case HeaderInfo.COLOR_RGB:
+                return ColorType.RGB;
+            case HeaderInfo.COLOR_PALETTE:
+                return ColorType.PALETTE;
+            case HeaderInfo.COLOR_YCBCR:
+                return ColorType.YCBCR;
+            case HeaderInfo.COLOR_CMYK:
+                return ColorType.CMYK;
+            case HeaderInfo.COLOR_YCCK:
+                return ColorType.YCCK;
+            default:
+                return null;
+        }
+    }
+    
+    static private Size2D readSvgSize(
+            byte[] data) throws IOException {
+        
+        try {
+            return StreamingSVGDocument.readSize(data, 0, data.length);
+        } catch (IOException | RuntimeException e) {
+            svgParseFailed(e);
+            throw e;
+        }
+    }
+    
+    static private Size2D readSvgSize(
+            InputStream input) throws IOException {
+        
+        try {
+            return StreamingSVGDocument.readSize(input);
+        } catch (IOException | RuntimeException e) {
+            svgParseFailed(e);
+            throw e;
+        }
+    }
+    
+    static KnownMediaType matchHeader(
+            ImageInputStream input) throws IOException {
+        
+        byte[] header = HEADER_BUFFERS.get();
+        
+        int length = readHeader(input, header, 0, SIGNATURES.getSignatureLength());
+        KnownMediaType mediaType = SIGNATURES.matchSignature(header, 0, length);
+        
+        if (mediaType == null && !SIGNATURES.getSniffers().isEmpty()) {
+            // only read the rest of the header if a sniffer needs it
+            length += readHeader(input, header, length, header.length - length);
+            mediaType = SIGNATURES.match(header, 0, length);
+        }
+        
+        return mediaType;
+    }
+    
+    static private int readHeader(
+            ImageInputStream input,
+            byte[] header,
+            int offset,
+            int length) throws IOException {
+        
+        int total = 0;
+        while (total < length) {
+            int read = input.read(header, offset + total, length - total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+    
     static private Size2D probeSize(
             KnownMediaType mediaType,
             ImageInputStream imageInput) throws IOException {
         
+        Size2D size = probeImageSize(mediaType, imageInput);
+        
+        if (size == null) {
+            throw new IOException("Unable to probe dimension for media type " + mediaType);
+        }
+        
+        return size;
+    }
+    
+    static private Size2D probeImageSize(
+            KnownMediaType mediaType,
+            ImageInputStream imageInput) throws IOException {
+        
         Objects.requireNonNull(mediaType, "mediaType was null");
         Objects.requireNonNull(imageInput, "imageInput was null");
         
-        Iterator<ImageReader> iter = ImageIO.getImageReadersByMIMEType(mediaType.getLabel());
-        if (iter.hasNext()) {
-            ImageReader reader = iter.next();
-            try {
-                reader.setInput(imageInput);
-                int width = reader.getWidth(reader.getMinIndex());
-                int height = reader.getHeight(reader.getMinIndex());
-                return new Size2D(width, height);
-            } finally {
-                reader.dispose();
-            }
-        } else {
-            throw new IOException("Unable to probe dimension for media type " + mediaType);
+        // try parsing the header ourselves first (minimal read, no allocation)
+        long start = imageInput.getStreamPosition();
+        Size2D size = probeHeaderSize(mediaType, imageInput);
+        if (size != null) {
+            return size;
+        }
+        
+        // fallback to ImageIO
+        imageInput.seek(start);
+        
+        ImageReader reader = READERS.borrow(mediaType);
+        if (reader == null) {
+            return null;
+        }
+        
+        final ProbeListener listener = LISTENER;
+        if (listener != ProbeListener.NOOP) {
+            listener.onImageIOFallback(mediaType);
+        }
+        
+        try {
+            reader.setInput(imageInput, false, true);
+            int width = reader.getWidth(reader.getMinIndex());
+            int height = reader.getHeight(reader.getMinIndex());
+            return new Size2D(width, height);
+        } catch (RuntimeException e) {
+            // ImageIO readers fail on corrupt/truncated headers with all sorts
+            // of runtime exceptions (e.g. a negative palette size)
+            throw new IOException("Corrupt " + mediaType + " header", e);
+        } finally {
+            READERS.release(mediaType, reader);
+        }
+    }
+    
+    static private Size2D probeHeaderSize(
+            KnownMediaType mediaType,
+            ImageInputStream imageInput) throws IOException {
+        
+        switch (mediaType) {
+            case IMAGE_JPEG:
+                return JPEGHeader.readSize(imageInput);
+            case IMAGE_PNG:
+                return PNGHeader.readSize(imageInput);
+            case IMAGE_GIF:
+                return GIFHeader.readSize(imageInput);
+            case IMAGE_WEBP:
+                return WebPHeader.readSize(imageInput);
+            case APPLICATION_PDF:
+                return PDFHeader.readSize(imageInput);
+            default:
+                return null;
         }
     }
     
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+import com.fizzed.crux.mediatype.KnownMediaType;
+
+/**
+ * Detects a media type whose header can't be expressed as a fixed
+ * {@link Signature} (e.g. SVG, which is text with an optional prolog).
+ * Sniffers are only consulted after no signature matched.
+ *
+ * @author jjlauer
+ */
+public interface MediaTypeSniffer {
+
+    /**
+     * The max number of header bytes this sniffer wants to see.
+     * @return The number of header bytes
+     */
+    int getLength();
+
+    /**
+     * Sniffs the header.
+     *
+     * @param data The header bytes
+     * @param offset The offset into data the header starts at
+     * @param length The number of bytes available (may be less than
+     *      {@link #getLength()} if the content is short)
+     * @return The detected media type or null if not detected
+     */
+    KnownMediaType sniff(byte[] data, int offset, int length);
+
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+import com.fizzed.crux.mediatype.KnownMediaType;
+import com.fizzed.mediaj.core.ByteArrayImageInputStream;
+import com.fizzed.mediaj.core.RandomAccessImageInputStream;
+import com.fizzed.mediaj.core.JPEGHeader;
+import com.fizzed.mediaj.core.PNGHeader;
+import com.fizzed.mediaj.core.StripPlan;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Strips privacy sensitive metadata (EXIF, XMP, comments, text chunks, etc.)
+ * from JPEG and PNG images w/o decoding and re-encoding them.  The headers
+ * of the PNG chunks or JPEG segments are read to plan which to drop (a JPEG's
+ * entropy coded data is also scanned once for the markers between scans),
+ * everything else is copied as-is, so the image data is untouched (no
+ * generation loss) and a file to file strip copies it w/
+ * FileChannel.transferTo.
+ *
+ * <pre>
+ * MetadataStripper stripper = MetadataStripper.builder()
+ *     .keepIccProfile(true)
+ *     .keepOrientation(true)
+ *     .build();
+ *
+ * StripResult result = stripper.strip(upload, target);
+ * </pre>
+ *
+ * A stripper is immutable and thread safe.
+ *
+ * @author jjlauer
+ */
+public class MetadataStripper {
+
+    final private boolean keepIccProfile;
+    final private boolean keepOrientation;
+
+    private MetadataStripper(
+            boolean keepIccProfile,
+            boolean keepOrientation) {
+
+        this.keepIccProfile = keepIccProfile;
+        this.keepOrientation = keepOrientation;
+    }
+
+    public boolean isKeepIccProfile() {
+        return keepIccProfile;
+    }
+
+    public boolean isKeepOrientation() {
+        return keepOrientation;
+    }
+
+    /**
+     * Whether metadata can be stripped from the media type.
+     * @param mediaType The media type
+     * @return True if supported
+     */
+    static public boolean isSupported(
+            KnownMediaType mediaType) {
+
+        return mediaType == KnownMediaType.IMAGE_JPEG || mediaType == KnownMediaType.IMAGE_PNG;
+    }
+
+    /**
+     * Strips the metadata from the image in the byte array.
+     * @param data The byte array
+     * @return The stripped image
+     * @throws IOException If the media type is not detected or supported or
+     *      the image's structure is invalid
+     */
+    public byte[] strip(
+            byte[] data) throws IOException {
+
+        Objects.requireNonNull(data, "data was null");
+
+        StripPlan plan = new StripPlan();
+        try (ImageInputStream imageInput = new ByteArrayImageInputStream(data)) {
+            plan(imageInput, plan);
+        }
+
+        byte[] stripped = new byte[(int) plan.getLength(data.length)];
+        int position = 0;
+        for (int i = 0; i < plan.size(); i++) {
+            byte[] block = plan.getData(i);
+            if (block != null) {
+                System.arraycopy(block, 0, stripped, position, block.length);
+                position += block.length;
+            } else {
+                int length = (int) plan.getLength(i, data.length);
+                System.arraycopy(data, (int) plan.getOffset(i), stripped, position, length);
+                position += length;
+            }
+        }
+
+        return stripped;
+    }
+
+    /**
+     * Strips the metadata from the image in the stream, writing the stripped
+     * image to the output.  The input is consumed by this call and buffered
+     * in memory (use the file to file strip for large images).
+     * @param input The stream
+     * @param output The stream the stripped image is written to
+     * @return The result
+     * @throws IOException If the media type is not detected or supported or
+     *      the image's structure is invalid
+     */
+    public StripResult strip(
+            InputStream input,
+            OutputStream output) throws IOException {
+
+        Objects.requireNonNull(input, "input was null");
+        Objects.requireNonNull(output, "output was null");
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        int read;
+        while ((read = input.read(chunk)) >= 0) {
+            buffer.write(chunk, 0, read);
+        }
+        byte[] data = buffer.toByteArray();
+
+        StripPlan plan = new StripPlan();
+        KnownMediaType mediaType;
+        try (ImageInputStream imageInput = new ByteArrayImageInputStream(data)) {
+            mediaType = plan(imageInput, plan);
+        }
+
+        long length = 0;
+        for (int i = 0; i < plan.size(); i++) {
+            byte[] block = plan.getData(i);
+            if (block != null) {
+                output.write(block);
+                length += block.length;
+            } else {
+                int blockLength = (int) plan.getLength(i, data.length);
+                output.write(data, (int) plan.getOffset(i), blockLength);
+                length += blockLength;
+            }
+        }
+
+        return new StripResult(mediaType, data.length, length, plan.getRemoved());
+    }
+
+    /**
+     * Strips the metadata from the image in the source file, writing the
+     * stripped image to the target file (created or replaced).  The ranges
+     * kept are transferred between the files by the OS (usually w/o a copy
+     * into user space).  The target is deleted if the strip fails.
+     * @param source The file to strip
+     * @param target The file to write, which must not be the source
+     * @return The result
+     * @throws IOException If the media type is not detected or supported or
+     *      the image's structure is invalid
+     */
+    public StripResult strip(
+            Path source,
+            Path target) throws IOException {
+
+        Objects.requireNonNull(source, "source was null");
+        Objects.requireNonNull(target, "target was null");
+
+        if (Files.exists(target) && Files.isSameFile(source, target)) {
+            throw new IllegalArgumentException("Target is the same file as the source");
+        }
+
+        try (FileChannel sourceChannel = FileChannel.open(source, StandardOpenOption.READ)) {
+            long sourceLength = sourceChannel.size();
+
+            StripPlan plan = new StripPlan();
+            KnownMediaType mediaType;
+            // only segment/chunk headers are read thru the stream's window
+            try (ImageInputStream imageInput = new RandomAccessImageInputStream(sourceChannel, false, 512)) {
+                mediaType = plan(imageInput, plan);
+            }
+
+            try (FileChannel targetChannel = FileChannel.open(target, StandardOpenOption.WRITE,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+                for (int i = 0; i < plan.size(); i++) {
+                    byte[] block = plan.getData(i);
+                    if (block != null) {
+                        ByteBuffer buffer = ByteBuffer.wrap(block);
+                        while (buffer.hasRemaining()) {
+                            targetChannel.write(buffer);
+                        }
+                    } else {
+                        transfer(sourceChannel, plan.getOffset(i), plan.getLength(i, sourceLength), targetChannel);
+                    }
+                }
+
+                return new StripResult(mediaType, sourceLength, targetChannel.size(), plan.getRemoved());
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(target);
+                throw e;
+            }
+        }
+    }
+
+    private KnownMediaType plan(
+            ImageInputStream imageInput,
+            StripPlan plan) throws IOException {
+
+        KnownMediaType mediaType = ImageProber.matchHeader(imageInput);
+        if (mediaType == null) {
+            throw new IOException("Unable to detect media type");
+        }
+        if (!isSupported(mediaType)) {
+            throw new IOException("Unable to strip media type " + mediaType);
+        }
+
+        imageInput.seek(0);
+
+        boolean planned;
+        try {
+            planned = mediaType == KnownMediaType.IMAGE_JPEG
+                ? JPEGHeader.planStrip(imageInput, plan, this.keepIccProfile, this.keepOrientation)
+                : PNGHeader.planStrip(imageInput, plan, this.keepIccProfile, this.keepOrientation);
+        } catch (EOFException e) {
+            throw new IOException("Truncated " + mediaType + " header", e);
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt " + mediaType + " header", e);
+        }
+
+        if (!planned) {
+            throw new IOException("Invalid " + mediaType + " structure");
+        }
+
+        return mediaType;
+    }
+
+    static private void transfer(
+            FileChannel source,
+            long offset,
+            long length,
+            FileChannel target) throws IOException {
+
+        while (length > 0) {
+            long transferred = source.transferTo(offset, length, target);
+            if (transferred <= 0) {
+                throw new IOException("Unexpected end of file at " + offset);
+            }
+            offset += transferred;
+            length -= transferred;
+        }
+    }
+
+    static public Builder builder() {
+        return new Builder();
+    }
+
+    static public class Builder {
+
+        private boolean keepIccProfile;
+        private boolean keepOrientation;
+
+        private Builder() {
+            this.keepIccProfile = true;
+            this.keepOrientation = true;
+        }
+
+        /**
+         * Whether the ICC profile is kept, since colors render differently
+         * w/o it.  Defaults to true.
+         */
+        public Builder keepIccProfile(
+                boolean keepIccProfile) {
+
+            this.keepIccProfile = keepIccProfile;
+            return this;
+        }
+
+        /**
+         * Whether the EXIF orientation is kept (as a minimal EXIF block with
+         * nothing else), since the image displays rotated w/o it.  Defaults
+         * to true.
+         */
+        public Builder keepOrientation(
+                boolean keepOrientation) {
+
+            this.keepOrientation = keepOrientation;
+            return this;
+        }
+
+        public MetadataStripper build() {
+            return new MetadataStripper(this.keepIccProfile, this.keepOrientation);
+        }
+
+    }
+
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+import com.fizzed.crux.mediatype.KnownMediaType;
+import com.fizzed.crux.util.Size2D;
+import com.fizzed.mediaj.core.ByteArrayImageInputStream;
+import com.fizzed.mediaj.core.PerceptualHasher;
+import com.fizzed.mediaj.core.Resampler;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Computes 64-bit perceptual hashes of images for finding near duplicates
+ * (e.g. the same photo re-encoded or resized), where the Hamming distance
+ * between two hashes measures how different the images look.  Images are
+ * decoded heavily subsampled (a tiny raster no matter the source size) and
+ * area averaged into a luminance grid w/ pooled scratch arrays.
+ *
+ * <pre>
+ * long a = PerceptualHash.hash(HashAlgorithm.PERCEPTUAL, file1);
+ * long b = PerceptualHash.hash(HashAlgorithm.PERCEPTUAL, file2);
+ * boolean similar = PerceptualHash.distance(a, b) &lt;= 10;
+ * </pre>
+ *
+ * Hashes are only comparable when computed w/ the same algorithm.  To hash a
+ * batch of files in the same pass as probing them see
+ * {@link BatchProber.Builder#hash(HashAlgorithm)}.
+ *
+ * @author jjlauer
+ */
+public class PerceptualHash {
+
+    /**
+     * The min size (in each dimension) images are decoded at, which is
+     * large enough to average away the aliasing of subsampling.
+     */
+    static final int DECODE_SIZE = 64;
+
+    // idle hashers (and their scratch arrays) shared by any thread, since
+    // a thread local would allocate one per virtual thread
+    static private final BlockingQueue<PerceptualHasher> HASHERS
+        = new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors() * 2);
+
+    private PerceptualHash() {
+        // static only
+    }
+
+    /**
+     * Whether images of the media type can be hashed (ImageIO has a reader
+     * for it).
+     * @param mediaType The media type
+     * @return True if supported
+     * @throws IOException 
+     */
+    static public boolean isSupported(
+            KnownMediaType mediaType) throws IOException {
+
+        return SubsampledDecoder.isSupported(mediaType);
+    }
+
+    /**
+     * The number of bits that differ between two hashes (0 thru 64).  As a
+     * rule of thumb <= 10 of 64 is the same image.
+     * @param hash1 The first hash
+     * @param hash2 The second hash
+     * @return The Hamming distance
+     */
+    static public int distance(
+            long hash1,
+            long hash2) {
+
+        return Long.bitCount(hash1 ^ hash2);
+    }
+
+    /**
+     * Hashes the image in the byte array.
+     * @param algorithm The algorithm
+     * @param data The byte array
+     * @return The hash
+     * @throws IOException If the media type or size could not be probed or
+     *      ImageIO can't decode it
+     */
+    static public long hash(
+            HashAlgorithm algorithm,
+            byte[] data) throws IOException {
+
+        return hash(algorithm, data, null);
+    }
+
+    /**
+     * Hashes the image in the byte array using the result of an earlier
+     * probe of it (nothing is probed again).
+     * @param algorithm The algorithm
+     * @param data The byte array
+     * @param probed The result of probing the byte array or null to probe it
+     * @return The hash
+     * @throws IOException If the media type or size could not be probed or
+     *      ImageIO can't decode it
+     */
+    static public long hash(
+            HashAlgorithm algorithm,
+            byte[] data,
+            ProbeResult probed) throws IOException {
+
+        Objects.requireNonNull(data, "data was null");
+
+        try (ImageInputStream imageInput = new ByteArrayImageInputStream(data)) {
+            return hash(algorithm, imageInput, probed);
+        }
+    }
+
+    /**
+     * Hashes the image in the file.
+     * @param algorithm The algorithm
+     * @param file The file
+     * @return The hash
+     * @throws IOException If the media type or size could not be probed or
+     *      ImageIO can't decode it
+     */
+    static public long hash(
+            HashAlgorithm algorithm,
+            Path file) throws IOException {
+
+        return hash(algorithm, file, null, FileReadMode.AUTO);
+    }
+
+    /**
+     * Hashes the image in the file using the result of an earlier probe of it
+     * (nothing is probed again).
+     * @param algorithm The algorithm
+     * @param file The file
+     * @param probed The result of probing the file or null to probe it
+     * @param readMode How the file is read
+     * @return The hash
+     * @throws IOException If the media type or size could not be probed or
+     *      ImageIO can't decode it
+     */
+    static public long hash(
+            HashAlgorithm algorithm,
+            Path file,
+            ProbeResult probed,
+            FileReadMode readMode) throws IOException {
+
+        Objects.requireNonNull(file, "file was null");
+
+        try (ImageInputStream imageInput = ImageProber.openImageInput(file, readMode)) {
+            return hash(algorithm, imageInput, probed);
+        }
+    }
+
+    /**
+     * Hashes the image in the stream.  The stream is consumed by this call
+     * and anything past the first 1MB of it is spilled to a temp file rather
+     * than held on the heap.
+     * @param algorithm The algorithm
+     * @param input The stream
+     * @return The hash
+     * @throws IOException If the media type or size could not be probed or
+     *      ImageIO can't decode it
+     */
+    static public long hash(
+            HashAlgorithm algorithm,
+            InputStream input) throws IOException {
+
+        Objects.requireNonNull(input, "input was null");
+
+        try (ImageInputStream imageInput = ImageProber.newImageInput(input, ProbeOptions.DEFAULT)) {
+            return hash(algorithm, imageInput, null);
+        }
+    }
+
+    static private long hash(
+            HashAlgorithm algorithm,
+            ImageInputStream imageInput,
+            ProbeResult probed) throws IOException {
+
+        Objects.requireNonNull(algorithm, "algorithm was null");
+
+        probed = SubsampledDecoder.probe(imageInput, probed);
+
+        Size2D size = probed.getSize();
+        int width = (int) size.getWidth();
+        int height = (int) size.getHeight();
+
+        int subsampling = Resampler.subsampling(width, height, DECODE_SIZE, DECODE_SIZE);
+
+        BufferedImage decoded = SubsampledDecoder.decode(imageInput, probed,
+            new Rectangle(0, 0, width, height), subsampling);
+
+        PerceptualHasher hasher = HASHERS.poll();
+        if (hasher == null) {
+            hasher = new PerceptualHasher();
+        }
+
+        try {
+            switch (algorithm) {
+                case AVERAGE:
+                    return hasher.averageHash(decoded);
+                case DIFFERENCE:
+                    return hasher.differenceHash(decoded);
+                default:
+                    return hasher.perceptualHash(decoded);
+            }
+        } finally {
+            HASHERS.offer(hasher);
+        }
+    }
+
+}
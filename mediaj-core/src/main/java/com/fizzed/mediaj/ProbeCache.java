@@ -0,0 +1,546 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+import com.fizzed.crux.mediatype.KnownMediaType;
+import com.fizzed.crux.util.Size2D;
+import com.fizzed.mediaj.core.ContentHash;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size bounded LRU cache of probe results in front of ImageProber.  Files are
+ * keyed by their identity (path, size, last modified time and file key, e.g.
+ * the inode), so a hit costs a single stat and no reads.  Bytes and streams
+ * are keyed by a hash of their first hashLength bytes plus their length, and
+ * only results that needed no more than those bytes are cached, since those
+ * are the only ones fully determined by the key.
+ *
+ * The cache may optionally be saved to (and loaded from) a compact binary file
+ * so it survives restarts.  Thread safe.
+ *
+ * @author jjlauer
+ */
+public class ProbeCache {
+
+    static private final int MAGIC = 0x4D4A5043;        // MJPC
+    static private final int VERSION = 1;
+    static private final byte FILE_KEY = 1;
+    static private final byte CONTENT_KEY = 2;
+
+    final private int maxEntries;
+    final private int hashLength;
+    final private ProbeOptions options;
+    final private Path persistentFile;
+    final private LinkedHashMap<Object,ProbeResult> entries;
+    final private AtomicLong hits;
+    final private AtomicLong misses;
+    final private AtomicLong evictions;
+
+    private ProbeCache(
+            int maxEntries,
+            int hashLength,
+            ProbeOptions options,
+            Path persistentFile) {
+
+        this.maxEntries = maxEntries;
+        this.hashLength = hashLength;
+        this.options = options;
+        this.persistentFile = persistentFile;
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.evictions = new AtomicLong();
+        this.entries = new LinkedHashMap<Object,ProbeResult>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object,ProbeResult> eldest) {
+                if (size() > ProbeCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public int getHashLength() {
+        return hashLength;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * The ratio of hits to lookups.
+     * @return The hit rate or 0 if nothing was looked up yet
+     */
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total > 0 ? (double)h / total : 0.0d;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Probes the file or returns the cached result if the file has not
+     * changed since it was last probed.
+     *
+     * @param file The file
+     * @return The result
+     * @throws IOException
+     */
+    public ProbeResult probe(
+            Path file) throws IOException {
+
+        Objects.requireNonNull(file, "file was null");
+
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+
+        FileKey key = new FileKey(
+            file.toAbsolutePath().toString(),
+            attrs.size(),
+            attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS),
+            attrs.fileKey() != null ? attrs.fileKey().toString() : "");
+
+        ProbeResult result = this.get(key);
+        if (result == null) {
+            result = ImageProber.probe(file, options);
+            this.put(key, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Probes the bytes or returns the cached result for the same content.
+     *
+     * @param data The bytes
+     * @return The result
+     * @throws IOException
+     */
+    public ProbeResult probe(
+            byte[] data) throws IOException {
+
+        Objects.requireNonNull(data, "data was null");
+
+        int prefixLength = Math.min(data.length, hashLength);
+        ContentKey key = new ContentKey(ContentHash.hash64(data, 0, prefixLength), data.length);
+
+        ProbeResult result = this.get(key);
+        if (result == null) {
+            result = ImageProber.probe(data, options);
+            if (result.getBytesRead() <= prefixLength) {
+                this.put(key, result);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Probes the stream or returns the cached result for the same content.
+     * Only the first hashLength bytes are read to check the cache, but the
+     * stream is consumed either way.  Since the length of a stream is not
+     * known, the key is the hash and the number of bytes hashed.
+     *
+     * @param input The stream
+     * @return The result
+     * @throws IOException
+     */
+    public ProbeResult probe(
+            InputStream input) throws IOException {
+
+        Objects.requireNonNull(input, "input was null");
+
+        byte[] prefix = new byte[hashLength];
+        int prefixLength = 0;
+        int n;
+        while (prefixLength < prefix.length && (n = input.read(prefix, prefixLength, prefix.length - prefixLength)) > 0) {
+            prefixLength += n;
+        }
+
+        // a negative length can't collide with a byte array's key
+        ContentKey key = new ContentKey(ContentHash.hash64(prefix, 0, prefixLength), -1L - prefixLength);
+
+        ProbeResult result = this.get(key);
+        if (result == null) {
+            InputStream replay = new SequenceInputStream(new ByteArrayInputStream(prefix, 0, prefixLength), input);
+            result = ImageProber.probe(replay, options);
+            if (result.getBytesRead() <= prefixLength) {
+                this.put(key, result);
+            }
+        }
+
+        return result;
+    }
+
+    private ProbeResult get(
+            Object key) {
+
+        ProbeResult result;
+        synchronized (entries) {
+            result = entries.get(key);
+        }
+
+        if (result != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+
+        return result;
+    }
+
+    private void put(
+            Object key,
+            ProbeResult result) {
+
+        synchronized (entries) {
+            entries.put(key, result);
+        }
+    }
+
+    //
+    // persistent tier
+    //
+
+    /**
+     * Loads the entries saved in the persistent file (if it exists), keeping
+     * any entries already cached.  Entries with a media type this version
+     * does not know are skipped.
+     *
+     * @return The number of entries loaded
+     * @throws IOException If the file is not a probe cache or is corrupt
+     */
+    public int load() throws IOException {
+        this.requirePersistentFile();
+
+        int loaded = 0;
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(persistentFile)))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException("File " + persistentFile + " is not a probe cache");
+            }
+            if (input.readUnsignedByte() != VERSION) {
+                return 0;       // incompatible, will be overwritten on save
+            }
+
+            int count = input.readInt();
+
+            for (int i = 0; i < count; i++) {
+                Object key = readKey(input);
+                ProbeResult result = readResult(input);
+                if (result != null) {
+                    this.put(key, result);
+                    loaded++;
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return 0;
+        } catch (EOFException e) {
+            throw new IOException("File " + persistentFile + " is truncated", e);
+        }
+
+        return loaded;
+    }
+
+    /**
+     * Saves the entries (least recently used first) to the persistent file,
+     * atomically replacing it.
+     *
+     * @return The number of entries saved
+     * @throws IOException
+     */
+    public int save() throws IOException {
+        this.requirePersistentFile();
+
+        List<Map.Entry<Object,ProbeResult>> snapshot;
+        synchronized (entries) {
+            snapshot = new ArrayList<>(entries.entrySet());
+        }
+
+        Path dir = persistentFile.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(dir, persistentFile.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                output.writeInt(MAGIC);
+                output.writeByte(VERSION);
+                output.writeInt(snapshot.size());
+                for (Map.Entry<Object,ProbeResult> entry : snapshot) {
+                    writeKey(output, entry.getKey());
+                    writeResult(output, entry.getValue());
+                }
+            }
+            Files.move(temp, persistentFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        return snapshot.size();
+    }
+
+    private void requirePersistentFile() {
+        if (persistentFile == null) {
+            throw new IllegalStateException("No persistent file was configured");
+        }
+    }
+
+    static private void writeKey(
+            DataOutputStream output,
+            Object key) throws IOException {
+
+        if (key instanceof FileKey) {
+            FileKey fk = (FileKey)key;
+            output.writeByte(FILE_KEY);
+            output.writeUTF(fk.path);
+            output.writeLong(fk.size);
+            output.writeLong(fk.modified);
+            output.writeUTF(fk.fileKey);
+        } else {
+            ContentKey ck = (ContentKey)key;
+            output.writeByte(CONTENT_KEY);
+            output.writeLong(ck.hash);
+            output.writeLong(ck.length);
+        }
+    }
+
+    static private Object readKey(
+            DataInputStream input) throws IOException {
+
+        int type = input.readUnsignedByte();
+        switch (type) {
+            case FILE_KEY:
+                return new FileKey(input.readUTF(), input.readLong(), input.readLong(), input.readUTF());
+            case CONTENT_KEY:
+                return new ContentKey(input.readLong(), input.readLong());
+            default:
+                throw new IOException("Invalid probe cache key type " + type);
+        }
+    }
+
+    static private void writeResult(
+            DataOutputStream output,
+            ProbeResult result) throws IOException {
+
+        output.writeUTF(result.getMediaType() != null ? result.getMediaType().name() : "");
+        output.writeBoolean(result.getSize() != null);
+        if (result.getSize() != null) {
+            output.writeDouble(result.getSize().getWidth());
+            output.writeDouble(result.getSize().getHeight());
+        }
+        output.writeLong(result.getBytesRead());
+        output.writeLong(result.getBytesBuffered());
+    }
+
+    /**
+     * @return The result or null if its media type is unknown to this version
+     */
+    static private ProbeResult readResult(
+            DataInputStream input) throws IOException {
+
+        String name = input.readUTF();
+        Size2D size = input.readBoolean() ? new Size2D(input.readDouble(), input.readDouble()) : null;
+        long bytesRead = input.readLong();
+        long bytesBuffered = input.readLong();
+
+        KnownMediaType mediaType = null;
+        if (!name.isEmpty()) {
+            try {
+                mediaType = KnownMediaType.valueOf(name);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        return new ProbeResult(mediaType, size, bytesRead, bytesBuffered);
+    }
+
+    static private class FileKey {
+
+        final private String path;
+        final private long size;
+        final private long modified;
+        final private String fileKey;
+
+        FileKey(String path, long size, long modified, String fileKey) {
+            this.path = path;
+            this.size = size;
+            this.modified = modified;
+            this.fileKey = fileKey;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, size, modified, fileKey);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof FileKey)) {
+                return false;
+            }
+            FileKey other = (FileKey)obj;
+            return this.size == other.size
+                && this.modified == other.modified
+                && this.path.equals(other.path)
+                && this.fileKey.equals(other.fileKey);
+        }
+
+    }
+
+    static private class ContentKey {
+
+        final private long hash;
+        final private long length;
+
+        ContentKey(long hash, long length) {
+            this.hash = hash;
+            this.length = length;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ContentKey)) {
+                return false;
+            }
+            ContentKey other = (ContentKey)obj;
+            return this.hash == other.hash && this.length == other.length;
+        }
+
+    }
+
+    static public Builder builder() {
+        return new Builder();
+    }
+
+    static public class Builder {
+
+        private int maxEntries;
+        private int hashLength;
+        private ProbeOptions options;
+        private Path persistentFile;
+
+        private Builder() {
+            this.maxEntries = 10000;
+            this.hashLength = 16 * 1024;
+            this.options = ProbeOptions.DEFAULT;
+        }
+
+        /**
+         * The max number of results cached before the least recently used
+         * are evicted.  Defaults to 10,000.
+         */
+        public Builder maxEntries(
+                int maxEntries) {
+
+            if (maxEntries < 1) {
+                throw new IllegalArgumentException("Max entries must be >= 1");
+            }
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        /**
+         * The number of leading bytes hashed for content keys.  Defaults to
+         * 16KB, which covers the header of nearly every image (results that
+         * needed more are simply not cached).
+         */
+        public Builder hashLength(
+                int hashLength) {
+
+            if (hashLength < 1) {
+                throw new IllegalArgumentException("Hash length must be >= 1");
+            }
+            this.hashLength = hashLength;
+            return this;
+        }
+
+        /**
+         * The options used for probes on a miss.
+         */
+        public Builder options(
+                ProbeOptions options) {
+
+            Objects.requireNonNull(options, "options was null");
+            this.options = options;
+            return this;
+        }
+
+        /**
+         * The file for the persistent tier, see {@link ProbeCache#load()}
+         * and {@link ProbeCache#save()}.
+         */
+        public Builder persistentFile(
+                Path persistentFile) {
+
+            this.persistentFile = persistentFile;
+            return this;
+        }
+
+        public ProbeCache build() {
+            return new ProbeCache(this.maxEntries, this.hashLength, this.options, this.persistentFile);
+        }
+
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+import com.fizzed.crux.mediatype.KnownMediaType;
+
+/**
+ * Receives metrics/tracing events from ImageProber's hot paths.  Every method
+ * has a no-op default so implementations only override what they need.
+ * Install one with {@link ImageProber#setListener(ProbeListener)}.  Events
+ * are delivered on the probing thread, so implementations must be thread safe
+ * and fast.
+ *
+ * When no listener is installed ({@link #NOOP}) the probers skip timing
+ * entirely and no event (or allocation) is made.
+ *
+ * @author jjlauer
+ */
+public interface ProbeListener {
+
+    /**
+     * The listener installed by default, which ignores everything.
+     */
+    static final ProbeListener NOOP = new ProbeListener() { };
+
+    /**
+     * The ImageProber entry point an event is for.
+     */
+    enum Operation {
+        /** probeMediaType */
+        MEDIA_TYPE,
+        /** probeSize */
+        SIZE,
+        /** probe */
+        PROBE,
+        /** probeInfo */
+        INFO,
+        /** extractEmbeddedThumbnail */
+        THUMBNAIL,
+        /** validate */
+        VALIDATE
+    }
+
+    /**
+     * A probe completed without an exception.
+     *
+     * @param operation The entry point
+     * @param mediaType The media type detected (or given for SIZE), which is
+     *      null for a detection miss
+     * @param durationNanos The duration of the probe
+     * @param bytesRead The furthest byte of the source read or -1 if not
+     *      tracked (e.g. detection directly against a byte array)
+     */
+    default void onComplete(
+            Operation operation,
+            KnownMediaType mediaType,
+            long durationNanos,
+            long bytesRead) {
+    }
+
+    /**
+     * The size of the media type was not supported by (or could not be read
+     * with) the native header parsers and fell back to ImageIO.
+     *
+     * @param mediaType The media type
+     */
+    default void onImageIOFallback(
+            KnownMediaType mediaType) {
+    }
+
+    /**
+     * Reading the size of an svg failed.  The error is also reported with
+     * onError.
+     *
+     * @param error The error
+     */
+    default void onSvgParseFailure(
+            Throwable error) {
+    }
+
+    /**
+     * A probe failed with an exception, which is rethrown to the caller.
+     *
+     * @param operation The entry point
+     * @param mediaType The media type if known at the time of the failure
+     * @param error The error
+     */
+    default void onError(
+            Operation operation,
+            KnownMediaType mediaType,
+            Throwable error) {
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+import java.util.Objects;
+
+/**
+ * Immutable options for a probe.
+ *
+ * <pre>
+ * ProbeOptions options = ProbeOptions.builder()
+ *     .maxBytesRead(64 * 1024)
+ *     .build();
+ * </pre>
+ *
+ * @author jjlauer
+ */
+public class ProbeOptions {
+
+    static public final ProbeOptions DEFAULT = builder().build();
+
+    final private long maxBytesRead;
+    final private FileReadMode readMode;
+
+    private ProbeOptions(
+            long maxBytesRead,
+            FileReadMode readMode) {
+
+        this.maxBytesRead = maxBytesRead;
+        this.readMode = readMode;
+    }
+
+    /**
+     * The max number of bytes of the source a probe may read before it fails
+     * with a {@link ReadBudgetExceededException}.  For InputStreams this also
+     * bounds what is buffered on the heap.
+     * @return The max number of bytes (Long.MAX_VALUE is unlimited)
+     */
+    public long getMaxBytesRead() {
+        return maxBytesRead;
+    }
+
+    public FileReadMode getReadMode() {
+        return readMode;
+    }
+
+    static public Builder builder() {
+        return new Builder();
+    }
+
+    static public class Builder {
+
+        private long maxBytesRead;
+        private FileReadMode readMode;
+
+        private Builder() {
+            this.maxBytesRead = Long.MAX_VALUE;
+            this.readMode = FileReadMode.AUTO;
+        }
+
+        public Builder maxBytesRead(
+                long maxBytesRead) {
+
+            if (maxBytesRead < 1) {
+                throw new IllegalArgumentException("Max bytes read must be >= 1");
+            }
+            this.maxBytesRead = maxBytesRead;
+            return this;
+        }
+
+        public Builder readMode(
+                FileReadMode readMode) {
+
+            Objects.requireNonNull(readMode, "readMode was null");
+            this.readMode = readMode;
+            return this;
+        }
+
+        public ProbeOptions build() {
+            return new ProbeOptions(this.maxBytesRead, this.readMode);
+        }
+
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+import com.fizzed.crux.mediatype.KnownMediaType;
+import com.fizzed.crux.util.Size2D;
+
+/**
+ * Immutable result of a combined media type and size probe.
+ *
+ * @author jjlauer
+ */
+public class ProbeResult {
+
+    final private KnownMediaType mediaType;
+    final private Size2D size;
+    final private long bytesRead;
+    final private long bytesBuffered;
+
+    public ProbeResult(
+            KnownMediaType mediaType,
+            Size2D size,
+            long bytesRead) {
+
+        this(mediaType, size, bytesRead, 0L);
+    }
+
+    public ProbeResult(
+            KnownMediaType mediaType,
+            Size2D size,
+            long bytesRead,
+            long bytesBuffered) {
+
+        this.mediaType = mediaType;
+        this.size = size;
+        this.bytesRead = bytesRead;
+        this.bytesBuffered = bytesBuffered;
+    }
+
+    /**
+     * The detected media type.
+     * @return The media type or null if it could not be detected
+     */
+    public KnownMediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * The dimensions of the media.
+     * @return The size or null if the media type was not detected or its
+     *      dimensions are not supported
+     */
+    public Size2D getSize() {
+        return size;
+    }
+
+    /**
+     * The number of bytes of the source consumed to produce this result (the
+     * furthest byte read, since skipped bytes may still need to be read from
+     * a stream).
+     * @return The number of bytes
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * The number of bytes of the source copied onto the heap to produce this
+     * result.  Only InputStreams are buffered, random access sources (byte
+     * arrays, buffers and files) are read in place.
+     * @return The number of bytes
+     */
+    public long getBytesBuffered() {
+        return bytesBuffered;
+    }
+
+    @Override
+    public String toString() {
+        return "mediaType=" + mediaType
+            + ", size=" + (size != null ? size.getWidth() + "x" + size.getHeight() : null)
+            + ", bytesRead=" + bytesRead
+            + ", bytesBuffered=" + bytesBuffered;
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * A source of bytes that can be read at any position, such as a file or an
+ * object in remote storage that supports ranged requests.  Probing a source
+ * issues a small number of ranged reads and jumps over data a parser does not
+ * need (e.g. a large EXIF block before a JPEG's frame header) rather than
+ * reading from offset 0.
+ *
+ * Implementations need not be thread safe.
+ *
+ * @author jjlauer
+ */
+public interface RandomAccessSource extends Closeable {
+
+    /**
+     * The total size of the source.
+     * @return The size in bytes or -1 if unknown
+     * @throws IOException
+     */
+    long size() throws IOException;
+
+    /**
+     * Reads bytes starting at the position into the remaining space of the
+     * buffer.  Fewer bytes than remaining may be read, but at least one will
+     * be unless the end of the source is reached.
+     *
+     * @param position The position in the source to read from
+     * @param buffer The buffer to read into (its position is advanced)
+     * @return The number of bytes read or -1 if the position is at or past
+     *      the end of the source
+     * @throws IOException
+     */
+    int readAt(
+        long position,
+        ByteBuffer buffer) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+        // nothing to release by default
+    }
+
+    /**
+     * A source over a file using positional reads.  Closing the source closes
+     * the file.
+     *
+     * @param file The file
+     * @return The source
+     * @throws IOException
+     */
+    static RandomAccessSource of(
+            Path file) throws IOException {
+
+        Objects.requireNonNull(file, "file was null");
+        return new FileRandomAccessSource(file);
+    }
+
+    static RandomAccessSource of(
+            byte[] data) {
+
+        Objects.requireNonNull(data, "data was null");
+        return new ByteBufferRandomAccessSource(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * A source over the remaining bytes of the buffer (its position is not
+     * modified).
+     *
+     * @param buffer The buffer
+     * @return The source
+     */
+    static RandomAccessSource of(
+            ByteBuffer buffer) {
+
+        Objects.requireNonNull(buffer, "buffer was null");
+        return new ByteBufferRandomAccessSource(buffer.slice());
+    }
+
+}
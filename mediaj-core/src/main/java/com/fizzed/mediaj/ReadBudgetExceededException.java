@@ -0,0 +1,42 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a probe needed to read past its {@link ProbeOptions} max bytes
+ * read.
+ *
+ * @author jjlauer
+ */
+public class ReadBudgetExceededException extends IOException {
+
+    final private long maxBytesRead;
+
+    public ReadBudgetExceededException(
+            long maxBytesRead,
+            Throwable cause) {
+
+        super("Probe needed to read past its budget of " + maxBytesRead + " bytes", cause);
+        this.maxBytesRead = maxBytesRead;
+    }
+
+    public long getMaxBytesRead() {
+        return maxBytesRead;
+    }
+
+}
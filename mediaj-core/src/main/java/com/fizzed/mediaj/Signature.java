@@ -0,0 +1,200 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+import com.fizzed.crux.mediatype.KnownMediaType;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A magic number signature that identifies a media type by a pattern of bytes
+ * at a fixed offset into its header.  Each pattern byte is compared after the
+ * header byte is and'ed with the corresponding mask byte, so a 0x00 mask is a
+ * wildcard and 0xFF is an exact match.
+ *
+ * @author jjlauer
+ */
+public class Signature {
+
+    final private KnownMediaType mediaType;
+    final private int offset;
+    final private byte[] pattern;
+    final private byte[] mask;
+    final private int priority;
+
+    public Signature(
+            KnownMediaType mediaType,
+            int offset,
+            byte[] pattern,
+            byte[] mask,
+            int priority) {
+
+        Objects.requireNonNull(mediaType, "mediaType was null");
+        Objects.requireNonNull(pattern, "pattern was null");
+
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset must be >= 0");
+        }
+        if (pattern.length == 0) {
+            throw new IllegalArgumentException("pattern was empty");
+        }
+        if (mask != null && mask.length != pattern.length) {
+            throw new IllegalArgumentException("mask must be the same length as pattern");
+        }
+
+        this.mediaType = mediaType;
+        this.offset = offset;
+        this.pattern = pattern.clone();
+        this.mask = mask != null ? mask.clone() : null;
+        this.priority = priority;
+    }
+
+    /**
+     * Creates a signature at offset 0 w/ the default priority.
+     *
+     * @param mediaType The media type it identifies
+     * @param pattern The pattern in hex where "??" matches any byte
+     *      (e.g. "52494646????????57454250")
+     * @return The signature
+     * @see #of(com.fizzed.crux.mediatype.KnownMediaType, int, java.lang.String, int) 
+     */
+    static public Signature of(
+            KnownMediaType mediaType,
+            String pattern) {
+
+        return of(mediaType, 0, pattern, 0);
+    }
+
+    /**
+     * Creates a signature.
+     *
+     * @param mediaType The media type it identifies
+     * @param offset The offset into the header the pattern starts at
+     * @param pattern The pattern in hex where "??" matches any byte
+     * @param priority The priority if more than one signature matches (higher
+     *      wins, then the longest signature wins)
+     * @return The signature
+     */
+    static public Signature of(
+            KnownMediaType mediaType,
+            int offset,
+            String pattern,
+            int priority) {
+
+        Objects.requireNonNull(pattern, "pattern was null");
+
+        if (pattern.length() % 2 != 0) {
+            throw new IllegalArgumentException("Pattern '" + pattern + "' must be an even number of hex chars");
+        }
+
+        int length = pattern.length() / 2;
+        byte[] bytes = new byte[length];
+        byte[] mask = new byte[length];
+
+        for (int i = 0; i < length; i++) {
+            char c0 = pattern.charAt(i*2);
+            char c1 = pattern.charAt(i*2 + 1);
+            if (c0 == '?' && c1 == '?') {
+                continue;       // wildcard, mask of 0x00
+            }
+            int hi = Character.digit(c0, 16);
+            int lo = Character.digit(c1, 16);
+            if (hi < 0 || lo < 0) {
+                throw new IllegalArgumentException("Pattern '" + pattern + "' has invalid hex at index " + (i*2));
+            }
+            bytes[i] = (byte)((hi << 4) | lo);
+            mask[i] = (byte)0xFF;
+        }
+
+        return new Signature(mediaType, offset, bytes, mask, priority);
+    }
+
+    public KnownMediaType getMediaType() {
+        return mediaType;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public byte[] getPattern() {
+        return pattern.clone();
+    }
+
+    public byte[] getMask() {
+        return mask != null ? mask.clone() : null;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * The number of header bytes needed to evaluate this signature.
+     * @return The offset + pattern length
+     */
+    public int getLength() {
+        return offset + pattern.length;
+    }
+
+    // direct access for compiling w/o a copy
+    byte[] pattern() {
+        return pattern;
+    }
+
+    byte[] mask() {
+        return mask;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < pattern.length; i++) {
+            if (mask != null && mask[i] == 0) {
+                sb.append("??");
+            } else {
+                sb.append(Character.forDigit((pattern[i] >> 4) & 0xF, 16));
+                sb.append(Character.forDigit(pattern[i] & 0xF, 16));
+            }
+        }
+        return mediaType + "@" + offset + ":" + sb + (priority != 0 ? " (priority " + priority + ")" : "");
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        Signature other = (Signature)obj;
+        return this.mediaType == other.mediaType
+            && this.offset == other.offset
+            && this.priority == other.priority
+            && Arrays.equals(this.pattern, other.pattern)
+            && Arrays.equals(this.mask, other.mask);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = Objects.hash(mediaType, offset, priority);
+        hash = 31 * hash + Arrays.hashCode(pattern);
+        hash = 31 * hash + Arrays.hashCode(mask);
+        return hash;
+    }
+
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Service provider for additional signatures and sniffers.  Implementations
+ * are discovered with {@link java.util.ServiceLoader} by listing them in a
+ * <code>META-INF/services/com.fizzed.mediaj.SignatureProvider</code> file and
+ * are compiled into {@link SignatureRegistry#getDefault()}.
+ *
+ * @author jjlauer
+ */
+public interface SignatureProvider {
+
+    List<Signature> getSignatures();
+
+    default List<MediaTypeSniffer> getSniffers() {
+        return Collections.emptyList();
+    }
+
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+import com.fizzed.crux.mediatype.KnownMediaType;
+import com.fizzed.mediaj.core.MagicMatcher;
+import com.fizzed.mediaj.core.SVGRootScanner;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.ServiceLoader;
+
+/**
+ * Immutable registry of signatures and sniffers compiled into a
+ * {@link MagicMatcher}.  The default registry is the built-in signatures plus
+ * any {@link SignatureProvider} discovered with {@link ServiceLoader} and is
+ * compiled once on first use.
+ *
+ * @author jjlauer
+ */
+public class SignatureRegistry {
+
+    // sniffing svg needs enough bytes to get past a typical prolog
+    static private final int SVG_SNIFF_LENGTH = 1024;
+
+    final private List<Signature> signatures;
+    final private List<MediaTypeSniffer> sniffers;
+    final private MagicMatcher matcher;
+    final private int headerLength;
+
+    private SignatureRegistry(
+            List<Signature> signatures,
+            List<MediaTypeSniffer> sniffers) {
+
+        this.signatures = Collections.unmodifiableList(new ArrayList<>(signatures));
+        this.sniffers = Collections.unmodifiableList(new ArrayList<>(sniffers));
+
+        MagicMatcher.Builder matcherBuilder = MagicMatcher.builder();
+        for (Signature signature : signatures) {
+            matcherBuilder.add(signature.getOffset(), signature.pattern(),
+                signature.mask(), signature.getPriority(), signature.getMediaType());
+        }
+        this.matcher = matcherBuilder.build();
+
+        int length = this.matcher.getMaxLength();
+        for (MediaTypeSniffer sniffer : sniffers) {
+            length = Math.max(length, sniffer.getLength());
+        }
+        this.headerLength = length;
+    }
+
+    static private class DefaultHolder {
+        static private final SignatureRegistry INSTANCE = builder()
+            .addBuiltins()
+            .addProviders(SignatureRegistry.class.getClassLoader())
+            .build();
+    }
+
+    /**
+     * The registry of built-in signatures along with any discovered service
+     * providers.
+     * @return The default registry
+     */
+    static public SignatureRegistry getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    public List<Signature> getSignatures() {
+        return signatures;
+    }
+
+    public List<MediaTypeSniffer> getSniffers() {
+        return sniffers;
+    }
+
+    /**
+     * The number of header bytes needed to evaluate every signature.
+     * @return The number of header bytes
+     */
+    public int getSignatureLength() {
+        return matcher.getMaxLength();
+    }
+
+    /**
+     * The number of header bytes needed to evaluate every signature and
+     * sniffer.
+     * @return The number of header bytes
+     */
+    public int getHeaderLength() {
+        return headerLength;
+    }
+
+    /**
+     * Detects the media type of the header by its signatures only.
+     *
+     * @param data The header bytes
+     * @param offset The offset into data the header starts at
+     * @param length The number of bytes available
+     * @return The detected media type or null
+     */
+    public KnownMediaType matchSignature(
+            byte[] data,
+            int offset,
+            int length) {
+
+        return matcher.match(data, offset, length);
+    }
+
+    /**
+     * Detects the media type of the header by its signatures, then sniffers.
+     *
+     * @param data The header bytes
+     * @param offset The offset into data the header starts at
+     * @param length The number of bytes available
+     * @return The detected media type or null
+     */
+    public KnownMediaType match(
+            byte[] data,
+            int offset,
+            int length) {
+
+        KnownMediaType mediaType = matcher.match(data, offset, length);
+
+        if (mediaType == null) {
+            for (int i = 0; i < sniffers.size(); i++) {
+                mediaType = sniffers.get(i).sniff(data, offset, length);
+                if (mediaType != null) {
+                    break;
+                }
+            }
+        }
+
+        return mediaType;
+    }
+
+    static public Builder builder() {
+        return new Builder();
+    }
+
+    static public class Builder {
+
+        final private List<Signature> signatures;
+        final private List<MediaTypeSniffer> sniffers;
+
+        private Builder() {
+            this.signatures = new ArrayList<>();
+            this.sniffers = new ArrayList<>();
+        }
+
+        public Builder add(
+                Signature signature) {
+
+            Objects.requireNonNull(signature, "signature was null");
+            this.signatures.add(signature);
+            return this;
+        }
+
+        public Builder add(
+                MediaTypeSniffer sniffer) {
+
+            Objects.requireNonNull(sniffer, "sniffer was null");
+            this.sniffers.add(sniffer);
+            return this;
+        }
+
+        public Builder add(
+                SignatureProvider provider) {
+
+            Objects.requireNonNull(provider, "provider was null");
+            provider.getSignatures().forEach(this::add);
+            provider.getSniffers().forEach(this::add);
+            return this;
+        }
+
+        /**
+         * Adds every {@link SignatureProvider} found by {@link ServiceLoader}.
+         *
+         * @param classLoader The class loader to search
+         * @return This builder
+         */
+        public Builder addProviders(
+                ClassLoader classLoader) {
+
+            for (SignatureProvider provider : ServiceLoader.load(SignatureProvider.class, classLoader)) {
+                this.add(provider);
+            }
+            return this;
+        }
+
+        public Builder addBuiltins() {
+            // https://en.wikipedia.org/wiki/List_of_file_signatures
+            this.add(Signature.of(KnownMediaType.IMAGE_JPEG, "ffd8ff"));
+            this.add(Signature.of(KnownMediaType.IMAGE_PNG, "89504e470d0a1a0a"));
+            this.add(Signature.of(KnownMediaType.APPLICATION_PDF, "25504446"));
+            this.add(Signature.of(KnownMediaType.IMAGE_GIF, "474946383961"));
+            this.add(Signature.of(KnownMediaType.IMAGE_GIF, "474946383761"));
+            this.add(Signature.of(KnownMediaType.IMAGE_WEBP, "52494646????????57454250"));
+
+            // tiff (classic and big) in both byte orders
+            this.addIfKnown("IMAGE_TIFF", 0, "49492a00", 0);
+            this.addIfKnown("IMAGE_TIFF", 0, "4d4d002a", 0);
+            this.addIfKnown("IMAGE_TIFF", 0, "49492b00", 0);
+            this.addIfKnown("IMAGE_TIFF", 0, "4d4d002b", 0);
+
+            // short & weak signatures lose to anything else that matches
+            // bmp: "BM", file size, reserved (zero)
+            this.addIfKnown("IMAGE_BMP", 0, "424d????????00000000", -10);
+            // ico: reserved (zero), type 1, count, first entry w/ reserved (zero)
+            this.addIfKnown("IMAGE_X_ICON", 0, "00000100??????????00", -10);
+
+            // jpeg xl: naked codestream or iso-bmff container
+            this.addIfKnown("IMAGE_JXL", 0, "ff0a", -10);
+            this.addIfKnown("IMAGE_JXL", 0, "0000000c4a584c200d0a870a", 0);
+
+            // iso-bmff ftyp box w/ major brand
+            this.addIfKnown("IMAGE_HEIC", 4, "6674797068656963", 0);      // heic
+            this.addIfKnown("IMAGE_HEIC", 4, "6674797068656978", 0);      // heix
+            this.addIfKnown("IMAGE_HEIF", 4, "667479706d696631", 0);      // mif1
+            this.addIfKnown("IMAGE_AVIF", 4, "6674797061766966", 0);      // avif
+
+            this.add(new SVGSniffer());
+
+            return this;
+        }
+
+        /**
+         * Not every version of crux-mediatype has a constant for every format
+         * so these are resolved by name and skipped if missing.
+         */
+        private void addIfKnown(
+                String mediaTypeName,
+                int offset,
+                String pattern,
+                int priority) {
+
+            KnownMediaType mediaType;
+            try {
+                mediaType = KnownMediaType.valueOf(mediaTypeName);
+            } catch (IllegalArgumentException e) {
+                return;     // not known in this version
+            }
+            this.add(Signature.of(mediaType, offset, pattern, priority));
+        }
+
+        public SignatureRegistry build() {
+            return new SignatureRegistry(signatures, sniffers);
+        }
+
+    }
+
+    static private class SVGSniffer implements MediaTypeSniffer {
+
+        @Override
+        public int getLength() {
+            return SVG_SNIFF_LENGTH;
+        }
+
+        @Override
+        public KnownMediaType sniff(
+                byte[] data,
+                int offset,
+                int length) {
+
+            if (SVGRootScanner.indexOfRoot(data, offset, length) >= 0) {
+                return KnownMediaType.IMAGE_SVG_XML;
+            }
+            return null;
+        }
+
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+import com.fizzed.crux.mediatype.KnownMediaType;
+
+/**
+ * Immutable result of stripping the metadata from an image.
+ *
+ * @author jjlauer
+ */
+public class StripResult {
+
+    final private KnownMediaType mediaType;
+    final private long sourceLength;
+    final private long length;
+    final private int removed;
+
+    public StripResult(
+            KnownMediaType mediaType,
+            long sourceLength,
+            long length,
+            int removed) {
+
+        this.mediaType = mediaType;
+        this.sourceLength = sourceLength;
+        this.length = length;
+        this.removed = removed;
+    }
+
+    /**
+     * The detected media type.
+     * @return The media type
+     */
+    public KnownMediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * The length of the source image.
+     * @return The length in bytes
+     */
+    public long getSourceLength() {
+        return sourceLength;
+    }
+
+    /**
+     * The length of the stripped image written.
+     * @return The length in bytes
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * The number of metadata blocks (JPEG segments or PNG chunks) removed.
+     * A block replaced w/ just the orientation counts as removed.
+     * @return The number of blocks
+     */
+    public int getRemoved() {
+        return removed;
+    }
+
+    @Override
+    public String toString() {
+        return "mediaType=" + mediaType
+            + ", sourceLength=" + sourceLength
+            + ", length=" + length
+            + ", removed=" + removed;
+    }
+
+}
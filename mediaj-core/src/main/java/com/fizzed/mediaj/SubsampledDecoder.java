@@ -0,0 +1,134 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+import com.fizzed.crux.mediatype.KnownMediaType;
+import com.fizzed.crux.util.Size2D;
+import com.fizzed.mediaj.core.ImageReaderPool;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Decodes images w/ an ImageIO source subsampling (and optionally a source
+ * region) picked from the size of a probe, so the decode is close to a
+ * target size rather than the source's.  Shared by ImageDownscaler and
+ * PerceptualHash, w/ readers pooled together w/ ImageProber's.
+ *
+ * @author jjlauer
+ */
+final class SubsampledDecoder {
+
+    static private final ImageReaderPool READERS = ImageProber.READERS;
+
+    private SubsampledDecoder() {
+        // static only
+    }
+
+    /**
+     * Whether ImageIO has a reader for the media type.
+     */
+    static boolean isSupported(
+            KnownMediaType mediaType) throws IOException {
+
+        ImageReader reader = READERS.borrow(mediaType);
+        READERS.release(mediaType, reader);
+        return reader != null;
+    }
+
+    /**
+     * The result of the probe, probing the stream if there was none, w/ the
+     * stream back at its start.
+     *
+     * @param imageInput The stream positioned at its start
+     * @param probed The result of an earlier probe or null to probe it
+     * @return The result w/ a media type and size
+     * @throws IOException If the media type or size could not be probed
+     */
+    static ProbeResult probe(
+            ImageInputStream imageInput,
+            ProbeResult probed) throws IOException {
+
+        if (probed == null) {
+            probed = ImageProber.probe(imageInput, ProbeOptions.DEFAULT);
+            imageInput.seek(0);
+        }
+
+        if (probed.getMediaType() == null) {
+            throw new IOException("Unable to detect media type");
+        }
+        if (probed.getSize() == null) {
+            throw new IOException("Unable to probe dimension for media type " + probed.getMediaType());
+        }
+
+        return probed;
+    }
+
+    /**
+     * Decodes the region of the image w/ the subsampling.
+     *
+     * @param imageInput The stream positioned at its start
+     * @param probed The result of probing the stream (see probe)
+     * @param region The region of the image to decode
+     * @param subsampling The subsampling in both dimensions
+     * @return The decoded image
+     * @throws IOException If ImageIO can't decode it or the probed size does
+     *      not match the image
+     */
+    static BufferedImage decode(
+            ImageInputStream imageInput,
+            ProbeResult probed,
+            Rectangle region,
+            int subsampling) throws IOException {
+
+        KnownMediaType mediaType = probed.getMediaType();
+        Size2D size = probed.getSize();
+
+        ImageReader reader = READERS.borrow(mediaType);
+        if (reader == null) {
+            throw new IOException("Unable to decode media type " + mediaType);
+        }
+
+        try {
+            int width = (int) size.getWidth();
+            int height = (int) size.getHeight();
+
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceRegion(region);
+            param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+
+            reader.setInput(imageInput, true, true);
+
+            // the reader parses the header for the decode anyway, and would
+            // otherwise silently clip the region of a mismatched probe
+            if (reader.getWidth(0) != width || reader.getHeight(0) != height) {
+                throw new IOException("Probed size " + width + "x" + height + " does not match the "
+                    + mediaType + " (" + reader.getWidth(0) + "x" + reader.getHeight(0) + ")");
+            }
+
+            return reader.read(0, param);
+        } catch (RuntimeException e) {
+            // e.g. a corrupt image or a probe of some other image
+            throw new IOException("Unable to decode " + mediaType, e);
+        } finally {
+            READERS.release(mediaType, reader);
+        }
+    }
+
+}
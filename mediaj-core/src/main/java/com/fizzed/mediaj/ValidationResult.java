@@ -0,0 +1,121 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+import com.fizzed.crux.mediatype.KnownMediaType;
+
+/**
+ * Immutable verdict of a streaming integrity check: whether the image's
+ * structure is intact from its header through its end marker, or the first
+ * problem found and the byte offset it was found at.
+ *
+ * @author jjlauer
+ */
+public class ValidationResult {
+
+    /**
+     * The outcome of a validation.
+     */
+    public enum Status {
+        /** The structure is intact through the end of the image */
+        VALID,
+        /** The data ends before the image does (e.g. a partial upload) */
+        TRUNCATED,
+        /** The structure is invalid (e.g. a bad CRC or block length) */
+        CORRUPT,
+        /** The media type was not detected or cannot be validated */
+        UNSUPPORTED
+    }
+
+    final private KnownMediaType mediaType;
+    final private Status status;
+    final private long offset;
+    final private String message;
+    final private long bytesRead;
+
+    public ValidationResult(
+            KnownMediaType mediaType,
+            Status status,
+            long offset,
+            String message,
+            long bytesRead) {
+
+        this.mediaType = mediaType;
+        this.status = status;
+        this.offset = offset;
+        this.message = message;
+        this.bytesRead = bytesRead;
+    }
+
+    /**
+     * The detected media type.
+     * @return The media type or null if it could not be detected
+     */
+    public KnownMediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * The outcome.
+     * @return The status
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Whether the image's structure is intact.
+     * @return True if valid
+     */
+    public boolean isValid() {
+        return status == Status.VALID;
+    }
+
+    /**
+     * The byte offset of the first problem.  For a truncated image this is
+     * where its data ends.
+     * @return The offset or -1 if valid or unsupported
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * What the first problem was.
+     * @return The message or null if valid
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * The number of bytes of the source read to produce this result.
+     * @return The number of bytes
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    @Override
+    public String toString() {
+        return "mediaType=" + mediaType
+            + ", status=" + status
+            + ", offset=" + offset
+            + ", message=" + message
+            + ", bytesRead=" + bytesRead;
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Creates the default executor for batch probing: virtual threads if the
+ * runtime has them (Java 21+) or a fork-join pool otherwise.
+ *
+ * @author jjlauer
+ */
+public final class BatchExecutors {
+
+    private BatchExecutors() {
+        // static only
+    }
+
+    /**
+     * Whether the executor returned by newDefault uses virtual threads.
+     * @return True if virtual threads are available
+     */
+    static public boolean isVirtual() {
+        return VirtualHolder.FACTORY != null;
+    }
+
+    /**
+     * Creates a new default executor.
+     *
+     * @param parallelism The parallelism of a fork-join pool (virtual
+     *      threads are unbounded and rely on the caller limiting in-flight
+     *      tasks)
+     * @return A new executor the caller is responsible for shutting down
+     */
+    static public ExecutorService newDefault(
+            int parallelism) {
+
+        if (VirtualHolder.FACTORY != null) {
+            try {
+                return (ExecutorService)VirtualHolder.FACTORY.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                // fall thru to fork-join
+            }
+        }
+
+        return new ForkJoinPool(parallelism);
+    }
+
+    static private class VirtualHolder {
+
+        static private final Method FACTORY = lookup();
+
+        static private Method lookup() {
+            try {
+                return java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            } catch (NoSuchMethodException | SecurityException e) {
+                return null;
+            }
+        }
+
+    }
+
+}
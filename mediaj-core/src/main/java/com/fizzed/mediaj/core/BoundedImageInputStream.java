@@ -0,0 +1,177 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageInputStreamImpl;
+
+/**
+ * Wraps an ImageInputStream to track the furthest byte read from it and to
+ * fail any read past a max number of bytes.  Seeking (and therefore skipping)
+ * is free, only the bytes actually read count.  Closing this stream does not
+ * close the underlying stream.
+ *
+ * @author jjlauer
+ */
+public class BoundedImageInputStream extends ImageInputStreamImpl {
+
+    final private ImageInputStream input;
+    final private long maxBytesRead;
+    final private long length;
+    final private byte[] primitive;
+    private long bytesRead;
+    private boolean exceeded;
+
+    public BoundedImageInputStream(
+            ImageInputStream input,
+            long maxBytesRead) throws IOException {
+
+        this.input = input;
+        this.maxBytesRead = maxBytesRead;
+        this.length = input.length();
+        this.streamPos = input.getStreamPosition();
+        this.primitive = new byte[8];
+    }
+
+    public long getMaxBytesRead() {
+        return maxBytesRead;
+    }
+
+    /**
+     * The furthest position of the underlying stream read so far.
+     * @return The number of bytes
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Whether a read was failed for exceeding the max bytes read.  Callers
+     * should check this when handling an IOException since parsers (e.g. XML
+     * or ImageIO) may wrap it.
+     * @return True if exceeded
+     */
+    public boolean isExceeded() {
+        return exceeded;
+    }
+
+    private int limit(
+            int length) throws IOException {
+
+        long remaining = maxBytesRead - streamPos;
+        if (remaining <= 0) {
+            this.exceeded = true;
+            throw new IOException("Read budget of " + maxBytesRead + " bytes exceeded");
+        }
+        return (int)Math.min(length, remaining);
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkClosed();
+        bitOffset = 0;
+
+        if (length >= 0 && streamPos >= length) {
+            return -1;
+        }
+
+        this.limit(1);
+
+        input.seek(streamPos);
+        int b = input.read();
+        if (b >= 0) {
+            streamPos++;
+            bytesRead = Math.max(bytesRead, streamPos);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(
+            byte[] b,
+            int off,
+            int len) throws IOException {
+
+        checkClosed();
+        bitOffset = 0;
+
+        if (len == 0 || (length >= 0 && streamPos >= length)) {
+            return len == 0 ? 0 : -1;
+        }
+
+        input.seek(streamPos);
+        int n = input.read(b, off, this.limit(len));
+        if (n > 0) {
+            streamPos += n;
+            bytesRead = Math.max(bytesRead, streamPos);
+        }
+        return n;
+    }
+
+    // the superclass reads primitives w/ a single read and would report a
+    // read cut short by the max as an EOFException
+    
+    @Override
+    public short readShort() throws IOException {
+        readFully(primitive, 0, 2);
+        return byteOrder == ByteOrder.BIG_ENDIAN ? Bytes.getShortBE(primitive, 0) : Bytes.getShortLE(primitive, 0);
+    }
+
+    @Override
+    public int readUnsignedShort() throws IOException {
+        return readShort() & 0xffff;
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        readFully(primitive, 0, 4);
+        return byteOrder == ByteOrder.BIG_ENDIAN ? Bytes.getIntBE(primitive, 0) : Bytes.getIntLE(primitive, 0);
+    }
+
+    @Override
+    public long readUnsignedInt() throws IOException {
+        return readInt() & 0xffffffffL;
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        readFully(primitive, 0, 8);
+        return byteOrder == ByteOrder.BIG_ENDIAN ? Bytes.getLongBE(primitive, 0) : Bytes.getLongLE(primitive, 0);
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public boolean isCached() {
+        return input.isCached();
+    }
+
+    @Override
+    public boolean isCachedMemory() {
+        return input.isCachedMemory();
+    }
+
+    @Override
+    public boolean isCachedFile() {
+        return input.isCachedFile();
+    }
+
+}
@@ -33,7 +33,9 @@
 package com.fizzed.mediaj.core;
 
 import javax.imageio.stream.ImageInputStreamImpl;
+import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteOrder;
 
 public final class ByteArrayImageInputStream extends ImageInputStreamImpl {
     private final byte[] data;
@@ -75,6 +77,94 @@ public final class ByteArrayImageInputStream extends ImageInputStreamImpl {
         return length;
     }
 
+    @Override
+    public void readFully(byte[] pBuffer, int pOffset, int pLength) throws IOException {
+        if (pOffset < 0 || pLength < 0 || pOffset + pLength > pBuffer.length || pOffset + pLength < 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        System.arraycopy(data, require(pLength), pBuffer, pOffset, pLength);
+        streamPos += pLength;
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        int index = require(2);
+        streamPos += 2;
+        return byteOrder == ByteOrder.BIG_ENDIAN ? Bytes.getShortBE(data, index) : Bytes.getShortLE(data, index);
+    }
+
+    @Override
+    public int readUnsignedShort() throws IOException {
+        return readShort() & 0xffff;
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        int index = require(4);
+        streamPos += 4;
+        return byteOrder == ByteOrder.BIG_ENDIAN ? Bytes.getIntBE(data, index) : Bytes.getIntLE(data, index);
+    }
+
+    @Override
+    public long readUnsignedInt() throws IOException {
+        return readInt() & 0xffffffffL;
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        int index = require(8);
+        streamPos += 8;
+        return byteOrder == ByteOrder.BIG_ENDIAN ? Bytes.getLongBE(data, index) : Bytes.getLongLE(data, index);
+    }
+
+    @Override
+    public int skipBytes(int n) throws IOException {
+        return (int) skipBytes((long) n);
+    }
+
+    @Override
+    public long skipBytes(long n) throws IOException {
+        checkClosed();
+        if (n <= 0) {
+            // like ImageInputStreamImpl a negative skip seeks backwards (the
+            // PNG reader relies on it)
+            seek(streamPos + n);
+            return n;
+        }
+        long skipped = Math.min(n, Math.max(0, dataLength - streamPos));
+        streamPos += skipped;
+        bitOffset = 0;
+        return skipped;
+    }
+
+    /**
+     * Creates a view of a sub-range of this stream that shares the same
+     * backing array (nothing is copied).
+     *
+     * @param position The position in this stream the slice starts at
+     * @param length The length of the slice
+     * @return A new stream positioned at 0 over the sub-range
+     */
+    public ByteArrayImageInputStream slice(long position, int length) {
+        if (position < 0 || length < 0 || position + length > dataLength) {
+            throw new IndexOutOfBoundsException("Slice [" + position + ", " + (position + length)
+                + ") out of bounds for length " + dataLength);
+        }
+        return new ByteArrayImageInputStream(data, dataOffset + (int) position, length);
+    }
+
+    /**
+     * Verifies the number of bytes are available at the stream position.
+     * @return The absolute index into the backing array to read from
+     */
+    private int require(int length) throws EOFException {
+        if (streamPos + length > dataLength) {
+            throw new EOFException();
+        }
+        bitOffset = 0;
+        return (int) streamPos + dataOffset;
+    }
+
     @Override
     public long length() {
         return dataLength;
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import javax.imageio.stream.ImageInputStreamImpl;
+
+/**
+ * An ImageInputStream that reads directly from a heap, direct or mapped
+ * ByteBuffer without copying it.  The stream covers the buffer's remaining
+ * bytes at the time it is created and never modifies the buffer's position
+ * or limit.
+ *
+ * Primitive reads are decoded directly by the buffer in the stream's byte
+ * order and skips are bounds checked seeks rather than the byte-at-a-time
+ * defaults of ImageInputStreamImpl.
+ *
+ * @author jjlauer
+ */
+public final class ByteBufferImageInputStream extends ImageInputStreamImpl {
+    
+    private final ByteBuffer data;
+    private final int dataOffset;
+    private final int dataLength;
+
+    public ByteBufferImageInputStream(final ByteBuffer buffer) {
+        // duplicate so reading never touches the caller's position
+        this.data = buffer.duplicate();
+        this.data.order(byteOrder);
+        this.dataOffset = buffer.position();
+        this.dataLength = buffer.remaining();
+    }
+
+    @Override
+    public void setByteOrder(ByteOrder byteOrder) {
+        super.setByteOrder(byteOrder);
+        this.data.order(byteOrder);
+    }
+
+    /**
+     * Verifies the number of bytes are available at the stream position.
+     * @return The absolute index into the buffer to read from
+     */
+    private int require(int length) throws EOFException {
+        if (streamPos + length > dataLength) {
+            throw new EOFException();
+        }
+        bitOffset = 0;
+        return (int) streamPos + dataOffset;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (streamPos >= dataLength) {
+            return -1;
+        }
+
+        bitOffset = 0;
+
+        return data.get(((int) streamPos++) + dataOffset) & 0xff;
+    }
+
+    @Override
+    public int read(byte[] pBuffer, int pOffset, int pLength) throws IOException {
+        if (streamPos >= dataLength) {
+            return -1;
+        }
+
+        int length = (int) Math.min(this.dataLength - streamPos, pLength);
+        bitOffset = 0;
+        ((Buffer) data).position((int) streamPos + dataOffset);
+        data.get(pBuffer, pOffset, length);
+        streamPos += length;
+
+        return length;
+    }
+
+    @Override
+    public void readFully(byte[] pBuffer, int pOffset, int pLength) throws IOException {
+        if (pOffset < 0 || pLength < 0 || pOffset + pLength > pBuffer.length || pOffset + pLength < 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        int index = require(pLength);
+        ((Buffer) data).position(index);
+        data.get(pBuffer, pOffset, pLength);
+        streamPos += pLength;
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        short value = data.getShort(require(2));
+        streamPos += 2;
+        return value;
+    }
+
+    @Override
+    public int readUnsignedShort() throws IOException {
+        return readShort() & 0xffff;
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        int value = data.getInt(require(4));
+        streamPos += 4;
+        return value;
+    }
+
+    @Override
+    public long readUnsignedInt() throws IOException {
+        return readInt() & 0xffffffffL;
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        long value = data.getLong(require(8));
+        streamPos += 8;
+        return value;
+    }
+
+    @Override
+    public int skipBytes(int n) throws IOException {
+        return (int) skipBytes((long) n);
+    }
+
+    @Override
+    public long skipBytes(long n) throws IOException {
+        checkClosed();
+        if (n <= 0) {
+            // like ImageInputStreamImpl a negative skip seeks backwards (the
+            // PNG reader relies on it)
+            seek(streamPos + n);
+            return n;
+        }
+        long skipped = Math.min(n, Math.max(0, dataLength - streamPos));
+        streamPos += skipped;
+        bitOffset = 0;
+        return skipped;
+    }
+
+    @Override
+    public long length() {
+        return dataLength;
+    }
+
+    @Override
+    public boolean isCached() {
+        return true;
+    }
+
+    @Override
+    public boolean isCachedMemory() {
+        return true;
+    }
+    
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+/**
+ * Decodes big and little endian primitives from byte arrays and scans them
+ * for bytes.  Callers are responsible for bounds checking.
+ *
+ * The Java 11+ overlay of this class (in the multi-release jar) reads words
+ * with byte array view VarHandles and scans 8 bytes at a time.
+ *
+ * @author jjlauer
+ */
+final class Bytes {
+
+    private Bytes() {
+        // static only
+    }
+
+    static short getShortBE(byte[] b, int i) {
+        return (short) (((b[i] & 0xff) << 8) | (b[i+1] & 0xff));
+    }
+
+    static short getShortLE(byte[] b, int i) {
+        return (short) ((b[i] & 0xff) | ((b[i+1] & 0xff) << 8));
+    }
+
+    static int getIntBE(byte[] b, int i) {
+        return ((b[i] & 0xff) << 24)
+            | ((b[i+1] & 0xff) << 16)
+            | ((b[i+2] & 0xff) << 8)
+            | (b[i+3] & 0xff);
+    }
+
+    static int getIntLE(byte[] b, int i) {
+        return (b[i] & 0xff)
+            | ((b[i+1] & 0xff) << 8)
+            | ((b[i+2] & 0xff) << 16)
+            | ((b[i+3] & 0xff) << 24);
+    }
+
+    static long getLongBE(byte[] b, int i) {
+        return ((long) getIntBE(b, i) << 32) | (getIntBE(b, i+4) & 0xffffffffL);
+    }
+
+    static long getLongLE(byte[] b, int i) {
+        return (getIntLE(b, i) & 0xffffffffL) | ((long) getIntLE(b, i+4) << 32);
+    }
+
+    /**
+     * Finds the first occurrence of the byte in [from, to).
+     * @return The index or -1 if not found
+     */
+    static int indexOf(byte[] b, int from, int to, byte c) {
+        for (int i = from; i < to; i++) {
+            if (b[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the first occurrence of any of the 3 bytes in [from, to).
+     * @return The index or -1 if not found
+     */
+    static int indexOfAny(byte[] b, int from, int to, byte c0, byte c1, byte c2) {
+        for (int i = from; i < to; i++) {
+            byte v = b[i];
+            if (v == c0 || v == c1 || v == c2) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+/**
+ * A fast, non-cryptographic 64-bit hash of bytes for cache keys.  Uses the
+ * round and avalanche functions of xxHash64 over 8 byte words (a single lane,
+ * so values differ from XXH64 itself).
+ *
+ * @author jjlauer
+ */
+public final class ContentHash {
+
+    static private final long PRIME1 = 0x9E3779B185EBCA87L;
+    static private final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    static private final long PRIME3 = 0x165667B19E3779F9L;
+    static private final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    static private final long PRIME5 = 0x27D4EB2F165667C5L;
+
+    private ContentHash() {
+        // static only
+    }
+
+    static public long hash64(
+            byte[] data,
+            int offset,
+            int length) {
+
+        long h = PRIME5 + length;
+
+        final int end = offset + length;
+        int i = offset;
+
+        for (; i + 8 <= end; i += 8) {
+            h ^= round(Bytes.getLongLE(data, i));
+            h = Long.rotateLeft(h, 27) * PRIME1 + PRIME4;
+        }
+
+        if (i + 4 <= end) {
+            h ^= (Bytes.getIntLE(data, i) & 0xffffffffL) * PRIME1;
+            h = Long.rotateLeft(h, 23) * PRIME2 + PRIME3;
+            i += 4;
+        }
+
+        for (; i < end; i++) {
+            h ^= (data[i] & 0xff) * PRIME5;
+            h = Long.rotateLeft(h, 11) * PRIME1;
+        }
+
+        h ^= h >>> 33;
+        h *= PRIME2;
+        h ^= h >>> 29;
+        h *= PRIME3;
+        h ^= h >>> 32;
+
+        return h;
+    }
+
+    static private long round(
+            long input) {
+
+        return Long.rotateLeft(input * PRIME2, 31) * PRIME1;
+    }
+
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Reads tags from the TIFF structure embedded in an EXIF block (a JPEG APP1
+ * segment, a PNG eXIf chunk or a WebP EXIF chunk).  Only the IFD entries
+ * asked for are read, values are never bulk loaded.
+ *
+ * @author jjlauer
+ */
+public final class ExifHeader {
+
+    static final int BYTE_ORDER_II = 0x4949;
+    static final int BYTE_ORDER_MM = 0x4D4D;
+    static final int TIFF_MAGIC = 42;
+    static final int TAG_COMPRESSION = 0x0103;
+    static final int TAG_ORIENTATION = 0x0112;
+    static final int TAG_JPEG_OFFSET = 0x0201;
+    static final int TAG_JPEG_LENGTH = 0x0202;
+    static final int TYPE_SHORT = 3;
+    static final int TYPE_LONG = 4;
+    static final int COMPRESSION_JPEG = 6;
+
+    private ExifHeader() {
+        // static only
+    }
+
+    /**
+     * Reads the orientation tag from IFD0.
+     *
+     * @param input The stream containing the TIFF structure
+     * @param start The position of the TIFF header (offsets are relative to it)
+     * @param end The position the EXIF block ends at (exclusive)
+     * @return The orientation (1 thru 8) or 0 if missing or invalid
+     * @throws IOException
+     */
+    static public int readOrientation(
+            ImageInputStream input,
+            long start,
+            long end) throws IOException {
+
+        ByteOrder byteOrder = input.getByteOrder();
+        try {
+            long ifd = readHeader(input, start, end);
+            if (ifd < 0) {
+                return 0;
+            }
+
+            input.seek(ifd);
+            int count = input.readUnsignedShort();
+
+            // 12 byte entries: tag, type, count then the value (if <= 4 bytes)
+            for (int i = 0; i < count && ifd + 2 + (i + 1) * 12 <= end; i++) {
+                int tag = input.readUnsignedShort();
+                if (tag == TAG_ORIENTATION) {
+                    int type = input.readUnsignedShort();
+                    input.skipBytes(4);
+                    if (type != TYPE_SHORT) {
+                        return 0;
+                    }
+                    int orientation = input.readUnsignedShort();
+                    return orientation >= 1 && orientation <= 8 ? orientation : 0;
+                }
+                input.skipBytes(10);
+            }
+
+            return 0;
+        } finally {
+            input.setByteOrder(byteOrder);
+        }
+    }
+
+    /**
+     * Finds the JPEG thumbnail described by IFD1 (the JPEGInterchangeFormat
+     * and JPEGInterchangeFormatLength tags).  Only the entry counts of IFD0
+     * and the entries of IFD1 are read, the thumbnail itself is not.
+     * Uncompressed (TIFF strip) thumbnails are not supported.
+     *
+     * @param input The stream containing the TIFF structure
+     * @param start The position of the TIFF header (offsets are relative to it)
+     * @param end The position the EXIF block ends at (exclusive)
+     * @param info The info the thumbnail's position and length are set on
+     * @return True if found or false if missing or invalid (e.g. it doesn't
+     *      fit within the EXIF block)
+     * @throws IOException
+     */
+    static public boolean readThumbnail(
+            ImageInputStream input,
+            long start,
+            long end,
+            HeaderInfo info) throws IOException {
+
+        ByteOrder byteOrder = input.getByteOrder();
+        try {
+            long ifd0 = readHeader(input, start, end);
+            if (ifd0 < 0) {
+                return false;
+            }
+
+            // the offset of the next IFD follows the entries of IFD0
+            input.seek(ifd0);
+            long next = ifd0 + 2 + input.readUnsignedShort() * 12L;
+            if (next + 4 > end) {
+                return false;
+            }
+            input.seek(next);
+
+            long ifd1 = start + input.readUnsignedInt();
+            if (ifd1 < start + 8 || ifd1 + 2 > end) {
+                return false;
+            }
+
+            input.seek(ifd1);
+            int count = input.readUnsignedShort();
+
+            int compression = COMPRESSION_JPEG;
+            long offset = -1;
+            long length = -1;
+
+            for (int i = 0; i < count && ifd1 + 2 + (i + 1) * 12 <= end; i++) {
+                int tag = input.readUnsignedShort();
+                int type = input.readUnsignedShort();
+                input.skipBytes(4);
+                long value = type == TYPE_SHORT ? input.readUnsignedShort() : input.readUnsignedInt();
+                if (type == TYPE_SHORT) {
+                    input.skipBytes(2);
+                } else if (type != TYPE_LONG) {
+                    continue;
+                }
+                if (tag == TAG_COMPRESSION) {
+                    compression = (int) value;
+                } else if (tag == TAG_JPEG_OFFSET) {
+                    offset = value;
+                } else if (tag == TAG_JPEG_LENGTH) {
+                    length = value;
+                }
+            }
+
+            if (compression != COMPRESSION_JPEG || offset < 8 || length <= 0 || start + offset + length > end) {
+                return false;
+            }
+
+            info.setThumbnail(start + offset, (int) length);
+            return true;
+        } finally {
+            input.setByteOrder(byteOrder);
+        }
+    }
+
+    /**
+     * Builds the smallest TIFF structure holding just an orientation tag
+     * (big endian, IFD0 w/ 1 entry and no IFD1), which is all that's kept of
+     * an EXIF block when stripping metadata.
+     *
+     * @param orientation The orientation (1 thru 8)
+     * @return The TIFF structure (26 bytes)
+     */
+    static public byte[] writeOrientation(
+            int orientation) {
+
+        return new byte[] {
+            'M', 'M', 0, TIFF_MAGIC, 0, 0, 0, 8,                // header, ifd0 @ 8
+            0, 1,                                               // 1 entry
+            (byte) (TAG_ORIENTATION >> 8), (byte) TAG_ORIENTATION,
+            0, TYPE_SHORT, 0, 0, 0, 1,                          // 1 short
+            (byte) (orientation >> 8), (byte) orientation, 0, 0,
+            0, 0, 0, 0                                          // no ifd1
+        };
+    }
+
+    /**
+     * Reads the TIFF header and sets the byte order of the stream to match.
+     *
+     * @return The position of IFD0 or -1 if the header is invalid
+     */
+    static private long readHeader(
+            ImageInputStream input,
+            long start,
+            long end) throws IOException {
+
+        if (end - start < 8) {
+            return -1;
+        }
+
+        input.seek(start);
+
+        int order = input.readUnsignedShort();
+        if (order == BYTE_ORDER_II) {
+            input.setByteOrder(ByteOrder.LITTLE_ENDIAN);
+        } else if (order == BYTE_ORDER_MM) {
+            input.setByteOrder(ByteOrder.BIG_ENDIAN);
+        } else {
+            return -1;
+        }
+
+        if (input.readUnsignedShort() != TIFF_MAGIC) {
+            return -1;
+        }
+
+        long ifd = start + input.readUnsignedInt();
+        if (ifd < start + 8 || ifd + 2 > end) {
+            return -1;
+        }
+
+        return ifd;
+    }
+
+}
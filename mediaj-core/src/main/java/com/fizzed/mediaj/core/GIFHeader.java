@@ -0,0 +1,188 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import com.fizzed.crux.util.Size2D;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Reads the dimensions of a GIF from its logical screen descriptor.
+ *
+ * @author jjlauer
+ */
+public final class GIFHeader {
+
+    static final int SIGNATURE = 0x47494638;        // GIF8
+    static final int EXTENSION = 0x21;
+    static final int IMAGE_DESCRIPTOR = 0x2C;
+    static final int TRAILER = 0x3B;
+    static final int GRAPHIC_CONTROL = 0xF9;
+
+    private GIFHeader() {
+        // static only
+    }
+
+    /**
+     * Reads the width and height of the GIF from the logical screen descriptor
+     * that immediately follows the 6 byte signature (10 bytes total read).
+     *
+     * @param input The stream positioned at the start of the GIF
+     * @return The size or null if the stream is not a GIF
+     * @throws IOException
+     */
+    static public Size2D readSize(
+            ImageInputStream input) throws IOException {
+
+        ByteOrder byteOrder = input.getByteOrder();
+        input.setByteOrder(ByteOrder.BIG_ENDIAN);
+        try {
+            // GIF87a or GIF89a
+            if (input.readInt() != SIGNATURE) {
+                return null;
+            }
+
+            int version = input.readUnsignedShort();
+            if (version != 0x3761 && version != 0x3961) {
+                return null;
+            }
+
+            input.setByteOrder(ByteOrder.LITTLE_ENDIAN);
+
+            int width = input.readUnsignedShort();
+            int height = input.readUnsignedShort();
+
+            return new Size2D(width, height);
+        } finally {
+            input.setByteOrder(byteOrder);
+        }
+    }
+
+    /**
+     * Reads the size and bit depth from the logical screen descriptor, then
+     * walks the blocks of the GIF to count its frames and find whether any
+     * has a transparent color or is interlaced.  Color tables and image data
+     * are skipped (only their sub-block lengths are read) and nothing is
+     * decompressed.  A truncated GIF reports the frames found before its end.
+     *
+     * @param input The stream positioned at the start of the GIF
+     * @param info The info to fill in
+     * @return True if read or false if the stream is not a GIF
+     * @throws IOException
+     */
+    static public boolean readInfo(
+            ImageInputStream input,
+            HeaderInfo info) throws IOException {
+
+        ByteOrder byteOrder = input.getByteOrder();
+        input.setByteOrder(ByteOrder.BIG_ENDIAN);
+        try {
+            if (input.readInt() != SIGNATURE) {
+                return false;
+            }
+
+            int version = input.readUnsignedShort();
+            if (version != 0x3761 && version != 0x3961) {
+                return false;
+            }
+
+            input.setByteOrder(ByteOrder.LITTLE_ENDIAN);
+
+            int width = input.readUnsignedShort();
+            int height = input.readUnsignedShort();
+            int packed = input.readUnsignedByte();
+            input.skipBytes(2);             // background, aspect ratio
+
+            info.setSize(width, height);
+            info.setColorType(HeaderInfo.COLOR_PALETTE);
+
+            if ((packed & 0x80) != 0) {
+                info.setBitDepth((packed & 0x07) + 1);
+                input.skipBytes(3L << ((packed & 0x07) + 1));
+            }
+
+            int frames = 0;
+            int block;
+            while ((block = input.read()) >= 0 && block != TRAILER) {
+                if (block == EXTENSION) {
+                    int label = input.read();
+                    if (label == GRAPHIC_CONTROL) {
+                        int size = input.read();
+                        int flags = input.read();
+                        if (size < 1 || flags < 0) {
+                            break;
+                        }
+                        if ((flags & 0x01) != 0) {
+                            info.setAlpha(true);
+                        }
+                        input.skipBytes(size - 1);
+                    } else if (label < 0) {
+                        break;
+                    }
+                    if (!skipSubBlocks(input)) {
+                        break;
+                    }
+                } else if (block == IMAGE_DESCRIPTOR) {
+                    input.skipBytes(8);     // left, top, width, height
+                    int local = input.read();
+                    if (local < 0) {
+                        break;
+                    }
+                    frames++;
+                    if ((local & 0x40) != 0) {
+                        info.setProgressive(true);
+                    }
+                    if ((local & 0x80) != 0) {
+                        if (info.getBitDepth() == 0) {
+                            info.setBitDepth((local & 0x07) + 1);
+                        }
+                        input.skipBytes(3L << ((local & 0x07) + 1));
+                    }
+                    input.skipBytes(1);     // lzw minimum code size
+                    if (!skipSubBlocks(input)) {
+                        break;
+                    }
+                } else {
+                    break;                  // corrupt
+                }
+            }
+
+            info.setFrameCount(frames);
+            info.setAnimated(frames > 1);
+
+            return true;
+        } finally {
+            input.setByteOrder(byteOrder);
+        }
+    }
+
+    /**
+     * Skips data sub-blocks up to and including the zero length terminator.
+     *
+     * @return False if the stream ended first
+     */
+    static private boolean skipSubBlocks(
+            ImageInputStream input) throws IOException {
+
+        int size;
+        while ((size = input.read()) > 0) {
+            input.skipBytes(size);
+        }
+        return size == 0;
+    }
+
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+/**
+ * Mutable holder the header parsers fill in while walking an image's
+ * structure for more than its size (e.g. color type, bit depth, orientation
+ * and frame count).  Anything a parser doesn't find is left at its default.
+ *
+ * @author jjlauer
+ */
+public class HeaderInfo {
+
+    static public final int COLOR_UNKNOWN = 0;
+    static public final int COLOR_GRAY = 1;
+    static public final int COLOR_RGB = 2;
+    static public final int COLOR_PALETTE = 3;
+    static public final int COLOR_YCBCR = 4;
+    static public final int COLOR_CMYK = 5;
+    static public final int COLOR_YCCK = 6;
+
+    private double width;
+    private double height;
+    private int orientation;
+    private int colorType;
+    private int bitDepth;
+    private boolean alpha;
+    private boolean iccProfile;
+    private boolean progressive;
+    private boolean animated;
+    private int frameCount;
+    private long thumbnailOffset;
+    private int thumbnailLength;
+
+    public HeaderInfo() {
+        this.width = -1;
+        this.height = -1;
+        this.thumbnailOffset = -1;
+    }
+
+    public boolean hasSize() {
+        return width >= 0 && height >= 0;
+    }
+
+    public double getWidth() {
+        return width;
+    }
+
+    public double getHeight() {
+        return height;
+    }
+
+    public void setSize(
+            double width,
+            double height) {
+
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * The EXIF orientation (1 thru 8) or 0 if the image doesn't have one.
+     */
+    public int getOrientation() {
+        return orientation;
+    }
+
+    public void setOrientation(
+            int orientation) {
+
+        this.orientation = orientation;
+    }
+
+    /**
+     * One of the COLOR_* constants.
+     */
+    public int getColorType() {
+        return colorType;
+    }
+
+    public void setColorType(
+            int colorType) {
+
+        this.colorType = colorType;
+    }
+
+    /**
+     * The bits per sample (or per palette index) or 0 if unknown.
+     */
+    public int getBitDepth() {
+        return bitDepth;
+    }
+
+    public void setBitDepth(
+            int bitDepth) {
+
+        this.bitDepth = bitDepth;
+    }
+
+    public boolean isAlpha() {
+        return alpha;
+    }
+
+    public void setAlpha(
+            boolean alpha) {
+
+        this.alpha = alpha;
+    }
+
+    public boolean isIccProfile() {
+        return iccProfile;
+    }
+
+    public void setIccProfile(
+            boolean iccProfile) {
+
+        this.iccProfile = iccProfile;
+    }
+
+    /**
+     * Progressive (JPEG) or interlaced (PNG, GIF) encoding.
+     */
+    public boolean isProgressive() {
+        return progressive;
+    }
+
+    public void setProgressive(
+            boolean progressive) {
+
+        this.progressive = progressive;
+    }
+
+    public boolean isAnimated() {
+        return animated;
+    }
+
+    public void setAnimated(
+            boolean animated) {
+
+        this.animated = animated;
+    }
+
+    /**
+     * The number of frames or 0 if unknown.
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    public void setFrameCount(
+            int frameCount) {
+
+        this.frameCount = frameCount;
+    }
+
+    public boolean hasThumbnail() {
+        return thumbnailOffset >= 0 && thumbnailLength > 0;
+    }
+
+    /**
+     * The position of an embedded (JPEG) thumbnail in the stream or -1 if the
+     * image doesn't have one.
+     */
+    public long getThumbnailOffset() {
+        return thumbnailOffset;
+    }
+
+    public int getThumbnailLength() {
+        return thumbnailLength;
+    }
+
+    public void setThumbnail(
+            long offset,
+            int length) {
+
+        this.thumbnailOffset = offset;
+        this.thumbnailLength = length;
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * An InputStream view of an ImageInputStream starting at its current
+ * position.  Closing the adapter does not close the underlying stream.
+ *
+ * @author jjlauer
+ */
+public class ImageInputStreamAdapter extends InputStream {
+
+    final private ImageInputStream input;
+
+    public ImageInputStreamAdapter(
+            ImageInputStream input) {
+
+        this.input = input;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return input.read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        return input.read(b, off, len);
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        return input.skipBytes(n);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        input.mark();
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        input.reset();
+    }
+
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import com.fizzed.crux.mediatype.KnownMediaType;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.spi.ImageReaderSpi;
+
+/**
+ * Thread safe pool of ImageReaders keyed by media type.  The reader provider
+ * for a media type (or that there is none) is resolved from the IIORegistry
+ * once, and readers are reset (rather than disposed) when released so they
+ * can be borrowed again.  At most maxIdle readers per media type are
+ * retained, any beyond that are disposed.  Borrowing never blocks, a new
+ * reader is created if none are idle.
+ *
+ * @author jjlauer
+ */
+public class ImageReaderPool {
+
+    final private int maxIdle;
+    final private ConcurrentMap<KnownMediaType,Slot> slots;
+
+    public ImageReaderPool(
+            int maxIdle) {
+
+        if (maxIdle < 1) {
+            throw new IllegalArgumentException("Max idle must be >= 1");
+        }
+        this.maxIdle = maxIdle;
+        this.slots = new ConcurrentHashMap<>();
+    }
+
+    public int getMaxIdle() {
+        return maxIdle;
+    }
+
+    /**
+     * Borrows a reader for the media type, which must be released back.
+     *
+     * @param mediaType The media type
+     * @return A reader or null if ImageIO has no reader for it
+     * @throws IOException
+     */
+    public ImageReader borrow(
+            KnownMediaType mediaType) throws IOException {
+
+        Objects.requireNonNull(mediaType, "mediaType was null");
+
+        Slot slot = this.slots.computeIfAbsent(mediaType, this::resolve);
+
+        // no reader at all is resolved once too
+        if (!slot.readable) {
+            return null;
+        }
+
+        ImageReader reader = slot.idle.poll();
+        if (reader != null) {
+            return reader;
+        }
+
+        if (slot.spi != null) {
+            return slot.spi.createReaderInstance();
+        }
+
+        // no provider to cache (only if a plugin doesn't report its own)
+        Iterator<ImageReader> iter = ImageIO.getImageReadersByMIMEType(mediaType.getLabel());
+        return iter.hasNext() ? iter.next() : null;
+    }
+
+    /**
+     * Releases a reader back to the pool.  Its input, listeners and locale
+     * are reset.
+     *
+     * @param mediaType The media type it was borrowed for
+     * @param reader The reader (null is ignored)
+     */
+    public void release(
+            KnownMediaType mediaType,
+            ImageReader reader) {
+
+        if (reader == null) {
+            return;
+        }
+
+        Slot slot = this.slots.get(mediaType);
+
+        try {
+            reader.reset();
+        } catch (RuntimeException e) {
+            reader.dispose();
+            return;
+        }
+
+        if (slot == null || !slot.idle.offer(reader)) {
+            reader.dispose();
+        }
+    }
+
+    /**
+     * Disposes all idle readers and forgets resolved providers (e.g. after
+     * ImageIO.scanForPlugins).
+     */
+    public void clear() {
+        for (Slot slot : this.slots.values()) {
+            ImageReader reader;
+            while ((reader = slot.idle.poll()) != null) {
+                reader.dispose();
+            }
+        }
+        this.slots.clear();
+    }
+
+    private Slot resolve(
+            KnownMediaType mediaType) {
+
+        Iterator<ImageReader> iter = ImageIO.getImageReadersByMIMEType(mediaType.getLabel());
+        if (!iter.hasNext()) {
+            return new Slot(false, null, 1);
+        }
+
+        ImageReader reader = iter.next();
+        Slot slot = new Slot(true, reader.getOriginatingProvider(), maxIdle);
+        // the instance the lookup created is the first one pooled
+        slot.idle.offer(reader);
+
+        return slot;
+    }
+
+    static private class Slot {
+
+        final private boolean readable;
+        final private ImageReaderSpi spi;
+        final private BlockingQueue<ImageReader> idle;
+
+        Slot(boolean readable, ImageReaderSpi spi, int maxIdle) {
+            this.readable = readable;
+            this.spi = spi;
+            this.idle = new ArrayBlockingQueue<>(maxIdle);
+        }
+
+    }
+
+}
@@ -0,0 +1,609 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import com.fizzed.crux.mediatype.KnownMediaType;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+
+/**
+ * Checks the structure of an image end to end in a single sequential pass
+ * w/o decoding any pixels, so a truncated or corrupt image is caught even
+ * though its header is intact.  JPEG markers are walked (entropy coded data
+ * is scanned for the next marker) through EOI, PNG chunk lengths and CRCs
+ * through IEND, GIF blocks and sub-block terminators through the trailer,
+ * RIFF chunk sizes for WebP, and a PDF must end with a startxref and %%EOF.
+ * Data is read in large buffers (which CRC32 checksums w/ its intrinsic) and
+ * never seeked, so any InputStream works at I/O speed.
+ *
+ * @author jjlauer
+ */
+public final class ImageValidator {
+
+    static final int BUFFER_SIZE = 64 * 1024;
+    static final long PNG_SIGNATURE = 0x89504E470D0A1A0AL;
+    static final byte[] PDF_HEADER = { '%', 'P', 'D', 'F', '-' };
+    static final byte[] PDF_STARTXREF = { 's', 't', 'a', 'r', 't', 'x', 'r', 'e', 'f' };
+    static final byte[] PDF_EOF = { '%', '%', 'E', 'O', 'F' };
+
+    private ImageValidator() {
+        // static only
+    }
+
+    static public boolean isSupported(
+            KnownMediaType mediaType) {
+
+        switch (mediaType) {
+            case IMAGE_JPEG:
+            case IMAGE_PNG:
+            case IMAGE_GIF:
+            case IMAGE_WEBP:
+            case APPLICATION_PDF:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Validates the image.
+     *
+     * @param mediaType The media type of the image (must be supported)
+     * @param prefix Bytes already read from the start of the image (e.g. to
+     *      detect its media type) or the entire image, which are not modified
+     * @param prefixLength The number of bytes in the prefix
+     * @param input The rest of the image or null if the prefix is all of it
+     * @param info The info the verdict is set on
+     * @return True if valid
+     * @throws IOException If reading the input fails
+     */
+    static public boolean validate(
+            KnownMediaType mediaType,
+            byte[] prefix,
+            int prefixLength,
+            InputStream input,
+            ValidationInfo info) throws IOException {
+
+        Input in = new Input(prefix, prefixLength, input);
+        try {
+            switch (mediaType) {
+                case IMAGE_JPEG:
+                    return validateJpeg(in, info);
+                case IMAGE_PNG:
+                    return validatePng(in, info);
+                case IMAGE_GIF:
+                    return validateGif(in, info);
+                case IMAGE_WEBP:
+                    return validateWebp(in, info);
+                case APPLICATION_PDF:
+                    return validatePdf(in, info);
+                default:
+                    throw new IllegalArgumentException("Unsupported media type " + mediaType);
+            }
+        } catch (EOFException e) {
+            return info.truncated(in.position(), "Unexpected end of data in " + in.what);
+        } finally {
+            info.setBytesRead(in.position());
+        }
+    }
+
+    static private boolean validateJpeg(
+            Input in,
+            ValidationInfo info) throws IOException {
+
+        in.what = "SOI";
+        if (in.readUnsignedByte() != 0xFF || in.readUnsignedByte() != JPEGHeader.SOI) {
+            return info.corrupt(0, "Missing SOI marker");
+        }
+
+        boolean frame = false;
+        boolean scan = false;
+        int marker = -1;        // the marker that ended entropy coded data
+        long offset = 0;
+
+        while (true) {
+            if (marker < 0) {
+                offset = in.position();
+                in.what = "marker";
+                if (in.readUnsignedByte() != 0xFF) {
+                    return info.corrupt(offset, "Expected a marker");
+                }
+                marker = in.readMarkerCode();
+            }
+
+            if (marker == JPEGHeader.EOI) {
+                return scan || info.corrupt(offset, "EOI before any scan");
+            }
+
+            if (marker == JPEGHeader.SOI || marker == 0x00) {
+                return info.corrupt(offset, "Unexpected marker " + Integer.toHexString(marker));
+            }
+
+            if (JPEGHeader.isStandalone(marker)) {
+                marker = -1;
+                continue;
+            }
+
+            in.what = "segment";
+            int length = in.readUnsignedShort();
+            if (length < 2) {
+                return info.corrupt(offset, "Invalid segment length " + length);
+            }
+
+            if (JPEGHeader.isStartOfFrame(marker)) {
+                frame = true;
+            }
+
+            in.skip(length - 2);
+
+            if (marker == JPEGHeader.SOS) {
+                if (!frame) {
+                    return info.corrupt(offset, "SOS before any SOF");
+                }
+                scan = true;
+                in.what = "scan data";
+                marker = in.scanMarker();
+                offset = in.position() - 2;
+            } else {
+                marker = -1;
+            }
+        }
+    }
+
+    static private boolean validatePng(
+            Input in,
+            ValidationInfo info) throws IOException {
+
+        in.what = "signature";
+        if (in.readLong() != PNG_SIGNATURE) {
+            return info.corrupt(0, "Invalid PNG signature");
+        }
+
+        CRC32 crc = new CRC32();
+        boolean data = false;
+
+        for (int i = 0; ; i++) {
+            long offset = in.position();
+            in.what = "chunk";
+
+            long length = in.readUnsignedInt();
+            int type = in.readInt();
+
+            if (length > Integer.MAX_VALUE) {
+                return info.corrupt(offset, "Invalid chunk length " + length);
+            }
+            if (!isFourCC(type)) {
+                return info.corrupt(offset + 4, "Invalid chunk type");
+            }
+            if (i == 0 && type != PNGHeader.CHUNK_IHDR && type != PNGHeader.CHUNK_CGBI) {
+                return info.corrupt(offset, "First chunk is not IHDR");
+            }
+
+            crc.reset();
+            crc.update(type >>> 24);
+            crc.update(type >>> 16);
+            crc.update(type >>> 8);
+            crc.update(type);
+            in.update(crc, length);
+
+            if (in.readUnsignedInt() != crc.getValue()) {
+                return info.corrupt(offset, "CRC mismatch in chunk " + fourCC(type, false));
+            }
+
+            if (type == PNGHeader.CHUNK_IDAT) {
+                data = true;
+            } else if (type == PNGHeader.CHUNK_IEND) {
+                return data || info.corrupt(offset, "No IDAT chunk");
+            }
+        }
+    }
+
+    static private boolean validateGif(
+            Input in,
+            ValidationInfo info) throws IOException {
+
+        in.what = "header";
+        int version = -1;
+        if (in.readInt() != GIFHeader.SIGNATURE
+                || ((version = in.readUnsignedShort()) != 0x3761 && version != 0x3961)) {
+            return info.corrupt(0, "Invalid GIF signature");
+        }
+
+        in.what = "logical screen descriptor";
+        in.skip(4);
+        int flags = in.readUnsignedByte();
+        in.skip(2);
+        if ((flags & 0x80) != 0) {
+            in.what = "global color table";
+            in.skip(3 << ((flags & 0x07) + 1));
+        }
+
+        while (true) {
+            long offset = in.position();
+            in.what = "block";
+            int block = in.readUnsignedByte();
+
+            if (block == GIFHeader.TRAILER) {
+                return true;
+            } else if (block == GIFHeader.IMAGE_DESCRIPTOR) {
+                in.what = "image descriptor";
+                in.skip(8);
+                int imageFlags = in.readUnsignedByte();
+                if ((imageFlags & 0x80) != 0) {
+                    in.what = "local color table";
+                    in.skip(3 << ((imageFlags & 0x07) + 1));
+                }
+                in.what = "image data";
+                int codeSize = in.readUnsignedByte();
+                if (codeSize > 11) {
+                    return info.corrupt(in.position() - 1, "Invalid LZW code size " + codeSize);
+                }
+                in.skipSubBlocks();
+            } else if (block == GIFHeader.EXTENSION) {
+                in.what = "extension";
+                in.readUnsignedByte();
+                in.skipSubBlocks();
+            } else {
+                return info.corrupt(offset, "Invalid block " + Integer.toHexString(block));
+            }
+        }
+    }
+
+    static private boolean validateWebp(
+            Input in,
+            ValidationInfo info) throws IOException {
+
+        in.what = "RIFF header";
+        if (in.readIntLE() != WebPHeader.RIFF) {
+            return info.corrupt(0, "Invalid RIFF signature");
+        }
+        long size = in.readUnsignedIntLE();
+        if (in.readIntLE() != WebPHeader.WEBP) {
+            return info.corrupt(8, "Invalid WEBP signature");
+        }
+        if (size < 4 || (size & 1) != 0) {
+            return info.corrupt(4, "Invalid RIFF size " + size);
+        }
+
+        long end = 8 + size;
+        boolean image = false;
+
+        for (int i = 0; in.position() < end; i++) {
+            long offset = in.position();
+            in.what = "chunk";
+
+            int fourcc = in.readIntLE();
+            long length = in.readUnsignedIntLE();
+            long padded = length + (length & 1);
+
+            if (!isFourCC(Integer.reverseBytes(fourcc))) {
+                return info.corrupt(offset, "Invalid chunk id");
+            }
+            if (i == 0 && fourcc != WebPHeader.VP8 && fourcc != WebPHeader.VP8L && fourcc != WebPHeader.VP8X) {
+                return info.corrupt(offset, "First chunk is not VP8, VP8L or VP8X");
+            }
+            if (offset + 8 + padded > end) {
+                return info.corrupt(offset, "Chunk " + fourCC(fourcc, true) + " extends past the end of the RIFF");
+            }
+
+            if (fourcc == WebPHeader.VP8 || fourcc == WebPHeader.VP8L || fourcc == WebPHeader.ANMF) {
+                image = true;
+            }
+
+            in.skip(padded);
+        }
+
+        return image || info.corrupt(end, "No image data chunk");
+    }
+
+    static private boolean validatePdf(
+            Input in,
+            ValidationInfo info) throws IOException {
+
+        in.what = "header";
+        for (byte b : PDF_HEADER) {
+            if (in.readUnsignedByte() != b) {
+                return info.corrupt(0, "Invalid PDF header");
+            }
+        }
+
+        // the last startxref (w/ its offset) and %%EOF, since incremental
+        // updates append more of them
+        int startxrefMatched = 0;
+        int eofMatched = 0;
+        long startxrefAt = -1;
+        long startxref = -1;
+        long eofAt = -1;
+        boolean number = false;
+
+        while (in.available() || in.fill()) {
+            if (startxrefMatched == 0 && eofMatched == 0 && !number) {
+                // jump to the next byte either keyword starts with
+                int i = Bytes.indexOfAny(in.buf, in.pos, in.limit, (byte)'s', (byte)'%', (byte)'%');
+                if (i < 0) {
+                    in.pos = in.limit;
+                    continue;
+                }
+                in.pos = i;
+            }
+
+            long position = in.position();
+            byte b = in.buf[in.pos++];
+
+            if (number) {
+                if (b >= '0' && b <= '9') {
+                    startxref = (startxref < 0 ? 0 : startxref * 10) + (b - '0');
+                    if (startxref > Long.MAX_VALUE / 10) {
+                        number = false;
+                    }
+                } else if (startxref >= 0 || !isPdfWhitespace(b)) {
+                    number = false;
+                }
+            }
+
+            startxrefMatched = match(PDF_STARTXREF, startxrefMatched, b);
+            if (startxrefMatched == PDF_STARTXREF.length) {
+                startxrefAt = position - PDF_STARTXREF.length + 1;
+                startxref = -1;
+                number = true;
+                startxrefMatched = 0;
+            }
+
+            eofMatched = match(PDF_EOF, eofMatched, b);
+            if (eofMatched == PDF_EOF.length) {
+                eofAt = position - PDF_EOF.length + 1;
+                eofMatched = 0;
+            }
+        }
+
+        long length = in.position();
+
+        if (startxrefAt < 0) {
+            return info.truncated(length, "Missing startxref");
+        }
+        if (eofAt < startxrefAt) {
+            return info.truncated(length, "Missing %%EOF after startxref");
+        }
+        if (startxref < 0 || startxref >= startxrefAt) {
+            return info.corrupt(startxrefAt, "Invalid startxref offset");
+        }
+
+        return true;
+    }
+
+    /**
+     * Advances how much of a keyword is matched by a byte.  Only the keywords
+     * above are used, where a mismatch can only restart the match at the
+     * byte itself (or continue a run of '%').
+     */
+    static private int match(
+            byte[] keyword,
+            int matched,
+            byte b) {
+
+        if (keyword[matched] == b) {
+            return matched + 1;
+        }
+        if (b == '%' && keyword == PDF_EOF) {
+            return matched >= 1 ? matched : 1;
+        }
+        return keyword[0] == b ? 1 : 0;
+    }
+
+    static private boolean isPdfWhitespace(
+            byte b) {
+
+        return b == ' ' || b == '\r' || b == '\n' || b == '\t' || b == '\f' || b == 0;
+    }
+
+    /**
+     * Whether all 4 bytes (big endian) are ASCII letters, digits or a space.
+     */
+    static private boolean isFourCC(
+            int value) {
+
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            int c = (value >>> shift) & 0xFF;
+            if (!((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == ' ')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static private String fourCC(
+            int value,
+            boolean littleEndian) {
+
+        if (littleEndian) {
+            value = Integer.reverseBytes(value);
+        }
+        return new String(new char[] {
+            (char) ((value >>> 24) & 0xFF), (char) ((value >>> 16) & 0xFF),
+            (char) ((value >>> 8) & 0xFF), (char) (value & 0xFF) });
+    }
+
+    /**
+     * Buffered sequential reader that starts with the bytes already read and
+     * throws EOFException at the end of the data.
+     */
+    static private final class Input {
+
+        final private InputStream input;
+        private byte[] buf;
+        private boolean owned;
+        private int pos;
+        private int limit;
+        private long offset;
+        private String what;
+
+        Input(
+                byte[] prefix,
+                int prefixLength,
+                InputStream input) {
+
+            this.input = input;
+            this.buf = prefix;
+            this.limit = prefixLength;
+        }
+
+        long position() {
+            return offset + pos;
+        }
+
+        boolean available() {
+            return pos < limit;
+        }
+
+        /**
+         * Replaces the (fully consumed) buffer with the next bytes.
+         *
+         * @return False at the end of the data
+         */
+        boolean fill() throws IOException {
+            offset += limit;
+            pos = 0;
+            limit = 0;
+
+            if (input == null) {
+                return false;
+            }
+
+            // never overwrite the prefix, it's the caller's
+            if (!owned) {
+                buf = new byte[BUFFER_SIZE];
+                owned = true;
+            }
+
+            int read;
+            do {
+                read = input.read(buf, 0, buf.length);
+            } while (read == 0);
+
+            if (read < 0) {
+                return false;
+            }
+            limit = read;
+            return true;
+        }
+
+        int readUnsignedByte() throws IOException {
+            if (pos >= limit && !fill()) {
+                throw new EOFException();
+            }
+            return buf[pos++] & 0xFF;
+        }
+
+        int readUnsignedShort() throws IOException {
+            return (readUnsignedByte() << 8) | readUnsignedByte();
+        }
+
+        int readInt() throws IOException {
+            return (readUnsignedShort() << 16) | readUnsignedShort();
+        }
+
+        long readUnsignedInt() throws IOException {
+            return readInt() & 0xFFFFFFFFL;
+        }
+
+        int readIntLE() throws IOException {
+            return Integer.reverseBytes(readInt());
+        }
+
+        long readUnsignedIntLE() throws IOException {
+            return readIntLE() & 0xFFFFFFFFL;
+        }
+
+        long readLong() throws IOException {
+            return ((long) readInt() << 32) | readUnsignedInt();
+        }
+
+        void skip(
+                long n) throws IOException {
+
+            // read rather than InputStream.skip, which may skip past the end
+            while (n > 0) {
+                if (pos >= limit && !fill()) {
+                    throw new EOFException();
+                }
+                int length = (int) Math.min(n, limit - pos);
+                pos += length;
+                n -= length;
+            }
+        }
+
+        void update(
+                CRC32 crc,
+                long n) throws IOException {
+
+            while (n > 0) {
+                if (pos >= limit && !fill()) {
+                    throw new EOFException();
+                }
+                int length = (int) Math.min(n, limit - pos);
+                crc.update(buf, pos, length);
+                pos += length;
+                n -= length;
+            }
+        }
+
+        /**
+         * Reads the marker code following an 0xFF, skipping any fill bytes.
+         */
+        int readMarkerCode() throws IOException {
+            int marker;
+            do {
+                marker = readUnsignedByte();
+            } while (marker == 0xFF);
+            return marker;
+        }
+
+        void skipSubBlocks() throws IOException {
+            int length;
+            while ((length = readUnsignedByte()) != 0) {
+                skip(length);
+            }
+        }
+
+        /**
+         * Scans entropy coded data for the next marker (skipping stuffed
+         * 0xFF00 bytes and restart markers).
+         *
+         * @return The marker code
+         */
+        int scanMarker() throws IOException {
+            while (true) {
+                int i;
+                while ((i = Bytes.indexOf(buf, pos, limit, (byte) 0xFF)) < 0) {
+                    pos = limit;
+                    if (!fill()) {
+                        throw new EOFException();
+                    }
+                }
+                pos = i + 1;
+
+                int marker = readMarkerCode();
+                if (marker != 0x00 && (marker < JPEGHeader.RST0 || marker > JPEGHeader.RST7)) {
+                    return marker;
+                }
+            }
+        }
+
+    }
+
+}
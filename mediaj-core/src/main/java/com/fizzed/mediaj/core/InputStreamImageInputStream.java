@@ -0,0 +1,243 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import javax.imageio.stream.ImageInputStreamImpl;
+
+/**
+ * An ImageInputStream over an InputStream that caches what it reads on the
+ * heap so it can seek backwards.  Like MemoryCacheImageInputStream, but bytes
+ * are only pulled from the source up to the furthest position read (seeking
+ * past it is free until a read) and the number of bytes buffered is exposed.
+ * With a spill threshold, once more than that would be cached the cache moves
+ * to a temp file (deleted on close) so e.g. reading a PDF to its end does not
+ * hold the whole source on the heap.  Closing this stream does not close the
+ * InputStream.
+ *
+ * @author jjlauer
+ */
+public class InputStreamImageInputStream extends ImageInputStreamImpl {
+
+    static public final int SPILL_WINDOW_SIZE = 8192;
+
+    final private InputStream input;
+    final private long spillThreshold;
+    private byte[] cache;
+    private int cached;
+    private boolean eof;
+    private FileChannel spillChannel;
+    private RandomAccessImageInputStream spillInput;
+    private long spilled;
+
+    public InputStreamImageInputStream(
+            InputStream input) {
+
+        this(input, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param input The source
+     * @param spillThreshold The max bytes cached on the heap before moving
+     *      the cache to a temp file (Long.MAX_VALUE never spills)
+     */
+    public InputStreamImageInputStream(
+            InputStream input,
+            long spillThreshold) {
+
+        this.input = input;
+        this.spillThreshold = spillThreshold;
+        this.cache = new byte[512];
+    }
+
+    /**
+     * The number of bytes pulled from the source and held on the heap (or in
+     * the temp file once spilled).
+     * @return The number of bytes
+     */
+    public long getBytesBuffered() {
+        return spillChannel != null ? spilled : cached;
+    }
+
+    /**
+     * Whether the cache has moved to a temp file.
+     */
+    public boolean isSpilled() {
+        return spillChannel != null;
+    }
+
+    /**
+     * Pulls bytes from the source until the cache holds at least one byte
+     * past the position (or the source ends), reading no further than the
+     * position plus length.
+     *
+     * @return The number of bytes available at the stream position
+     */
+    private int fill(
+            int length) throws IOException {
+
+        if (spillChannel != null) {
+            return fillSpilled(length);
+        }
+
+        long want = Math.min(streamPos + length, Integer.MAX_VALUE);
+
+        while (cached <= streamPos && !eof) {
+            if (want > cache.length) {
+                if (want > spillThreshold) {
+                    spill();
+                    return fillSpilled(length);
+                }
+                cache = Arrays.copyOf(cache, (int)Math.min(Math.max(want, (long)cache.length * 2), Integer.MAX_VALUE));
+            }
+            int n = input.read(cache, cached, (int)want - cached);
+            if (n < 0) {
+                eof = true;
+            } else {
+                cached += n;
+            }
+        }
+
+        return (int)Math.max(0, Math.min(cached - streamPos, length));
+    }
+
+    /**
+     * Moves the cache to a temp file, the cache array is reused as the
+     * buffer for pulling the rest of the source.
+     */
+    private void spill() throws IOException {
+        Path file = Files.createTempFile("mediaj-", ".spill");
+        try {
+            spillChannel = FileChannel.open(file, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        spillInput = new RandomAccessImageInputStream(spillChannel, false, SPILL_WINDOW_SIZE);
+
+        write(cache, cached);
+        if (cache.length < SPILL_WINDOW_SIZE) {
+            cache = new byte[SPILL_WINDOW_SIZE];
+        }
+        cached = 0;
+    }
+
+    private int fillSpilled(
+            int length) throws IOException {
+
+        long want = streamPos + length;
+
+        while (spilled <= streamPos && !eof) {
+            int n = input.read(cache, 0, (int)Math.min(cache.length, Math.max(1L, want - spilled)));
+            if (n < 0) {
+                eof = true;
+            } else {
+                write(cache, n);
+            }
+        }
+
+        return (int)Math.max(0, Math.min(spilled - streamPos, length));
+    }
+
+    private void write(
+            byte[] b,
+            int length) throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.wrap(b, 0, length);
+        while (buffer.hasRemaining()) {
+            spilled += spillChannel.write(buffer, spilled);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkClosed();
+        bitOffset = 0;
+
+        if (this.fill(1) <= 0) {
+            return -1;
+        }
+
+        if (spillInput != null) {
+            spillInput.seek(streamPos++);
+            return spillInput.read();
+        }
+
+        return cache[(int)streamPos++] & 0xff;
+    }
+
+    @Override
+    public int read(
+            byte[] b,
+            int off,
+            int len) throws IOException {
+
+        checkClosed();
+        bitOffset = 0;
+
+        if (len == 0) {
+            return 0;
+        }
+
+        int n = this.fill(len);
+        if (n <= 0) {
+            return -1;
+        }
+
+        if (spillInput != null) {
+            spillInput.seek(streamPos);
+            n = spillInput.read(b, off, n);
+        } else {
+            System.arraycopy(cache, (int)streamPos, b, off, n);
+        }
+        streamPos += n;
+
+        return n;
+    }
+
+    @Override
+    public boolean isCached() {
+        return true;
+    }
+
+    @Override
+    public boolean isCachedMemory() {
+        return spillChannel == null;
+    }
+
+    @Override
+    public boolean isCachedFile() {
+        return spillChannel != null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        super.close();
+        if (spillChannel != null) {
+            spillInput.close();
+            spillChannel.close();
+        }
+    }
+
+}
@@ -0,0 +1,485 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import com.fizzed.crux.util.Size2D;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Reads the dimensions of a JPEG by walking its segment markers until the
+ * first start-of-frame (SOFn) is found.  Segment payloads are skipped over
+ * and never read.
+ *
+ * @author jjlauer
+ */
+public final class JPEGHeader {
+
+    static final int SOI = 0xD8;
+    static final int EOI = 0xD9;
+    static final int SOS = 0xDA;
+    static final int TEM = 0x01;
+    static final int RST0 = 0xD0;
+    static final int RST7 = 0xD7;
+    static final int APP0 = 0xE0;
+    static final int APP1 = 0xE1;
+    static final int APP2 = 0xE2;
+    static final int APP14 = 0xEE;
+    static final int APP15 = 0xEF;
+    static final int COM = 0xFE;
+    static final int SCAN_BUFFER_SIZE = 4096;
+    static final byte[] EXIF_TAG = { 'E', 'x', 'i', 'f', 0, 0 };
+    static final byte[] ICC_TAG = { 'I', 'C', 'C', '_', 'P', 'R', 'O', 'F', 'I', 'L', 'E', 0 };
+    static final byte[] ADOBE_TAG = { 'A', 'd', 'o', 'b', 'e' };
+    static final byte[] JFXX_TAG = { 'J', 'F', 'X', 'X', 0 };
+    static final int JFXX_JPEG = 0x10;
+
+    private JPEGHeader() {
+        // static only
+    }
+
+    /**
+     * Whether the marker is a start-of-frame (SOF0 thru SOF15).  DHT (C4),
+     * JPG (C8) and DAC (CC) share the range but are not frames.
+     */
+    static boolean isStartOfFrame(int marker) {
+        return marker >= 0xC0 && marker <= 0xCF
+            && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+    }
+
+    /**
+     * Whether the marker stands alone and has no length/payload following it.
+     */
+    static boolean isStandalone(int marker) {
+        return marker == TEM || (marker >= RST0 && marker <= RST7);
+    }
+
+    /**
+     * Reads the width and height of the JPEG from its first SOFn segment.
+     *
+     * @param input The stream positioned at the start of the JPEG
+     * @return The size or null if the stream is not a JPEG or no frame header
+     *      exists before the scan data begins
+     * @throws IOException
+     */
+    static public Size2D readSize(
+            ImageInputStream input) throws IOException {
+
+        ByteOrder byteOrder = input.getByteOrder();
+        input.setByteOrder(ByteOrder.BIG_ENDIAN);
+        try {
+            if (input.readUnsignedByte() != 0xFF || input.readUnsignedByte() != SOI) {
+                return null;
+            }
+
+            while (true) {
+                int marker = readMarker(input);
+
+                if (marker < 0 || marker == SOS || marker == EOI) {
+                    return null;        // no frame header before scan data
+                }
+
+                if (isStandalone(marker)) {
+                    continue;
+                }
+
+                int length = input.readUnsignedShort();
+                if (length < 2) {
+                    return null;        // corrupt
+                }
+
+                if (isStartOfFrame(marker)) {
+                    input.skipBytes(1);     // sample precision
+                    int height = input.readUnsignedShort();
+                    int width = input.readUnsignedShort();
+                    return new Size2D(width, height);
+                }
+
+                input.skipBytes(length - 2);
+            }
+        } finally {
+            input.setByteOrder(byteOrder);
+        }
+    }
+
+    /**
+     * Reads the size, color type, bit depth, progressive flag, EXIF
+     * orientation and whether an ICC profile is embedded.  Only the APP1
+     * (EXIF), APP2 (ICC) and APP14 (Adobe) segments and the SOFn are read,
+     * everything else is skipped and the walk stops at the SOFn.
+     *
+     * @param input The stream positioned at the start of the JPEG
+     * @param info The info to fill in
+     * @return True if a frame header was found or false if the stream is not
+     *      a JPEG or no frame header exists before the scan data begins
+     * @throws IOException
+     */
+    static public boolean readInfo(
+            ImageInputStream input,
+            HeaderInfo info) throws IOException {
+
+        ByteOrder byteOrder = input.getByteOrder();
+        input.setByteOrder(ByteOrder.BIG_ENDIAN);
+        try {
+            if (input.readUnsignedByte() != 0xFF || input.readUnsignedByte() != SOI) {
+                return false;
+            }
+
+            int adobeTransform = -1;
+
+            while (true) {
+                int marker = readMarker(input);
+
+                if (marker < 0 || marker == SOS || marker == EOI) {
+                    return false;
+                }
+
+                if (isStandalone(marker)) {
+                    continue;
+                }
+
+                int length = input.readUnsignedShort();
+                if (length < 2) {
+                    return false;
+                }
+
+                long end = input.getStreamPosition() + length - 2;
+
+                if (isStartOfFrame(marker)) {
+                    int precision = input.readUnsignedByte();
+                    int height = input.readUnsignedShort();
+                    int width = input.readUnsignedShort();
+                    int components = input.readUnsignedByte();
+                    info.setSize(width, height);
+                    info.setBitDepth(precision);
+                    info.setColorType(toColorType(components, adobeTransform));
+                    // SOF2, SOF6, SOF10 & SOF14 are the progressive processes
+                    info.setProgressive((marker & 0x03) == 0x02);
+                    info.setFrameCount(1);
+                    return true;
+                }
+
+                if (marker == APP1 && length >= 16 && readTag(input, EXIF_TAG)) {
+                    long tiffStart = input.getStreamPosition();
+                    info.setOrientation(ExifHeader.readOrientation(input, tiffStart, end));
+                } else if (marker == APP2 && length >= 16 && readTag(input, ICC_TAG)) {
+                    info.setIccProfile(true);
+                } else if (marker == APP14 && length >= 14 && readTag(input, ADOBE_TAG)) {
+                    input.skipBytes(6);     // version, flags0, flags1
+                    adobeTransform = input.readUnsignedByte();
+                }
+
+                input.seek(end);
+            }
+        } finally {
+            input.setByteOrder(byteOrder);
+        }
+    }
+
+    /**
+     * Finds an embedded JPEG thumbnail in either an EXIF (APP1) segment's
+     * IFD1 or a JFIF extension (APP0 "JFXX") segment, whichever comes first.
+     * Only those segments are read, everything else is skipped and the walk
+     * stops at the SOFn since both must come before it.  The thumbnail's
+     * bytes are not read.
+     *
+     * @param input The stream positioned at the start of the JPEG
+     * @param info The info the thumbnail's position and length are set on
+     * @return True if found or false if the stream is not a JPEG or it has no
+     *      JPEG thumbnail
+     * @throws IOException
+     */
+    static public boolean readThumbnail(
+            ImageInputStream input,
+            HeaderInfo info) throws IOException {
+
+        ByteOrder byteOrder = input.getByteOrder();
+        input.setByteOrder(ByteOrder.BIG_ENDIAN);
+        try {
+            if (input.readUnsignedByte() != 0xFF || input.readUnsignedByte() != SOI) {
+                return false;
+            }
+
+            while (true) {
+                int marker = readMarker(input);
+
+                if (marker < 0 || marker == SOS || marker == EOI || isStartOfFrame(marker)) {
+                    return false;
+                }
+
+                if (isStandalone(marker)) {
+                    continue;
+                }
+
+                int length = input.readUnsignedShort();
+                if (length < 2) {
+                    return false;
+                }
+
+                long end = input.getStreamPosition() + length - 2;
+
+                if (marker == APP1 && length >= 16 && readTag(input, EXIF_TAG)) {
+                    long tiffStart = input.getStreamPosition();
+                    if (ExifHeader.readThumbnail(input, tiffStart, end, info)) {
+                        return true;
+                    }
+                } else if (marker == APP0 && length > 8 && readTag(input, JFXX_TAG)) {
+                    // the rest of the segment is the thumbnail for the jpeg
+                    // extension code (palette & rgb thumbnails are raw pixels)
+                    if (input.readUnsignedByte() == JFXX_JPEG) {
+                        long offset = input.getStreamPosition();
+                        info.setThumbnail(offset, (int) (end - offset));
+                        return true;
+                    }
+                }
+
+                input.seek(end);
+            }
+        } finally {
+            input.setByteOrder(byteOrder);
+        }
+    }
+
+    /**
+     * Plans stripping the metadata from a JPEG: EXIF, XMP and every other
+     * APPn segment (incl. JFXX thumbnails), plus comments.  The JFIF header,
+     * the Adobe segment (which decoding depends on) and optionally the ICC
+     * profile are kept, and the orientation can be kept as a minimal EXIF
+     * segment in place of the original.  Segment headers are read and the
+     * entropy coded data is scanned once for the marker that ends it, so
+     * metadata between scans is dropped too, as is anything after the EOI.
+     *
+     * @param input The stream positioned at the start of the JPEG
+     * @param plan The plan to fill in
+     * @param keepIccProfile Whether the ICC profile segments are kept
+     * @param keepOrientation Whether the EXIF orientation is kept
+     * @return True if planned or false if the stream is not a JPEG or its
+     *      segments are invalid
+     * @throws IOException
+     */
+    static public boolean planStrip(
+            ImageInputStream input,
+            StripPlan plan,
+            boolean keepIccProfile,
+            boolean keepOrientation) throws IOException {
+
+        ByteOrder byteOrder = input.getByteOrder();
+        input.setByteOrder(ByteOrder.BIG_ENDIAN);
+        try {
+            long start = input.getStreamPosition();
+            if (input.readUnsignedByte() != 0xFF || input.readUnsignedByte() != SOI) {
+                return false;
+            }
+            plan.keep(start, 2);
+
+            boolean orientationKept = false;
+            byte[] buffer = null;
+
+            while (true) {
+                long segment = input.getStreamPosition();
+                int marker = readMarker(input);
+
+                if (marker < 0) {
+                    return false;
+                }
+
+                if (marker == EOI) {
+                    long end = input.getStreamPosition();
+                    plan.keep(segment, end - segment);
+                    long length = input.length();
+                    if (length > end) {
+                        plan.remove(length - end);
+                    }
+                    return true;
+                }
+
+                if (isStandalone(marker)) {
+                    plan.keep(segment, input.getStreamPosition() - segment);
+                    continue;
+                }
+
+                int length = input.readUnsignedShort();
+                if (length < 2) {
+                    return false;
+                }
+
+                long end = input.getStreamPosition() + length - 2;
+                boolean keep;
+
+                if (marker == APP0) {
+                    keep = !(length > 8 && readTag(input, JFXX_TAG));
+                } else if (marker == APP1) {
+                    keep = false;
+                    if (keepOrientation && !orientationKept && length >= 16 && readTag(input, EXIF_TAG)) {
+                        long tiffStart = input.getStreamPosition();
+                        int orientation = ExifHeader.readOrientation(input, tiffStart, end);
+                        if (orientation > 1) {
+                            plan.insert(exifSegment(orientation));
+                            orientationKept = true;
+                        }
+                    }
+                } else if (marker == APP2) {
+                    keep = keepIccProfile && length >= 16 && readTag(input, ICC_TAG);
+                } else if (marker == APP14) {
+                    keep = length >= 14 && readTag(input, ADOBE_TAG);
+                } else {
+                    keep = marker != COM && (marker < APP0 || marker > APP15);
+                }
+
+                if (keep) {
+                    plan.keep(segment, end - segment);
+                } else {
+                    plan.remove(end - segment);
+                }
+
+                input.seek(end);
+
+                if (marker == SOS) {
+                    if (buffer == null) {
+                        buffer = new byte[SCAN_BUFFER_SIZE];
+                    }
+                    long next = scanMarker(input, buffer);
+                    if (next < 0) {
+                        plan.keep(end, StripPlan.TO_END);       // truncated, keep what's there
+                        return true;
+                    }
+                    plan.keep(end, next - end);
+                    input.seek(next);
+                }
+            }
+        } finally {
+            input.setByteOrder(byteOrder);
+        }
+    }
+
+    /**
+     * Scans entropy coded data for the next marker (skipping stuffed 0xFF00
+     * bytes, restart markers and fill bytes), reading each byte once.  The
+     * stream is left somewhere past the marker.
+     *
+     * @return The position of the marker or -1 at the end of the stream
+     */
+    static private long scanMarker(
+            ImageInputStream input,
+            byte[] buffer) throws IOException {
+
+        long base = input.getStreamPosition();      // position of buffer[0]
+        int length = 0;
+        int pos = 0;
+        long marker = -1L;                          // a 0xFF w/o its code yet
+
+        while (true) {
+            if (pos >= length) {
+                base += length;
+                length = input.read(buffer, 0, buffer.length);
+                if (length <= 0) {
+                    return -1L;
+                }
+                pos = 0;
+            }
+
+            if (marker < 0) {
+                int i = Bytes.indexOf(buffer, pos, length, (byte) 0xFF);
+                if (i < 0) {
+                    pos = length;
+                } else {
+                    marker = base + i;
+                    pos = i + 1;
+                }
+                continue;
+            }
+
+            int code = buffer[pos++] & 0xFF;
+            if (code == 0xFF) {
+                continue;
+            }
+            if (code != 0x00 && (code < RST0 || code > RST7)) {
+                return marker;
+            }
+            marker = -1L;
+        }
+    }
+
+    /**
+     * An APP1 segment w/ an EXIF block holding only the orientation.
+     */
+    static private byte[] exifSegment(
+            int orientation) {
+
+        byte[] tiff = ExifHeader.writeOrientation(orientation);
+        int length = 2 + EXIF_TAG.length + tiff.length;
+
+        byte[] segment = new byte[2 + length];
+        segment[0] = (byte) 0xFF;
+        segment[1] = (byte) APP1;
+        segment[2] = (byte) (length >> 8);
+        segment[3] = (byte) length;
+        System.arraycopy(EXIF_TAG, 0, segment, 4, EXIF_TAG.length);
+        System.arraycopy(tiff, 0, segment, 4 + EXIF_TAG.length, tiff.length);
+        return segment;
+    }
+
+    static private boolean readTag(
+            ImageInputStream input,
+            byte[] tag) throws IOException {
+
+        for (byte b : tag) {
+            if (input.readUnsignedByte() != (b & 0xFF)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static private int toColorType(
+            int components,
+            int adobeTransform) {
+
+        switch (components) {
+            case 1:
+                return HeaderInfo.COLOR_GRAY;
+            case 3:
+                // JFIF is always YCbCr, Adobe transform 0 means untransformed
+                return adobeTransform == 0 ? HeaderInfo.COLOR_RGB : HeaderInfo.COLOR_YCBCR;
+            case 4:
+                return adobeTransform == 2 ? HeaderInfo.COLOR_YCCK : HeaderInfo.COLOR_CMYK;
+            default:
+                return HeaderInfo.COLOR_UNKNOWN;
+        }
+    }
+
+    /**
+     * Reads the next marker code, skipping any 0xFF fill bytes.
+     *
+     * @return The marker code or -1 if the stream is not positioned on a marker
+     */
+    static int readMarker(
+            ImageInputStream input) throws IOException {
+
+        if (input.readUnsignedByte() != 0xFF) {
+            return -1;
+        }
+
+        int marker;
+        do {
+            marker = input.readUnsignedByte();
+        } while (marker == 0xFF);
+
+        return marker;
+    }
+
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import com.fizzed.crux.mediatype.KnownMediaType;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Immutable, compiled magic number matcher.  Signatures are compiled into a
+ * byte-indexed trie where each node dispatches on the next byte via a 256
+ * entry jump table, so matching is a single pass over the header regardless
+ * of how many signatures are registered.  Wildcard bytes become a separate
+ * edge that is explored alongside the exact edge (only as deep as the longest
+ * signature) and partially masked bytes are a short list of masked edges.
+ * Signatures that start at an offset are simply prefixed with wildcards.
+ *
+ * When more than one signature matches, the highest priority wins, then the
+ * longest (most specific) one and finally whichever was added first.
+ *
+ * @author jjlauer
+ */
+public final class MagicMatcher {
+
+    final private Node root;
+    final private int maxLength;
+
+    private MagicMatcher(
+            Node root,
+            int maxLength) {
+
+        this.root = root;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * The max number of header bytes any signature needs to be evaluated.
+     * @return The max number of header bytes
+     */
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * Matches the header bytes against the compiled signatures.
+     *
+     * @param data The header bytes
+     * @param offset The offset into data the header starts at
+     * @param length The number of bytes available (may be less than max length)
+     * @return The matched media type or null if nothing matched
+     */
+    public KnownMediaType match(
+            byte[] data,
+            int offset,
+            int length) {
+
+        Objects.requireNonNull(data, "data was null");
+
+        Node best = match(this.root, data, offset, Math.min(length, this.maxLength), 0);
+
+        return best != null ? best.mediaType : null;
+    }
+
+    static private Node match(
+            Node node,
+            byte[] data,
+            int offset,
+            int length,
+            int depth) {
+
+        Node best = node.mediaType != null ? node : null;
+
+        if (depth >= length) {
+            return best;
+        }
+
+        int b = data[offset + depth] & 0xFF;
+
+        if (node.exact != null && node.exact[b] != null) {
+            best = better(best, match(node.exact[b], data, offset, length, depth + 1));
+        }
+
+        if (node.masked != null) {
+            for (MaskedEdge edge : node.masked) {
+                if ((b & edge.mask) == edge.value) {
+                    best = better(best, match(edge.node, data, offset, length, depth + 1));
+                }
+            }
+        }
+
+        if (node.wildcard != null) {
+            best = better(best, match(node.wildcard, data, offset, length, depth + 1));
+        }
+
+        return best;
+    }
+
+    static private Node better(
+            Node a,
+            Node b) {
+
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a.priority != b.priority) {
+            return a.priority > b.priority ? a : b;
+        }
+        if (a.depth != b.depth) {
+            return a.depth > b.depth ? a : b;
+        }
+        return a.order <= b.order ? a : b;
+    }
+
+    static public Builder builder() {
+        return new Builder();
+    }
+
+    static public class Builder {
+
+        final private Node root;
+        private int maxLength;
+        private int count;
+
+        private Builder() {
+            this.root = new Node(0);
+        }
+
+        /**
+         * Adds a signature.
+         *
+         * @param offset The offset into the header the pattern starts at
+         * @param pattern The bytes to match
+         * @param mask The mask applied to each header byte before comparing
+         *      (0xFF is an exact match, 0x00 is a wildcard) or null to match
+         *      all bytes exactly
+         * @param priority The priority vs. other signatures that also match
+         * @param mediaType The media type it identifies
+         * @return This builder
+         */
+        public Builder add(
+                int offset,
+                byte[] pattern,
+                byte[] mask,
+                int priority,
+                KnownMediaType mediaType) {
+
+            Objects.requireNonNull(pattern, "pattern was null");
+            Objects.requireNonNull(mediaType, "mediaType was null");
+
+            if (offset < 0) {
+                throw new IllegalArgumentException("Offset must be >= 0");
+            }
+
+            if (pattern.length == 0 || (mask != null && mask.length != pattern.length)) {
+                throw new IllegalArgumentException("Pattern must be non-empty and the same length as its mask");
+            }
+
+            Node node = this.root;
+            for (int i = 0; i < offset; i++) {
+                node = node.wildcard();
+            }
+            for (int i = 0; i < pattern.length; i++) {
+                int m = mask != null ? mask[i] & 0xFF : 0xFF;
+                int b = pattern[i] & m;
+                if (m == 0xFF) {
+                    node = node.exact(b);
+                } else if (m == 0x00) {
+                    node = node.wildcard();
+                } else {
+                    node = node.masked(m, b);
+                }
+            }
+
+            // first one registered for an identical signature wins
+            if (node.mediaType == null) {
+                node.mediaType = mediaType;
+                node.priority = priority;
+                node.order = this.count++;
+            }
+
+            this.maxLength = Math.max(this.maxLength, offset + pattern.length);
+
+            return this;
+        }
+
+        public MagicMatcher build() {
+            return new MagicMatcher(this.root, this.maxLength);
+        }
+
+    }
+
+    static private class Node {
+
+        final private int depth;
+        private Node[] exact;
+        private Node wildcard;
+        private MaskedEdge[] masked;
+        private KnownMediaType mediaType;
+        private int priority;
+        private int order;
+
+        Node(int depth) {
+            this.depth = depth;
+        }
+
+        Node exact(int b) {
+            if (this.exact == null) {
+                this.exact = new Node[256];
+            }
+            if (this.exact[b] == null) {
+                this.exact[b] = new Node(this.depth + 1);
+            }
+            return this.exact[b];
+        }
+
+        Node wildcard() {
+            if (this.wildcard == null) {
+                this.wildcard = new Node(this.depth + 1);
+            }
+            return this.wildcard;
+        }
+
+        Node masked(int mask, int value) {
+            if (this.masked == null) {
+                this.masked = new MaskedEdge[0];
+            }
+            for (MaskedEdge edge : this.masked) {
+                if (edge.mask == mask && edge.value == value) {
+                    return edge.node;
+                }
+            }
+            MaskedEdge edge = new MaskedEdge(mask, value, new Node(this.depth + 1));
+            this.masked = Arrays.copyOf(this.masked, this.masked.length + 1);
+            this.masked[this.masked.length - 1] = edge;
+            return edge.node;
+        }
+
+    }
+
+    static private class MaskedEdge {
+
+        final private int mask;
+        final private int value;
+        final private Node node;
+
+        MaskedEdge(int mask, int value, Node node) {
+            this.mask = mask;
+            this.value = value;
+            this.node = node;
+        }
+
+    }
+
+}
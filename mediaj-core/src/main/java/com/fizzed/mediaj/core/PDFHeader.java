@@ -0,0 +1,222 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import com.fizzed.crux.util.Size2D;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Reads the size of the first page and the page count of a PDF w/o loading
+ * the document.  The trailer and xref (table or stream) are read from the end
+ * of the file, then only the catalog, the page tree nodes down to the first
+ * page and any object streams they live in are read with positional reads.
+ *
+ * The size is the page's CropBox (clipped to its MediaBox) or MediaBox,
+ * either of which may be inherited from its parent Pages nodes, in points
+ * (1/72 inch) and before its Rotate is applied.
+ *
+ * @author jjlauer
+ */
+public final class PDFHeader {
+
+    static final int MAX_TREE_DEPTH = 32;
+
+    private PDFHeader() {
+        // static only
+    }
+
+    /**
+     * Reads the size of the first page.
+     *
+     * @param input The stream of the PDF, which must be seekable and is read
+     *      to its end first if its length isn't known
+     * @return The size or null if the stream is not a PDF or its structure is
+     *      invalid (or uses a stream filter other than FlateDecode)
+     * @throws IOException
+     */
+    static public Size2D readSize(
+            ImageInputStream input) throws IOException {
+
+        HeaderInfo info = new HeaderInfo();
+        if (!readInfo(input, info) || !info.hasSize()) {
+            return null;
+        }
+        return new Size2D(info.getWidth(), info.getHeight());
+    }
+
+    /**
+     * Reads the size of the first page, its rotation (as the equivalent EXIF
+     * orientation) and the page count (as the frame count).
+     *
+     * @param input The stream of the PDF, which must be seekable and is read
+     *      to its end first if its length isn't known
+     * @param info The info to fill in
+     * @return True if read or false if the stream is not a PDF or its
+     *      structure is invalid
+     * @throws IOException
+     */
+    static public boolean readInfo(
+            ImageInputStream input,
+            HeaderInfo info) throws IOException {
+
+        byte[] signature = new byte[5];
+        if (input.read(signature) != 5 || !SVGRootScanner.startsWith(signature, 0, 5, "%PDF-")) {
+            return false;
+        }
+
+        long length = input.length();
+        if (length < 0) {
+            length = readToEnd(input);
+        }
+
+        try {
+            PDFParser parser = new PDFParser(input, length);
+            parser.readXrefs();
+
+            Map<String,Object> catalog = parser.resolveDict(parser.getTrailer().get("Root"));
+            if (catalog == null) {
+                return false;
+            }
+
+            Map<String,Object> node = parser.resolveDict(catalog.get("Pages"));
+            if (node == null) {
+                return false;
+            }
+
+            Object count = parser.resolve(node.get("Count"));
+            if (count instanceof Number) {
+                info.setFrameCount((int)Math.max(0, Math.min(((Number)count).longValue(), Integer.MAX_VALUE)));
+            }
+
+            // walk down the first kids to the first page, boxes and rotate
+            // are inherited from the pages nodes along the way
+            List<?> mediaBox = null;
+            List<?> cropBox = null;
+            Object rotate = null;
+
+            for (int depth = 0; node != null; depth++) {
+                if (depth > MAX_TREE_DEPTH) {
+                    return false;
+                }
+
+                List<?> box = PDFParser.asList(parser.resolve(node.get("MediaBox")));
+                if (box != null) {
+                    mediaBox = box;
+                }
+                box = PDFParser.asList(parser.resolve(node.get("CropBox")));
+                if (box != null) {
+                    cropBox = box;
+                }
+                Object r = parser.resolve(node.get("Rotate"));
+                if (r != null) {
+                    rotate = r;
+                }
+
+                Object type = parser.resolve(node.get("Type"));
+                List<?> kids = PDFParser.asList(parser.resolve(node.get("Kids")));
+                if ((type instanceof PDFParser.Name && ((PDFParser.Name)type).is("Page")) || kids == null) {
+                    break;
+                }
+                if (kids.isEmpty()) {
+                    return false;       // no pages
+                }
+                node = parser.resolveDict(kids.get(0));
+            }
+
+            double[] media = toRectangle(parser, mediaBox);
+            if (media == null) {
+                return false;
+            }
+
+            double[] crop = toRectangle(parser, cropBox);
+            if (crop != null) {
+                // clipped to the media box
+                media[0] = Math.max(media[0], crop[0]);
+                media[1] = Math.max(media[1], crop[1]);
+                media[2] = Math.min(media[2], crop[2]);
+                media[3] = Math.min(media[3], crop[3]);
+            }
+
+            info.setSize(Math.max(0, media[2] - media[0]), Math.max(0, media[3] - media[1]));
+            info.setOrientation(toOrientation(rotate));
+
+            return true;
+        } catch (PDFParser.CorruptException | EOFException e) {
+            return false;
+        }
+    }
+
+    static private long readToEnd(
+            ImageInputStream input) throws IOException {
+
+        byte[] buffer = new byte[8192];
+        while (input.read(buffer) >= 0) {
+            // drain to find the length
+        }
+        return input.getStreamPosition();
+    }
+
+    /**
+     * Normalizes a rectangle [llx lly urx ury] so the lower left is first.
+     */
+    static private double[] toRectangle(
+            PDFParser parser,
+            List<?> box) throws IOException {
+
+        if (box == null || box.size() != 4) {
+            return null;
+        }
+
+        double[] values = new double[4];
+        for (int i = 0; i < 4; i++) {
+            Object value = parser.resolve(box.get(i));
+            if (!(value instanceof Number)) {
+                return null;
+            }
+            values[i] = ((Number)value).doubleValue();
+        }
+
+        return new double[] {
+            Math.min(values[0], values[2]), Math.min(values[1], values[3]),
+            Math.max(values[0], values[2]), Math.max(values[1], values[3]) };
+    }
+
+    /**
+     * The page's clockwise rotation (a multiple of 90) as an EXIF orientation.
+     */
+    static int toOrientation(
+            Object rotate) {
+
+        if (!(rotate instanceof Number)) {
+            return 0;
+        }
+        switch ((int)((((Number)rotate).longValue() % 360 + 360) % 360)) {
+            case 90:
+                return 6;
+            case 180:
+                return 3;
+            case 270:
+                return 8;
+            default:
+                return 0;
+        }
+    }
+
+}
@@ -0,0 +1,996 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Minimal PDF object parser that loads objects on demand by their cross
+ * reference entries.  The xref table (or xref stream) chain is read from the
+ * end of the file and objects are then parsed with positional reads, so only
+ * the objects asked for (and the object streams they're in) are ever read.
+ * Only FlateDecode (w/ PNG predictors) is supported for streams, which is
+ * all that xref and object streams use in practice.
+ *
+ * Dictionaries are Maps keyed by name (w/o the slash), arrays are Lists,
+ * names are {@link Name}, numbers are Long or Double, strings are byte[] and
+ * indirect references are {@link Ref}.
+ *
+ * @author jjlauer
+ */
+final class PDFParser {
+
+    static final int TAIL_LENGTH = 1024;
+    static final int MAX_NESTING = 32;
+    static final int MAX_XREF_SECTIONS = 64;
+    static final int MAX_STREAM_LENGTH = 16 * 1024 * 1024;
+
+    /**
+     * The structure of the PDF is invalid or uses something unsupported.
+     */
+    static class CorruptException extends IOException {
+
+        CorruptException(String message) {
+            super(message);
+        }
+
+    }
+
+    static final class Name {
+
+        final String value;
+
+        Name(String value) {
+            this.value = value;
+        }
+
+        boolean is(String value) {
+            return this.value.equals(value);
+        }
+
+        @Override
+        public String toString() {
+            return "/" + value;
+        }
+
+    }
+
+    static final class Ref {
+
+        final int num;
+        final int gen;
+
+        Ref(int num, int gen) {
+            this.num = num;
+            this.gen = gen;
+        }
+
+        @Override
+        public String toString() {
+            return num + " " + gen + " R";
+        }
+
+    }
+
+    /**
+     * A stream object: its dictionary and where its raw data starts.
+     */
+    static final class Stream {
+
+        final Map<String,Object> dict;
+        final long start;
+
+        Stream(Map<String,Object> dict, long start) {
+            this.dict = dict;
+            this.start = start;
+        }
+
+    }
+
+    /**
+     * A bareword such as obj, stream or a delimiter (&lt;&lt;, ], etc.)
+     */
+    static final class Keyword {
+
+        final String value;
+
+        Keyword(String value) {
+            this.value = value;
+        }
+
+        boolean is(String value) {
+            return this.value.equals(value);
+        }
+
+        @Override
+        public String toString() {
+            return value;
+        }
+
+    }
+
+    private interface XrefSection {
+
+        /**
+         * @return The entry {type, field2, field3} or null if the object is
+         *      not in this section
+         */
+        long[] lookup(int num) throws IOException;
+
+    }
+
+    final private ImageInputStream input;
+    final private long length;
+    final private List<XrefSection> xrefs;
+    final private Map<Integer,ObjectStream> objectStreams;
+    final private Set<Integer> resolving;
+    private Map<String,Object> trailer;
+
+    PDFParser(
+            ImageInputStream input,
+            long length) {
+
+        this.input = input;
+        this.length = length;
+        this.xrefs = new ArrayList<>();
+        this.objectStreams = new HashMap<>();
+        this.resolving = new HashSet<>();
+    }
+
+    /**
+     * The newest trailer (or xref stream dictionary).
+     */
+    Map<String,Object> getTrailer() {
+        return trailer;
+    }
+
+    /**
+     * Reads the xref chain starting at the offset of the last startxref.
+     */
+    void readXrefs() throws IOException {
+        long offset = readStartXref();
+
+        Set<Long> seen = new HashSet<>();
+        while (offset >= 0) {
+            checkXrefOffset(seen, offset);
+
+            Map<String,Object> dict = readXrefSection(offset, false);
+
+            if (trailer == null) {
+                trailer = dict;
+            }
+
+            // hybrid files also have an xref stream for the compressed objects
+            Object xrefStm = dict.get("XRefStm");
+            if (xrefStm instanceof Number) {
+                long streamOffset = ((Number)xrefStm).longValue();
+                checkXrefOffset(seen, streamOffset);
+                readXrefSection(streamOffset, true);
+            }
+
+            Object prev = dict.get("Prev");
+            offset = prev instanceof Number ? ((Number)prev).longValue() : -1L;
+        }
+    }
+
+    private void checkXrefOffset(
+            Set<Long> seen,
+            long offset) throws IOException {
+
+        if (offset < 0 || offset >= length) {
+            throw new CorruptException("Invalid xref offset " + offset);
+        }
+        if (!seen.add(offset) || seen.size() > MAX_XREF_SECTIONS) {
+            throw new CorruptException("Cyclic or too many xref sections");
+        }
+    }
+
+    private long readStartXref() throws IOException {
+        int tailLength = (int)Math.min(TAIL_LENGTH, length);
+        byte[] tail = new byte[tailLength];
+        input.seek(length - tailLength);
+        input.readFully(tail);
+
+        int i = lastIndexOf(tail, "startxref");
+        if (i < 0) {
+            throw new CorruptException("No startxref");
+        }
+
+        Lexer lexer = new Lexer(new ByteArrayImageInputStream(tail, i + 9, tailLength - i - 9));
+        Object offset = lexer.readToken();
+        if (!(offset instanceof Long) || (Long)offset < 0 || (Long)offset >= length) {
+            throw new CorruptException("Invalid startxref");
+        }
+        return (Long)offset;
+    }
+
+    private Map<String,Object> readXrefSection(
+            long offset,
+            boolean streamOnly) throws IOException {
+
+        input.seek(offset);
+        Lexer lexer = new Lexer(input);
+
+        Object token = lexer.readToken();
+
+        if (token instanceof Keyword && ((Keyword)token).is("xref")) {
+            if (streamOnly) {
+                throw new CorruptException("Expected xref stream at " + offset);
+            }
+
+            List<long[]> subsections = new ArrayList<>();
+            while (true) {
+                token = lexer.readToken();
+                if (token instanceof Keyword && ((Keyword)token).is("trailer")) {
+                    break;
+                }
+                Object count = lexer.readToken();
+                if (!(token instanceof Long) || !(count instanceof Long)) {
+                    throw new CorruptException("Invalid xref subsection");
+                }
+                lexer.skipWhitespace();
+                long start = input.getStreamPosition();
+                subsections.add(new long[] { (Long)token, (Long)count, start });
+                input.seek(start + (Long)count * 20);
+            }
+
+            Map<String,Object> dict = asDict(lexer.readObject(0));
+            xrefs.add(new TableSection(subsections));
+
+            return dict;
+        }
+
+        // otherwise an xref stream
+        input.seek(offset);
+        Object object = readIndirectObject(-1);
+        if (!(object instanceof Stream)) {
+            throw new CorruptException("Invalid xref at " + offset);
+        }
+
+        Stream stream = (Stream)object;
+        Object type = stream.dict.get("Type");
+        if (streamOnly && !(type instanceof Name && ((Name)type).is("XRef"))) {
+            throw new CorruptException("Expected xref stream at " + offset);
+        }
+
+        List<?> w = asList(stream.dict.get("W"));
+        if (w == null || w.size() != 3) {
+            throw new CorruptException("Invalid xref stream /W");
+        }
+
+        int[] widths = new int[3];
+        for (int i = 0; i < 3; i++) {
+            widths[i] = toInt(w.get(i));
+            if (widths[i] < 0 || widths[i] > 8) {
+                throw new CorruptException("Invalid xref stream /W");
+            }
+        }
+
+        List<?> index = asList(stream.dict.get("Index"));
+        long[] ranges;
+        if (index != null) {
+            ranges = new long[index.size()];
+            for (int i = 0; i < ranges.length; i++) {
+                ranges[i] = toInt(index.get(i));
+            }
+        } else {
+            ranges = new long[] { 0, toInt(stream.dict.get("Size")) };
+        }
+
+        xrefs.add(new StreamSection(decode(stream), widths, ranges));
+
+        return stream.dict;
+    }
+
+    /**
+     * Resolves the object if it's an indirect reference.
+     */
+    Object resolve(
+            Object object) throws IOException {
+
+        if (!(object instanceof Ref)) {
+            return object;
+        }
+
+        int num = ((Ref)object).num;
+
+        long[] entry = null;
+        for (XrefSection section : xrefs) {
+            entry = section.lookup(num);
+            if (entry != null) {
+                break;
+            }
+        }
+
+        if (entry == null || entry[0] == 0) {
+            return null;        // missing or free is the null object
+        }
+
+        if (!resolving.add(num) || resolving.size() > MAX_NESTING) {
+            throw new CorruptException("Cyclic or too deep reference to object " + num);
+        }
+        try {
+            if (entry[0] == 1) {
+                input.seek(entry[1]);
+                return readIndirectObject(num);
+            } else if (entry[0] == 2) {
+                return objectStream((int)entry[1]).readObject((int)entry[2], num);
+            }
+            return null;
+        } finally {
+            resolving.remove(num);
+        }
+    }
+
+    Map<String,Object> resolveDict(
+            Object object) throws IOException {
+
+        return asDict(resolve(object));
+    }
+
+    private Object readIndirectObject(
+            int expectedNum) throws IOException {
+
+        Lexer lexer = new Lexer(input);
+
+        Object num = lexer.readToken();
+        Object gen = lexer.readToken();
+        Object obj = lexer.readToken();
+
+        if (!(num instanceof Long) || !(gen instanceof Long) || !(obj instanceof Keyword) || !((Keyword)obj).is("obj")
+                || (expectedNum >= 0 && (Long)num != expectedNum)) {
+            throw new CorruptException("Invalid object header at " + input.getStreamPosition());
+        }
+
+        Object object = lexer.readObject(0);
+
+        if (object instanceof Map) {
+            long position = input.getStreamPosition();
+            Object next = lexer.readToken();
+            if (next instanceof Keyword && ((Keyword)next).is("stream")) {
+                // the keyword is followed by CRLF or LF (a lone CR is tolerated)
+                int b = input.read();
+                if (b == '\r') {
+                    position = input.getStreamPosition();
+                    if (input.read() != '\n') {
+                        input.seek(position);
+                    }
+                } else if (b >= 0 && b != '\n') {
+                    input.seek(input.getStreamPosition() - 1);
+                }
+                return new Stream(asDict(object), input.getStreamPosition());
+            }
+            input.seek(position);
+        }
+
+        return object;
+    }
+
+    private ObjectStream objectStream(
+            int num) throws IOException {
+
+        ObjectStream objectStream = objectStreams.get(num);
+        if (objectStream == null) {
+            Object object = resolve(new Ref(num, 0));
+            if (!(object instanceof Stream)) {
+                throw new CorruptException("Invalid object stream " + num);
+            }
+            Stream stream = (Stream)object;
+            objectStream = new ObjectStream(decode(stream), toInt(stream.dict.get("N")), toInt(stream.dict.get("First")));
+            objectStreams.put(num, objectStream);
+        }
+        return objectStream;
+    }
+
+    /**
+     * Reads and decodes the data of the stream.
+     */
+    byte[] decode(
+            Stream stream) throws IOException {
+
+        long streamLength = toLong(resolve(stream.dict.get("Length")));
+        if (streamLength < 0 || streamLength > MAX_STREAM_LENGTH || stream.start + streamLength > length) {
+            throw new CorruptException("Invalid stream length " + streamLength);
+        }
+
+        byte[] data = new byte[(int)streamLength];
+        input.seek(stream.start);
+        input.readFully(data);
+
+        Object filter = resolve(stream.dict.get("Filter"));
+        Object parms = resolve(stream.dict.get("DecodeParms"));
+        if (filter instanceof List) {
+            List<?> filters = (List<?>)filter;
+            if (filters.size() > 1) {
+                throw new CorruptException("Unsupported stream filters " + filters);
+            }
+            filter = filters.isEmpty() ? null : resolve(filters.get(0));
+            parms = parms instanceof List ? (((List<?>)parms).isEmpty() ? null : resolve(((List<?>)parms).get(0))) : parms;
+        }
+
+        if (filter == null) {
+            return data;
+        }
+
+        if (!(filter instanceof Name) || !((Name)filter).is("FlateDecode")) {
+            throw new CorruptException("Unsupported stream filter " + filter);
+        }
+
+        data = inflate(data);
+
+        Map<String,Object> decodeParms = parms instanceof Map ? asDict(parms) : null;
+        int predictor = decodeParms != null && decodeParms.containsKey("Predictor") ? toInt(decodeParms.get("Predictor")) : 1;
+        if (predictor >= 10) {
+            int colors = decodeParms.containsKey("Colors") ? toInt(decodeParms.get("Colors")) : 1;
+            int bits = decodeParms.containsKey("BitsPerComponent") ? toInt(decodeParms.get("BitsPerComponent")) : 8;
+            int columns = decodeParms.containsKey("Columns") ? toInt(decodeParms.get("Columns")) : 1;
+            data = unpredict(data, colors, bits, columns);
+        } else if (predictor != 1) {
+            throw new CorruptException("Unsupported predictor " + predictor);
+        }
+
+        return data;
+    }
+
+    static byte[] inflate(
+            byte[] data) throws IOException {
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            byte[] out = new byte[Math.min(Math.max(64, data.length * 4), MAX_STREAM_LENGTH)];
+            int n = 0;
+            while (!inflater.finished()) {
+                if (n == out.length) {
+                    if (out.length >= MAX_STREAM_LENGTH) {
+                        throw new CorruptException("Stream inflates past " + MAX_STREAM_LENGTH + " bytes");
+                    }
+                    out = Arrays.copyOf(out, Math.min(out.length * 2, MAX_STREAM_LENGTH));
+                }
+                int inflated = inflater.inflate(out, n, out.length - n);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;      // truncated, keep what was inflated
+                }
+                n += inflated;
+            }
+            return Arrays.copyOf(out, n);
+        } catch (DataFormatException e) {
+            throw new CorruptException("Invalid flate stream: " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Reverses the PNG predictors (each row prefixed by its filter type).
+     */
+    static byte[] unpredict(
+            byte[] data,
+            int colors,
+            int bits,
+            int columns) throws IOException {
+
+        int bpp = Math.max(1, (colors * bits + 7) / 8);
+        int rowLength = (colors * bits * columns + 7) / 8;
+        if (rowLength <= 0) {
+            throw new CorruptException("Invalid predictor columns");
+        }
+
+        int rows = data.length / (rowLength + 1);
+        byte[] out = new byte[rows * rowLength];
+
+        for (int r = 0; r < rows; r++) {
+            int type = data[r * (rowLength + 1)] & 0xFF;
+            int in = r * (rowLength + 1) + 1;
+            int row = r * rowLength;
+            int prior = row - rowLength;
+            for (int i = 0; i < rowLength; i++) {
+                int raw = data[in + i] & 0xFF;
+                int left = i >= bpp ? out[row + i - bpp] & 0xFF : 0;
+                int up = r > 0 ? out[prior + i] & 0xFF : 0;
+                int upLeft = r > 0 && i >= bpp ? out[prior + i - bpp] & 0xFF : 0;
+                int value;
+                switch (type) {
+                    case 0:
+                        value = raw;
+                        break;
+                    case 1:
+                        value = raw + left;
+                        break;
+                    case 2:
+                        value = raw + up;
+                        break;
+                    case 3:
+                        value = raw + ((left + up) >>> 1);
+                        break;
+                    case 4:
+                        value = raw + paeth(left, up, upLeft);
+                        break;
+                    default:
+                        throw new CorruptException("Invalid png predictor " + type);
+                }
+                out[row + i] = (byte)value;
+            }
+        }
+
+        return out;
+    }
+
+    static private int paeth(
+            int a,
+            int b,
+            int c) {
+
+        int p = a + b - c;
+        int pa = Math.abs(p - a);
+        int pb = Math.abs(p - b);
+        int pc = Math.abs(p - c);
+        if (pa <= pb && pa <= pc) {
+            return a;
+        }
+        return pb <= pc ? b : c;
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String,Object> asDict(
+            Object object) throws CorruptException {
+
+        if (object instanceof Stream) {
+            return ((Stream)object).dict;
+        }
+        if (object != null && !(object instanceof Map)) {
+            throw new CorruptException("Expected a dictionary but was " + object);
+        }
+        return (Map<String,Object>)object;
+    }
+
+    static List<?> asList(
+            Object object) throws CorruptException {
+
+        if (object != null && !(object instanceof List)) {
+            throw new CorruptException("Expected an array but was " + object);
+        }
+        return (List<?>)object;
+    }
+
+    static long toLong(
+            Object object) throws CorruptException {
+
+        if (!(object instanceof Number)) {
+            throw new CorruptException("Expected a number but was " + object);
+        }
+        return ((Number)object).longValue();
+    }
+
+    static int toInt(
+            Object object) throws CorruptException {
+
+        long value = toLong(object);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new CorruptException("Number out of range " + value);
+        }
+        return (int)value;
+    }
+
+    static private int lastIndexOf(
+            byte[] data,
+            String s) {
+
+        for (int i = data.length - s.length(); i >= 0; i--) {
+            if (SVGRootScanner.startsWith(data, i, data.length, s)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * A classic xref table, whose fixed 20 byte entries are read on demand.
+     */
+    private final class TableSection implements XrefSection {
+
+        final private List<long[]> subsections;
+
+        TableSection(List<long[]> subsections) {
+            this.subsections = subsections;
+        }
+
+        @Override
+        public long[] lookup(int num) throws IOException {
+            for (long[] subsection : subsections) {
+                if (num >= subsection[0] && num < subsection[0] + subsection[1]) {
+                    byte[] entry = new byte[18];
+                    input.seek(subsection[2] + (num - subsection[0]) * 20);
+                    input.readFully(entry);
+                    long offset = parseDigits(entry, 0, 10);
+                    long gen = parseDigits(entry, 11, 5);
+                    int type = entry[17];
+                    if (offset < 0 || gen < 0 || (type != 'n' && type != 'f')) {
+                        throw new CorruptException("Invalid xref entry for object " + num);
+                    }
+                    return new long[] { type == 'n' ? 1 : 0, offset, gen };
+                }
+            }
+            return null;
+        }
+
+    }
+
+    static private long parseDigits(
+            byte[] data,
+            int offset,
+            int length) {
+
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            if (data[i] < '0' || data[i] > '9') {
+                return -1;
+            }
+            value = value * 10 + (data[i] - '0');
+        }
+        return value;
+    }
+
+    /**
+     * An xref stream: rows of 3 big endian fields whose widths are /W.
+     */
+    static private final class StreamSection implements XrefSection {
+
+        final private byte[] data;
+        final private int[] widths;
+        final private long[] ranges;
+        final private int rowLength;
+
+        StreamSection(byte[] data, int[] widths, long[] ranges) {
+            this.data = data;
+            this.widths = widths;
+            this.ranges = ranges;
+            this.rowLength = widths[0] + widths[1] + widths[2];
+        }
+
+        @Override
+        public long[] lookup(int num) {
+            long row = 0;
+            for (int i = 0; i + 1 < ranges.length; i += 2) {
+                long start = ranges[i];
+                long count = ranges[i + 1];
+                if (num >= start && num < start + count) {
+                    long position = (row + num - start) * rowLength;
+                    if (position + rowLength > data.length) {
+                        return null;
+                    }
+                    int p = (int)position;
+                    long[] entry = new long[3];
+                    for (int f = 0; f < 3; f++) {
+                        long value = 0;
+                        for (int b = 0; b < widths[f]; b++) {
+                            value = (value << 8) | (data[p++] & 0xFF);
+                        }
+                        entry[f] = value;
+                    }
+                    // type defaults to 1 if its field is omitted
+                    if (widths[0] == 0) {
+                        entry[0] = 1;
+                    }
+                    return entry;
+                }
+                row += count;
+            }
+            return null;
+        }
+
+    }
+
+    /**
+     * A decoded object stream (/Type /ObjStm) of N objects starting at First,
+     * preceded by pairs of object numbers and offsets.
+     */
+    static private final class ObjectStream {
+
+        final private byte[] data;
+        final private int count;
+        final private int first;
+
+        ObjectStream(byte[] data, int count, int first) throws CorruptException {
+            if (count < 0 || first < 0 || first > data.length) {
+                throw new CorruptException("Invalid object stream");
+            }
+            this.data = data;
+            this.count = count;
+            this.first = first;
+        }
+
+        Object readObject(int index, int num) throws IOException {
+            if (index < 0 || index >= count) {
+                throw new CorruptException("Invalid object stream index " + index);
+            }
+
+            Lexer lexer = new Lexer(new ByteArrayImageInputStream(data, 0, first));
+            long offset = -1;
+            for (int i = 0; i <= index; i++) {
+                Object n = lexer.readToken();
+                Object o = lexer.readToken();
+                if (!(n instanceof Long) || !(o instanceof Long)) {
+                    throw new CorruptException("Invalid object stream header");
+                }
+                if (i == index) {
+                    if ((Long)n != num) {
+                        throw new CorruptException("Object " + num + " not at index " + index);
+                    }
+                    offset = (Long)o;
+                }
+            }
+
+            if (offset < 0 || first + offset >= data.length) {
+                throw new CorruptException("Invalid object stream offset " + offset);
+            }
+
+            int start = first + (int)offset;
+            return new Lexer(new ByteArrayImageInputStream(data, start, data.length - start)).readObject(0);
+        }
+
+    }
+
+    /**
+     * Tokenizes PDF syntax from the current position of a stream.
+     */
+    static final class Lexer {
+
+        final private ImageInputStream input;
+
+        Lexer(ImageInputStream input) {
+            this.input = input;
+        }
+
+        static boolean isWhitespace(int b) {
+            return b == 0 || b == '\t' || b == '\n' || b == '\f' || b == '\r' || b == ' ';
+        }
+
+        static boolean isDelimiter(int b) {
+            return b == '(' || b == ')' || b == '<' || b == '>' || b == '[' || b == ']'
+                || b == '{' || b == '}' || b == '/' || b == '%';
+        }
+
+        private int peek() throws IOException {
+            int b = input.read();
+            if (b >= 0) {
+                input.seek(input.getStreamPosition() - 1);
+            }
+            return b;
+        }
+
+        private int next() throws IOException {
+            int b = input.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            return b;
+        }
+
+        void skipWhitespace() throws IOException {
+            while (true) {
+                int b = input.read();
+                if (b < 0) {
+                    return;
+                }
+                if (b == '%') {
+                    // comment to the end of the line
+                    do {
+                        b = input.read();
+                    } while (b >= 0 && b != '\r' && b != '\n');
+                } else if (!isWhitespace(b)) {
+                    input.seek(input.getStreamPosition() - 1);
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Reads the next token: a Long, Double, Name, byte[] (string) or a
+         * Keyword (including the delimiters).
+         */
+        Object readToken() throws IOException {
+            skipWhitespace();
+
+            int b = next();
+
+            switch (b) {
+                case '/':
+                    return new Name(readRegular(new StringBuilder()));
+                case '[':
+                case ']':
+                case '{':
+                case '}':
+                    return new Keyword(String.valueOf((char)b));
+                case '<':
+                    if (peek() == '<') {
+                        input.read();
+                        return new Keyword("<<");
+                    }
+                    return readHexString();
+                case '>':
+                    if (next() != '>') {
+                        throw new CorruptException("Unexpected >");
+                    }
+                    return new Keyword(">>");
+                case '(':
+                    return readLiteralString();
+                case ')':
+                    throw new CorruptException("Unexpected )");
+                default:
+                    break;
+            }
+
+            StringBuilder sb = new StringBuilder();
+            sb.append((char)b);
+            String word = readRegular(sb);
+
+            char c = word.charAt(0);
+            if ((c >= '0' && c <= '9') || c == '+' || c == '-' || c == '.') {
+                try {
+                    if (word.indexOf('.') >= 0) {
+                        return Double.parseDouble(word);
+                    }
+                    return Long.parseLong(word);
+                } catch (NumberFormatException e) {
+                    try {
+                        return Double.parseDouble(word);
+                    } catch (NumberFormatException e2) {
+                        throw new CorruptException("Invalid number " + word);
+                    }
+                }
+            }
+
+            return new Keyword(word);
+        }
+
+        private String readRegular(StringBuilder sb) throws IOException {
+            while (true) {
+                int b = input.read();
+                if (b < 0) {
+                    break;
+                }
+                if (isWhitespace(b) || isDelimiter(b)) {
+                    input.seek(input.getStreamPosition() - 1);
+                    break;
+                }
+                if (b == '#' && sb.length() > 0) {
+                    // names escape bytes as #xx
+                    int hi = Character.digit(next(), 16);
+                    int lo = Character.digit(next(), 16);
+                    if (hi < 0 || lo < 0) {
+                        throw new CorruptException("Invalid name escape");
+                    }
+                    b = (hi << 4) | lo;
+                }
+                sb.append((char)b);
+            }
+            return sb.toString();
+        }
+
+        private byte[] readHexString() throws IOException {
+            StringBuilder sb = new StringBuilder();
+            int b;
+            while ((b = next()) != '>') {
+                if (!isWhitespace(b)) {
+                    sb.append((char)b);
+                }
+            }
+            return sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+        }
+
+        private byte[] readLiteralString() throws IOException {
+            // escapes are kept as is, nothing needs the decoded value
+            StringBuilder sb = new StringBuilder();
+            int depth = 1;
+            while (true) {
+                int b = next();
+                if (b == '\\') {
+                    sb.append((char)b);
+                    b = next();
+                } else if (b == '(') {
+                    depth++;
+                } else if (b == ')' && --depth == 0) {
+                    break;
+                }
+                sb.append((char)b);
+            }
+            return sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+        }
+
+        /**
+         * Reads a complete object (a dictionary or array is read in full and
+         * "N G R" becomes a Ref).
+         */
+        Object readObject(int depth) throws IOException {
+            if (depth > MAX_NESTING) {
+                throw new CorruptException("Objects nested too deep");
+            }
+
+            Object token = readToken();
+
+            if (token instanceof Keyword) {
+                Keyword keyword = (Keyword)token;
+                if (keyword.is("<<")) {
+                    Map<String,Object> dict = new LinkedHashMap<>();
+                    while (true) {
+                        Object key = readToken();
+                        if (key instanceof Keyword && ((Keyword)key).is(">>")) {
+                            return dict;
+                        }
+                        if (!(key instanceof Name)) {
+                            throw new CorruptException("Expected a name for a dictionary key but was " + key);
+                        }
+                        dict.put(((Name)key).value, readObject(depth + 1));
+                    }
+                } else if (keyword.is("[")) {
+                    List<Object> array = new ArrayList<>();
+                    while (true) {
+                        skipWhitespace();
+                        if (peek() == ']') {
+                            input.read();
+                            return array;
+                        }
+                        array.add(readObject(depth + 1));
+                    }
+                } else if (keyword.is("true")) {
+                    return Boolean.TRUE;
+                } else if (keyword.is("false")) {
+                    return Boolean.FALSE;
+                } else if (keyword.is("null")) {
+                    return null;
+                }
+                throw new CorruptException("Unexpected " + keyword);
+            }
+
+            if (token instanceof Long) {
+                // maybe an indirect reference
+                long position = input.getStreamPosition();
+                skipWhitespace();
+                int b = peek();
+                if (b >= '0' && b <= '9') {
+                    Object gen = readToken();
+                    Object r = gen instanceof Long ? readToken() : null;
+                    if (r instanceof Keyword && ((Keyword)r).is("R")) {
+                        long num = (Long)token;
+                        if (num < 0 || num > Integer.MAX_VALUE || (Long)gen < 0 || (Long)gen > 65535) {
+                            throw new CorruptException("Invalid reference " + num + " " + gen);
+                        }
+                        return new Ref((int)num, (int)(long)(Long)gen);
+                    }
+                }
+                input.seek(position);
+            }
+
+            return token;
+        }
+
+    }
+
+}
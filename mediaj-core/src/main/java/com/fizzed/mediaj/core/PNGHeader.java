@@ -0,0 +1,332 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import com.fizzed.crux.util.Size2D;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.zip.CRC32;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Reads the dimensions of a PNG straight from its IHDR chunk.
+ *
+ * @author jjlauer
+ */
+public final class PNGHeader {
+
+    static final int SIGNATURE_HI = 0x89504E47;
+    static final int SIGNATURE_LO = 0x0D0A1A0A;
+    static final int CHUNK_IHDR = 0x49484452;
+    static final int CHUNK_CGBI = 0x43674249;
+    static final int CHUNK_IDAT = 0x49444154;
+    static final int CHUNK_IEND = 0x49454E44;
+    static final int CHUNK_ACTL = 0x6163544C;
+    static final int CHUNK_ICCP = 0x69434350;
+    static final int CHUNK_TRNS = 0x74524E53;
+    static final int CHUNK_EXIF = 0x65584966;
+    static final int CHUNK_TEXT = 0x74455874;
+    static final int CHUNK_ZTXT = 0x7A545874;
+    static final int CHUNK_ITXT = 0x69545874;
+    static final int CHUNK_TIME = 0x74494D45;
+
+    private PNGHeader() {
+        // static only
+    }
+
+    /**
+     * Reads the width and height of the PNG from its IHDR chunk, which the
+     * spec requires to be first (24 bytes into the file).  Apple's CgBI chunk
+     * is skipped if it precedes it.
+     *
+     * @param input The stream positioned at the start of the PNG
+     * @return The size or null if the stream is not a PNG
+     * @throws IOException
+     */
+    static public Size2D readSize(
+            ImageInputStream input) throws IOException {
+
+        ByteOrder byteOrder = input.getByteOrder();
+        input.setByteOrder(ByteOrder.BIG_ENDIAN);
+        try {
+            if (input.readInt() != SIGNATURE_HI || input.readInt() != SIGNATURE_LO) {
+                return null;
+            }
+
+            long length = input.readUnsignedInt();
+            int type = input.readInt();
+
+            // iOS optimized pngs have a CgBI chunk ahead of IHDR
+            if (type == CHUNK_CGBI) {
+                input.skipBytes(length + 4);        // data + crc
+                length = input.readUnsignedInt();
+                type = input.readInt();
+            }
+
+            if (type != CHUNK_IHDR || length < 8) {
+                return null;
+            }
+
+            long width = input.readUnsignedInt();
+            long height = input.readUnsignedInt();
+
+            return new Size2D(width, height);
+        } finally {
+            input.setByteOrder(byteOrder);
+        }
+    }
+
+    /**
+     * Reads the size, bit depth, color type and interlace method from IHDR,
+     * then walks the chunks ahead of the image data for transparency (tRNS),
+     * an ICC profile (iCCP), animation (APNG acTL) and orientation (eXIf).
+     * Chunk payloads other than those are skipped and the walk stops at the
+     * first IDAT.
+     *
+     * @param input The stream positioned at the start of the PNG
+     * @param info The info to fill in
+     * @return True if read or false if the stream is not a PNG
+     * @throws IOException
+     */
+    static public boolean readInfo(
+            ImageInputStream input,
+            HeaderInfo info) throws IOException {
+
+        ByteOrder byteOrder = input.getByteOrder();
+        input.setByteOrder(ByteOrder.BIG_ENDIAN);
+        try {
+            if (input.readInt() != SIGNATURE_HI || input.readInt() != SIGNATURE_LO) {
+                return false;
+            }
+
+            long length = input.readUnsignedInt();
+            int type = input.readInt();
+
+            if (type == CHUNK_CGBI) {
+                input.skipBytes(length + 4);
+                length = input.readUnsignedInt();
+                type = input.readInt();
+            }
+
+            if (type != CHUNK_IHDR || length < 13) {
+                return false;
+            }
+
+            long width = input.readUnsignedInt();
+            long height = input.readUnsignedInt();
+            int bitDepth = input.readUnsignedByte();
+            int colorType = input.readUnsignedByte();
+            input.skipBytes(2);             // compression, filter
+            int interlace = input.readUnsignedByte();
+
+            info.setSize(width, height);
+            info.setBitDepth(bitDepth);
+            info.setProgressive(interlace == 1);
+            info.setFrameCount(1);
+
+            switch (colorType) {
+                case 0:
+                    info.setColorType(HeaderInfo.COLOR_GRAY);
+                    break;
+                case 2:
+                    info.setColorType(HeaderInfo.COLOR_RGB);
+                    break;
+                case 3:
+                    info.setColorType(HeaderInfo.COLOR_PALETTE);
+                    break;
+                case 4:
+                    info.setColorType(HeaderInfo.COLOR_GRAY);
+                    info.setAlpha(true);
+                    break;
+                case 6:
+                    info.setColorType(HeaderInfo.COLOR_RGB);
+                    info.setAlpha(true);
+                    break;
+                default:
+                    info.setColorType(HeaderInfo.COLOR_UNKNOWN);
+                    break;
+            }
+
+            long next = input.getStreamPosition() + length - 13 + 4;     // rest + crc
+
+            while (true) {
+                input.seek(next);
+
+                // a truncated file still has a valid IHDR
+                if (input.read() < 0) {
+                    return true;
+                }
+                input.seek(next);
+
+                length = input.readUnsignedInt();
+                type = input.readInt();
+                next = input.getStreamPosition() + length + 4;
+
+                switch (type) {
+                    case CHUNK_IDAT:
+                    case CHUNK_IEND:
+                        return true;
+                    case CHUNK_TRNS:
+                        info.setAlpha(true);
+                        break;
+                    case CHUNK_ICCP:
+                        info.setIccProfile(true);
+                        break;
+                    case CHUNK_ACTL:
+                        if (length >= 8) {
+                            long frames = input.readUnsignedInt();
+                            info.setFrameCount((int)Math.min(frames, Integer.MAX_VALUE));
+                            info.setAnimated(frames > 1);
+                        }
+                        break;
+                    case CHUNK_EXIF: {
+                        long start = input.getStreamPosition();
+                        info.setOrientation(ExifHeader.readOrientation(input, start, start + length));
+                        break;
+                    }
+                    default:
+                        break;
+                }
+            }
+        } finally {
+            input.setByteOrder(byteOrder);
+        }
+    }
+
+    /**
+     * Plans stripping the metadata from a PNG: its text (tEXt, zTXt, iTXt),
+     * eXIf and tIME chunks, and optionally its iCCP chunk.  Every other chunk
+     * is kept, and the orientation can be kept as a minimal eXIf chunk in
+     * place of the original.  Only chunk headers are read (not chunk data or
+     * CRCs) and anything after IEND is dropped.
+     *
+     * @param input The stream positioned at the start of the PNG
+     * @param plan The plan to fill in
+     * @param keepIccProfile Whether the iCCP chunk is kept
+     * @param keepOrientation Whether the EXIF orientation is kept
+     * @return True if planned or false if the stream is not a PNG or a chunk
+     *      extends past the end of the stream
+     * @throws IOException
+     */
+    static public boolean planStrip(
+            ImageInputStream input,
+            StripPlan plan,
+            boolean keepIccProfile,
+            boolean keepOrientation) throws IOException {
+
+        ByteOrder byteOrder = input.getByteOrder();
+        input.setByteOrder(ByteOrder.BIG_ENDIAN);
+        try {
+            long start = input.getStreamPosition();
+            if (input.readInt() != SIGNATURE_HI || input.readInt() != SIGNATURE_LO) {
+                return false;
+            }
+            plan.keep(start, 8);
+
+            long sourceLength = input.length();
+
+            while (true) {
+                long chunk = input.getStreamPosition();
+
+                // a truncated file is copied as far as it goes
+                if (input.read() < 0) {
+                    return true;
+                }
+                input.seek(chunk);
+
+                long length = input.readUnsignedInt();
+                int type = input.readInt();
+                long end = chunk + 8 + length + 4;      // data + crc
+
+                if (sourceLength >= 0 && end > sourceLength) {
+                    return false;
+                }
+
+                boolean keep;
+                switch (type) {
+                    case CHUNK_TEXT:
+                    case CHUNK_ZTXT:
+                    case CHUNK_ITXT:
+                    case CHUNK_TIME:
+                        keep = false;
+                        break;
+                    case CHUNK_ICCP:
+                        keep = keepIccProfile;
+                        break;
+                    case CHUNK_EXIF: {
+                        keep = false;
+                        if (keepOrientation) {
+                            long data = input.getStreamPosition();
+                            int orientation = ExifHeader.readOrientation(input, data, data + length);
+                            if (orientation > 1) {
+                                plan.insert(exifChunk(orientation));
+                            }
+                        }
+                        break;
+                    }
+                    default:
+                        keep = true;
+                        break;
+                }
+
+                if (keep) {
+                    plan.keep(chunk, end - chunk);
+                } else {
+                    plan.remove(end - chunk);
+                }
+
+                if (type == CHUNK_IEND) {
+                    return true;
+                }
+
+                input.seek(end);
+            }
+        } finally {
+            input.setByteOrder(byteOrder);
+        }
+    }
+
+    /**
+     * An eXIf chunk holding only the orientation.
+     */
+    static private byte[] exifChunk(
+            int orientation) {
+
+        byte[] tiff = ExifHeader.writeOrientation(orientation);
+
+        byte[] chunk = new byte[8 + tiff.length + 4];
+        putInt(chunk, 0, tiff.length);
+        putInt(chunk, 4, CHUNK_EXIF);
+        System.arraycopy(tiff, 0, chunk, 8, tiff.length);
+
+        CRC32 crc = new CRC32();
+        crc.update(chunk, 4, 4 + tiff.length);
+        putInt(chunk, 8 + tiff.length, (int) crc.getValue());
+        return chunk;
+    }
+
+    static private void putInt(
+            byte[] b,
+            int index,
+            int value) {
+
+        b[index] = (byte) (value >>> 24);
+        b[index+1] = (byte) (value >>> 16);
+        b[index+2] = (byte) (value >>> 8);
+        b[index+3] = (byte) value;
+    }
+
+}
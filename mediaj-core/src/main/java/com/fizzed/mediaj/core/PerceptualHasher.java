@@ -0,0 +1,213 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Computes 64-bit perceptual hashes (average, difference and DCT based) of
+ * an image from a small luminance grid, area averaged from an already
+ * downscaled (e.g. subsampled) decode.  Similar images have hashes w/ a small
+ * Hamming distance.  A hasher reuses its scratch arrays across calls, so it
+ * allocates nothing per image but is not thread safe (keep one per thread).
+ *
+ * @author jjlauer
+ */
+public class PerceptualHasher {
+
+    /**
+     * The width & height of the grid hashed (8x8 = 64 bits).
+     */
+    static public final int HASH_SIZE = 8;
+
+    /**
+     * The width & height of the luminance grid the DCT based hash is taken
+     * from (only its lowest 8x8 frequencies are kept).
+     */
+    static public final int DCT_SIZE = 32;
+
+    // cosine terms of the DCT-II for the lowest frequencies only
+    static private final float[] COS = new float[HASH_SIZE * DCT_SIZE];
+    static {
+        for (int u = 0; u < HASH_SIZE; u++) {
+            for (int x = 0; x < DCT_SIZE; x++) {
+                COS[u * DCT_SIZE + x] = (float) Math.cos((2 * x + 1) * u * Math.PI / (2 * DCT_SIZE));
+            }
+        }
+    }
+
+    final private float[] grid;
+    final private int[] counts;
+    final private float[] rows;
+    final private float[] coefficients;
+    final private float[] sorted;
+    private int[] row;
+
+    public PerceptualHasher() {
+        this.grid = new float[DCT_SIZE * DCT_SIZE];
+        this.counts = new int[DCT_SIZE * DCT_SIZE];
+        this.rows = new float[HASH_SIZE * DCT_SIZE];
+        this.coefficients = new float[HASH_SIZE * HASH_SIZE];
+        this.sorted = new float[HASH_SIZE * HASH_SIZE];
+        this.row = new int[256];
+    }
+
+    /**
+     * Average hash: whether each cell of an 8x8 grid is brighter than the
+     * mean.
+     */
+    public long averageHash(
+            BufferedImage image) {
+
+        luminance(image, HASH_SIZE, HASH_SIZE);
+
+        float mean = 0;
+        for (int i = 0; i < HASH_SIZE * HASH_SIZE; i++) {
+            mean += grid[i];
+        }
+        mean /= HASH_SIZE * HASH_SIZE;
+
+        long hash = 0;
+        for (int i = 0; i < HASH_SIZE * HASH_SIZE; i++) {
+            hash = (hash << 1) | (grid[i] > mean ? 1 : 0);
+        }
+        return hash;
+    }
+
+    /**
+     * Difference hash: whether each cell of a 9x8 grid is brighter than the
+     * cell to its left (a horizontal gradient).
+     */
+    public long differenceHash(
+            BufferedImage image) {
+
+        final int width = HASH_SIZE + 1;
+        luminance(image, width, HASH_SIZE);
+
+        long hash = 0;
+        for (int y = 0; y < HASH_SIZE; y++) {
+            for (int x = 0; x < HASH_SIZE; x++) {
+                hash = (hash << 1) | (grid[y * width + x + 1] > grid[y * width + x] ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * DCT hash (pHash): whether each of the lowest 8x8 frequencies of the DCT
+     * of a 32x32 grid is above their median.  The most robust of the three to
+     * scaling, compression and small edits.
+     */
+    public long perceptualHash(
+            BufferedImage image) {
+
+        luminance(image, DCT_SIZE, DCT_SIZE);
+
+        // separable 2d DCT-II: the rows first (low frequencies only), then
+        // the columns of that
+        for (int u = 0; u < HASH_SIZE; u++) {
+            for (int y = 0; y < DCT_SIZE; y++) {
+                float sum = 0;
+                for (int x = 0; x < DCT_SIZE; x++) {
+                    sum += COS[u * DCT_SIZE + x] * grid[y * DCT_SIZE + x];
+                }
+                rows[u * DCT_SIZE + y] = sum;
+            }
+        }
+
+        for (int v = 0; v < HASH_SIZE; v++) {
+            for (int u = 0; u < HASH_SIZE; u++) {
+                float sum = 0;
+                for (int y = 0; y < DCT_SIZE; y++) {
+                    sum += COS[v * DCT_SIZE + y] * rows[u * DCT_SIZE + y];
+                }
+                coefficients[v * HASH_SIZE + u] = sum;
+            }
+        }
+
+        System.arraycopy(coefficients, 0, sorted, 0, sorted.length);
+        Arrays.sort(sorted);
+        float median = (sorted[sorted.length / 2 - 1] + sorted[sorted.length / 2]) / 2;
+
+        long hash = 0;
+        for (int i = 0; i < coefficients.length; i++) {
+            hash = (hash << 1) | (coefficients[i] > median ? 1 : 0);
+        }
+        return hash;
+    }
+
+    /**
+     * Area averages the luminance of the image (composited over white) into
+     * the first width x height cells of the grid.  Images smaller than the
+     * grid are sampled (nearest neighbor) instead.
+     */
+    private void luminance(
+            BufferedImage image,
+            int width,
+            int height) {
+
+        final int cells = width * height;
+        Arrays.fill(grid, 0, cells, 0f);
+        Arrays.fill(counts, 0, cells, 0);
+
+        final int imageWidth = image.getWidth();
+        final int imageHeight = image.getHeight();
+
+        if (row.length < imageWidth) {
+            row = new int[imageWidth];
+        }
+
+        for (int y = 0; y < imageHeight; y++) {
+            image.getRGB(0, y, imageWidth, 1, row, 0, imageWidth);
+            final int offset = (int) ((long) y * height / imageHeight) * width;
+
+            for (int x = 0; x < imageWidth; x++) {
+                int argb = row[x];
+                int a = argb >>> 24;
+                int luma = (299 * ((argb >> 16) & 0xFF) + 587 * ((argb >> 8) & 0xFF) + 114 * (argb & 0xFF)) / 1000;
+                if (a != 0xFF) {
+                    luma = (luma * a + 0xFF * (0xFF - a)) / 0xFF;
+                }
+                int cell = offset + (int) ((long) x * width / imageWidth);
+                grid[cell] += luma;
+                counts[cell]++;
+            }
+        }
+
+        for (int i = 0; i < cells; i++) {
+            if (counts[i] > 0) {
+                grid[i] /= counts[i];
+            }
+        }
+
+        // an image smaller than the grid leaves cells w/o any pixels
+        if (imageWidth < width || imageHeight < height) {
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    if (counts[y * width + x] == 0) {
+                        int sy = (int) ((long) y * imageHeight / height);
+                        int sx = (int) ((long) x * imageWidth / width);
+                        int sourceY = (int) ((long) sy * height / imageHeight);
+                        int sourceX = (int) ((long) sx * width / imageWidth);
+                        grid[y * width + x] = grid[sourceY * width + sourceX];
+                    }
+                }
+            }
+        }
+    }
+
+}
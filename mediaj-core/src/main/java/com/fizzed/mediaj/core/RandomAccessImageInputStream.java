@@ -0,0 +1,223 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import javax.imageio.stream.ImageInputStreamImpl;
+
+/**
+ * An ImageInputStream over a source read at any position (e.g. a FileChannel
+ * or an object in remote storage that supports ranged requests).  Each miss
+ * issues one read of at least a window of bytes at the stream position, so
+ * adjacent small reads by a parser are coalesced into one and only that
+ * window is ever held in memory.  Seeking (e.g. skipping a JPEG segment) is
+ * free since nothing is read until the next byte is actually needed.  Unlike
+ * FileImageInputStream, single byte reads do not each turn into a system
+ * call and unlike MemoryCacheImageInputStream nothing read is retained.
+ *
+ * @author jjlauer
+ */
+public final class RandomAccessImageInputStream extends ImageInputStreamImpl {
+
+    static public final int DEFAULT_WINDOW_SIZE = 4096;
+
+    /**
+     * Positional reads of the bytes under the stream.
+     */
+    public interface Source {
+
+        /**
+         * @return The size in bytes or -1 if unknown
+         */
+        long size() throws IOException;
+
+        /**
+         * Reads bytes at the position into the remaining space of the buffer.
+         *
+         * @return The number of bytes read (at least one) or -1 if the
+         *      position is at or past the end
+         */
+        int readAt(long position, ByteBuffer buffer) throws IOException;
+
+    }
+
+    private final Source source;
+    private final Closeable closeable;
+    private final byte[] window;
+    private final ByteBuffer windowBuffer;
+    private long windowStart;
+    private int windowLength;
+    private int readCount;
+    private long bytesFetched;
+
+    public RandomAccessImageInputStream(final FileChannel channel) {
+        this(channel, true, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param channel The channel to read from
+     * @param closeChannel Whether closing this stream closes the channel
+     * @param windowSize The number of bytes read per positional read
+     */
+    public RandomAccessImageInputStream(final FileChannel channel, boolean closeChannel, int windowSize) {
+        this(of(channel), closeChannel ? channel : null, windowSize);
+    }
+
+    /**
+     * @param source The source to read from, which closing this stream does
+     *      not close
+     * @param windowSize The minimum number of bytes per read of the source
+     */
+    public RandomAccessImageInputStream(final Source source, int windowSize) {
+        this(source, null, windowSize);
+    }
+
+    private RandomAccessImageInputStream(final Source source, Closeable closeable, int windowSize) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("windowSize must be > 0");
+        }
+        this.source = source;
+        this.closeable = closeable;
+        this.window = new byte[windowSize];
+        this.windowBuffer = ByteBuffer.wrap(window);
+        this.windowStart = 0;
+        this.windowLength = 0;
+    }
+
+    static private Source of(final FileChannel channel) {
+        return new Source() {
+            @Override
+            public long size() throws IOException {
+                return channel.size();
+            }
+
+            @Override
+            public int readAt(long position, ByteBuffer buffer) throws IOException {
+                return channel.read(buffer, position);
+            }
+        };
+    }
+
+    /**
+     * The number of reads issued against the source.
+     */
+    public int getReadCount() {
+        return readCount;
+    }
+
+    /**
+     * The number of bytes fetched from the source by all reads.
+     */
+    public long getBytesFetched() {
+        return bytesFetched;
+    }
+
+    /**
+     * Fills the window with the bytes starting at the stream position.
+     * @return False if the position is at or past the end of the source
+     */
+    private boolean fill() throws IOException {
+        windowBuffer.clear();
+        int read = readFully(windowBuffer, streamPos);
+        windowStart = streamPos;
+        windowLength = Math.max(read, 0);
+        return windowLength > 0;
+    }
+
+    private int readFully(ByteBuffer buffer, long position) throws IOException {
+        readCount++;
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = source.readAt(position + total, buffer);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        bytesFetched += total;
+        return total > 0 ? total : -1;
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkClosed();
+
+        if (streamPos < windowStart || streamPos >= windowStart + windowLength) {
+            if (!fill()) {
+                return -1;
+            }
+        }
+
+        bitOffset = 0;
+
+        return window[(int) (streamPos++ - windowStart)] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] pBuffer, int pOffset, int pLength) throws IOException {
+        checkClosed();
+
+        if (pLength == 0) {
+            return 0;
+        }
+
+        bitOffset = 0;
+
+        // large reads are a single read straight into the caller's array
+        if (pLength >= window.length
+                && (streamPos < windowStart || streamPos >= windowStart + windowLength)) {
+            int read = readFully(ByteBuffer.wrap(pBuffer, pOffset, pLength), streamPos);
+            if (read > 0) {
+                streamPos += read;
+            }
+            return read;
+        }
+
+        if (streamPos < windowStart || streamPos >= windowStart + windowLength) {
+            if (!fill()) {
+                return -1;
+            }
+        }
+
+        int offset = (int) (streamPos - windowStart);
+        int length = Math.min(windowLength - offset, pLength);
+        System.arraycopy(window, offset, pBuffer, pOffset, length);
+        streamPos += length;
+
+        return length;
+    }
+
+    @Override
+    public long length() {
+        try {
+            return source.size();
+        } catch (IOException e) {
+            return -1L;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        super.close();
+        if (closeable != null) {
+            closeable.close();
+        }
+    }
+
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import java.awt.AlphaComposite;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+/**
+ * Plans a downscale so ImageIO decodes close to the target size (a source
+ * region and subsampling), then finishes it with a high quality scale step.
+ * Decoding with subsampling only allocates the subsampled raster, so memory
+ * is bounded by the target size rather than the source's.
+ *
+ * @author jjlauer
+ */
+public final class Resampler {
+
+    /**
+     * How many times the target size (in each dimension) subsampling should
+     * decode at least, so the final scale step has pixels to filter.
+     */
+    static public final int OVERSAMPLE = 2;
+
+    private Resampler() {
+        // static only
+    }
+
+    /**
+     * The size that fits within the box keeping the aspect ratio.  Images are
+     * never upscaled.
+     *
+     * @param width The width of the source
+     * @param height The height of the source
+     * @param maxWidth The width of the box
+     * @param maxHeight The height of the box
+     * @return The size (at least 1x1)
+     */
+    static public Dimension fit(
+            int width,
+            int height,
+            int maxWidth,
+            int maxHeight) {
+
+        double scale = Math.min(1.0d, Math.min((double) maxWidth / width, (double) maxHeight / height));
+
+        return new Dimension(
+            Math.max(1, (int) Math.round(width * scale)),
+            Math.max(1, (int) Math.round(height * scale)));
+    }
+
+    /**
+     * The largest centered region of the source with the aspect ratio of the
+     * box, which scaled to the box fills it entirely (a center crop).
+     *
+     * @param width The width of the source
+     * @param height The height of the source
+     * @param maxWidth The width of the box
+     * @param maxHeight The height of the box
+     * @return The region of the source
+     */
+    static public Rectangle cover(
+            int width,
+            int height,
+            int maxWidth,
+            int maxHeight) {
+
+        // compare width/height to maxWidth/maxHeight w/o rounding
+        if ((long) width * maxHeight > (long) height * maxWidth) {
+            int w = (int) Math.max(1, Math.round((double) height * maxWidth / maxHeight));
+            return new Rectangle((width - w) / 2, 0, w, height);
+        } else {
+            int h = (int) Math.max(1, Math.round((double) width * maxHeight / maxWidth));
+            return new Rectangle(0, (height - h) / 2, width, h);
+        }
+    }
+
+    /**
+     * The largest source subsampling (ImageReadParam) that still decodes at
+     * least {@link #OVERSAMPLE} times the target size in both dimensions.
+     * The decoded image is then less than twice that, so at most 4x the
+     * target in each dimension.
+     *
+     * @param width The width of the source (region)
+     * @param height The height of the source (region)
+     * @param targetWidth The width of the target
+     * @param targetHeight The height of the target
+     * @return The subsampling (1 for none)
+     */
+    static public int subsampling(
+            int width,
+            int height,
+            int targetWidth,
+            int targetHeight) {
+
+        int x = width / (targetWidth * OVERSAMPLE);
+        int y = height / (targetHeight * OVERSAMPLE);
+
+        return Math.max(1, Math.min(x, y));
+    }
+
+    /**
+     * Scales the image to exactly the size with bilinear steps that at most
+     * halve it each time, which avoids the aliasing of a single bilinear (or
+     * nearest neighbor) step and is much faster than an area averaging
+     * filter.  The result is always an INT_RGB or INT_ARGB image.
+     *
+     * @param image The image
+     * @param width The width to scale to
+     * @param height The height to scale to
+     * @return The scaled image or the image itself if it's already the size
+     *      and type
+     */
+    static public BufferedImage scale(
+            BufferedImage image,
+            int width,
+            int height) {
+
+        int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        if (image.getWidth() == width && image.getHeight() == height && image.getType() == type) {
+            return image;
+        }
+
+        BufferedImage current = image;
+        int w = image.getWidth();
+        int h = image.getHeight();
+
+        do {
+            w = w > width ? Math.max(width, w / 2) : width;
+            h = h > height ? Math.max(height, h / 2) : height;
+
+            BufferedImage next = new BufferedImage(w, h, type);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setComposite(AlphaComposite.Src);
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, w, h, null);
+            } finally {
+                g.dispose();
+            }
+
+            current = next;
+        } while (w != width || h != height);
+
+        return current;
+    }
+
+}
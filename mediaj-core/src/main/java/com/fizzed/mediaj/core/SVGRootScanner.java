@@ -0,0 +1,296 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Byte level scanner that finds the root &lt;svg&gt; element of a UTF-8 (or
+ * ASCII compatible) document without a full XML parser.  The BOM, whitespace,
+ * the XML declaration, processing instructions, comments and the DOCTYPE are
+ * skipped.  The attributes of the root start tag can be read as well, which is
+ * all that's needed for an svg's size.
+ *
+ * @author jjlauer
+ */
+public final class SVGRootScanner {
+
+    private SVGRootScanner() {
+        // static only
+    }
+
+    /**
+     * Finds the index of the root element's start tag if it is &lt;svg&gt;.
+     *
+     * @param data The bytes
+     * @param offset The offset to start at
+     * @param length The number of bytes available
+     * @return The index of the '&lt;' of the svg start tag or -1 if the root
+     *      element is not svg or was not found within the bytes
+     */
+    static public int indexOfRoot(
+            byte[] data,
+            int offset,
+            int length) {
+
+        final int end = offset + length;
+        int i = offset;
+
+        // utf-8 bom
+        if (length >= 3 && (data[i] & 0xFF) == 0xEF && (data[i+1] & 0xFF) == 0xBB && (data[i+2] & 0xFF) == 0xBF) {
+            i += 3;
+        }
+
+        while (i < end) {
+            byte b = data[i];
+
+            if (isWhitespace(b)) {
+                i++;
+                continue;
+            }
+
+            if (b != '<' || i + 1 >= end) {
+                return -1;
+            }
+
+            byte next = data[i+1];
+
+            if (next == '?') {
+                // xml declaration or processing instruction
+                i = indexOf(data, i + 2, end, '?', '>');
+                if (i < 0) {
+                    return -1;
+                }
+                i += 2;
+            } else if (next == '!') {
+                if (startsWith(data, i, end, "<!--")) {
+                    i = indexOf(data, i + 4, end, '-', '-');
+                    if (i < 0 || i + 2 >= end || data[i+2] != '>') {
+                        return -1;
+                    }
+                    i += 3;
+                } else {
+                    // doctype, which may have an internal subset in []
+                    i = skipDeclaration(data, i + 2, end);
+                    if (i < 0) {
+                        return -1;
+                    }
+                }
+            } else if (startsWith(data, i, end, "<svg")) {
+                if (i + 4 >= end) {
+                    return -1;
+                }
+                byte after = data[i+4];
+                if (isWhitespace(after) || after == '>' || after == '/') {
+                    return i;
+                }
+                return -1;
+            } else {
+                return -1;      // some other root element
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Finds the end of the root &lt;svg&gt; start tag (and therefore all of its
+     * attributes) if it is entirely within the bytes.
+     *
+     * @param data The bytes
+     * @param offset The offset to start at
+     * @param length The number of bytes available
+     * @return The index just past the '&gt;' closing the svg start tag or -1
+     *      if the root element is not svg or its start tag is incomplete
+     */
+    static public int indexOfRootEnd(
+            byte[] data,
+            int offset,
+            int length) {
+
+        int i = indexOfRoot(data, offset, length);
+        if (i < 0) {
+            return -1;
+        }
+
+        final int end = offset + length;
+        for (i += 4; i < end; ) {
+            i = Bytes.indexOfAny(data, i, end, (byte)'>', (byte)'"', (byte)'\'');
+            if (i < 0) {
+                return -1;
+            }
+            if (data[i] == '>') {
+                return i + 1;
+            }
+            // skip the quoted value
+            i = Bytes.indexOf(data, i + 1, end, data[i]);
+            if (i < 0) {
+                return -1;
+            }
+            i++;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Reads the attributes of the root &lt;svg&gt; start tag, keyed by their
+     * local name (case insensitive).
+     *
+     * @param data The bytes
+     * @param offset The offset to start at
+     * @param length The number of bytes available
+     * @return The attributes or null if the root element is not svg, its start
+     *      tag is incomplete or it needs a real XML parser (e.g. a value with
+     *      an entity reference)
+     */
+    static public Map<String,String> readRootAttributes(
+            byte[] data,
+            int offset,
+            int length) {
+
+        int end = indexOfRootEnd(data, offset, length);
+        if (end < 0) {
+            return null;
+        }
+
+        Map<String,String> attrs = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+        // skip "<svg", the start tag ends with either ">" or "/>"
+        int i = indexOfRoot(data, offset, length) + 4;
+        end--;
+
+        while (true) {
+            while (i < end && isWhitespace(data[i])) {
+                i++;
+            }
+
+            if (i >= end || data[i] == '/') {
+                return attrs;
+            }
+
+            int nameStart = i;
+            int localStart = i;
+            while (i < end && data[i] != '=' && !isWhitespace(data[i])) {
+                if (data[i] == ':') {
+                    localStart = i + 1;
+                }
+                i++;
+            }
+            int nameEnd = i;
+
+            while (i < end && isWhitespace(data[i])) {
+                i++;
+            }
+            if (i >= end || data[i] != '=') {
+                return null;
+            }
+            i++;
+            while (i < end && isWhitespace(data[i])) {
+                i++;
+            }
+            if (i >= end || (data[i] != '"' && data[i] != '\'')) {
+                return null;
+            }
+
+            byte quote = data[i++];
+            int valueStart = i;
+            i = Bytes.indexOfAny(data, i, end, quote, (byte)'&', quote);
+            if (i < 0 || data[i] == '&' || nameEnd == localStart) {
+                return null;
+            }
+
+            // namespace declarations are not attributes
+            if (!startsWith(data, nameStart, nameEnd, "xmlns") || (nameEnd - nameStart > 5 && data[nameStart + 5] != ':')) {
+                attrs.put(new String(data, localStart, nameEnd - localStart, StandardCharsets.UTF_8),
+                    new String(data, valueStart, i - valueStart, StandardCharsets.UTF_8));
+            }
+
+            i++;    // closing quote
+        }
+    }
+
+    static boolean isWhitespace(
+            byte b) {
+
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    static boolean startsWith(
+            byte[] data,
+            int offset,
+            int end,
+            String prefix) {
+
+        if (offset + prefix.length() > end) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (data[offset + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static int indexOf(
+            byte[] data,
+            int offset,
+            int end,
+            char c0,
+            char c1) {
+
+        for (int i = offset; i < end - 1; i++) {
+            i = Bytes.indexOf(data, i, end - 1, (byte)c0);
+            if (i < 0) {
+                return -1;
+            }
+            if (data[i+1] == c1) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static int skipDeclaration(
+            byte[] data,
+            int offset,
+            int end) {
+
+        int depth = 0;
+        byte quote = 0;
+        for (int i = offset; i < end; i++) {
+            byte b = data[i];
+            if (quote != 0) {
+                if (b == quote) {
+                    quote = 0;
+                }
+            } else if (b == '"' || b == '\'') {
+                quote = b;
+            } else if (b == '[') {
+                depth++;
+            } else if (b == ']') {
+                depth--;
+            } else if (b == '>' && depth <= 0) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+}
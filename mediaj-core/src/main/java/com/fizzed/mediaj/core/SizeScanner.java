@@ -0,0 +1,307 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import com.fizzed.crux.mediatype.KnownMediaType;
+import com.fizzed.crux.util.Size2D;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Push style (resumable) size parser that is fed chunks of bytes as they
+ * arrive rather than pulling them from a blocking stream.  Each call to
+ * {@link #scan(ByteBuffer)} consumes as much of the chunk as it needs and
+ * leaves the chunk's position just past the last byte it used.
+ *
+ * @author jjlauer
+ */
+public abstract class SizeScanner {
+
+    // max bytes buffered looking for the root start tag of an svg
+    static public final int SVG_MAX_BUFFERED = 64 * 1024;
+
+    protected Size2D size;
+    protected boolean done;
+
+    /**
+     * Scans the next chunk.
+     *
+     * @param chunk The bytes from its position to its limit
+     * @return True if the scanner is done (the size is known or will never be)
+     * @throws IOException
+     */
+    public abstract boolean scan(ByteBuffer chunk) throws IOException;
+
+    /**
+     * Signals no more bytes are coming.  The scanner is done afterwards.
+     *
+     * @throws IOException
+     */
+    public void finish() throws IOException {
+        this.done = true;
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * The size once done.
+     * @return The size or null if it could not be determined
+     */
+    public Size2D getSize() {
+        return size;
+    }
+
+    /**
+     * Creates a new scanner for the media type.
+     *
+     * @param mediaType The media type
+     * @return A new scanner or null if the media type is not supported
+     */
+    static public SizeScanner of(
+            KnownMediaType mediaType) {
+
+        switch (mediaType) {
+            case IMAGE_JPEG:
+                return new JPEGSizeScanner();
+            case IMAGE_PNG:
+                // sig(8) + CgBI chunk(16) + IHDR length/type/width/height(16)
+                return new HeaderSizeScanner(40, PNGHeader::readSize);
+            case IMAGE_GIF:
+                return new HeaderSizeScanner(10, GIFHeader::readSize);
+            case IMAGE_WEBP:
+                return new HeaderSizeScanner(30, WebPHeader::readSize);
+            case IMAGE_SVG_XML:
+                return new SVGSizeScanner();
+            default:
+                return null;
+        }
+    }
+
+    interface HeaderReader {
+        Size2D read(ImageInputStream input) throws IOException;
+    }
+
+    /**
+     * For formats whose size is within a small fixed header: the header is
+     * buffered and the pull parser re-run over it until it no longer hits the
+     * end of the bytes available.
+     */
+    static class HeaderSizeScanner extends SizeScanner {
+
+        private final byte[] header;
+        private final HeaderReader reader;
+        private int length;
+
+        HeaderSizeScanner(int maxLength, HeaderReader reader) {
+            this.header = new byte[maxLength];
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean scan(ByteBuffer chunk) throws IOException {
+            if (done) {
+                return true;
+            }
+
+            int start = chunk.position();
+            int before = this.length;
+            int n = Math.min(chunk.remaining(), header.length - length);
+            chunk.get(header, length, n);
+            this.length += n;
+
+            try (ByteArrayImageInputStream input = new ByteArrayImageInputStream(header, 0, length)) {
+                this.size = reader.read(input);
+                this.done = true;
+                // give back what the parser did not need
+                int used = (int) Math.max(input.getStreamPosition() - before, 0);
+                ((Buffer) chunk).position(start + Math.min(used, n));
+            } catch (EOFException e) {
+                // need more bytes (unless we already have them all)
+                this.done = this.length >= header.length;
+            }
+
+            return done;
+        }
+
+    }
+
+    /**
+     * Walks the JPEG segment markers one byte at a time, skipping segment
+     * payloads by count (never buffering them) until the first SOFn.
+     */
+    static class JPEGSizeScanner extends SizeScanner {
+
+        static private final int SOI_FF = 0;
+        static private final int SOI_D8 = 1;
+        static private final int MARKER_FF = 2;
+        static private final int MARKER_CODE = 3;
+        static private final int LENGTH_HI = 4;
+        static private final int LENGTH_LO = 5;
+        static private final int SKIP = 6;
+        static private final int FRAME = 7;
+
+        private int state = SOI_FF;
+        private int marker;
+        private int length;
+        private long remaining;
+        private final byte[] frame = new byte[5];
+        private int frameLength;
+
+        @Override
+        public boolean scan(ByteBuffer chunk) {
+            while (!done && chunk.hasRemaining()) {
+                if (state == SKIP) {
+                    int n = (int) Math.min(remaining, chunk.remaining());
+                    ((Buffer) chunk).position(chunk.position() + n);
+                    remaining -= n;
+                    if (remaining == 0) {
+                        state = MARKER_FF;
+                    }
+                    continue;
+                }
+
+                int b = chunk.get() & 0xFF;
+
+                switch (state) {
+                    case SOI_FF:
+                        if (b == 0xFF) {
+                            state = SOI_D8;
+                        } else {
+                            done = true;
+                        }
+                        break;
+                    case SOI_D8:
+                        if (b == JPEGHeader.SOI) {
+                            state = MARKER_FF;
+                        } else {
+                            done = true;
+                        }
+                        break;
+                    case MARKER_FF:
+                        if (b == 0xFF) {
+                            state = MARKER_CODE;
+                        } else {
+                            done = true;
+                        }
+                        break;
+                    case MARKER_CODE:
+                        if (b == 0xFF) {
+                            break;          // fill byte
+                        }
+                        marker = b;
+                        if (marker == JPEGHeader.SOS || marker == JPEGHeader.EOI) {
+                            done = true;    // no frame header before scan data
+                        } else if (JPEGHeader.isStandalone(marker)) {
+                            state = MARKER_FF;
+                        } else {
+                            state = LENGTH_HI;
+                        }
+                        break;
+                    case LENGTH_HI:
+                        length = b << 8;
+                        state = LENGTH_LO;
+                        break;
+                    case LENGTH_LO:
+                        length |= b;
+                        if (length < 2) {
+                            done = true;    // corrupt
+                        } else if (JPEGHeader.isStartOfFrame(marker)) {
+                            state = FRAME;
+                        } else {
+                            remaining = length - 2;
+                            state = remaining > 0 ? SKIP : MARKER_FF;
+                        }
+                        break;
+                    case FRAME:
+                        frame[frameLength++] = (byte) b;
+                        if (frameLength == frame.length) {
+                            // precision, height, width
+                            int height = ((frame[1] & 0xFF) << 8) | (frame[2] & 0xFF);
+                            int width = ((frame[3] & 0xFF) << 8) | (frame[4] & 0xFF);
+                            this.size = new Size2D(width, height);
+                            this.done = true;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+
+            return done;
+        }
+
+    }
+
+    /**
+     * Buffers the prolog of an svg until the root start tag is complete, then
+     * parses its attributes.  Gives up after SVG_MAX_BUFFERED bytes.
+     */
+    static class SVGSizeScanner extends SizeScanner {
+
+        private byte[] buffer = new byte[4096];
+        private int length;
+
+        @Override
+        public boolean scan(ByteBuffer chunk) throws IOException {
+            if (done) {
+                return true;
+            }
+
+            int start = chunk.position();
+            int before = this.length;
+            int n = Math.min(chunk.remaining(), SVG_MAX_BUFFERED - length);
+            if (length + n > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.min(Math.max(buffer.length * 2, length + n), SVG_MAX_BUFFERED));
+            }
+            chunk.get(buffer, length, n);
+            this.length += n;
+
+            int end = SVGRootScanner.indexOfRootEnd(buffer, 0, length);
+            if (end >= 0) {
+                parse(end);
+                ((Buffer) chunk).position(start + Math.max(end - before, 0));
+            } else if (length >= SVG_MAX_BUFFERED) {
+                this.done = true;
+            }
+
+            return done;
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (!done) {
+                int end = SVGRootScanner.indexOfRootEnd(buffer, 0, length);
+                if (end >= 0) {
+                    parse(end);
+                }
+            }
+            super.finish();
+        }
+
+        private void parse(int end) throws IOException {
+            this.done = true;
+            this.size = StreamingSVGDocument.readSize(buffer, 0, end);
+        }
+
+    }
+
+}
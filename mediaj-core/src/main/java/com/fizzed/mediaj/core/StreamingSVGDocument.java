@@ -16,18 +16,31 @@
 package com.fizzed.mediaj.core;
 
 import com.fizzed.crux.util.Size2D;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Map;
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 
 /**
+ * Reads the size of an SVG from the attributes of its root element.  The
+ * {@link #readSize} methods first try {@link SVGRootScanner} on the start of
+ * the document and only fall back to a StAX parse for documents the scanner
+ * can't handle (e.g. a prefixed root, entity references or a long prolog).
  *
  * @author jjlauer
  */
 public class StreamingSVGDocument {
 
+    // bytes of the document scanned for the root element before falling back
+    static public final int SCAN_LENGTH = 4096;
+    
+    // factories are thread safe once configured and are costly to look up
+    static private final XMLInputFactory XML_INPUT_FACTORY = newXMLInputFactory();
+
     final private XMLStreamReader streamReader;
     private boolean readHeader;
     private String heightAttr;
@@ -43,16 +56,8 @@ public class StreamingSVGDocument {
     static public StreamingSVGDocument load(
             InputStream input) throws IOException {
 
-        XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
         try {
-            // these help immensely with speed...
-            xmlInputFactory.setProperty("javax.xml.stream.isValidating", false);
-            xmlInputFactory.setProperty("javax.xml.stream.isNamespaceAware", true);
-            xmlInputFactory.setProperty("javax.xml.stream.isReplacingEntityReferences", false);
-            xmlInputFactory.setProperty("javax.xml.stream.isSupportingExternalEntities", false);
-            xmlInputFactory.setProperty("javax.xml.stream.supportDTD", false);
-
-            XMLStreamReader streamReader = xmlInputFactory.createXMLStreamReader(input, "UTF-8");
+            XMLStreamReader streamReader = XML_INPUT_FACTORY.createXMLStreamReader(input, "UTF-8");
             
             return new StreamingSVGDocument(streamReader);
         } catch (XMLStreamException e) {
@@ -60,26 +65,107 @@ public class StreamingSVGDocument {
         }
     }
     
+    static private XMLInputFactory newXMLInputFactory() {
+        XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+        
+        // these help immensely with speed...
+        xmlInputFactory.setProperty("javax.xml.stream.isValidating", false);
+        xmlInputFactory.setProperty("javax.xml.stream.isNamespaceAware", true);
+        xmlInputFactory.setProperty("javax.xml.stream.isReplacingEntityReferences", false);
+        xmlInputFactory.setProperty("javax.xml.stream.isSupportingExternalEntities", false);
+        xmlInputFactory.setProperty("javax.xml.stream.supportDTD", false);
+        
+        return xmlInputFactory;
+    }
+    
+    /**
+     * Reads the size of the svg, scanning the bytes for the root element
+     * before falling back to a full parse.
+     * 
+     * @param data The bytes of the svg
+     * @param offset The offset the svg starts at
+     * @param length The number of bytes
+     * @return The size or null if the svg does not have one
+     * @throws IOException 
+     */
+    static public Size2D readSize(
+            byte[] data,
+            int offset,
+            int length) throws IOException {
+        
+        Map<String,String> attrs = SVGRootScanner.readRootAttributes(data, offset, length);
+        
+        if (attrs != null) {
+            return toSize(attrs.get("width"), attrs.get("height"), attrs.get("viewBox"));
+        }
+        
+        return load(new ByteArrayInputStream(data, offset, length)).getSize();
+    }
+    
+    /**
+     * Reads the size of the svg, scanning up to the first SCAN_LENGTH bytes
+     * for the root element before falling back to a full parse of the stream.
+     * Reads stop once the root start tag is complete, though a single read
+     * of the stream may return more.
+     * 
+     * @param input The stream positioned at the start of the svg
+     * @return The size or null if the svg does not have one
+     * @throws IOException 
+     */
+    static public Size2D readSize(
+            InputStream input) throws IOException {
+        
+        byte[] prefix = new byte[SCAN_LENGTH];
+        int length = 0;
+        int n;
+        // stop as soon as the root start tag is complete to minimize reading
+        while (length < prefix.length && (n = input.read(prefix, length, prefix.length - length)) > 0) {
+            length += n;
+            if (SVGRootScanner.indexOfRootEnd(prefix, 0, length) >= 0) {
+                break;
+            }
+        }
+        
+        Map<String,String> attrs = SVGRootScanner.readRootAttributes(prefix, 0, length);
+        
+        if (attrs != null) {
+            return toSize(attrs.get("width"), attrs.get("height"), attrs.get("viewBox"));
+        }
+        
+        // replay what was scanned ahead of the rest of the stream
+        InputStream replay = new SequenceInputStream(new ByteArrayInputStream(prefix, 0, length), input);
+        
+        return load(replay).getSize();
+    }
+    
     public Size2D getSize() throws IOException {
         if (!readHeader) {
             this.readHeader();
         }
         
+        return toSize(this.widthAttr, this.heightAttr, this.viewBoxAttr);
+    }
+    
+    static Size2D toSize(
+            String widthAttr,
+            String heightAttr,
+            String viewBoxAttr) {
+        
         double width = 0.0f;
         double height = 0.0f;
         
-        if (this.heightAttr != null) {
-            height = parseSize(this.heightAttr);
+        if (heightAttr != null) {
+            height = parseSize(heightAttr);
         }
         
-        if (this.widthAttr != null) {
-            width = parseSize(this.widthAttr);
+        if (widthAttr != null) {
+            width = parseSize(widthAttr);
         }
         
         if (height <= 0 || width <= 0) {
             // try viewbox now
-            if (this.viewBoxAttr != null) {
-                double[] values = parseViewBox(this.viewBoxAttr);
+            if (viewBoxAttr != null) {
+                double[] values = parseViewBox(viewBoxAttr);
                 if (values != null) {
                     width = values[2] - values[0];  // width - minx
                     height = values[3] - values[1]; // height - miny
@@ -99,53 +185,143 @@ public class StreamingSVGDocument {
      * width and height, separated by whitespace and/or a comma, which specify a
      * rectangle in user space which is mapped to the bounds of the viewport
      * established for the associated element.
+     *
+     * @return The four numbers or null if the value is not exactly four
+     *      finite numbers
      */
-    static private double[] parseViewBox(String value) {
+    static double[] parseViewBox(String value) {
         // e.g. 0 0 0 0
         if (value == null) {
             return null;
         }
         
-        // space or comma apparently...
-        String[] tokens = value.split("[ ,]+", 4);
-        
-        if (tokens == null || tokens.length != 4) {
-            return null;
-        }
-        
+        final int end = value.length();
         double[] values = new double[4];
+        int i = skipWhitespace(value, 0, end);
         
-        for (int i = 0; i < values.length; i++) {
-            values[i] = parseSize(tokens[i]);
+        for (int n = 0; n < values.length; n++) {
+            if (n > 0) {
+                // space or comma apparently...
+                int next = skipWhitespace(value, i, end);
+                if (next < end && value.charAt(next) == ',') {
+                    next = skipWhitespace(value, next + 1, end);
+                } else if (next == i) {
+                    return null;
+                }
+                i = next;
+            }
+            
+            int numberEnd = scanNumber(value, i, end);
+            if (numberEnd < 0) {
+                return null;
+            }
+            
+            values[n] = Double.parseDouble(value.substring(i, numberEnd));
+            if (Double.isInfinite(values[n])) {
+                return null;
+            }
+            i = numberEnd;
         }
         
-        return values;
+        return skipWhitespace(value, i, end) == end ? values : null;
     }
     
-    static private double parseSize(String value) {
+    /**
+     * Parses a length such as 476, 576px or 1e3 (any absolute unit is
+     * ignored).  Never throws, values that are not a finite number (e.g.
+     * auto) or that are relative to the viewport (e.g. 100%) are -1.
+     */
+    static double parseSize(String value) {
         // e.g. 476 or 576px
         if (value == null) {
             return -1;
         }
         
-        int posOfUnit = -1;
+        final int end = value.length();
+        int start = skipWhitespace(value, 0, end);
         
-        for (int i = 0; i < value.length(); i++) {
+        int numberEnd = scanNumber(value, start, end);
+        if (numberEnd < 0) {
+            return -1;
+        }
+        
+        // the unit (if any) must be letters only
+        int unitEnd = skipWhitespace(value, numberEnd, end);
+        for (int i = unitEnd; i < end; i++) {
             char c = value.charAt(i);
-            if (Character.isDigit(c) || c == '-' || c == '.' || c == ' ') {
-                // okay
-            }
-            else {
-                posOfUnit = i;
+            if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z'))) {
+                if (skipWhitespace(value, i, end) != end) {
+                    return -1;
+                }
                 break;
             }
         }
         
-        if (posOfUnit >= 0) {
-            return Double.parseDouble(value.substring(0, posOfUnit).trim());
+        double size = Double.parseDouble(value.substring(start, numberEnd));
+        
+        return Double.isInfinite(size) ? -1 : size;
+    }
+    
+    /**
+     * Scans an ascii number: an optional sign, digits w/ an optional decimal
+     * point (at least one digit) and an optional exponent.
+     *
+     * @return The index just past the number or -1 if there is not one at
+     *      the start index
+     */
+    static int scanNumber(String value, int start, int end) {
+        int i = start;
+        
+        if (i < end && (value.charAt(i) == '+' || value.charAt(i) == '-')) {
+            i++;
         }
         
-        return Double.parseDouble(value.trim());
+        int digits = 0;
+        while (i < end && isDigit(value.charAt(i))) {
+            i++;
+            digits++;
+        }
+        
+        if (i < end && value.charAt(i) == '.') {
+            i++;
+            while (i < end && isDigit(value.charAt(i))) {
+                i++;
+                digits++;
+            }
+        }
+        
+        if (digits == 0) {
+            return -1;
+        }
+        
+        // exponent only if digits follow (e.g. 1em is 1 w/ a unit)
+        if (i < end && (value.charAt(i) == 'e' || value.charAt(i) == 'E')) {
+            int j = i + 1;
+            if (j < end && (value.charAt(j) == '+' || value.charAt(j) == '-')) {
+                j++;
+            }
+            if (j < end && isDigit(value.charAt(j))) {
+                while (j < end && isDigit(value.charAt(j))) {
+                    j++;
+                }
+                i = j;
+            }
+        }
+        
+        return i;
+    }
+    
+    static private boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+    
+    static private int skipWhitespace(String value, int start, int end) {
+        int i = start;
+        while (i < end && (value.charAt(i) == ' ' || value.charAt(i) == '\t'
+                || value.charAt(i) == '\r' || value.charAt(i) == '\n')) {
+            i++;
+        }
+        return i;
     }
     
     private void readHeader() throws IOException {
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mutable plan of how to rewrite an image w/o some of its metadata: the
+ * ranges of the source to copy as-is and any (small) replacement blocks to
+ * write between them, in output order.  Building a plan reads the headers
+ * of segments/chunks (and scans a JPEG's entropy coded data once), so the
+ * copying itself can skip the heap (e.g. FileChannel.transferTo).
+ *
+ * @author jjlauer
+ */
+public class StripPlan {
+
+    /**
+     * The length of a range that extends to the end of the source.
+     */
+    static public final long TO_END = -1L;
+
+    static private final class Part {
+
+        final private long offset;
+        private long length;
+        final private byte[] data;
+
+        Part(
+                long offset,
+                long length,
+                byte[] data) {
+
+            this.offset = offset;
+            this.length = length;
+            this.data = data;
+        }
+
+    }
+
+    final private List<Part> parts;
+    private int removed;
+    private long removedBytes;
+
+    public StripPlan() {
+        this.parts = new ArrayList<>();
+    }
+
+    /**
+     * Copies a range of the source (merged with the previous range if
+     * contiguous).
+     *
+     * @param offset The position in the source
+     * @param length The length or TO_END
+     */
+    public void keep(
+            long offset,
+            long length) {
+
+        if (length == 0) {
+            return;
+        }
+
+        if (!parts.isEmpty()) {
+            Part last = parts.get(parts.size() - 1);
+            if (last.data == null && last.length != TO_END && last.offset + last.length == offset) {
+                last.length = length == TO_END ? TO_END : last.length + length;
+                return;
+            }
+        }
+
+        parts.add(new Part(offset, length, null));
+    }
+
+    /**
+     * Writes a block that is not from the source.
+     */
+    public void insert(
+            byte[] data) {
+
+        parts.add(new Part(-1L, data.length, data));
+    }
+
+    /**
+     * Records a block of the source is left out.
+     */
+    public void remove(
+            long length) {
+
+        removed++;
+        removedBytes += length;
+    }
+
+    public int size() {
+        return parts.size();
+    }
+
+    /**
+     * The block to write for the part or null if the part is a range of the
+     * source.
+     */
+    public byte[] getData(
+            int index) {
+
+        return parts.get(index).data;
+    }
+
+    public long getOffset(
+            int index) {
+
+        return parts.get(index).offset;
+    }
+
+    /**
+     * The length of the part, with TO_END resolved against the source.
+     */
+    public long getLength(
+            int index,
+            long sourceLength) {
+
+        Part part = parts.get(index);
+        return part.length == TO_END ? Math.max(0L, sourceLength - part.offset) : part.length;
+    }
+
+    /**
+     * The length of the output.
+     */
+    public long getLength(
+            long sourceLength) {
+
+        long length = 0;
+        for (int i = 0; i < parts.size(); i++) {
+            length += getLength(i, sourceLength);
+        }
+        return length;
+    }
+
+    /**
+     * The number of blocks (segments or chunks) left out.
+     */
+    public int getRemoved() {
+        return removed;
+    }
+
+    public long getRemovedBytes() {
+        return removedBytes;
+    }
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+/**
+ * Mutable holder ImageValidator fills in with its verdict: valid, or the
+ * first problem found and the byte offset it was found at.
+ *
+ * @author jjlauer
+ */
+public class ValidationInfo {
+
+    static public final int VALID = 0;
+    static public final int TRUNCATED = 1;
+    static public final int CORRUPT = 2;
+
+    private int status;
+    private long offset;
+    private String message;
+    private long bytesRead;
+
+    public ValidationInfo() {
+        this.status = VALID;
+        this.offset = -1;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public boolean isValid() {
+        return status == VALID;
+    }
+
+    /**
+     * The offset of the first problem or -1 if valid.  For a truncated image
+     * this is where its data ends.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * What the first problem was or null if valid.
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public void setBytesRead(
+            long bytesRead) {
+
+        this.bytesRead = bytesRead;
+    }
+
+    /**
+     * Records the image ends early.
+     *
+     * @return Always false (so validators can return it)
+     */
+    public boolean truncated(
+            long offset,
+            String message) {
+
+        return problem(TRUNCATED, offset, message);
+    }
+
+    /**
+     * Records the image's structure is invalid.
+     *
+     * @return Always false (so validators can return it)
+     */
+    public boolean corrupt(
+            long offset,
+            String message) {
+
+        return problem(CORRUPT, offset, message);
+    }
+
+    private boolean problem(
+            int status,
+            long offset,
+            String message) {
+
+        // only the first problem is kept
+        if (this.status == VALID) {
+            this.status = status;
+            this.offset = offset;
+            this.message = message;
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import com.fizzed.crux.util.Size2D;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Reads the dimensions of a WebP from the first chunk of its RIFF container,
+ * which is one of VP8 (lossy), VP8L (lossless) or VP8X (extended).
+ *
+ * @author jjlauer
+ */
+public final class WebPHeader {
+
+    // fourcc codes as read little endian
+    static final int RIFF = 0x46464952;
+    static final int WEBP = 0x50424557;
+    static final int VP8 = 0x20385056;
+    static final int VP8L = 0x4C385056;
+    static final int VP8X = 0x58385056;
+    static final int ANMF = 0x464D4E41;
+    static final int EXIF = 0x46495845;
+
+    // VP8X feature flags
+    static final int FLAG_ICC = 0x20;
+    static final int FLAG_ALPHA = 0x10;
+    static final int FLAG_EXIF = 0x08;
+    static final int FLAG_ANIMATION = 0x02;
+
+    private WebPHeader() {
+        // static only
+    }
+
+    /**
+     * Reads the width and height of the WebP (at most 30 bytes read).
+     *
+     * @param input The stream positioned at the start of the WebP
+     * @return The size or null if the stream is not a WebP
+     * @throws IOException
+     */
+    static public Size2D readSize(
+            ImageInputStream input) throws IOException {
+
+        ByteOrder byteOrder = input.getByteOrder();
+        input.setByteOrder(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (input.readInt() != RIFF) {
+                return null;
+            }
+
+            input.skipBytes(4);             // riff size
+
+            if (input.readInt() != WEBP) {
+                return null;
+            }
+
+            int chunk = input.readInt();
+            input.skipBytes(4);             // chunk size
+
+            switch (chunk) {
+                case VP8: {
+                    // 3 byte frame tag, then 3 byte start code 9d 01 2a
+                    input.skipBytes(3);
+                    if (input.readUnsignedByte() != 0x9D
+                            || input.readUnsignedByte() != 0x01
+                            || input.readUnsignedByte() != 0x2A) {
+                        return null;
+                    }
+                    // upper 2 bits are the scale
+                    int width = input.readUnsignedShort() & 0x3FFF;
+                    int height = input.readUnsignedShort() & 0x3FFF;
+                    return new Size2D(width, height);
+                }
+                case VP8L: {
+                    if (input.readUnsignedByte() != 0x2F) {
+                        return null;
+                    }
+                    // 14 bits width-1, 14 bits height-1
+                    long bits = input.readUnsignedInt();
+                    int width = (int)(bits & 0x3FFF) + 1;
+                    int height = (int)((bits >> 14) & 0x3FFF) + 1;
+                    return new Size2D(width, height);
+                }
+                case VP8X: {
+                    input.skipBytes(4);     // flags + reserved
+                    // 24 bits canvas width-1, 24 bits canvas height-1
+                    int width = readUnsignedInt24(input) + 1;
+                    int height = readUnsignedInt24(input) + 1;
+                    return new Size2D(width, height);
+                }
+                default:
+                    return null;
+            }
+        } finally {
+            input.setByteOrder(byteOrder);
+        }
+    }
+
+    static int readUnsignedInt24(
+            ImageInputStream input) throws IOException {
+
+        int b0 = input.readUnsignedByte();
+        int b1 = input.readUnsignedByte();
+        int b2 = input.readUnsignedByte();
+        return b0 | (b1 << 8) | (b2 << 16);
+    }
+
+    /**
+     * Reads the size, alpha and the extended features of the WebP.  For the
+     * simple formats only the first chunk is read.  For an extended WebP the
+     * VP8X flags say whether it has alpha, an ICC profile or animation and
+     * the chunk headers are only walked (payloads skipped) when the frames
+     * need counting or an EXIF chunk is flagged for its orientation.
+     *
+     * @param input The stream positioned at the start of the WebP
+     * @param info The info to fill in
+     * @return True if read or false if the stream is not a WebP
+     * @throws IOException
+     */
+    static public boolean readInfo(
+            ImageInputStream input,
+            HeaderInfo info) throws IOException {
+
+        ByteOrder byteOrder = input.getByteOrder();
+        input.setByteOrder(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (input.readInt() != RIFF) {
+                return false;
+            }
+
+            long riffEnd = input.readUnsignedInt() + 8;
+
+            if (input.readInt() != WEBP) {
+                return false;
+            }
+
+            int chunk = input.readInt();
+            long chunkSize = input.readUnsignedInt();
+
+            info.setColorType(HeaderInfo.COLOR_RGB);
+            info.setBitDepth(8);
+            info.setFrameCount(1);
+
+            switch (chunk) {
+                case VP8: {
+                    input.skipBytes(3);
+                    if (input.readUnsignedByte() != 0x9D
+                            || input.readUnsignedByte() != 0x01
+                            || input.readUnsignedByte() != 0x2A) {
+                        return false;
+                    }
+                    int width = input.readUnsignedShort() & 0x3FFF;
+                    int height = input.readUnsignedShort() & 0x3FFF;
+                    info.setSize(width, height);
+                    return true;
+                }
+                case VP8L: {
+                    if (input.readUnsignedByte() != 0x2F) {
+                        return false;
+                    }
+                    // 14 bits width-1, 14 bits height-1, 1 bit alpha is used
+                    long bits = input.readUnsignedInt();
+                    info.setSize((bits & 0x3FFF) + 1, ((bits >> 14) & 0x3FFF) + 1);
+                    info.setAlpha(((bits >> 28) & 0x01) != 0);
+                    return true;
+                }
+                case VP8X: {
+                    int flags = input.readUnsignedByte();
+                    input.skipBytes(3);     // reserved
+                    int width = readUnsignedInt24(input) + 1;
+                    int height = readUnsignedInt24(input) + 1;
+                    info.setSize(width, height);
+                    info.setAlpha((flags & FLAG_ALPHA) != 0);
+                    info.setIccProfile((flags & FLAG_ICC) != 0);
+                    info.setAnimated((flags & FLAG_ANIMATION) != 0);
+                    if ((flags & (FLAG_ANIMATION | FLAG_EXIF)) != 0) {
+                        readChunks(input, 20 + chunkSize + (chunkSize & 1), riffEnd, info);
+                    }
+                    return true;
+                }
+                default:
+                    return false;
+            }
+        } finally {
+            input.setByteOrder(byteOrder);
+        }
+    }
+
+    static private void readChunks(
+            ImageInputStream input,
+            long position,
+            long end,
+            HeaderInfo info) throws IOException {
+
+        int frames = 0;
+
+        while (position + 8 <= end) {
+            input.seek(position);
+
+            // a truncated file reports what was found before its end
+            if (input.read() < 0) {
+                break;
+            }
+            input.seek(position);
+
+            int chunk = input.readInt();
+            long size = input.readUnsignedInt();
+            long start = position + 8;
+
+            if (chunk == ANMF) {
+                frames++;
+            } else if (chunk == EXIF) {
+                // some writers keep the "Exif\0\0" prefix of the jpeg segment
+                long tiffStart = start;
+                if (size >= 6 && input.readInt() == 0x66697845 && input.readUnsignedShort() == 0) {
+                    tiffStart += 6;
+                }
+                info.setOrientation(ExifHeader.readOrientation(input, tiffStart, start + size));
+            }
+
+            position = start + size + (size & 1);      // padded to even
+        }
+
+        if (info.isAnimated()) {
+            info.setFrameCount(frames);
+        }
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Decodes big and little endian primitives from byte arrays and scans them
+ * for bytes.  Callers are responsible for bounds checking.
+ *
+ * Java 11+ overlay: primitives are a single (unaligned) load through byte
+ * array view VarHandles and scans test 8 bytes per word (SWAR).
+ *
+ * @author jjlauer
+ */
+final class Bytes {
+
+    static private final VarHandle SHORT_BE = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+    static private final VarHandle SHORT_LE = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+    static private final VarHandle INT_BE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    static private final VarHandle INT_LE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    static private final VarHandle LONG_BE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    static private final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    static private final long ONES = 0x0101010101010101L;
+    static private final long HIGHS = 0x8080808080808080L;
+
+    private Bytes() {
+        // static only
+    }
+
+    static short getShortBE(byte[] b, int i) {
+        return (short) SHORT_BE.get(b, i);
+    }
+
+    static short getShortLE(byte[] b, int i) {
+        return (short) SHORT_LE.get(b, i);
+    }
+
+    static int getIntBE(byte[] b, int i) {
+        return (int) INT_BE.get(b, i);
+    }
+
+    static int getIntLE(byte[] b, int i) {
+        return (int) INT_LE.get(b, i);
+    }
+
+    static long getLongBE(byte[] b, int i) {
+        return (long) LONG_BE.get(b, i);
+    }
+
+    static long getLongLE(byte[] b, int i) {
+        return (long) LONG_LE.get(b, i);
+    }
+
+    /**
+     * Finds the first occurrence of the byte in [from, to).
+     * @return The index or -1 if not found
+     */
+    static int indexOf(byte[] b, int from, int to, byte c) {
+        final long pattern = (c & 0xffL) * ONES;
+        int i = from;
+        for (; i + 8 <= to; i += 8) {
+            long found = zeros((long) LONG_LE.get(b, i) ^ pattern);
+            if (found != 0) {
+                return i + (Long.numberOfTrailingZeros(found) >>> 3);
+            }
+        }
+        for (; i < to; i++) {
+            if (b[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the first occurrence of any of the 3 bytes in [from, to).
+     * @return The index or -1 if not found
+     */
+    static int indexOfAny(byte[] b, int from, int to, byte c0, byte c1, byte c2) {
+        final long p0 = (c0 & 0xffL) * ONES;
+        final long p1 = (c1 & 0xffL) * ONES;
+        final long p2 = (c2 & 0xffL) * ONES;
+        int i = from;
+        for (; i + 8 <= to; i += 8) {
+            long word = (long) LONG_LE.get(b, i);
+            long found = zeros(word ^ p0) | zeros(word ^ p1) | zeros(word ^ p2);
+            if (found != 0) {
+                return i + (Long.numberOfTrailingZeros(found) >>> 3);
+            }
+        }
+        for (; i < to; i++) {
+            byte v = b[i];
+            if (v == c0 || v == c1 || v == c2) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Sets the high bit of each zero byte of the word.  Bytes above the first
+     * zero byte may be falsely flagged (by the borrow), which is fine since
+     * only the lowest flagged byte of a little endian word is ever used.
+     */
+    static private long zeros(long word) {
+        return (word - ONES) & ~word & HIGHS;
+    }
+
+}
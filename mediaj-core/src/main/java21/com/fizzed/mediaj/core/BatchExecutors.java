@@ -0,0 +1,58 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates the default executor for batch probing: virtual threads if the
+ * runtime has them (Java 21+) or a fork-join pool otherwise.
+ *
+ * Java 21+ overlay: virtual threads are always available, so they are used
+ * directly w/o the reflective lookup.
+ *
+ * @author jjlauer
+ */
+public final class BatchExecutors {
+
+    private BatchExecutors() {
+        // static only
+    }
+
+    /**
+     * Whether the executor returned by newDefault uses virtual threads.
+     * @return True if virtual threads are available
+     */
+    static public boolean isVirtual() {
+        return true;
+    }
+
+    /**
+     * Creates a new default executor.
+     *
+     * @param parallelism The parallelism of a fork-join pool (virtual
+     *      threads are unbounded and rely on the caller limiting in-flight
+     *      tasks)
+     * @return A new executor the caller is responsible for shutting down
+     */
+    static public ExecutorService newDefault(
+            int parallelism) {
+
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+}
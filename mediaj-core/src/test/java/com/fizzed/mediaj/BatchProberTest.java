@@ -0,0 +1,256 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+import com.fizzed.crux.mediatype.KnownMediaType;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterators;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BatchProberTest {
+    
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+    
+    static private final Path FIXTURES = Paths.get("src/test/resources/fixtures");
+    
+    static private List<Path> files(String... names) {
+        return Stream.of(names)
+            .map(FIXTURES::resolve)
+            .collect(Collectors.toList());
+    }
+    
+    @Test
+    public void probeAllOrdered() throws IOException {
+        List<Path> files = files("sample1.jpg", "sample1.png", "missing.jpg", "sample1.gif",
+            "sample1.txt", "sample1.webp", "sample1.svg", "sample1.pdf", "sample2.jpg");
+        
+        try (BatchProber prober = BatchProber.builder().concurrency(3).build()) {
+            List<BatchResult> results;
+            try (Stream<BatchResult> stream = prober.probeAll(files.stream())) {
+                results = stream.collect(Collectors.toList());
+            }
+            
+            assertThat(results.size(), is(files.size()));
+            
+            for (int i = 0; i < files.size(); i++) {
+                assertThat(results.get(i).getFile(), is(files.get(i)));
+            }
+            
+            assertThat(results.get(0).getResult().getMediaType(), is(KnownMediaType.IMAGE_JPEG));
+            assertThat(results.get(0).getResult().getSize().getWidth(), is(1000.0d));
+            
+            // errors are isolated to their file
+            assertThat(results.get(2).isSuccess(), is(false));
+            assertTrue(results.get(2).getError() instanceof IOException);
+            assertThat(results.get(2).getResult(), is(nullValue()));
+            
+            assertThat(results.get(4).getResult().getMediaType(), is(nullValue()));
+            assertThat(results.get(8).getResult().getSize().getHeight(), is(1477.0d));
+        }
+    }
+    
+    @Test
+    public void probeAllUnordered() throws IOException {
+        List<Path> files = files("sample1.jpg", "sample1.png", "sample1.gif", "sample1.webp");
+        
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (BatchProber prober = BatchProber.builder().executor(executor).ordered(false).build()) {
+            Map<Path,KnownMediaType> mediaTypes = new HashMap<>();
+            try (Stream<BatchResult> stream = prober.probeAll(files.stream())) {
+                stream.forEach(r -> mediaTypes.put(r.getFile(), r.getResult().getMediaType()));
+            }
+            
+            assertThat(mediaTypes.size(), is(4));
+            assertThat(mediaTypes.get(files.get(1)), is(KnownMediaType.IMAGE_PNG));
+            assertThat(mediaTypes.get(files.get(3)), is(KnownMediaType.IMAGE_WEBP));
+        } finally {
+            // supplied executors are not the prober's to shut down
+            assertThat(executor.isShutdown(), is(false));
+            executor.shutdown();
+        }
+    }
+    
+    @Test
+    public void probeAllBackpressure() throws IOException {
+        AtomicInteger pulled = new AtomicInteger();
+        
+        Stream<Path> files = Stream.generate(() -> FIXTURES.resolve("sample1.png"))
+            .peek(f -> pulled.incrementAndGet());
+        
+        try (BatchProber prober = BatchProber.builder().concurrency(2).build()) {
+            try (Stream<BatchResult> stream = prober.probeAll(files)) {
+                long count = stream.limit(5).count();
+                
+                assertThat(count, is(5L));
+                // never more than the concurrency in flight past what was taken
+                assertTrue(pulled.get() <= 5 + 2);
+            }
+        }
+    }
+    
+    @Test
+    public void probeAllSourceFailure() throws IOException {
+        // like the walk of a directory that can't be read, then carries on
+        Iterator<Path> source = new Iterator<Path>() {
+            final private Iterator<Path> files = files("sample1.jpg", "sample1.png").iterator();
+            private boolean failed;
+            
+            @Override
+            public boolean hasNext() {
+                if (!failed) {
+                    failed = true;
+                    throw new UncheckedIOException(new AccessDeniedException("denied"));
+                }
+                return files.hasNext();
+            }
+            
+            @Override
+            public Path next() {
+                return files.next();
+            }
+        };
+        Stream<Path> files = StreamSupport.stream(Spliterators.spliteratorUnknownSize(source, 0), false);
+        
+        try (BatchProber prober = BatchProber.builder().concurrency(1).build()) {
+            List<BatchResult> results;
+            try (Stream<BatchResult> stream = prober.probeAll(files)) {
+                results = stream.collect(Collectors.toList());
+            }
+            
+            assertThat(results.size(), is(3));
+            assertThat(results.get(0).getFile(), is(Paths.get("denied")));
+            assertThat(results.get(0).isSuccess(), is(false));
+            assertTrue(results.get(0).getError() instanceof AccessDeniedException);
+            assertThat(results.get(1).getResult().getMediaType(), is(KnownMediaType.IMAGE_JPEG));
+            assertThat(results.get(2).getResult().getMediaType(), is(KnownMediaType.IMAGE_PNG));
+        }
+    }
+    
+    @Test
+    public void probeAllRejected() throws IOException {
+        // like a bounded pool that is full, every other probe is rejected
+        AtomicInteger submitted = new AtomicInteger();
+        Executor executor = (task) -> {
+            if (submitted.incrementAndGet() % 2 == 0) {
+                throw new RejectedExecutionException("full");
+            }
+            task.run();
+        };
+        
+        for (boolean ordered : new boolean[] { true, false }) {
+            try (BatchProber prober = BatchProber.builder().executor(executor).ordered(ordered).build()) {
+                List<BatchResult> results;
+                try (Stream<BatchResult> stream = prober.probeAll(files("sample1.jpg", "sample1.png").stream())) {
+                    results = stream.collect(Collectors.toList());
+                }
+                
+                assertThat(results.size(), is(2));
+                assertThat(results.stream().filter(BatchResult::isSuccess).count(), is(1L));
+                BatchResult rejected = results.stream().filter(r -> !r.isSuccess()).findFirst().get();
+                assertTrue(rejected.getError() instanceof RejectedExecutionException);
+            }
+        }
+    }
+    
+    @Test
+    public void probeTree() throws IOException {
+        long expected;
+        try (Stream<Path> files = Files.list(FIXTURES)) {
+            expected = files.count();
+        }
+        
+        try (BatchProber prober = BatchProber.builder().build()) {
+            try (Stream<BatchResult> stream = prober.probeTree(FIXTURES.getParent())) {
+                List<BatchResult> results = stream
+                    .filter(r -> r.getFile().startsWith(FIXTURES))
+                    .collect(Collectors.toList());
+                
+                assertThat((long)results.size(), is(expected));
+                assertTrue(results.stream().allMatch(BatchResult::isSuccess));
+            }
+        }
+    }
+    
+    @Test
+    public void probeAllHashed() throws IOException {
+        List<Path> files = files("sample1.jpg", "sample1.pdf", "sample2.jpg");
+        
+        try (BatchProber prober = BatchProber.builder().hash(HashAlgorithm.PERCEPTUAL).build()) {
+            List<BatchResult> results;
+            try (Stream<BatchResult> stream = prober.probeAll(files.stream())) {
+                results = stream.collect(Collectors.toList());
+            }
+            
+            assertThat(results.get(0).hasHash(), is(true));
+            assertThat(results.get(0).getHashAlgorithm(), is(HashAlgorithm.PERCEPTUAL));
+            assertThat(results.get(0).getHash(), is(PerceptualHash.hash(HashAlgorithm.PERCEPTUAL, files.get(0))));
+            
+            // not decodable, but still probed
+            assertThat(results.get(1).isSuccess(), is(true));
+            assertThat(results.get(1).hasHash(), is(false));
+            assertThat(results.get(1).getResult().getMediaType(), is(KnownMediaType.APPLICATION_PDF));
+            
+            assertThat(results.get(2).hasHash(), is(true));
+        }
+    }
+    
+    @Test
+    public void probeAllHashFailure() throws IOException {
+        // probes fine, but is cut off before the image data
+        byte[] data = Files.readAllBytes(FIXTURES.resolve("sample1.jpg"));
+        Path file = temp.newFile("truncated.jpg").toPath();
+        Files.write(file, Arrays.copyOf(data, 300));
+        
+        try (BatchProber prober = BatchProber.builder().hash(HashAlgorithm.PERCEPTUAL).build()) {
+            List<BatchResult> results;
+            try (Stream<BatchResult> stream = prober.probeAll(Stream.of(file))) {
+                results = stream.collect(Collectors.toList());
+            }
+            
+            assertThat(results.get(0).isSuccess(), is(false));
+            assertThat(results.get(0).hasHash(), is(false));
+            assertTrue(results.get(0).getError() instanceof IOException);
+            assertThat(results.get(0).getResult().getMediaType(), is(KnownMediaType.IMAGE_JPEG));
+            assertThat(results.get(0).getResult().getSize().getWidth(), is(1000.0d));
+        }
+    }
+    
+}
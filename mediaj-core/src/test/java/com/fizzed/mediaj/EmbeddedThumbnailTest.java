@@ -0,0 +1,172 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+import com.fizzed.crux.mediatype.KnownMediaType;
+import com.fizzed.crux.util.Resources;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import javax.imageio.ImageIO;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class EmbeddedThumbnailTest {
+    
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+    
+    static private byte[] jpeg(int width, int height) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "jpg", output);
+        return output.toByteArray();
+    }
+    
+    @Test
+    public void extractFromByteArray() throws IOException {
+        byte[] thumbnail = jpeg(16, 12);
+        byte[] data = SampleImages.withExifThumbnail(jpeg(64, 48), thumbnail);
+        
+        EmbeddedThumbnail extracted = ImageProber.extractEmbeddedThumbnail(data);
+        
+        assertThat(extracted.getMediaType(), is(KnownMediaType.IMAGE_JPEG));
+        assertThat(extracted.getSize().getWidth(), is(16.0d));
+        assertThat(extracted.getSize().getHeight(), is(12.0d));
+        // SOI, APP1 marker & length, "Exif\0\0" then 68 bytes of tiff
+        assertThat(extracted.getOffset(), is(80L));
+        assertThat(extracted.getLength(), is(thumbnail.length));
+        
+        // a view of the byte array, not a copy
+        ByteBuffer buffer = extracted.getData();
+        assertThat(buffer.array() == data, is(true));
+        assertThat(buffer.arrayOffset(), is(80));
+        
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        assertThat(bytes, is(thumbnail));
+        // every call is a fresh view
+        assertThat(extracted.getData().remaining(), is(thumbnail.length));
+        
+        // and it's a jpeg in its own right
+        assertThat(ImageProber.probe(bytes).getSize().getWidth(), is(16.0d));
+    }
+    
+    @Test
+    public void extractFromByteBuffer() throws IOException {
+        byte[] thumbnail = jpeg(16, 12);
+        byte[] data = SampleImages.withExifThumbnail(jpeg(64, 48), thumbnail);
+        
+        // offsets are relative to the buffer's position
+        ByteBuffer source = ByteBuffer.allocateDirect(data.length + 5);
+        source.position(5);
+        source.put(data);
+        source.position(5);
+        
+        EmbeddedThumbnail extracted = ImageProber.extractEmbeddedThumbnail(source);
+        
+        assertThat(extracted.getOffset(), is(80L));
+        assertThat(source.position(), is(5));
+        
+        ByteBuffer buffer = extracted.getData();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        assertThat(bytes, is(thumbnail));
+    }
+    
+    @Test
+    public void extractFromFile() throws IOException {
+        byte[] thumbnail = jpeg(16, 12);
+        Path file = temp.getRoot().toPath().resolve("camera.jpg");
+        Files.write(file, SampleImages.withExifThumbnail(jpeg(64, 48), thumbnail));
+        
+        EmbeddedThumbnail extracted = ImageProber.extractEmbeddedThumbnail(file);
+        
+        assertThat(extracted.getSize().getWidth(), is(16.0d));
+        
+        ByteBuffer buffer = extracted.getData();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        assertThat(bytes, is(thumbnail));
+    }
+    
+    @Test
+    public void extractFromStream() throws IOException {
+        byte[] thumbnail = jpeg(16, 12);
+        
+        EmbeddedThumbnail extracted = ImageProber.extractEmbeddedThumbnail(
+            new ByteArrayInputStream(SampleImages.withExifThumbnail(jpeg(64, 48), thumbnail)));
+        
+        assertThat(extracted.getSize().getHeight(), is(12.0d));
+        assertThat(extracted.getOffset(), is(80L));
+        
+        ByteBuffer buffer = extracted.getData();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        assertThat(bytes, is(thumbnail));
+    }
+    
+    @Test
+    public void extractFromStreamReadBudget() throws IOException {
+        byte[] data = SampleImages.withExifThumbnail(jpeg(64, 48), jpeg(16, 12));
+        
+        EmbeddedThumbnail extracted = ImageProber.extractEmbeddedThumbnail(
+            new ByteArrayInputStream(data), ProbeOptions.builder().maxBytesRead(data.length).build());
+        
+        assertThat(extracted.getSize().getHeight(), is(12.0d));
+        
+        try {
+            ImageProber.extractEmbeddedThumbnail(
+                new ByteArrayInputStream(data), ProbeOptions.builder().maxBytesRead(40).build());
+            fail();
+        } catch (ReadBudgetExceededException e) {
+            assertThat(e.getMaxBytesRead(), is(40L));
+        }
+    }
+    
+    @Test
+    public void extractNone() throws IOException {
+        // jpegs w/o a thumbnail & other media types
+        assertThat(ImageProber.extractEmbeddedThumbnail(Resources.readAllBytes("/fixtures/sample1.jpg")), is(nullValue()));
+        assertThat(ImageProber.extractEmbeddedThumbnail(Resources.readAllBytes("/fixtures/sample2.jpg")), is(nullValue()));
+        assertThat(ImageProber.extractEmbeddedThumbnail(Resources.readAllBytes("/fixtures/sample1.png")), is(nullValue()));
+        assertThat(ImageProber.extractEmbeddedThumbnail(Resources.readAllBytes("/fixtures/sample1.txt")), is(nullValue()));
+    }
+    
+    @Test
+    public void extractCorrupt() throws IOException {
+        // ifd1 points to something that isn't a jpeg
+        byte[] data = SampleImages.withExifThumbnail(jpeg(64, 48), new byte[] { 1, 2, 3, 4 });
+        
+        assertThat(ImageProber.extractEmbeddedThumbnail(data), is(nullValue()));
+        
+        // truncated in the middle of the thumbnail
+        byte[] thumbnail = jpeg(16, 12);
+        data = Arrays.copyOf(SampleImages.withExifThumbnail(jpeg(64, 48), thumbnail), 80 + thumbnail.length - 10);
+        
+        assertThat(ImageProber.extractEmbeddedThumbnail(data), is(nullValue()));
+    }
+    
+}
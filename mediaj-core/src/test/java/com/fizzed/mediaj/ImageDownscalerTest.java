@@ -0,0 +1,172 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+import com.fizzed.crux.util.Resources;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.imageio.ImageIO;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ImageDownscalerTest {
+    
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+    
+    /**
+     * Thirds of red, green and blue from left to right.
+     */
+    static private byte[] stripes(String format, int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.RED);
+        g.fillRect(0, 0, width / 3, height);
+        g.setColor(Color.GREEN);
+        g.fillRect(width / 3, 0, width / 3, height);
+        g.setColor(Color.BLUE);
+        g.fillRect(2 * width / 3, 0, width - 2 * width / 3, height);
+        g.dispose();
+        
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, format, output);
+        return output.toByteArray();
+    }
+    
+    @Test
+    public void downscaleFit() throws IOException {
+        ImageDownscaler downscaler = ImageDownscaler.builder()
+            .size(200, 200)
+            .build();
+        
+        byte[] data = stripes("jpg", 3000, 1500);
+        
+        BufferedImage image = downscaler.downscale(data);
+        
+        assertThat(image.getWidth(), is(200));
+        assertThat(image.getHeight(), is(100));
+        
+        // the same from a stream or a file
+        image = downscaler.downscale(new ByteArrayInputStream(data));
+        
+        assertThat(image.getWidth(), is(200));
+        assertThat(image.getHeight(), is(100));
+        
+        Path file = temp.getRoot().toPath().resolve("stripes.jpg");
+        Files.write(file, data);
+        
+        image = downscaler.downscale(file);
+        
+        assertThat(image.getWidth(), is(200));
+        assertThat(image.getHeight(), is(100));
+    }
+    
+    @Test
+    public void downscaleCrop() throws IOException {
+        ImageDownscaler downscaler = ImageDownscaler.builder()
+            .size(50, 50)
+            .crop(true)
+            .build();
+        
+        BufferedImage image = downscaler.downscale(stripes("png", 900, 300));
+        
+        assertThat(image.getWidth(), is(50));
+        assertThat(image.getHeight(), is(50));
+        // only the green center third was decoded
+        assertThat(image.getRGB(1, 25), is(Color.GREEN.getRGB()));
+        assertThat(image.getRGB(48, 25), is(Color.GREEN.getRGB()));
+    }
+    
+    @Test
+    public void downscaleWithProbe() throws IOException {
+        ImageDownscaler downscaler = ImageDownscaler.builder()
+            .size(100, 100)
+            .build();
+        
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.jpg");
+        ProbeResult probed = ImageProber.probe(data);
+        
+        // readers are pooled & reused across calls
+        for (int i = 0; i < 3; i++) {
+            BufferedImage image = downscaler.downscale(data, probed);
+            
+            assertThat(image.getWidth(), is(100));
+            assertThat(image.getHeight(), is(67));
+        }
+    }
+    
+    @Test
+    public void downscaleNeverUpscales() throws IOException {
+        ImageDownscaler downscaler = ImageDownscaler.builder()
+            .size(2000, 2000)
+            .build();
+        
+        BufferedImage image = downscaler.downscale(Resources.readAllBytes("/fixtures/sample1.png"));
+        
+        ProbeResult probed = ImageProber.probe(Resources.readAllBytes("/fixtures/sample1.png"));
+        assertThat((double) image.getWidth(), is(probed.getSize().getWidth()));
+        assertThat((double) image.getHeight(), is(probed.getSize().getHeight()));
+    }
+    
+    @Test
+    public void downscaleUnsupported() throws IOException {
+        ImageDownscaler downscaler = ImageDownscaler.builder()
+            .size(100, 100)
+            .build();
+        
+        // no ImageIO reader
+        try {
+            downscaler.downscale(Resources.readAllBytes("/fixtures/sample1.pdf"));
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+        
+        // not detected
+        try {
+            downscaler.downscale(Resources.readAllBytes("/fixtures/sample1.txt"));
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+        
+        // a probe of some other (larger) image
+        byte[] data = stripes("png", 90, 30);
+        ProbeResult probed = ImageProber.probe(stripes("png", 900, 300));
+        try {
+            downscaler.downscale(data, probed);
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+    }
+    
+    @Test(expected=IllegalStateException.class)
+    public void buildRequiresSize() {
+        ImageDownscaler.builder().build();
+    }
+    
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+import com.fizzed.crux.mediatype.KnownMediaType;
+import com.fizzed.crux.util.Resources;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class ImageProbeSessionTest {
+    
+    static private ProbeResult offerInChunks(byte[] data, int chunkSize) throws IOException {
+        ImageProbeSession session = new ImageProbeSession();
+        for (int i = 0; i < data.length; i += chunkSize) {
+            ByteBuffer chunk = ByteBuffer.allocateDirect(Math.min(chunkSize, data.length - i));
+            chunk.put(data, i, chunk.capacity()).flip();
+            if (session.offer(chunk) == ImageProbeSession.Status.COMPLETE) {
+                assertThat(session.getBytesRead(), is((long)i + chunk.position()));
+                return session.getResult();
+            }
+            assertThat(chunk.hasRemaining(), is(false));
+        }
+        return session.finish();
+    }
+    
+    @Test
+    public void jpeg() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample2.jpg");
+        
+        for (int chunkSize : new int[] { 1, 3, 7, 64, 4096, data.length }) {
+            ProbeResult result = offerInChunks(data, chunkSize);
+            
+            assertThat(result.getMediaType(), is(KnownMediaType.IMAGE_JPEG));
+            assertThat(result.getSize().getWidth(), is(954.0d));
+            assertThat(result.getSize().getHeight(), is(1477.0d));
+            // completes right after the frame header
+            assertThat(result.getBytesRead(), is(177L));
+        }
+    }
+    
+    @Test
+    public void png() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.png");
+        
+        for (int chunkSize : new int[] { 1, 5, 13, 4096 }) {
+            ProbeResult result = offerInChunks(data, chunkSize);
+            
+            assertThat(result.getMediaType(), is(KnownMediaType.IMAGE_PNG));
+            assertThat(result.getSize().getWidth(), is(650.0d));
+            assertThat(result.getSize().getHeight(), is(341.0d));
+            assertThat(result.getBytesRead(), is(24L));
+        }
+    }
+    
+    @Test
+    public void gifAndWebp() throws IOException {
+        for (String name : new String[] { "sample1.gif", "sample1.webp", "sample2.webp" }) {
+            byte[] data = Resources.readAllBytes("/fixtures/" + name);
+            ProbeResult expected = ImageProber.probe(data);
+            
+            for (int chunkSize : new int[] { 1, 2, 11, 4096 }) {
+                ProbeResult result = offerInChunks(data, chunkSize);
+
+                assertThat(result.getMediaType(), is(expected.getMediaType()));
+                assertThat(result.getSize().getWidth(), is(expected.getSize().getWidth()));
+                assertThat(result.getSize().getHeight(), is(expected.getSize().getHeight()));
+                assertTrue(result.getBytesRead() < 64L);
+            }
+        }
+    }
+    
+    @Test
+    public void svg() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.svg");
+        
+        for (int chunkSize : new int[] { 1, 17, 512, 4096 }) {
+            ProbeResult result = offerInChunks(data, chunkSize);
+            
+            assertThat(result.getMediaType(), is(KnownMediaType.IMAGE_SVG_XML));
+            assertThat(result.getSize().getWidth(), is(472.0d));
+            assertThat(result.getSize().getHeight(), is(392.0d));
+            assertTrue(result.getBytesRead() < data.length);
+        }
+    }
+    
+    @Test
+    public void pdfHasNoSize() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.pdf");
+        
+        ProbeResult result = offerInChunks(data, 100);
+        
+        assertThat(result.getMediaType(), is(KnownMediaType.APPLICATION_PDF));
+        assertThat(result.getSize(), is(nullValue()));
+    }
+    
+    @Test
+    public void unknown() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.txt");
+        
+        ImageProbeSession session = new ImageProbeSession();
+        
+        assertThat(session.offer(data, 0, data.length), is(ImageProbeSession.Status.NEED_MORE_DATA));
+        
+        ProbeResult result = session.finish();
+        
+        assertThat(session.isComplete(), is(true));
+        assertThat(result.getMediaType(), is(nullValue()));
+        assertThat(result.getBytesRead(), is(23L));
+    }
+    
+    @Test
+    public void truncatedJpeg() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.jpg");
+        
+        ImageProbeSession session = new ImageProbeSession();
+        
+        assertThat(session.offer(data, 0, 200), is(ImageProbeSession.Status.NEED_MORE_DATA));
+        
+        ProbeResult result = session.finish();
+        
+        assertThat(result.getMediaType(), is(KnownMediaType.IMAGE_JPEG));
+        assertThat(result.getSize(), is(nullValue()));
+    }
+    
+}
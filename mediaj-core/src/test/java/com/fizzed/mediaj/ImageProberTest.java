@@ -16,15 +16,24 @@
 package com.fizzed.mediaj;
 
 import com.fizzed.crux.mediatype.KnownMediaType;
+import com.fizzed.crux.util.Base16;
 import com.fizzed.crux.util.Resources;
 import com.fizzed.crux.util.Size2D;
 import com.fizzed.crux.util.StopWatch;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import javax.imageio.ImageIO;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -54,6 +63,18 @@ public class ImageProberTest {
         assertThat(mediaType, is(KnownMediaType.IMAGE_JPEG));
     }
     
+    @Test
+    public void probeMediaTypeJpeg1AsStream() throws IOException {
+        try (InputStream input = new BufferedInputStream(Resources.newInputStream("/fixtures/sample1.jpg"))) {
+            KnownMediaType mediaType = ImageProber.probeMediaType(input);
+
+            assertThat(mediaType, is(KnownMediaType.IMAGE_JPEG));
+            // stream is reset back to the start
+            assertThat(input.read(), is(0xff));
+            assertThat(input.read(), is(0xd8));
+        }
+    }
+    
     @Test
     public void probeMediaTypePng1() throws IOException {
         byte[] data = Resources.readAllBytes("/fixtures/sample1.png");
@@ -106,6 +127,25 @@ public class ImageProberTest {
         assertThat(mediaType, is(KnownMediaType.APPLICATION_PDF));
     }
     
+    @Test
+    public void probeMediaTypeSvg1() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.svg");
+        
+        KnownMediaType mediaType = ImageProber.probeMediaType(data);
+        
+        assertThat(mediaType, is(KnownMediaType.IMAGE_SVG_XML));
+    }
+    
+    @Test
+    public void probeMediaTypeSvg1AsStream() throws IOException {
+        try (InputStream input = new BufferedInputStream(Resources.newInputStream("/fixtures/sample1.svg"))) {
+            KnownMediaType mediaType = ImageProber.probeMediaType(input);
+
+            assertThat(mediaType, is(KnownMediaType.IMAGE_SVG_XML));
+            assertThat(input.read(), is((int)'<'));
+        }
+    }
+    
     @Test
     public void probeMediaTypeNone() throws IOException {
         byte[] data = Resources.readAllBytes("/fixtures/sample1.txt");
@@ -177,6 +217,64 @@ public class ImageProberTest {
         assertThat(size.getHeight(), is(1477.0d));
     }
     
+    @Test
+    public void probeSizeGif1() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.gif");
+        
+        StopWatch timer = StopWatch.timeMillis();
+        
+        Size2D size = ImageProber.probeSize(
+            KnownMediaType.IMAGE_GIF, data);
+        
+        log.debug("probed gif size in {}", timer);
+        
+        assertThat(size.getWidth(), is(480.0d));
+        assertThat(size.getHeight(), is(480.0d));
+    }
+    
+    @Test
+    public void probeSizeCorruptImageIOFallback() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(4, 2, BufferedImage.TYPE_BYTE_INDEXED), "bmp", output);
+        byte[] data = output.toByteArray();
+        
+        // a negative pixel data offset makes the bmp reader size its palette negative
+        data[13] = (byte)0x80;
+        
+        try {
+            ImageProber.probeSize(KnownMediaType.IMAGE_BMP, data);
+            fail();
+        } catch (IOException e) {
+            assertThat(e.getCause() instanceof NegativeArraySizeException, is(true));
+        }
+    }
+    
+    @Test
+    public void probeSizeWebp1() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.webp");
+        
+        StopWatch timer = StopWatch.timeMillis();
+        
+        Size2D size = ImageProber.probeSize(
+            KnownMediaType.IMAGE_WEBP, data);
+        
+        log.debug("probed webp size in {}", timer);
+        
+        assertThat(size.getWidth(), is(400.0d));
+        assertThat(size.getHeight(), is(301.0d));
+    }
+    
+    @Test
+    public void probeSizeWebp2AsFile() throws IOException {
+        Path file = Paths.get("src/test/resources/fixtures/sample2.webp");
+        
+        Size2D size = ImageProber.probeSize(
+            KnownMediaType.IMAGE_WEBP, file);
+        
+        assertThat(size.getWidth(), is(400.0d));
+        assertThat(size.getHeight(), is(301.0d));
+    }
+    
     @Test
     public void probeSizeSvg1() throws IOException {
         byte[] data = Resources.readAllBytes("/fixtures/sample1.svg");
@@ -207,4 +305,415 @@ public class ImageProberTest {
         assertThat(size.getHeight(), is(1720.0d));
     }
     
-}
\ No newline at end of file
+    @Test
+    public void probeJpeg1() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.jpg");
+        
+        StopWatch timer = StopWatch.timeMillis();
+        
+        ProbeResult result = ImageProber.probe(data);
+        
+        log.debug("probed jpeg in {}", timer);
+        
+        assertThat(result.getMediaType(), is(KnownMediaType.IMAGE_JPEG));
+        assertThat(result.getSize().getWidth(), is(1000.0d));
+        assertThat(result.getSize().getHeight(), is(672.0d));
+        // only up thru the frame header
+        assertThat(result.getBytesRead(), is(289L));
+    }
+    
+    @Test
+    public void probeJpeg2AsFile() throws IOException {
+        Path file = Paths.get("src/test/resources/fixtures/sample2.jpg");
+        
+        ProbeResult result = ImageProber.probe(file);
+        
+        assertThat(result.getMediaType(), is(KnownMediaType.IMAGE_JPEG));
+        assertThat(result.getSize().getWidth(), is(954.0d));
+        assertThat(result.getSize().getHeight(), is(1477.0d));
+    }
+    
+    @Test
+    public void probePng1AsDirectBuffer() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.png");
+        ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+        buffer.put(data).flip();
+        
+        ProbeResult result = ImageProber.probe(buffer);
+        
+        assertThat(result.getMediaType(), is(KnownMediaType.IMAGE_PNG));
+        assertThat(result.getSize().getWidth(), is(650.0d));
+        assertThat(result.getSize().getHeight(), is(341.0d));
+        assertThat(result.getBytesRead(), is(24L));
+        // position untouched
+        assertThat(buffer.position(), is(0));
+    }
+    
+    @Test
+    public void probeSvg1AsStream() throws IOException {
+        try (InputStream input = Resources.newInputStream("/fixtures/sample1.svg")) {
+            ProbeResult result = ImageProber.probe(input);
+            
+            assertThat(result.getMediaType(), is(KnownMediaType.IMAGE_SVG_XML));
+            assertThat(result.getSize().getWidth(), is(472.0d));
+            assertThat(result.getSize().getHeight(), is(392.0d));
+        }
+    }
+    
+    @Test
+    public void probeWebp2AsStream() throws IOException {
+        try (InputStream input = Resources.newInputStream("/fixtures/sample2.webp")) {
+            ProbeResult result = ImageProber.probe(input);
+            
+            assertThat(result.getMediaType(), is(KnownMediaType.IMAGE_WEBP));
+            assertThat(result.getSize().getWidth(), is(400.0d));
+            assertThat(result.getSize().getHeight(), is(301.0d));
+        }
+    }
+    
+    @Test
+    public void probePdf1() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.pdf");
+        
+        ProbeResult result = ImageProber.probe(data);
+        
+        assertThat(result.getMediaType(), is(KnownMediaType.APPLICATION_PDF));
+        // first page's media box (letter) in points
+        assertThat(result.getSize().getWidth(), is(612.0d));
+        assertThat(result.getSize().getHeight(), is(792.0d));
+    }
+    
+    @Test
+    public void probeSizePdf1() throws IOException {
+        Path file = Paths.get("src/test/resources/fixtures/sample1.pdf");
+        
+        Size2D size = ImageProber.probeSize(KnownMediaType.APPLICATION_PDF, file);
+        
+        assertThat(size.getWidth(), is(612.0d));
+        assertThat(size.getHeight(), is(792.0d));
+    }
+    
+    @Test
+    public void probeInfoPdf1() throws IOException {
+        try (InputStream input = Resources.newInputStream("/fixtures/sample1.pdf")) {
+            ImageInfo info = ImageProber.probeInfo(input);
+            
+            assertThat(info.getMediaType(), is(KnownMediaType.APPLICATION_PDF));
+            assertThat(info.getSize().getWidth(), is(612.0d));
+            assertThat(info.getFrameCount(), is(2));
+            assertThat(info.getOrientation(), is(1));
+        }
+    }
+    
+    @Test
+    public void probeNone() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.txt");
+        
+        ProbeResult result = ImageProber.probe(data);
+        
+        assertThat(result.getMediaType(), is(nullValue()));
+        assertThat(result.getSize(), is(nullValue()));
+        assertThat(result.getBytesRead(), is(23L));
+    }
+    
+    @Test
+    public void probeGif1AsFileWithReadModes() throws IOException {
+        Path file = Paths.get("src/test/resources/fixtures/sample1.gif");
+        
+        for (FileReadMode readMode : FileReadMode.values()) {
+            ProbeResult result = ImageProber.probe(file, readMode);
+
+            assertThat(result.getMediaType(), is(KnownMediaType.IMAGE_GIF));
+            assertThat(result.getSize().getWidth(), is(480.0d));
+            assertThat(result.getSize().getHeight(), is(480.0d));
+            assertThat(ImageProber.probeMediaType(file, readMode), is(KnownMediaType.IMAGE_GIF));
+            assertThat(ImageProber.probeSize(KnownMediaType.IMAGE_GIF, file, readMode).getWidth(), is(480.0d));
+        }
+    }
+    
+    @Test
+    public void probeSizeSvg1AsFile() throws IOException {
+        Path file = Paths.get("src/test/resources/fixtures/sample1.svg");
+        
+        Size2D size = ImageProber.probeSize(KnownMediaType.IMAGE_SVG_XML, file);
+        
+        assertThat(size.getWidth(), is(472.0d));
+        assertThat(size.getHeight(), is(392.0d));
+    }
+    
+    @Test
+    public void probeMediaTypeAndSizeAsDirectBuffer() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.webp");
+        ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+        buffer.put(data).flip();
+        
+        assertThat(ImageProber.probeMediaType(buffer), is(KnownMediaType.IMAGE_WEBP));
+        
+        Size2D size = ImageProber.probeSize(KnownMediaType.IMAGE_WEBP, buffer);
+        
+        assertThat(size.getWidth(), is(400.0d));
+        assertThat(size.getHeight(), is(301.0d));
+        assertThat(buffer.position(), is(0));
+    }
+    
+    @Test
+    public void probeMediaTypeAsHeapBufferSlice() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.png");
+        byte[] padded = new byte[data.length + 10];
+        System.arraycopy(data, 0, padded, 10, data.length);
+        ByteBuffer buffer = ByteBuffer.wrap(padded, 10, data.length).slice();
+        
+        assertThat(ImageProber.probeMediaType(buffer), is(KnownMediaType.IMAGE_PNG));
+        assertThat(ImageProber.probeSize(KnownMediaType.IMAGE_PNG, buffer).getWidth(), is(650.0d));
+    }
+    
+    @Test
+    public void probePngNeverReadsPastIHDR() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.png");
+        
+        ProbeOptions options = ProbeOptions.builder()
+            .maxBytesRead(24)
+            .build();
+        
+        ProbeResult result = ImageProber.probe(data, options);
+        
+        assertThat(result.getSize().getWidth(), is(650.0d));
+        assertThat(result.getBytesRead(), is(24L));
+        assertThat(result.getBytesBuffered(), is(0L));
+        
+        // not even one byte more from a stream
+        try (InputStream input = Resources.newInputStream("/fixtures/sample1.png")) {
+            result = ImageProber.probe(input, options);
+        }
+        
+        assertThat(result.getSize().getHeight(), is(341.0d));
+        assertThat(result.getBytesRead(), is(24L));
+        assertThat(result.getBytesBuffered(), is(24L));
+    }
+    
+    @Test
+    public void probeReadBudgetExceeded() throws IOException {
+        Path file = Paths.get("src/test/resources/fixtures/sample1.jpg");
+        
+        // frame header of sample1.jpg ends at 289
+        ProbeResult result = ImageProber.probe(file, ProbeOptions.builder().maxBytesRead(289).build());
+        
+        assertThat(result.getSize().getWidth(), is(1000.0d));
+        assertThat(result.getBytesRead(), is(289L));
+        
+        try {
+            ImageProber.probe(file, ProbeOptions.builder().maxBytesRead(288).build());
+            fail();
+        } catch (ReadBudgetExceededException e) {
+            assertThat(e.getMaxBytesRead(), is(288L));
+        }
+        
+        try (InputStream input = Resources.newInputStream("/fixtures/sample1.jpg")) {
+            ImageProber.probe(input, ProbeOptions.builder().maxBytesRead(100).build());
+            fail();
+        } catch (ReadBudgetExceededException e) {
+            assertThat(e.getMaxBytesRead(), is(100L));
+        }
+    }
+    
+    @Test
+    public void probeSvgReadBudget() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.svg");
+        
+        ProbeResult result;
+        try (InputStream input = new BufferedInputStream(Resources.newInputStream("/fixtures/sample1.svg"))) {
+            result = ImageProber.probe(input, ProbeOptions.builder().maxBytesRead(2048).build());
+        }
+        
+        assertThat(result.getSize().getWidth(), is(472.0d));
+        assertThat(result.getBytesBuffered() <= 2048L, is(true));
+        assertThat(result.getBytesRead() < data.length, is(true));
+    }
+    
+    @Test
+    public void probeInfoJpeg() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.jpg");
+        
+        ImageInfo info = ImageProber.probeInfo(data);
+        
+        assertThat(info.getMediaType(), is(KnownMediaType.IMAGE_JPEG));
+        assertThat(info.getSize().getWidth(), is(1000.0d));
+        assertThat(info.getSize().getHeight(), is(672.0d));
+        assertThat(info.getOrientation(), is(1));
+        assertThat(info.getColorType(), is(ColorType.YCBCR));
+        assertThat(info.getBitDepth(), is(8));
+        assertThat(info.hasAlpha(), is(false));
+        assertThat(info.hasIccProfile(), is(false));
+        assertThat(info.isProgressive(), is(false));
+        assertThat(info.getFrameCount(), is(1));
+        assertThat(info.isAnimated(), is(false));
+        // stops at the SOF0 components
+        assertThat(info.getBytesRead(), is(290L));
+    }
+    
+    @Test
+    public void probeInfoJpegRotated() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample2.jpg");
+        
+        ImageInfo info = ImageProber.probeInfo(data);
+        
+        assertThat(info.getOrientation(), is(1));
+        assertThat(info.getDisplaySize().getWidth(), is(954.0d));
+        
+        // patch the orientation entry of its EXIF IFD0 to 6 (rotate 90 CW)
+        assertThat(data[49], is((byte)1));
+        data[49] = 6;
+        
+        info = ImageProber.probeInfo(data);
+        
+        assertThat(info.getOrientation(), is(6));
+        assertThat(info.isTransposed(), is(true));
+        assertThat(info.getSize().getWidth(), is(954.0d));
+        assertThat(info.getSize().getHeight(), is(1477.0d));
+        assertThat(info.getDisplaySize().getWidth(), is(1477.0d));
+        assertThat(info.getDisplaySize().getHeight(), is(954.0d));
+    }
+    
+    @Test
+    public void probeInfoPng() throws IOException {
+        Path file = Paths.get("src/test/resources/fixtures/sample1.png");
+        
+        ImageInfo info = ImageProber.probeInfo(file);
+        
+        assertThat(info.getMediaType(), is(KnownMediaType.IMAGE_PNG));
+        assertThat(info.getSize().getWidth(), is(650.0d));
+        assertThat(info.getColorType(), is(ColorType.PALETTE));
+        assertThat(info.getBitDepth(), is(8));
+        assertThat(info.hasAlpha(), is(false));
+        assertThat(info.isProgressive(), is(false));
+        assertThat(info.getFrameCount(), is(1));
+        assertThat(info.isAnimated(), is(false));
+    }
+    
+    @Test
+    public void probeInfoAnimatedPng() throws IOException {
+        // signature, IHDR (16x8 rgba, adam7), acTL (3 frames), IDAT
+        byte[] data = Base16.decode("89504e470d0a1a0a"
+            + "0000000d49484452" + "00000010000000080806000001" + "00000000"
+            + "000000086163544c000000030000000000000000"
+            + "0000000049444154");
+        
+        ImageInfo info = ImageProber.probeInfo(data);
+        
+        assertThat(info.getMediaType(), is(KnownMediaType.IMAGE_PNG));
+        assertThat(info.getSize().getWidth(), is(16.0d));
+        assertThat(info.getSize().getHeight(), is(8.0d));
+        assertThat(info.getColorType(), is(ColorType.RGB));
+        assertThat(info.hasAlpha(), is(true));
+        assertThat(info.isProgressive(), is(true));
+        assertThat(info.getFrameCount(), is(3));
+        assertThat(info.isAnimated(), is(true));
+    }
+    
+    @Test
+    public void probeInfoAnimatedGif() throws IOException {
+        try (InputStream input = Resources.newInputStream("/fixtures/sample1.gif")) {
+            ImageInfo info = ImageProber.probeInfo(input);
+            
+            assertThat(info.getMediaType(), is(KnownMediaType.IMAGE_GIF));
+            assertThat(info.getSize().getWidth(), is(480.0d));
+            assertThat(info.getColorType(), is(ColorType.PALETTE));
+            assertThat(info.getBitDepth(), is(8));
+            assertThat(info.hasAlpha(), is(true));
+            assertThat(info.getFrameCount(), is(54));
+            assertThat(info.isAnimated(), is(true));
+        }
+    }
+    
+    @Test
+    public void probeInfoWebp() throws IOException {
+        ImageInfo lossless = ImageProber.probeInfo(Resources.readAllBytes("/fixtures/sample1.webp"));
+        
+        assertThat(lossless.getMediaType(), is(KnownMediaType.IMAGE_WEBP));
+        assertThat(lossless.getSize().getWidth(), is(400.0d));
+        assertThat(lossless.getColorType(), is(ColorType.RGB));
+        assertThat(lossless.getFrameCount(), is(1));
+        
+        ImageInfo extended = ImageProber.probeInfo(Resources.readAllBytes("/fixtures/sample2.webp"));
+        
+        assertThat(extended.getSize().getWidth(), is(400.0d));
+        assertThat(extended.getSize().getHeight(), is(301.0d));
+        assertThat(extended.hasAlpha(), is(true));
+        assertThat(extended.hasIccProfile(), is(false));
+        assertThat(extended.getFrameCount(), is(1));
+        assertThat(extended.isAnimated(), is(false));
+        // flags say there is nothing worth walking the chunks for
+        assertThat(extended.getBytesRead(), is(30L));
+    }
+    
+    @Test
+    public void probeInfoSvg() throws IOException {
+        ImageInfo info = ImageProber.probeInfo(Resources.readAllBytes("/fixtures/sample1.svg"));
+        
+        assertThat(info.getMediaType(), is(KnownMediaType.IMAGE_SVG_XML));
+        assertThat(info.getSize().getWidth(), is(472.0d));
+        assertThat(info.getColorType(), is(nullValue()));
+        assertThat(info.getOrientation(), is(1));
+        assertThat(info.getFrameCount(), is(0));
+    }
+    
+    @Test
+    public void probeInfoNotDetected() throws IOException {
+        ImageInfo info = ImageProber.probeInfo(Resources.readAllBytes("/fixtures/sample1.txt"));
+        
+        assertThat(info.getMediaType(), is(nullValue()));
+        assertThat(info.getSize(), is(nullValue()));
+    }
+    
+    @Test
+    public void validate() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.png");
+        
+        ValidationResult result = ImageProber.validate(data);
+        
+        assertThat(result.getMediaType(), is(KnownMediaType.IMAGE_PNG));
+        assertThat(result.getStatus(), is(ValidationResult.Status.VALID));
+        assertThat(result.isValid(), is(true));
+        assertThat(result.getOffset(), is(-1L));
+        assertThat(result.getMessage(), is(nullValue()));
+        assertThat(result.getBytesRead(), is((long) data.length));
+    }
+    
+    @Test
+    public void validateAsFile() throws IOException {
+        Path file = Paths.get("src/test/resources/fixtures/sample1.gif");
+        
+        ValidationResult result = ImageProber.validate(file);
+        
+        assertThat(result.getMediaType(), is(KnownMediaType.IMAGE_GIF));
+        assertThat(result.isValid(), is(true));
+        assertThat(result.getBytesRead(), is(3455311L));
+    }
+    
+    @Test
+    public void validateTruncatedStream() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.jpg");
+        
+        ValidationResult result
+            = ImageProber.validate(new ByteArrayInputStream(data, 0, 100000));
+        
+        assertThat(result.getMediaType(), is(KnownMediaType.IMAGE_JPEG));
+        assertThat(result.getStatus(), is(ValidationResult.Status.TRUNCATED));
+        assertThat(result.isValid(), is(false));
+        assertThat(result.getOffset(), is(100000L));
+    }
+    
+    @Test
+    public void validateUnsupported() throws IOException {
+        ValidationResult svg = ImageProber.validate(Resources.readAllBytes("/fixtures/sample1.svg"));
+        
+        assertThat(svg.getMediaType(), is(KnownMediaType.IMAGE_SVG_XML));
+        assertThat(svg.getStatus(), is(ValidationResult.Status.UNSUPPORTED));
+        
+        ValidationResult txt = ImageProber.validate(Resources.readAllBytes("/fixtures/sample1.txt"));
+        
+        assertThat(txt.getMediaType(), is(nullValue()));
+        assertThat(txt.getStatus(), is(ValidationResult.Status.UNSUPPORTED));
+    }
+    
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+import com.fizzed.crux.mediatype.KnownMediaType;
+import com.fizzed.crux.util.Resources;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import javax.imageio.ImageIO;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MetadataStripperTest {
+    
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+    
+    static private byte[] chunk(String type, byte[] data) {
+        ByteBuffer chunk = ByteBuffer.allocate(12 + data.length);
+        chunk.putInt(data.length).put(type.getBytes(StandardCharsets.US_ASCII)).put(data);
+        CRC32 crc = new CRC32();
+        crc.update(chunk.array(), 4, 4 + data.length);
+        chunk.putInt((int) crc.getValue());
+        return chunk.array();
+    }
+    
+    /**
+     * sample1.png w/ tEXt, eXIf (orientation 6) and iCCP chunks after its IHDR.
+     */
+    static private byte[] taggedPng() throws IOException {
+        byte[] png = Resources.readAllBytes("/fixtures/sample1.png");
+        
+        ByteBuffer tiff = ByteBuffer.allocate(26);
+        tiff.putShort((short)0x4d4d).putShort((short)42).putInt(8)
+            .putShort((short)1).putShort((short)0x0112).putShort((short)3).putInt(1).putInt(0x00060000)
+            .putInt(0);
+        
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        output.write(png, 0, 33);
+        output.write(chunk("tEXt", "Author\0someone".getBytes(StandardCharsets.ISO_8859_1)));
+        output.write(chunk("eXIf", tiff.array()));
+        output.write(chunk("iCCP", "icc\0\0profile".getBytes(StandardCharsets.ISO_8859_1)));
+        output.write(png, 33, png.length - 33);
+        return output.toByteArray();
+    }
+    
+    @Test
+    public void stripJpeg() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample2.jpg");
+        
+        byte[] stripped = MetadataStripper.builder().build().strip(data);
+        
+        // exif (w/o an orientation worth keeping) & photoshop segments
+        assertThat(stripped.length, is(data.length - 148));
+        assertThat(ImageProber.validate(stripped).isValid(), is(true));
+        assertThat(ImageProber.probe(stripped).getSize().getWidth(), is(954.0d));
+        assertThat(ImageIO.read(new ByteArrayInputStream(stripped)), is(notNullValue()));
+    }
+    
+    @Test
+    public void stripPng() throws IOException {
+        byte[] data = taggedPng();
+        
+        byte[] stripped = MetadataStripper.builder().build().strip(data);
+        
+        ImageInfo info = ImageProber.probeInfo(stripped);
+        assertThat(info.getOrientation(), is(6));
+        assertThat(info.hasIccProfile(), is(true));
+        assertThat(ImageProber.validate(stripped).isValid(), is(true));
+        // the text is gone, the eXIf is rewritten w/ the same 26 bytes
+        assertThat(stripped.length, is(data.length - 26));
+        
+        stripped = MetadataStripper.builder()
+            .keepIccProfile(false)
+            .keepOrientation(false)
+            .build()
+            .strip(data);
+        
+        info = ImageProber.probeInfo(stripped);
+        assertThat(info.getOrientation(), is(1));
+        assertThat(info.hasIccProfile(), is(false));
+        assertThat(ImageProber.validate(stripped).isValid(), is(true));
+        assertThat(stripped, is(Resources.readAllBytes("/fixtures/sample1.png")));
+    }
+    
+    @Test
+    public void stripFile() throws IOException {
+        byte[] data = taggedPng();
+        Path source = temp.newFile("tagged.png").toPath();
+        Path target = temp.getRoot().toPath().resolve("stripped.png");
+        Files.write(source, data);
+        
+        MetadataStripper stripper = MetadataStripper.builder().build();
+        
+        StripResult result = stripper.strip(source, target);
+        
+        assertThat(result.getMediaType(), is(KnownMediaType.IMAGE_PNG));
+        assertThat(result.getSourceLength(), is((long) data.length));
+        assertThat(result.getLength(), is(Files.size(target)));
+        assertThat(result.getRemoved(), is(2));
+        assertThat(Files.readAllBytes(target), is(stripper.strip(data)));
+        
+        // replaces an existing target
+        result = MetadataStripper.builder().keepIccProfile(false).build().strip(source, target);
+        
+        assertThat(result.getRemoved(), is(3));
+        assertThat(Files.size(target), is(result.getLength()));
+    }
+    
+    @Test
+    public void stripStream() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample2.jpg");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        
+        StripResult result = MetadataStripper.builder().build()
+            .strip(new ByteArrayInputStream(data), output);
+        
+        assertThat(result.getMediaType(), is(KnownMediaType.IMAGE_JPEG));
+        assertThat(result.getRemoved(), is(2));
+        assertThat(result.getLength(), is((long) output.size()));
+        assertThat(output.toByteArray(), is(MetadataStripper.builder().build().strip(data)));
+    }
+    
+    @Test
+    public void stripUnsupported() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.gif");
+        
+        try {
+            MetadataStripper.builder().build().strip(data);
+            fail();
+        } catch (IOException e) {
+            assertThat(e.getMessage(), is("Unable to strip media type IMAGE_GIF"));
+        }
+    }
+    
+    @Test
+    public void stripTruncatedPngChunk() throws IOException {
+        byte[] data = taggedPng();
+        
+        // ends within the tEXt chunk's data
+        try {
+            MetadataStripper.builder().build().strip(Arrays.copyOf(data, 50));
+            fail();
+        } catch (IOException e) {
+            assertThat(e.getMessage(), is("Invalid IMAGE_PNG structure"));
+        }
+        
+        // ends within the eXIf chunk's header
+        try {
+            MetadataStripper.builder().build().strip(Arrays.copyOf(data, 61));
+            fail();
+        } catch (IOException e) {
+            assertThat(e.getMessage(), is("Truncated IMAGE_PNG header"));
+        }
+    }
+    
+    @Test
+    public void stripJpegAfterFirstScan() throws IOException {
+        byte[] jpeg = Resources.readAllBytes("/fixtures/sample2.jpg");
+        
+        // a comment between the (only) scan & the EOI, then data after it
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        output.write(jpeg, 0, jpeg.length - 2);
+        output.write(new byte[] { (byte)0xFF, (byte)0xFE, 0, 5, 'a', 'b', 'c' });
+        output.write(jpeg, jpeg.length - 2, 2);
+        output.write("trailing".getBytes(StandardCharsets.US_ASCII));
+        byte[] data = output.toByteArray();
+        
+        MetadataStripper stripper = MetadataStripper.builder().build();
+        
+        assertThat(stripper.strip(data), is(stripper.strip(jpeg)));
+        
+        Path source = temp.newFile("tagged.jpg").toPath();
+        Path target = temp.getRoot().toPath().resolve("stripped.jpg");
+        Files.write(source, data);
+        
+        StripResult result = stripper.strip(source, target);
+        
+        assertThat(result.getRemoved(), is(4));
+        assertThat(Files.readAllBytes(target), is(stripper.strip(jpeg)));
+    }
+    
+    @Test(expected=IllegalArgumentException.class)
+    public void stripFileOntoItself() throws IOException {
+        Path source = temp.newFile("tagged.png").toPath();
+        Files.write(source, taggedPng());
+        
+        MetadataStripper.builder().build().strip(source, source);
+    }
+    
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+import com.fizzed.crux.mediatype.KnownMediaType;
+import com.fizzed.crux.util.Resources;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import javax.imageio.ImageIO;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class PerceptualHashTest {
+    
+    /**
+     * The fixture re-encoded at a fraction of its size.
+     */
+    static private byte[] resized(String fixture, String format, int divisor) throws IOException {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(Resources.readAllBytes(fixture)));
+        BufferedImage resized = new BufferedImage(image.getWidth() / divisor, image.getHeight() / divisor,
+            BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = resized.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(image, 0, 0, resized.getWidth(), resized.getHeight(), null);
+        g.dispose();
+        
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(resized, format, output);
+        return output.toByteArray();
+    }
+    
+    @Test
+    public void distance() {
+        assertThat(PerceptualHash.distance(0L, 0L), is(0));
+        assertThat(PerceptualHash.distance(0L, -1L), is(64));
+        assertThat(PerceptualHash.distance(0x0FL, 0x03L), is(2));
+    }
+    
+    @Test
+    public void isSupported() throws IOException {
+        assertThat(PerceptualHash.isSupported(KnownMediaType.IMAGE_JPEG), is(true));
+        assertThat(PerceptualHash.isSupported(KnownMediaType.IMAGE_PNG), is(true));
+        assertThat(PerceptualHash.isSupported(KnownMediaType.APPLICATION_PDF), is(false));
+    }
+    
+    @Test
+    public void hashNearDuplicates() throws IOException {
+        byte[] original = Resources.readAllBytes("/fixtures/sample1.jpg");
+        byte[] resized = resized("/fixtures/sample1.jpg", "png", 3);
+        byte[] other = Resources.readAllBytes("/fixtures/sample2.jpg");
+        
+        for (HashAlgorithm algorithm : HashAlgorithm.values()) {
+            long hash = PerceptualHash.hash(algorithm, original);
+            
+            assertTrue(algorithm + "", PerceptualHash.distance(hash, PerceptualHash.hash(algorithm, resized)) <= 6);
+            assertTrue(algorithm + "", PerceptualHash.distance(hash, PerceptualHash.hash(algorithm, other)) > 16);
+        }
+    }
+    
+    @Test
+    public void hashSources() throws IOException {
+        Path file = Paths.get("src/test/resources/fixtures/sample2.jpg");
+        byte[] data = Resources.readAllBytes("/fixtures/sample2.jpg");
+        
+        long hash = PerceptualHash.hash(HashAlgorithm.DIFFERENCE, data);
+        
+        assertThat(PerceptualHash.hash(HashAlgorithm.DIFFERENCE, file), is(hash));
+        assertThat(PerceptualHash.hash(HashAlgorithm.DIFFERENCE, new ByteArrayInputStream(data)), is(hash));
+        assertThat(PerceptualHash.hash(HashAlgorithm.DIFFERENCE, data, ImageProber.probe(data)), is(hash));
+    }
+    
+    @Test
+    public void hashUndecodable() throws IOException {
+        try {
+            PerceptualHash.hash(HashAlgorithm.PERCEPTUAL, Resources.readAllBytes("/fixtures/sample1.pdf"));
+            fail();
+        } catch (IOException e) {
+            assertThat(e.getMessage(), is("Unable to decode media type APPLICATION_PDF"));
+        }
+    }
+    
+}
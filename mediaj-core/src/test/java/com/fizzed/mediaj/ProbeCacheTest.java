@@ -0,0 +1,165 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+import com.fizzed.crux.mediatype.KnownMediaType;
+import com.fizzed.crux.util.Resources;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ProbeCacheTest {
+    
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+    
+    private Path copy(String name) throws IOException {
+        Path file = temp.getRoot().toPath().resolve(name);
+        Files.copy(Paths.get("src/test/resources/fixtures", name), file);
+        return file;
+    }
+    
+    @Test
+    public void probeFile() throws IOException {
+        ProbeCache cache = ProbeCache.builder().build();
+        Path file = copy("sample1.png");
+        
+        ProbeResult result1 = cache.probe(file);
+        ProbeResult result2 = cache.probe(file);
+        
+        assertThat(result1.getMediaType(), is(KnownMediaType.IMAGE_PNG));
+        assertThat(result2, is(sameInstance(result1)));
+        assertThat(cache.getHits(), is(1L));
+        assertThat(cache.getMisses(), is(1L));
+        assertThat(cache.getHitRate(), is(0.5d));
+        
+        // a changed file is probed again
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 60000L));
+        
+        ProbeResult result3 = cache.probe(file);
+        
+        assertThat(result3.getSize().getWidth(), is(650.0d));
+        assertThat(cache.getMisses(), is(2L));
+    }
+    
+    @Test
+    public void probeContent() throws IOException {
+        ProbeCache cache = ProbeCache.builder().build();
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.gif");
+        
+        ProbeResult result1 = cache.probe(data);
+        ProbeResult result2 = cache.probe(data.clone());
+        
+        assertThat(result1.getSize().getWidth(), is(480.0d));
+        assertThat(result2, is(sameInstance(result1)));
+        
+        ProbeResult result3 = cache.probe(new ByteArrayInputStream(data));
+        ProbeResult result4 = cache.probe(new ByteArrayInputStream(data));
+        
+        assertThat(result3.getMediaType(), is(KnownMediaType.IMAGE_GIF));
+        assertThat(result4, is(sameInstance(result3)));
+        assertThat(cache.getHits(), is(2L));
+        assertThat(cache.getMisses(), is(2L));
+    }
+    
+    @Test
+    public void probeContentNeedingMoreThanHashLengthIsNotCached() throws IOException {
+        // frame header of sample1.jpg ends at 289
+        ProbeCache cache = ProbeCache.builder().hashLength(256).build();
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.jpg");
+        
+        cache.probe(data);
+        ProbeResult result = cache.probe(data);
+        
+        assertThat(result.getSize().getWidth(), is(1000.0d));
+        assertThat(cache.getHits(), is(0L));
+        assertThat(cache.size(), is(0));
+    }
+    
+    @Test
+    public void evictsLeastRecentlyUsed() throws IOException {
+        ProbeCache cache = ProbeCache.builder().maxEntries(2).build();
+        Path png = copy("sample1.png");
+        Path gif = copy("sample1.gif");
+        Path webp = copy("sample1.webp");
+        
+        cache.probe(png);
+        cache.probe(gif);
+        cache.probe(png);       // gif is now least recently used
+        cache.probe(webp);
+        
+        assertThat(cache.size(), is(2));
+        assertThat(cache.getEvictions(), is(1L));
+        
+        cache.probe(png);
+        cache.probe(gif);
+        
+        assertThat(cache.getHits(), is(2L));
+        assertThat(cache.getMisses(), is(4L));
+    }
+    
+    @Test
+    public void persistentTier() throws IOException {
+        Path store = temp.getRoot().toPath().resolve("probe.cache");
+        Path jpg = copy("sample1.jpg");
+        Path pdf = copy("sample1.pdf");
+        byte[] webp = Resources.readAllBytes("/fixtures/sample1.webp");
+        
+        ProbeCache cache1 = ProbeCache.builder().persistentFile(store).build();
+        
+        assertThat(cache1.load(), is(0));
+        
+        cache1.probe(jpg);
+        cache1.probe(pdf);
+        cache1.probe(webp);
+        
+        assertThat(cache1.save(), is(3));
+        
+        // as if after a restart
+        ProbeCache cache2 = ProbeCache.builder().persistentFile(store).build();
+        
+        assertThat(cache2.load(), is(3));
+        
+        ProbeResult result = cache2.probe(jpg);
+        
+        assertThat(result.getMediaType(), is(KnownMediaType.IMAGE_JPEG));
+        assertThat(result.getSize().getWidth(), is(1000.0d));
+        assertThat(result.getSize().getHeight(), is(672.0d));
+        assertThat(result.getBytesRead(), is(289L));
+        assertThat(cache2.probe(pdf).getSize().getWidth(), is(612.0d));
+        assertThat(cache2.probe(webp).getSize().getWidth(), is(400.0d));
+        assertThat(cache2.getHits(), is(3L));
+        assertThat(cache2.getMisses(), is(0L));
+    }
+    
+    @Test(expected=IOException.class)
+    public void loadNotACache() throws IOException {
+        Path store = copy("sample1.png");
+        
+        ProbeCache.builder().persistentFile(store).build().load();
+    }
+    
+}
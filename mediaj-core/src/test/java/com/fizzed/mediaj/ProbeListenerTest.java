@@ -0,0 +1,148 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+import com.fizzed.crux.mediatype.KnownMediaType;
+import com.fizzed.crux.util.Resources;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import javax.imageio.ImageIO;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProbeListenerTest {
+    
+    static private class RecordingListener implements ProbeListener {
+        
+        final private List<String> events = new ArrayList<>();
+        
+        @Override
+        public void onComplete(Operation operation, KnownMediaType mediaType, long durationNanos, long bytesRead) {
+            assertTrue(durationNanos >= 0);
+            events.add("complete " + operation + " " + mediaType + " " + bytesRead);
+        }
+
+        @Override
+        public void onImageIOFallback(KnownMediaType mediaType) {
+            events.add("imageio " + mediaType);
+        }
+
+        @Override
+        public void onSvgParseFailure(Throwable error) {
+            events.add("svg");
+        }
+
+        @Override
+        public void onError(Operation operation, KnownMediaType mediaType, Throwable error) {
+            events.add("error " + operation + " " + mediaType);
+        }
+        
+    }
+    
+    private RecordingListener listener;
+    
+    @Before
+    public void before() {
+        this.listener = new RecordingListener();
+        ImageProber.setListener(listener);
+    }
+    
+    @After
+    public void after() {
+        ImageProber.setListener(null);
+        assertTrue(ImageProber.getListener() == ProbeListener.NOOP);
+    }
+    
+    @Test
+    public void probe() throws IOException {
+        ImageProber.probe(Resources.readAllBytes("/fixtures/sample1.jpg"));
+        ImageProber.probe(Resources.readAllBytes("/fixtures/sample1.txt"));
+        
+        assertThat(listener.events.get(0), is("complete PROBE IMAGE_JPEG 289"));
+        assertThat(listener.events.get(1), is("complete PROBE null 23"));
+    }
+    
+    @Test
+    public void probeSizeBytesRead() throws IOException {
+        // the furthest byte read, the same as probe, from every source
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.jpg");
+        
+        ImageProber.probeSize(KnownMediaType.IMAGE_JPEG, data);
+        ImageProber.probeSize(KnownMediaType.IMAGE_JPEG, ByteBuffer.wrap(data));
+        ImageProber.probeSize(KnownMediaType.IMAGE_JPEG, new ByteArrayInputStream(data));
+        
+        assertThat(listener.events.get(0), is("complete SIZE IMAGE_JPEG 289"));
+        assertThat(listener.events.get(1), is("complete SIZE IMAGE_JPEG 289"));
+        assertThat(listener.events.get(2), is("complete SIZE IMAGE_JPEG 289"));
+    }
+    
+    @Test
+    public void probeMediaTypeMiss() throws IOException {
+        ImageProber.probeMediaType(Resources.readAllBytes("/fixtures/sample1.txt"));
+        
+        assertThat(listener.events.get(0), is("complete MEDIA_TYPE null -1"));
+    }
+    
+    @Test
+    public void probeSizeImageIOFallback() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(3, 2, BufferedImage.TYPE_INT_RGB), "bmp", output);
+        
+        ImageProber.probeSize(KnownMediaType.IMAGE_BMP, output.toByteArray());
+        
+        assertThat(listener.events.get(0), is("imageio IMAGE_BMP"));
+        assertTrue(listener.events.get(1).startsWith("complete SIZE IMAGE_BMP"));
+    }
+    
+    @Test
+    public void probeSizeSvgParseFailure() throws IOException {
+        byte[] data = "<svg width=\"1\"".getBytes(StandardCharsets.UTF_8);
+        
+        try {
+            ImageProber.probeSize(KnownMediaType.IMAGE_SVG_XML, data);
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+        
+        assertThat(listener.events.get(0), is("svg"));
+        assertThat(listener.events.get(1), is("error SIZE IMAGE_SVG_XML"));
+    }
+    
+    @Test
+    public void probeSizeError() throws IOException {
+        try {
+            ImageProber.probeSize(KnownMediaType.IMAGE_PNG, new byte[10]);
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+        
+        assertThat(listener.events.get(listener.events.size() - 1), is("error SIZE IMAGE_PNG"));
+    }
+    
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+import com.fizzed.crux.mediatype.KnownMediaType;
+import com.fizzed.crux.util.Resources;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class RandomAccessSourceTest {
+    
+    /**
+     * Records the ranges read (e.g. what would be http range requests).
+     */
+    static private class RecordingSource implements RandomAccessSource {
+        
+        final private RandomAccessSource source;
+        final private List<long[]> ranges = new ArrayList<>();
+
+        RecordingSource(RandomAccessSource source) {
+            this.source = source;
+        }
+        
+        @Override
+        public long size() throws IOException {
+            return source.size();
+        }
+
+        @Override
+        public int readAt(long position, ByteBuffer buffer) throws IOException {
+            int n = source.readAt(position, buffer);
+            if (n > 0) {
+                ranges.add(new long[] { position, n });
+            }
+            return n;
+        }
+        
+        long fetched() {
+            return ranges.stream().mapToLong(r -> r[1]).sum();
+        }
+        
+    }
+    
+    /**
+     * Inserts an APP1 segment after the SOI (which is how EXIF is stored).
+     */
+    static private byte[] withApp1(byte[] jpeg, int payloadLength) {
+        byte[] data = new byte[jpeg.length + 4 + payloadLength];
+        data[0] = (byte)0xFF;
+        data[1] = (byte)0xD8;
+        data[2] = (byte)0xFF;
+        data[3] = (byte)0xE1;
+        data[4] = (byte)((payloadLength + 2) >> 8);
+        data[5] = (byte)(payloadLength + 2);
+        System.arraycopy(jpeg, 2, data, 6 + payloadLength, jpeg.length - 2);
+        return data;
+    }
+    
+    @Test
+    public void probeJumpsOverLargeSegment() throws IOException {
+        byte[] data = withApp1(Resources.readAllBytes("/fixtures/sample1.jpg"), 60000);
+        
+        RecordingSource source = new RecordingSource(RandomAccessSource.of(data));
+        
+        ProbeResult result = ImageProber.probe(source);
+        
+        assertThat(result.getMediaType(), is(KnownMediaType.IMAGE_JPEG));
+        assertThat(result.getSize().getWidth(), is(1000.0d));
+        assertThat(result.getSize().getHeight(), is(672.0d));
+        assertThat(result.getBytesRead(), is(289L + 60004L));
+        
+        // the header, then straight to the segments after the app1
+        assertThat(source.ranges.size(), is(2));
+        assertThat(source.ranges.get(1)[0], is(6L + 60000L));
+        assertTrue(source.fetched() <= 2 * 4096);
+    }
+    
+    @Test
+    public void probeFile() throws IOException {
+        try (RecordingSource source = new RecordingSource(
+                RandomAccessSource.of(Paths.get("src/test/resources/fixtures/sample1.png")))) {
+            
+            ProbeResult result = ImageProber.probe(source);
+
+            assertThat(result.getMediaType(), is(KnownMediaType.IMAGE_PNG));
+            assertThat(result.getSize().getWidth(), is(650.0d));
+            assertThat(source.ranges.size(), is(1));
+        }
+    }
+    
+    @Test
+    public void probeBuffer() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.gif");
+        ByteBuffer buffer = ByteBuffer.allocateDirect(data.length + 3);
+        buffer.put(new byte[3]).put(data).flip().position(3);
+        
+        ProbeResult result = ImageProber.probe(RandomAccessSource.of(buffer));
+        
+        assertThat(result.getMediaType(), is(KnownMediaType.IMAGE_GIF));
+        assertThat(result.getSize().getWidth(), is(480.0d));
+        assertThat(buffer.position(), is(3));
+    }
+    
+    @Test
+    public void readAt() throws IOException {
+        RandomAccessSource source = RandomAccessSource.of(new byte[] { 1, 2, 3, 4, 5 });
+        
+        ByteBuffer buffer = ByteBuffer.allocate(4);
+        
+        assertThat(source.size(), is(5L));
+        assertThat(source.readAt(3, buffer), is(2));
+        assertThat(buffer.get(0), is((byte)4));
+        assertThat(buffer.position(), is(2));
+        assertThat(source.readAt(5, buffer), is(-1));
+    }
+    
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Builds test images the fixtures don't cover, shared w/ the fuzz and
+ * benchmark modules thru the test-jar.
+ *
+ * @author jjlauer
+ */
+public class SampleImages {
+
+    /**
+     * A jpeg like a camera writes: an exif block right after the SOI w/ the
+     * orientation (1) in IFD0 and an IFD1 that points to a jpeg thumbnail.
+     * The APP1 segment is 80 bytes ahead of the thumbnail.
+     *
+     * @param jpeg The main image
+     * @param thumbnail The thumbnail
+     * @return The jpeg w/ the exif block
+     */
+    static public byte[] withExifThumbnail(
+            byte[] jpeg,
+            byte[] thumbnail) {
+
+        // big endian tiff: ifd0 w/ orientation, ifd1 @ 26 w/ compression,
+        // jpeg offset & jpeg length then the thumbnail @ 68
+        ByteBuffer tiff = ByteBuffer.allocate(68 + thumbnail.length);
+        tiff.putShort((short)0x4d4d).putShort((short)42).putInt(8)
+            .putShort((short)1).putShort((short)0x0112).putShort((short)3).putInt(1).putInt(0x00010000).putInt(26)
+            .putShort((short)3)
+            .putShort((short)0x0103).putShort((short)3).putInt(1).putInt(0x00060000)
+            .putShort((short)0x0201).putShort((short)4).putInt(1).putInt(68)
+            .putShort((short)0x0202).putShort((short)4).putInt(1).putInt(thumbnail.length)
+            .putInt(0)
+            .put(thumbnail);
+
+        int length = 8 + tiff.capacity();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        output.write(jpeg, 0, 2);
+        output.write(new byte[] { (byte)0xFF, (byte)0xE1, (byte)(length >> 8), (byte)length, 'E', 'x', 'i', 'f', 0, 0 }, 0, 10);
+        output.write(tiff.array(), 0, tiff.capacity());
+        output.write(jpeg, 2, jpeg.length - 2);
+        return output.toByteArray();
+    }
+
+}
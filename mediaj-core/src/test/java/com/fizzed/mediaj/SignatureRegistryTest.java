@@ -0,0 +1,110 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj;
+
+import com.fizzed.crux.mediatype.KnownMediaType;
+import com.fizzed.crux.util.Base16;
+import com.fizzed.crux.util.Resources;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+public class SignatureRegistryTest {
+ 
+    @Test
+    public void builtins() {
+        SignatureRegistry registry = SignatureRegistry.builder()
+            .addBuiltins()
+            .build();
+        
+        assertThat(match(registry, "49492a0008000000"), is(KnownMediaType.IMAGE_TIFF));
+        assertThat(match(registry, "4d4d002a00000008"), is(KnownMediaType.IMAGE_TIFF));
+        assertThat(match(registry, "424d8a7b0c00000000008a000000"), is(KnownMediaType.IMAGE_BMP));
+        assertThat(match(registry, "474946383961e001"), is(KnownMediaType.IMAGE_GIF));
+        // ico: one 16x16 entry w/ 1 plane @ 32 bpp
+        assertThat(match(registry, "000001000100101000000100200068040000"), is(KnownMediaType.IMAGE_X_ICON));
+        // "BM" alone is not enough
+        assertThat(match(registry, "424d8a7b0c00ffff0000"), is(nullValue()));
+    }
+    
+    @Test
+    public void sniffSvg() throws IOException {
+        SignatureRegistry registry = SignatureRegistry.builder()
+            .addBuiltins()
+            .build();
+        
+        byte[] svg = Resources.readAllBytes("/fixtures/sample1.svg");
+        byte[] text = Resources.readAllBytes("/fixtures/sample1.txt");
+        byte[] html = "<?xml version=\"1.0\"?>\n<html></html>".getBytes(StandardCharsets.UTF_8);
+        
+        assertThat(registry.match(svg, 0, svg.length), is(KnownMediaType.IMAGE_SVG_XML));
+        assertThat(registry.matchSignature(svg, 0, svg.length), is(nullValue()));
+        assertThat(registry.match(text, 0, text.length), is(nullValue()));
+        assertThat(registry.match(html, 0, html.length), is(nullValue()));
+    }
+    
+    @Test
+    public void signatureBeyondFirst12Bytes() {
+        // iso-bmff ftyp box w/ a compatible brand at offset 16
+        SignatureRegistry registry = SignatureRegistry.builder()
+            .add(Signature.of(KnownMediaType.VIDEO_MP4, 4, "66747970????????????????69736f6d", 0))
+            .build();
+        
+        assertThat(registry.getHeaderLength(), is(20));
+        assertThat(match(registry, "0000001c667479706d703432000000006973"), is(nullValue()));
+        assertThat(match(registry, "0000001c667479706d703432000000006973"
+            + "6f6d"), is(KnownMediaType.VIDEO_MP4));
+    }
+    
+    @Test
+    public void priority() {
+        SignatureRegistry registry = SignatureRegistry.builder()
+            .add(Signature.of(KnownMediaType.IMAGE_BMP, 0, "424d", -1))
+            .add(Signature.of(KnownMediaType.TEXT_PLAIN, 0, "42", 0))
+            .build();
+        
+        assertThat(match(registry, "424d0000"), is(KnownMediaType.TEXT_PLAIN));
+    }
+    
+    @Test
+    public void defaultIncludesServiceProviders() {
+        List<Signature> signatures = SignatureRegistry.getDefault().getSignatures();
+        
+        assertThat(signatures, hasItem(Signature.of(KnownMediaType.VIDEO_MP4, 4, "6674797069736f6d", 0)));
+        assertThat(match(SignatureRegistry.getDefault(), "000000186674797069736f6d"), is(KnownMediaType.VIDEO_MP4));
+    }
+    
+    static private KnownMediaType match(SignatureRegistry registry, String hex) {
+        byte[] data = Base16.decode(hex);
+        return registry.match(data, 0, data.length);
+    }
+    
+    static public class TestSignatureProvider implements SignatureProvider {
+        
+        @Override
+        public List<Signature> getSignatures() {
+            return Arrays.asList(Signature.of(KnownMediaType.VIDEO_MP4, 4, "6674797069736f6d", 0));
+        }
+        
+    }
+    
+}
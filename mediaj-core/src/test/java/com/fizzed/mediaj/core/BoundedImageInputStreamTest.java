@@ -0,0 +1,68 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import java.io.IOException;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class BoundedImageInputStreamTest {
+    
+    @Test
+    public void tracksFurthestReadAndFailsPastMax() throws IOException {
+        ByteArrayImageInputStream source = new ByteArrayImageInputStream(new byte[100]);
+        BoundedImageInputStream input = new BoundedImageInputStream(source, 50);
+        
+        input.readInt();
+        input.skipBytes(40);
+        
+        assertThat(input.getBytesRead(), is(4L));
+        
+        input.readShort();
+        input.seek(0);
+        input.read();
+        
+        assertThat(input.getBytesRead(), is(46L));
+        
+        // partial read up to the max
+        input.seek(45);
+        assertThat(input.read(new byte[10], 0, 10), is(5));
+        assertThat(input.isExceeded(), is(false));
+        
+        try {
+            input.read();
+            fail();
+        } catch (IOException e) {
+            assertThat(input.isExceeded(), is(true));
+        }
+        
+        assertThat(input.getBytesRead(), is(50L));
+    }
+    
+    @Test
+    public void eofBeforeMax() throws IOException {
+        ByteArrayImageInputStream source = new ByteArrayImageInputStream(new byte[10]);
+        BoundedImageInputStream input = new BoundedImageInputStream(source, 10);
+        
+        input.seek(10);
+        
+        assertThat(input.read(), is(-1));
+        assertThat(input.isExceeded(), is(false));
+    }
+    
+}
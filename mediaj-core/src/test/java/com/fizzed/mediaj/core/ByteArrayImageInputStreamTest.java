@@ -0,0 +1,124 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import com.fizzed.crux.util.Base16;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class ByteArrayImageInputStreamTest {
+ 
+    @Test
+    public void readPrimitives() throws IOException {
+        byte[] data = Base16.decode("ee0102030405060708090a0b0c0d0e0f10ee");
+        
+        try (ByteArrayImageInputStream input = new ByteArrayImageInputStream(data, 1, 16)) {
+            assertThat(input.length(), is(16L));
+            assertThat(input.readShort(), is((short)0x0102));
+            assertThat(input.readInt(), is(0x03040506));
+            
+            input.setByteOrder(ByteOrder.LITTLE_ENDIAN);
+            assertThat(input.readUnsignedShort(), is(0x0807));
+            assertThat(input.readUnsignedInt(), is(0x0c0b0a09L));
+            
+            input.seek(0);
+            assertThat(input.readLong(), is(0x0807060504030201L));
+            
+            input.setByteOrder(ByteOrder.BIG_ENDIAN);
+            input.seek(8);
+            assertThat(input.readLong(), is(0x090a0b0c0d0e0f10L));
+            
+            input.seek(4);
+            byte[] bytes = new byte[4];
+            input.readFully(bytes, 0, 4);
+            assertThat(bytes, is(Base16.decode("05060708")));
+        }
+    }
+    
+    @Test
+    public void readSignExtension() throws IOException {
+        try (ByteArrayImageInputStream input = new ByteArrayImageInputStream(Base16.decode("fffeffffff80"))) {
+            assertThat(input.readShort(), is((short)-2));
+            assertThat(input.readInt(), is(0xffffff80));
+            input.seek(0);
+            assertThat(input.readUnsignedShort(), is(0xfffe));
+            assertThat(input.readUnsignedInt(), is(0xffffff80L));
+        }
+    }
+    
+    @Test
+    public void skipBytesIsBounded() throws IOException {
+        try (ByteArrayImageInputStream input = new ByteArrayImageInputStream(Base16.decode("01020304"))) {
+            assertThat(input.skipBytes(3), is(3));
+            assertThat(input.skipBytes(100L), is(1L));
+            assertThat(input.getStreamPosition(), is(4L));
+            assertThat(input.read(), is(-1));
+        }
+    }
+    
+    @Test
+    public void skipBytesNegativeSeeksBack() throws IOException {
+        try (ByteArrayImageInputStream input = new ByteArrayImageInputStream(Base16.decode("01020304"))) {
+            input.skipBytes(3);
+            assertThat(input.skipBytes(-2), is(-2));
+            assertThat(input.getStreamPosition(), is(1L));
+            assertThat(input.read(), is(2));
+            assertThat(input.skipBytes(0L), is(0L));
+            assertThat(input.getStreamPosition(), is(2L));
+        }
+    }
+    
+    @Test
+    public void readPastEnd() throws IOException {
+        try (ByteArrayImageInputStream input = new ByteArrayImageInputStream(Base16.decode("010203"))) {
+            input.readShort();
+            try {
+                input.readInt();
+                fail();
+            } catch (EOFException e) {
+                // expected
+            }
+            assertThat(input.getStreamPosition(), is(2L));
+        }
+    }
+    
+    @Test
+    public void slice() throws IOException {
+        byte[] data = Base16.decode("0001020304050607");
+        
+        try (ByteArrayImageInputStream input = new ByteArrayImageInputStream(data, 1, 7)) {
+            ByteArrayImageInputStream slice = input.slice(2, 3);
+            
+            assertThat(slice.length(), is(3L));
+            assertThat(slice.read(), is(3));
+            assertThat(slice.readUnsignedShort(), is(0x0405));
+            assertThat(slice.read(), is(-1));
+            
+            try {
+                input.slice(5, 3);
+                fail();
+            } catch (IndexOutOfBoundsException e) {
+                // expected
+            }
+        }
+    }
+    
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import com.fizzed.crux.util.Base16;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class ByteBufferImageInputStreamTest {
+ 
+    static private ByteBuffer direct(String hex) {
+        byte[] data = Base16.decode(hex);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(data.length + 2);
+        buffer.put((byte)0xEE);        // leading junk so position != 0
+        buffer.put(data);
+        buffer.put((byte)0xEE);
+        buffer.position(1);
+        buffer.limit(1 + data.length);
+        return buffer;
+    }
+    
+    @Test
+    public void readPrimitives() throws IOException {
+        ByteBuffer buffer = direct("0102030405060708090a0b0c0d0e0f10");
+        
+        try (ByteBufferImageInputStream input = new ByteBufferImageInputStream(buffer)) {
+            assertThat(input.length(), is(16L));
+            assertThat(input.readShort(), is((short)0x0102));
+            assertThat(input.readInt(), is(0x03040506));
+            
+            input.setByteOrder(ByteOrder.LITTLE_ENDIAN);
+            assertThat(input.readUnsignedShort(), is(0x0807));
+            assertThat(input.readUnsignedInt(), is(0x0c0b0a09L));
+            
+            input.seek(0);
+            assertThat(input.readLong(), is(0x0807060504030201L));
+            
+            byte[] bytes = new byte[4];
+            input.readFully(bytes, 0, 4);
+            assertThat(bytes, is(Base16.decode("090a0b0c")));
+            assertThat(input.getStreamPosition(), is(12L));
+        }
+        
+        // caller's buffer is untouched
+        assertThat(buffer.position(), is(1));
+        assertThat(buffer.order(), is(ByteOrder.BIG_ENDIAN));
+    }
+    
+    @Test
+    public void skipBytesIsBounded() throws IOException {
+        try (ByteBufferImageInputStream input = new ByteBufferImageInputStream(direct("01020304"))) {
+            assertThat(input.skipBytes(3), is(3));
+            assertThat(input.skipBytes(100L), is(1L));
+            assertThat(input.getStreamPosition(), is(4L));
+            assertThat(input.read(), is(-1));
+        }
+    }
+    
+    @Test
+    public void skipBytesNegativeSeeksBack() throws IOException {
+        try (ByteBufferImageInputStream input = new ByteBufferImageInputStream(direct("01020304"))) {
+            input.skipBytes(3);
+            assertThat(input.skipBytes(-2), is(-2));
+            assertThat(input.getStreamPosition(), is(1L));
+            assertThat(input.read(), is(2));
+            assertThat(input.skipBytes(0L), is(0L));
+            assertThat(input.getStreamPosition(), is(2L));
+        }
+    }
+    
+    @Test
+    public void readPastEnd() throws IOException {
+        try (ByteBufferImageInputStream input = new ByteBufferImageInputStream(direct("010203"))) {
+            input.readShort();
+            try {
+                input.readShort();
+                fail();
+            } catch (EOFException e) {
+                // expected
+            }
+            // position unchanged on failure
+            assertThat(input.getStreamPosition(), is(2L));
+            assertThat(input.read(), is(3));
+        }
+    }
+    
+}
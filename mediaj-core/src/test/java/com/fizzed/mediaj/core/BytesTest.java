@@ -0,0 +1,98 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import java.net.URL;
+import java.util.Random;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeThat;
+import org.junit.Test;
+
+public class BytesTest {
+ 
+    @Test
+    public void primitives() {
+        byte[] b = { 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, (byte)0xFF };
+        
+        assertThat(Bytes.getShortBE(b, 0), is((short)0x0102));
+        assertThat(Bytes.getShortLE(b, 0), is((short)0x0201));
+        assertThat(Bytes.getIntBE(b, 1), is(0x02030405));
+        assertThat(Bytes.getIntLE(b, 1), is(0x05040302));
+        assertThat(Bytes.getLongBE(b, 1), is(0x02030405060708FFL));
+        assertThat(Bytes.getLongLE(b, 1), is(0xFF08070605040302L));
+        assertThat(Bytes.getShortBE(b, 7), is((short)0x08FF));
+    }
+    
+    @Test
+    public void indexOf() {
+        byte[] b = "<svg width=\"10\" height='20'>".getBytes();
+        
+        assertThat(Bytes.indexOf(b, 0, b.length, (byte)'<'), is(0));
+        assertThat(Bytes.indexOf(b, 1, b.length, (byte)'<'), is(-1));
+        assertThat(Bytes.indexOf(b, 0, b.length, (byte)'>'), is(b.length - 1));
+        assertThat(Bytes.indexOf(b, 0, b.length - 1, (byte)'>'), is(-1));
+        assertThat(Bytes.indexOfAny(b, 0, b.length, (byte)'>', (byte)'"', (byte)'\''), is(11));
+        assertThat(Bytes.indexOfAny(b, 15, b.length, (byte)'>', (byte)'"', (byte)'\''), is(23));
+        assertThat(Bytes.indexOfAny(b, 0, 11, (byte)'>', (byte)'"', (byte)'\''), is(-1));
+    }
+    
+    @Test
+    public void indexOfMatchesNaiveScan() {
+        // covers every alignment, the word tails and high bytes (which are
+        // negative and must not be confused w/ the borrow of a zero byte)
+        Random random = new Random(1L);
+        byte[] b = new byte[64];
+        
+        for (int n = 0; n < 2000; n++) {
+            for (int i = 0; i < b.length; i++) {
+                b[i] = (byte)(random.nextInt(4) == 0 ? 0x80 | random.nextInt(4) : random.nextInt(4));
+            }
+            int from = random.nextInt(b.length);
+            int to = from + random.nextInt(b.length - from + 1);
+            byte c0 = (byte)(0x80 | random.nextInt(4));
+            byte c1 = (byte)random.nextInt(4);
+            
+            int expected = -1;
+            int expectedAny = -1;
+            for (int i = to - 1; i >= from; i--) {
+                if (b[i] == c0) {
+                    expected = i;
+                }
+                if (b[i] == c0 || b[i] == c1) {
+                    expectedAny = i;
+                }
+            }
+            
+            assertThat(Bytes.indexOf(b, from, to, c0), is(expected));
+            assertThat(Bytes.indexOfAny(b, from, to, c0, c1, c1), is(expectedAny));
+        }
+    }
+    
+    @Test
+    public void overlayLoaded() {
+        // set when run against the packaged multi-release jar (see the pom)
+        String release = System.getProperty("mediaj.overlay");
+        assumeThat(release, is(notNullValue()));
+        
+        URL url = Bytes.class.getResource("Bytes.class");
+        
+        assertTrue(url.toString(), url.toString().contains("META-INF/versions/" + release + "/"));
+    }
+    
+}
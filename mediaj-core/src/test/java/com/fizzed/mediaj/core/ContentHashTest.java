@@ -0,0 +1,55 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+public class ContentHashTest {
+    
+    @Test
+    public void hash64() {
+        byte[] data = new byte[100];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte)(i * 7);
+        }
+        
+        long hash = ContentHash.hash64(data, 0, data.length);
+        
+        assertThat(ContentHash.hash64(data.clone(), 0, data.length), is(hash));
+        
+        // every length (word, int and byte tails) and every byte matters
+        for (int length = 0; length < data.length; length++) {
+            assertThat(ContentHash.hash64(data, 0, length), is(not(hash)));
+        }
+        for (int i = 0; i < data.length; i++) {
+            byte[] changed = data.clone();
+            changed[i] ^= 1;
+            assertThat(ContentHash.hash64(changed, 0, changed.length), is(not(hash)));
+        }
+    }
+    
+    @Test
+    public void hash64Offset() {
+        byte[] data = { 9, 9, 1, 2, 3, 4, 5 };
+        byte[] slice = { 1, 2, 3, 4, 5 };
+        
+        assertThat(ContentHash.hash64(data, 2, 5), is(ContentHash.hash64(slice, 0, 5)));
+    }
+    
+}
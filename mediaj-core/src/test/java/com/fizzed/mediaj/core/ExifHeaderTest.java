@@ -0,0 +1,171 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import com.fizzed.crux.util.Base16;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import javax.imageio.stream.ImageInputStream;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+public class ExifHeaderTest {
+ 
+    @Test
+    public void readOrientationBigEndian() throws IOException {
+        // "MM", 42, ifd0 @ 8 w/ 1 entry: orientation (short) = 6
+        byte[] data = Base16.decode("4d4d002a00000008"
+            + "0001" + "011200030000000100060000" + "00000000");
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            assertThat(ExifHeader.readOrientation(input, 0, data.length), is(6));
+            // byte order of the stream is restored
+            assertThat(input.getByteOrder(), is(ByteOrder.BIG_ENDIAN));
+        }
+    }
+    
+    @Test
+    public void readOrientationLittleEndian() throws IOException {
+        // 4 bytes of padding ahead of the tiff header, "II", 42, ifd0 @ 8 w/
+        // 2 entries: image width (long) then orientation (short) = 8
+        byte[] data = Base16.decode("00000000" + "49492a0008000000"
+            + "0200" + "000104000100000080020000" + "120103000100000008000000" + "00000000");
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            assertThat(ExifHeader.readOrientation(input, 4, data.length), is(8));
+        }
+    }
+    
+    @Test
+    public void readOrientationMissing() throws IOException {
+        byte[] data = Base16.decode("4d4d002a00000008"
+            + "0001" + "010000040000000100000280" + "00000000");
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            assertThat(ExifHeader.readOrientation(input, 0, data.length), is(0));
+        }
+    }
+    
+    @Test
+    public void readOrientationInvalid() throws IOException {
+        // bad magic
+        byte[] data = Base16.decode("4d4d002b00000008" + "0001" + "011200030000000100060000");
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            assertThat(ExifHeader.readOrientation(input, 0, data.length), is(0));
+        }
+        
+        // ifd0 points past the end of the block
+        data = Base16.decode("4d4d002a00000100" + "0001" + "011200030000000100060000");
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            assertThat(ExifHeader.readOrientation(input, 0, data.length), is(0));
+        }
+        
+        // out of range value
+        data = Base16.decode("4d4d002a00000008" + "0001" + "011200030000000100090000");
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            assertThat(ExifHeader.readOrientation(input, 0, data.length), is(0));
+        }
+    }
+    
+    @Test
+    public void readThumbnail() throws IOException {
+        // "MM", 42, ifd0 @ 8 w/ 1 entry (orientation) then ifd1 @ 26 w/ 3
+        // entries: compression (short) = 6, jpeg offset (long) = 68 & jpeg
+        // length (long) = 4 followed by the 4 byte "jpeg"
+        byte[] data = Base16.decode("4d4d002a00000008"
+            + "0001" + "011200030000000100010000" + "0000001a"
+            + "0003" + "010300030000000100060000" + "020100040000000100000044" + "020200040000000100000004" + "00000000"
+            + "ffd8ffd9");
+        
+        HeaderInfo info = new HeaderInfo();
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            assertThat(ExifHeader.readThumbnail(input, 0, data.length, info), is(true));
+            assertThat(input.getByteOrder(), is(ByteOrder.BIG_ENDIAN));
+        }
+        
+        assertThat(info.hasThumbnail(), is(true));
+        assertThat(info.getThumbnailOffset(), is(68L));
+        assertThat(info.getThumbnailLength(), is(4));
+    }
+    
+    @Test
+    public void readThumbnailMissing() throws IOException {
+        // no ifd1
+        byte[] data = Base16.decode("4d4d002a00000008"
+            + "0001" + "011200030000000100010000" + "00000000");
+        
+        HeaderInfo info = new HeaderInfo();
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            assertThat(ExifHeader.readThumbnail(input, 0, data.length, info), is(false));
+        }
+        
+        assertThat(info.hasThumbnail(), is(false));
+        
+        // uncompressed thumbnail (compression = 1)
+        data = Base16.decode("4d4d002a00000008"
+            + "0001" + "011200030000000100010000" + "0000001a"
+            + "0003" + "010300030000000100010000" + "020100040000000100000044" + "020200040000000100000004" + "00000000"
+            + "00000000");
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            assertThat(ExifHeader.readThumbnail(input, 0, data.length, info), is(false));
+        }
+    }
+    
+    @Test
+    public void readThumbnailInvalid() throws IOException {
+        // jpeg length runs past the end of the block
+        byte[] data = Base16.decode("4d4d002a00000008"
+            + "0001" + "011200030000000100010000" + "0000001a"
+            + "0003" + "010300030000000100060000" + "020100040000000100000044" + "020200040000000100001000" + "00000000"
+            + "ffd8ffd9");
+        
+        HeaderInfo info = new HeaderInfo();
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            assertThat(ExifHeader.readThumbnail(input, 0, data.length, info), is(false));
+        }
+        
+        // ifd1 points past the end of the block
+        data = Base16.decode("4d4d002a00000008"
+            + "0001" + "011200030000000100010000" + "00000100");
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            assertThat(ExifHeader.readThumbnail(input, 0, data.length, info), is(false));
+        }
+        
+        assertThat(info.hasThumbnail(), is(false));
+    }
+    
+    @Test
+    public void writeOrientation() throws IOException {
+        byte[] data = ExifHeader.writeOrientation(6);
+        
+        assertThat(Base16.encode(data), is("4d4d002a00000008"
+            + "0001" + "011200030000000100060000" + "00000000"));
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            assertThat(ExifHeader.readOrientation(input, 0, data.length), is(6));
+        }
+    }
+    
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import com.fizzed.crux.mediatype.KnownMediaType;
+import com.fizzed.crux.util.Resources;
+import java.io.IOException;
+import javax.imageio.ImageReader;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+public class ImageReaderPoolTest {
+    
+    @Test
+    public void borrowAndRelease() throws IOException {
+        ImageReaderPool pool = new ImageReaderPool(2);
+        
+        ImageReader reader = pool.borrow(KnownMediaType.IMAGE_PNG);
+        
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.png");
+        reader.setInput(new ByteArrayImageInputStream(data));
+        
+        assertThat(reader.getWidth(0), is(650));
+        
+        pool.release(KnownMediaType.IMAGE_PNG, reader);
+        
+        // reset, not disposed
+        assertThat(reader.getInput(), is(nullValue()));
+        
+        ImageReader reader2 = pool.borrow(KnownMediaType.IMAGE_PNG);
+        
+        assertThat(reader2, is(sameInstance(reader)));
+        
+        reader2.setInput(new ByteArrayImageInputStream(data));
+        
+        assertThat(reader2.getHeight(0), is(341));
+    }
+    
+    @Test
+    public void borrowWithNoReader() throws IOException {
+        ImageReaderPool pool = new ImageReaderPool(2);
+        
+        assertThat(pool.borrow(KnownMediaType.TEXT_PLAIN), is(nullValue()));
+        assertThat(pool.borrow(KnownMediaType.TEXT_PLAIN), is(nullValue()));
+    }
+    
+    @Test
+    public void maxIdle() throws IOException {
+        ImageReaderPool pool = new ImageReaderPool(1);
+        
+        ImageReader reader1 = pool.borrow(KnownMediaType.IMAGE_GIF);
+        ImageReader reader2 = pool.borrow(KnownMediaType.IMAGE_GIF);
+        
+        assertThat(reader2, is(not(sameInstance(reader1))));
+        
+        pool.release(KnownMediaType.IMAGE_GIF, reader1);
+        pool.release(KnownMediaType.IMAGE_GIF, reader2);     // disposed
+        
+        assertThat(pool.borrow(KnownMediaType.IMAGE_GIF), is(sameInstance(reader1)));
+        assertThat(pool.borrow(KnownMediaType.IMAGE_GIF), is(not(sameInstance(reader2))));
+    }
+    
+    @Test(expected=IllegalArgumentException.class)
+    public void maxIdleInvalid() {
+        new ImageReaderPool(0);
+    }
+    
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import com.fizzed.crux.mediatype.KnownMediaType;
+import com.fizzed.crux.util.Resources;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+public class ImageValidatorTest {
+ 
+    static private ValidationInfo validate(
+            KnownMediaType mediaType,
+            byte[] data) throws IOException {
+        
+        ValidationInfo info = new ValidationInfo();
+        ImageValidator.validate(mediaType, data, data.length, null, info);
+        return info;
+    }
+    
+    static private ValidationInfo validateStream(
+            KnownMediaType mediaType,
+            byte[] data,
+            int prefixLength) throws IOException {
+        
+        // trickle the rest of the data a few bytes at a time
+        InputStream input = new ByteArrayInputStream(data, prefixLength, data.length - prefixLength) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 7));
+            }
+        };
+        
+        ValidationInfo info = new ValidationInfo();
+        ImageValidator.validate(mediaType, Arrays.copyOf(data, prefixLength), prefixLength, input, info);
+        return info;
+    }
+    
+    @Test
+    public void isSupported() {
+        assertThat(ImageValidator.isSupported(KnownMediaType.IMAGE_JPEG), is(true));
+        assertThat(ImageValidator.isSupported(KnownMediaType.APPLICATION_PDF), is(true));
+        assertThat(ImageValidator.isSupported(KnownMediaType.IMAGE_SVG_XML), is(false));
+    }
+    
+    @Test
+    public void validateFixtures() throws IOException {
+        Object[][] fixtures = {
+            { KnownMediaType.IMAGE_JPEG, "/fixtures/sample1.jpg" },
+            { KnownMediaType.IMAGE_JPEG, "/fixtures/sample2.jpg" },
+            { KnownMediaType.IMAGE_PNG, "/fixtures/sample1.png" },
+            { KnownMediaType.IMAGE_GIF, "/fixtures/sample1.gif" },
+            { KnownMediaType.IMAGE_WEBP, "/fixtures/sample1.webp" },
+            { KnownMediaType.IMAGE_WEBP, "/fixtures/sample2.webp" },
+            { KnownMediaType.APPLICATION_PDF, "/fixtures/sample1.pdf" },
+        };
+        
+        for (Object[] fixture : fixtures) {
+            KnownMediaType mediaType = (KnownMediaType) fixture[0];
+            byte[] data = Resources.readAllBytes((String) fixture[1]);
+            
+            ValidationInfo info = validate(mediaType, data);
+            assertThat(fixture[1] + " " + info.getMessage(), info.isValid(), is(true));
+            assertThat(info.getOffset(), is(-1L));
+            
+            info = validateStream(mediaType, data, 16);
+            assertThat(fixture[1] + " " + info.getMessage(), info.isValid(), is(true));
+            assertThat(info.getBytesRead() <= data.length, is(true));
+        }
+    }
+    
+    @Test
+    public void validateTruncated() throws IOException {
+        Object[][] fixtures = {
+            { KnownMediaType.IMAGE_JPEG, "/fixtures/sample1.jpg" },
+            { KnownMediaType.IMAGE_PNG, "/fixtures/sample1.png" },
+            { KnownMediaType.IMAGE_GIF, "/fixtures/sample1.gif" },
+            { KnownMediaType.IMAGE_WEBP, "/fixtures/sample1.webp" },
+            { KnownMediaType.APPLICATION_PDF, "/fixtures/sample1.pdf" },
+        };
+        
+        for (Object[] fixture : fixtures) {
+            KnownMediaType mediaType = (KnownMediaType) fixture[0];
+            byte[] data = Resources.readAllBytes((String) fixture[1]);
+            byte[] truncated = Arrays.copyOf(data, data.length * 2 / 3);
+            
+            ValidationInfo info = validate(mediaType, truncated);
+            assertThat(fixture[1] + "", info.getStatus(), is(ValidationInfo.TRUNCATED));
+            assertThat(info.getOffset(), is((long) truncated.length));
+            
+            info = validateStream(mediaType, truncated, 16);
+            assertThat(fixture[1] + "", info.getStatus(), is(ValidationInfo.TRUNCATED));
+            assertThat(info.getOffset(), is((long) truncated.length));
+        }
+    }
+    
+    @Test
+    public void validatePngBadCrc() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.png");
+        
+        // flip a byte inside the first IDAT chunk
+        int idat = indexOf(data, new byte[] { 'I', 'D', 'A', 'T' }) - 4;
+        data[idat + 20] ^= 0x01;
+        
+        ValidationInfo info = validate(KnownMediaType.IMAGE_PNG, data);
+        
+        assertThat(info.getStatus(), is(ValidationInfo.CORRUPT));
+        assertThat(info.getOffset(), is((long) idat));
+        assertThat(info.getMessage(), is("CRC mismatch in chunk IDAT"));
+    }
+    
+    @Test
+    public void validatePngNotIhdrFirst() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.png");
+        data[12] = 'X';
+        
+        ValidationInfo info = validate(KnownMediaType.IMAGE_PNG, data);
+        
+        assertThat(info.getStatus(), is(ValidationInfo.CORRUPT));
+        assertThat(info.getOffset(), is(8L));
+    }
+    
+    @Test
+    public void validateJpegBadMarker() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.jpg");
+        
+        // the segment following the APP0 at 2 is not a marker
+        int next = 4 + (((data[4] & 0xFF) << 8) | (data[5] & 0xFF));
+        data[next] = 0x00;
+        
+        ValidationInfo info = validate(KnownMediaType.IMAGE_JPEG, data);
+        
+        assertThat(info.getStatus(), is(ValidationInfo.CORRUPT));
+        assertThat(info.getOffset(), is((long) next));
+    }
+    
+    @Test
+    public void validateJpegNoScan() throws IOException {
+        // SOI, EOI
+        byte[] data = { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xD9 };
+        
+        ValidationInfo info = validate(KnownMediaType.IMAGE_JPEG, data);
+        
+        assertThat(info.getStatus(), is(ValidationInfo.CORRUPT));
+        assertThat(info.getOffset(), is(2L));
+    }
+    
+    @Test
+    public void validateJpegTrailingData() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.jpg");
+        byte[] padded = Arrays.copyOf(data, data.length + 100);
+        
+        ValidationInfo info = validate(KnownMediaType.IMAGE_JPEG, padded);
+        
+        assertThat(info.isValid(), is(true));
+        assertThat(info.getBytesRead(), is((long) data.length));
+    }
+    
+    @Test
+    public void validateGifMissingTrailer() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.gif");
+        data = Arrays.copyOf(data, data.length - 1);
+        
+        ValidationInfo info = validate(KnownMediaType.IMAGE_GIF, data);
+        
+        assertThat(info.getStatus(), is(ValidationInfo.TRUNCATED));
+        assertThat(info.getOffset(), is((long) data.length));
+    }
+    
+    @Test
+    public void validateGifBadBlock() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.gif");
+        data[data.length - 1] = 0x00;
+        
+        ValidationInfo info = validate(KnownMediaType.IMAGE_GIF, data);
+        
+        assertThat(info.getStatus(), is(ValidationInfo.CORRUPT));
+        assertThat(info.getOffset(), is((long) data.length - 1));
+    }
+    
+    @Test
+    public void validateWebpChunkPastRiff() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.webp");
+        
+        // first chunk's length (at 16) claims 2 more bytes than the riff has
+        long length = ((data[16] & 0xFFL) | (data[17] & 0xFFL) << 8 | (data[18] & 0xFFL) << 16 | (data[19] & 0xFFL) << 24) + 2;
+        data[16] = (byte) length;
+        data[17] = (byte) (length >>> 8);
+        data[18] = (byte) (length >>> 16);
+        data[19] = (byte) (length >>> 24);
+        
+        ValidationInfo info = validate(KnownMediaType.IMAGE_WEBP, data);
+        
+        assertThat(info.getStatus(), is(ValidationInfo.CORRUPT));
+        assertThat(info.getOffset(), is(12L));
+    }
+    
+    @Test
+    public void validatePdfMissingEof() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.pdf");
+        int eof = lastIndexOf(data, new byte[] { '%', '%', 'E', 'O', 'F' });
+        data = Arrays.copyOf(data, eof);
+        
+        ValidationInfo info = validate(KnownMediaType.APPLICATION_PDF, data);
+        
+        assertThat(info.getStatus(), is(ValidationInfo.TRUNCATED));
+        assertThat(info.getOffset(), is((long) eof));
+    }
+    
+    @Test
+    public void validatePdfBadStartxref() throws IOException {
+        byte[] data = "%PDF-1.4\n1 0 obj\n<<>>\nendobj\nstartxref\n99999\n%%EOF\n".getBytes("US-ASCII");
+        
+        ValidationInfo info = validate(KnownMediaType.APPLICATION_PDF, data);
+        
+        assertThat(info.getStatus(), is(ValidationInfo.CORRUPT));
+        assertThat(info.getOffset(), is(29L));
+    }
+    
+    @Test
+    public void validateFirstProblemKept() {
+        ValidationInfo info = new ValidationInfo();
+        
+        assertThat(info.corrupt(5, "first"), is(false));
+        assertThat(info.truncated(10, "second"), is(false));
+        
+        assertThat(info.getStatus(), is(ValidationInfo.CORRUPT));
+        assertThat(info.getOffset(), is(5L));
+        assertThat(info.getMessage(), is("first"));
+    }
+    
+    static private int indexOf(
+            byte[] data,
+            byte[] target) {
+        
+        outer:
+        for (int i = 0; i <= data.length - target.length; i++) {
+            for (int j = 0; j < target.length; j++) {
+                if (data[i+j] != target[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+    
+    static private int lastIndexOf(
+            byte[] data,
+            byte[] target) {
+        
+        int last = -1;
+        for (int i = indexOf(data, target); i >= 0; ) {
+            last = i;
+            int next = indexOf(Arrays.copyOfRange(data, i + 1, data.length), target);
+            i = next < 0 ? -1 : i + 1 + next;
+        }
+        return last;
+    }
+    
+}
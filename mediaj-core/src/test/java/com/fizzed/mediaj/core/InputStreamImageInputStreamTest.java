@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+public class InputStreamImageInputStreamTest {
+    
+    static private byte[] bytes(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte)i;
+        }
+        return data;
+    }
+    
+    @Test
+    public void onlyBuffersWhatIsRead() throws IOException {
+        InputStreamImageInputStream input = new InputStreamImageInputStream(new ByteArrayInputStream(bytes(2000)));
+        
+        assertThat(input.readUnsignedShort(), is(0x0001));
+        assertThat(input.getBytesBuffered(), is(2L));
+        
+        // seeking is free until a read
+        input.seek(1000);
+        assertThat(input.getBytesBuffered(), is(2L));
+        
+        assertThat(input.read(), is(1000 & 0xff));
+        assertThat(input.getBytesBuffered(), is(1001L));
+        
+        // backwards is from the cache
+        input.seek(1);
+        input.setByteOrder(ByteOrder.LITTLE_ENDIAN);
+        assertThat(input.readInt(), is(0x04030201));
+        assertThat(input.getBytesBuffered(), is(1001L));
+    }
+    
+    @Test
+    public void eof() throws IOException {
+        InputStreamImageInputStream input = new InputStreamImageInputStream(new ByteArrayInputStream(bytes(10)));
+        
+        byte[] b = new byte[20];
+        
+        assertThat(input.read(b, 0, b.length), is(10));
+        assertThat(input.read(b, 0, b.length), is(-1));
+        assertThat(input.read(), is(-1));
+        
+        input.seek(100);
+        
+        assertThat(input.read(), is(-1));
+        assertThat(input.getBytesBuffered(), is(10L));
+    }
+    
+    @Test
+    public void spillsPastThreshold() throws IOException {
+        byte[] data = bytes(100000);
+        
+        try (InputStreamImageInputStream input = new InputStreamImageInputStream(new ByteArrayInputStream(data), 1000)) {
+            assertThat(input.readUnsignedShort(), is(0x0001));
+            assertThat(input.isSpilled(), is(false));
+            
+            input.seek(50000);
+            assertThat(input.read(), is(50000 & 0xff));
+            assertThat(input.isSpilled(), is(true));
+            assertThat(input.isCachedFile(), is(true));
+            assertThat(input.getBytesBuffered(), is(50001L));
+            
+            // backwards is from the file
+            input.seek(1);
+            input.setByteOrder(ByteOrder.LITTLE_ENDIAN);
+            assertThat(input.readInt(), is(0x04030201));
+            
+            // reading to the end
+            input.seek(0);
+            byte[] b = new byte[data.length + 10];
+            int n = 0;
+            int read;
+            while ((read = input.read(b, n, b.length - n)) > 0) {
+                n += read;
+            }
+            assertThat(n, is(data.length));
+            assertThat(Arrays.copyOf(b, n), is(data));
+            assertThat(input.read(), is(-1));
+            assertThat(input.getBytesBuffered(), is((long) data.length));
+        }
+    }
+    
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import com.fizzed.crux.util.Base16;
+import com.fizzed.crux.util.Resources;
+import com.fizzed.crux.util.Size2D;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import javax.imageio.stream.ImageInputStream;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+public class JPEGHeaderTest {
+ 
+    @Test
+    public void readSize() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.jpg");
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            Size2D size = JPEGHeader.readSize(input);
+            
+            assertThat(size.getWidth(), is(1000.0d));
+            assertThat(size.getHeight(), is(672.0d));
+            // stops right after the SOF0 dimensions
+            assertThat(input.getStreamPosition(), is(289L));
+        }
+    }
+    
+    @Test
+    public void readSizeSkipsExif() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample2.jpg");
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            Size2D size = JPEGHeader.readSize(input);
+            
+            assertThat(size.getWidth(), is(954.0d));
+            assertThat(size.getHeight(), is(1477.0d));
+            assertThat(input.getStreamPosition(), is(177L));
+        }
+    }
+    
+    @Test
+    public void readSizeNotJpeg() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.png");
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            assertThat(JPEGHeader.readSize(input), is(nullValue()));
+        }
+    }
+    
+    @Test(expected=EOFException.class)
+    public void readSizeTruncated() throws IOException {
+        byte[] data = Arrays.copyOf(Resources.readAllBytes("/fixtures/sample1.jpg"), 200);
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            JPEGHeader.readSize(input);
+        }
+    }
+    
+    @Test
+    public void readThumbnailJfxx() throws IOException {
+        // SOI, APP0 "JFXX" extension w/ a jpeg thumbnail (code 0x10) of 4
+        // bytes, then a SOF0 of 16x8
+        byte[] data = Base16.decode("ffd8"
+            + "ffe0000c" + "4a46585800" + "10" + "ffd8ffd9"
+            + "ffc0000b0800080010010111");
+        
+        HeaderInfo info = new HeaderInfo();
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            assertThat(JPEGHeader.readThumbnail(input, info), is(true));
+        }
+        
+        assertThat(info.getThumbnailOffset(), is(12L));
+        assertThat(info.getThumbnailLength(), is(4));
+    }
+    
+    @Test
+    public void readThumbnailNone() throws IOException {
+        // jfif only & an exif block w/o ifd1
+        for (String fixture : new String[] { "/fixtures/sample1.jpg", "/fixtures/sample2.jpg" }) {
+            byte[] data = Resources.readAllBytes(fixture);
+            
+            HeaderInfo info = new HeaderInfo();
+            
+            try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+                assertThat(JPEGHeader.readThumbnail(input, info), is(false));
+            }
+            
+            assertThat(info.hasThumbnail(), is(false));
+        }
+    }
+    
+    @Test
+    public void planStrip() throws IOException {
+        // jfif, exif (orientation 1) and photoshop segments ahead of the frame
+        byte[] data = Resources.readAllBytes("/fixtures/sample2.jpg");
+        
+        StripPlan plan = new StripPlan();
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            assertThat(JPEGHeader.planStrip(input, plan, true, true), is(true));
+        }
+        
+        assertThat(plan.getRemoved(), is(2));
+        assertThat(plan.getRemovedBytes(), is(148L));
+        // SOI & APP0 then everything from the DQT on
+        assertThat(plan.size(), is(2));
+        assertThat(plan.getOffset(0), is(0L));
+        assertThat(plan.getLength(0, data.length), is(20L));
+        assertThat(plan.getOffset(1), is(168L));
+        assertThat(plan.getLength(1, data.length), is(data.length - 168L));
+        assertThat(plan.getLength(data.length), is(data.length - 148L));
+    }
+    
+    @Test
+    public void planStripKeepsOrientationAndIcc() throws IOException {
+        // SOI, APP1 exif w/ orientation 6, COM, APP2 icc, SOF0 then a scan
+        String exif = "ffe10022" + "457869660000" + "4d4d002a00000008"
+            + "0001" + "011200030000000100060000" + "00000000";
+        String icc = "ffe20012" + "4943435f50524f46494c4500" + "01010000";
+        String frame = "ffc0000b080008001001011100" + "ffda0008010100003f00" + "00ff00" + "ffd9";
+        byte[] data = Base16.decode("ffd8" + exif + "fffe0005616263" + icc + frame);
+        
+        StripPlan plan = new StripPlan();
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            assertThat(JPEGHeader.planStrip(input, plan, true, true), is(true));
+        }
+        
+        assertThat(plan.getRemoved(), is(2));
+        assertThat(plan.size(), is(3));
+        // the minimal exif written is the same as the original
+        assertThat(Base16.encode(plan.getData(1)), is(exif));
+        assertThat(plan.getOffset(2), is(2L + 36 + 7));
+        assertThat(plan.getLength(data.length), is(data.length - 7L));
+        
+        plan = new StripPlan();
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            assertThat(JPEGHeader.planStrip(input, plan, false, false), is(true));
+        }
+        
+        assertThat(plan.getRemoved(), is(3));
+        assertThat(plan.size(), is(2));
+        assertThat(plan.getLength(data.length), is(data.length - 36L - 7 - 20));
+    }
+    
+    @Test
+    public void planStripBetweenScansAndAfterEoi() throws IOException {
+        // SOF0, a scan w/ a stuffed byte & a restart marker, then a COM, an
+        // APP1 and a DHT ahead of a second scan, then data after the EOI
+        String frame = "ffd8" + "ffc0000b080008001001011100";
+        String scan1 = "ffda0008010100003f00" + "12ff0034ffd056";
+        String between = "fffe0005616263" + "ffe1000641424344";
+        String dht = "ffc4000500ffff";
+        String scan2 = "ffda0008010100003f00" + "78ff009a" + "ffd9";
+        byte[] data = Base16.decode(frame + scan1 + between + dht + scan2 + "00ffd9ff");
+        int betweenLength = between.length() / 2;
+        
+        StripPlan plan = new StripPlan();
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            assertThat(JPEGHeader.planStrip(input, plan, true, true), is(true));
+        }
+        
+        assertThat(plan.getRemoved(), is(3));
+        assertThat(plan.getRemovedBytes(), is(betweenLength + 4L));
+        assertThat(plan.size(), is(2));
+        int scan1End = (frame.length() + scan1.length()) / 2;
+        assertThat(plan.getOffset(0), is(0L));
+        assertThat(plan.getLength(0, data.length), is((long) scan1End));
+        assertThat(plan.getOffset(1), is((long) scan1End + betweenLength));
+        assertThat(plan.getLength(1, data.length), is((dht.length() + scan2.length()) / 2L));
+    }
+    
+    @Test
+    public void planStripScanAcrossBuffers() throws IOException {
+        // a stuffed 0xFF00 and then a fill byte & COM straddling the ends of
+        // the scan buffers
+        int size = JPEGHeader.SCAN_BUFFER_SIZE;
+        byte[] head = Base16.decode("ffd8" + "ffc0000b080008001001011100" + "ffda0008010100003f00");
+        byte[] scan = new byte[2 * size + 2];
+        Arrays.fill(scan, (byte) 0x12);
+        scan[size - 1] = (byte) 0xFF;
+        scan[size] = 0x00;
+        scan[2 * size - 1] = (byte) 0xFF;
+        scan[2 * size] = (byte) 0xFF;
+        scan[2 * size + 1] = (byte) 0xFE;
+        byte[] tail = Base16.decode("0005616263" + "ffd9");
+        
+        byte[] data = new byte[head.length + scan.length + tail.length];
+        System.arraycopy(head, 0, data, 0, head.length);
+        System.arraycopy(scan, 0, data, head.length, scan.length);
+        System.arraycopy(tail, 0, data, head.length + scan.length, tail.length);
+        
+        StripPlan plan = new StripPlan();
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            assertThat(JPEGHeader.planStrip(input, plan, true, true), is(true));
+        }
+        
+        long comStart = head.length + 2 * size - 1;
+        assertThat(plan.getRemoved(), is(1));
+        assertThat(plan.getRemovedBytes(), is(8L));
+        assertThat(plan.size(), is(2));
+        assertThat(plan.getOffset(0), is(0L));
+        assertThat(plan.getLength(0, data.length), is(comStart));
+        assertThat(plan.getOffset(1), is(comStart + 8));
+        assertThat(plan.getLength(1, data.length), is(2L));
+    }
+    
+    @Test
+    public void planStripNotJpeg() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.png");
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            assertThat(JPEGHeader.planStrip(input, new StripPlan(), true, true), is(false));
+        }
+    }
+    
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import com.fizzed.crux.mediatype.KnownMediaType;
+import com.fizzed.crux.util.Base16;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+public class MagicMatcherTest {
+ 
+    @Test
+    public void match() {
+        MagicMatcher matcher = MagicMatcher.builder()
+            .add(0, pattern("ffd8ff"), null, 0, KnownMediaType.IMAGE_JPEG)
+            .add(0, pattern("89504e470d0a1a0a"), null, 0, KnownMediaType.IMAGE_PNG)
+            .build();
+        
+        assertThat(matcher.getMaxLength(), is(8));
+        
+        byte[] jpeg = Base16.decode("ffd8ffe000104a464946");
+        byte[] png = Base16.decode("89504e470d0a1a0a0000000d");
+        
+        assertThat(matcher.match(jpeg, 0, jpeg.length), is(KnownMediaType.IMAGE_JPEG));
+        assertThat(matcher.match(png, 0, png.length), is(KnownMediaType.IMAGE_PNG));
+        
+        // not enough bytes
+        assertThat(matcher.match(png, 0, 7), is(nullValue()));
+        assertThat(matcher.match(jpeg, 0, 2), is(nullValue()));
+        
+        // offset into the array
+        assertThat(matcher.match(jpeg, 1, jpeg.length - 1), is(nullValue()));
+    }
+    
+    @Test
+    public void matchWildcard() {
+        MagicMatcher matcher = MagicMatcher.builder()
+            .add(0, pattern("52494646????????57454250"), mask("52494646????????57454250"), 0, KnownMediaType.IMAGE_WEBP)
+            .build();
+        
+        byte[] webp = Base16.decode("524946463240010057454250");
+        byte[] zeroes = Base16.decode("524946460000000057454250");
+        byte[] wave = Base16.decode("524946463240010057415645");
+        
+        assertThat(matcher.match(webp, 0, webp.length), is(KnownMediaType.IMAGE_WEBP));
+        assertThat(matcher.match(zeroes, 0, zeroes.length), is(KnownMediaType.IMAGE_WEBP));
+        assertThat(matcher.match(wave, 0, wave.length), is(nullValue()));
+    }
+    
+    @Test
+    public void matchLongestWins() {
+        MagicMatcher matcher = MagicMatcher.builder()
+            .add(0, pattern("4749"), null, 0, KnownMediaType.TEXT_PLAIN)
+            .add(0, pattern("47??4638"), mask("47??4638"), 0, KnownMediaType.IMAGE_TIFF)
+            .add(0, pattern("474946383961"), null, 0, KnownMediaType.IMAGE_GIF)
+            .build();
+        
+        byte[] gif = Base16.decode("474946383961e001");
+        byte[] other = Base16.decode("474946383761e001");
+        byte[] text = Base16.decode("4749000000");
+        
+        assertThat(matcher.match(gif, 0, gif.length), is(KnownMediaType.IMAGE_GIF));
+        assertThat(matcher.match(other, 0, other.length), is(KnownMediaType.IMAGE_TIFF));
+        assertThat(matcher.match(text, 0, text.length), is(KnownMediaType.TEXT_PLAIN));
+    }
+    
+    @Test
+    public void matchOffsetAndMask() {
+        MagicMatcher matcher = MagicMatcher.builder()
+            // ftyp box w/ any brand starting w/ "he"
+            .add(4, pattern("6674797068650000"), Base16.decode("ffffffffffff0000"), 0, KnownMediaType.IMAGE_TIFF)
+            // low nibble ignored
+            .add(0, pattern("4d50"), Base16.decode("fff0"), 0, KnownMediaType.IMAGE_GIF)
+            .build();
+        
+        assertThat(matcher.getMaxLength(), is(12));
+        
+        byte[] heic = Base16.decode("000000186674797068656963");
+        byte[] avif = Base16.decode("000000186674797061766966");
+        byte[] masked = Base16.decode("4d5f");
+        
+        assertThat(matcher.match(heic, 0, heic.length), is(KnownMediaType.IMAGE_TIFF));
+        assertThat(matcher.match(avif, 0, avif.length), is(nullValue()));
+        assertThat(matcher.match(masked, 0, masked.length), is(KnownMediaType.IMAGE_GIF));
+    }
+    
+    @Test
+    public void matchPriorityWins() {
+        MagicMatcher matcher = MagicMatcher.builder()
+            .add(0, pattern("424d"), null, 10, KnownMediaType.IMAGE_BMP)
+            .add(0, pattern("424d0000"), null, 0, KnownMediaType.IMAGE_GIF)
+            .build();
+        
+        byte[] data = Base16.decode("424d0000");
+        
+        assertThat(matcher.match(data, 0, data.length), is(KnownMediaType.IMAGE_BMP));
+    }
+    
+    @Test(expected=IllegalArgumentException.class)
+    public void addMismatchedMask() {
+        MagicMatcher.builder().add(0, pattern("ffd8ff"), mask("ffff"), 0, KnownMediaType.IMAGE_JPEG);
+    }
+    
+    static private byte[] pattern(String hex) {
+        return Base16.decode(hex.replace("??", "00"));
+    }
+    
+    static private byte[] mask(String hex) {
+        return Base16.decode(hex.replaceAll("[0-9a-f]{2}", "ff").replace("??", "00"));
+    }
+    
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import com.fizzed.crux.util.Resources;
+import com.fizzed.crux.util.Size2D;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.Deflater;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageInputStreamImpl;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class PDFHeaderTest {
+ 
+    @Test
+    public void readInfo() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.pdf");
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            HeaderInfo info = new HeaderInfo();
+            
+            assertThat(PDFHeader.readInfo(input, info), is(true));
+            assertThat(info.getWidth(), is(612.0d));
+            assertThat(info.getHeight(), is(792.0d));
+            assertThat(info.getFrameCount(), is(2));
+            assertThat(info.getOrientation(), is(0));
+        }
+    }
+    
+    @Test
+    public void readsOnlyWhatIsNeeded() throws IOException {
+        // a large content stream between the page and the xref is never read
+        PDFWriter pdf = new PDFWriter();
+        pdf.object(1, "<< /Type /Catalog /Pages 2 0 R >>");
+        pdf.object(2, "<< /Type /Pages /Kids [3 0 R] /Count 1 >>");
+        pdf.object(3, "<< /Type /Page /Parent 2 0 R /MediaBox [0 0 595.28 841.89] /Contents 4 0 R >>");
+        pdf.object(4, "<< /Length 1000000 >>\nstream\n" + new String(new byte[1000000], StandardCharsets.ISO_8859_1) + "\nendstream");
+        byte[] data = pdf.xrefTable(1);
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            Size2D size = PDFHeader.readSize(input);
+            
+            assertThat(size.getWidth(), is(595.28d));
+            assertThat(size.getHeight(), is(841.89d));
+        }
+        
+        // only the header, page tree objects & tail are read
+        CountingStream counting = new CountingStream(data);
+        PDFHeader.readSize(counting);
+        assertTrue(counting.bytesRead < 2048);
+    }
+    
+    @Test
+    public void inheritedBoxesAndRotate() throws IOException {
+        PDFWriter pdf = new PDFWriter();
+        pdf.object(1, "<< /Type /Catalog /Pages 2 0 R >>");
+        pdf.object(2, "<< /Type /Pages /Kids [3 0 R] /Count 7 /MediaBox [0 0 1000 2000] /Rotate 90 >>");
+        pdf.object(3, "<< /Type /Pages /Parent 2 0 R /Kids [4 0 R] /Count 7 /CropBox [100 200 600 1200] >>");
+        pdf.object(4, "<< /Type /Page /Parent 3 0 R >>");
+        byte[] data = pdf.xrefTable(1);
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            HeaderInfo info = new HeaderInfo();
+            
+            assertThat(PDFHeader.readInfo(input, info), is(true));
+            assertThat(info.getWidth(), is(500.0d));
+            assertThat(info.getHeight(), is(1000.0d));
+            assertThat(info.getFrameCount(), is(7));
+            assertThat(info.getOrientation(), is(6));
+        }
+    }
+    
+    @Test
+    public void incrementalUpdate() throws IOException {
+        PDFWriter pdf = new PDFWriter();
+        pdf.object(1, "<< /Type /Catalog /Pages 2 0 R >>");
+        pdf.object(2, "<< /Type /Pages /Kids [3 0 R] /Count 1 >>");
+        pdf.object(3, "<< /Type /Page /Parent 2 0 R /MediaBox [0 0 612 792] >>");
+        pdf.xrefTable(1);
+        
+        // the update redefines the page & refers back to the first xref
+        pdf.object(3, "<< /Type /Page /Parent 2 0 R /MediaBox [0 0 792 612] >>");
+        byte[] data = pdf.xrefTable(1);
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            Size2D size = PDFHeader.readSize(input);
+            
+            assertThat(size.getWidth(), is(792.0d));
+            assertThat(size.getHeight(), is(612.0d));
+        }
+    }
+    
+    @Test
+    public void xrefAndObjectStreams() throws IOException {
+        PDFWriter pdf = new PDFWriter();
+        
+        // catalog & page tree are compressed into object stream 5
+        String[] objects = {
+            "<< /Type /Catalog /Pages 2 0 R >>",
+            "<< /Type /Pages /Kids [3 0 R 4 0 R] /Count 2 /MediaBox [0 0 200 100] >>",
+            "<< /Type /Page /Parent 2 0 R >>",
+            "<< /Type /Page /Parent 2 0 R /MediaBox [0 0 1 1] >>" };
+        StringBuilder header = new StringBuilder();
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < objects.length; i++) {
+            header.append(i + 1).append(' ').append(body.length()).append(' ');
+            body.append(objects[i]).append('\n');
+        }
+        byte[] objStm = deflate((header.toString() + body).getBytes(StandardCharsets.ISO_8859_1));
+        pdf.stream(5, "/Type /ObjStm /N 4 /First " + header.length() + " /Filter /FlateDecode", objStm);
+        
+        // xref stream w/ fields of 1, 2 and 1 bytes & the png up predictor
+        long xrefOffset = pdf.position();
+        byte[][] rows = {
+            { 0, 0, 0, (byte)0xFF },
+            { 2, 0, 5, 0 },
+            { 2, 0, 5, 1 },
+            { 2, 0, 5, 2 },
+            { 2, 0, 5, 3 },
+            { 1, (byte)(pdf.offsets.get(5) >> 8), (byte)(int)(long)pdf.offsets.get(5), 0 },
+            { 1, (byte)(xrefOffset >> 8), (byte)xrefOffset, 0 } };
+        ByteArrayOutputStream predicted = new ByteArrayOutputStream();
+        byte[] prior = new byte[4];
+        for (byte[] row : rows) {
+            predicted.write(2);
+            for (int i = 0; i < 4; i++) {
+                predicted.write(row[i] - prior[i]);
+            }
+            prior = row;
+        }
+        pdf.stream(6, "/Type /XRef /Size 7 /W [1 2 1] /Root 1 0 R /Filter /FlateDecode"
+            + " /DecodeParms << /Columns 4 /Predictor 12 >>", deflate(predicted.toByteArray()));
+        pdf.write("startxref\n" + xrefOffset + "\n%%EOF\n");
+        byte[] data = pdf.toByteArray();
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            HeaderInfo info = new HeaderInfo();
+            
+            assertThat(PDFHeader.readInfo(input, info), is(true));
+            assertThat(info.getWidth(), is(200.0d));
+            assertThat(info.getHeight(), is(100.0d));
+            assertThat(info.getFrameCount(), is(2));
+        }
+    }
+    
+    @Test
+    public void unknownLengthSpills() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.pdf");
+        
+        // read to its end to find the xref, but not onto the heap
+        try (InputStreamImageInputStream input = new InputStreamImageInputStream(new ByteArrayInputStream(data), 1024)) {
+            HeaderInfo info = new HeaderInfo();
+            
+            assertThat(PDFHeader.readInfo(input, info), is(true));
+            assertThat(info.getWidth(), is(612.0d));
+            assertThat(info.getFrameCount(), is(2));
+            assertThat(input.isSpilled(), is(true));
+        }
+    }
+    
+    @Test
+    public void notPdfOrCorrupt() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.png");
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            assertThat(PDFHeader.readSize(input), is(nullValue()));
+        }
+        
+        // no startxref
+        data = "%PDF-1.4\n1 0 obj\n<< /Type /Catalog >>\nendobj\n%%EOF\n".getBytes(StandardCharsets.ISO_8859_1);
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            assertThat(PDFHeader.readSize(input), is(nullValue()));
+        }
+        
+        // startxref pointing at garbage
+        PDFWriter pdf = new PDFWriter();
+        pdf.object(1, "<< /Type /Catalog /Pages 2 0 R >>");
+        pdf.write("startxref\n9\n%%EOF\n");
+        data = pdf.toByteArray();
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            assertThat(PDFHeader.readSize(input), is(nullValue()));
+        }
+        
+        // hybrid trailer w/ an XRefStm pointing back at its own xref table
+        pdf = new PDFWriter();
+        pdf.object(1, "<< /Type /Catalog /Pages 2 0 R >>");
+        pdf.object(2, "<< /Type /Page /MediaBox [0 0 1 1] >>");
+        long xref = pdf.position();
+        pdf.write("xref\n0 1\n0000000000 65535 f\r\n"
+            + "trailer\n<< /Size 3 /Root 1 0 R /XRefStm " + xref + " >>\n"
+            + "startxref\n" + xref + "\n%%EOF\n");
+        data = pdf.toByteArray();
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            assertThat(PDFHeader.readSize(input), is(nullValue()));
+        }
+        
+        // cyclic page tree
+        pdf = new PDFWriter();
+        pdf.object(1, "<< /Type /Catalog /Pages 2 0 R >>");
+        pdf.object(2, "<< /Type /Pages /Kids [3 0 R] /Count 1 >>");
+        pdf.object(3, "<< /Type /Pages /Kids [2 0 R] /Count 1 >>");
+        data = pdf.xrefTable(1);
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            assertThat(PDFHeader.readSize(input), is(nullValue()));
+        }
+    }
+    
+    static private byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater();
+        deflater.setInput(data);
+        deflater.finish();
+        byte[] buffer = new byte[data.length + 64];
+        int n = deflater.deflate(buffer);
+        deflater.end();
+        return Arrays.copyOf(buffer, n);
+    }
+    
+    /**
+     * Writes just enough of a PDF for the tests (objects, xref tables and
+     * incremental updates w/ a Prev).
+     */
+    static private class PDFWriter {
+        
+        final private ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final private TreeMap<Integer,Long> offsets = new TreeMap<>();
+        private long prevXref = -1;
+        
+        PDFWriter() {
+            write("%PDF-1.7\n");
+        }
+        
+        long position() {
+            return out.size();
+        }
+        
+        void write(String s) {
+            byte[] b = s.getBytes(StandardCharsets.ISO_8859_1);
+            out.write(b, 0, b.length);
+        }
+        
+        void object(int num, String body) {
+            offsets.put(num, position());
+            write(num + " 0 obj\n" + body + "\nendobj\n");
+        }
+        
+        void stream(int num, String dict, byte[] data) {
+            offsets.put(num, position());
+            write(num + " 0 obj\n<< " + dict + " /Length " + data.length + " >>\nstream\r\n");
+            out.write(data, 0, data.length);
+            write("\nendstream\nendobj\n");
+        }
+        
+        /**
+         * Writes an xref table of the objects written since the last one.
+         */
+        byte[] xrefTable(int root) {
+            long xref = position();
+            write("xref\n0 1\n0000000000 65535 f\r\n");
+            for (Map.Entry<Integer,Long> entry : offsets.entrySet()) {
+                write(entry.getKey() + " 1\n" + String.format("%010d 00000 n\r\n", entry.getValue()));
+            }
+            write("trailer\n<< /Size " + (offsets.isEmpty() ? 1 : offsets.lastKey() + 1)
+                + " /Root " + root + " 0 R" + (prevXref >= 0 ? " /Prev " + prevXref : "") + " >>\n");
+            write("startxref\n" + xref + "\n%%EOF\n");
+            prevXref = xref;
+            offsets.clear();
+            return toByteArray();
+        }
+        
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+        
+    }
+    
+    /**
+     * Counts the bytes actually read (as opposed to skipped over).
+     */
+    static private class CountingStream extends ImageInputStreamImpl {
+        
+        final private ByteArrayImageInputStream input;
+        private long bytesRead;
+        
+        CountingStream(byte[] data) {
+            this.input = new ByteArrayImageInputStream(data);
+        }
+        
+        @Override
+        public int read() throws IOException {
+            input.seek(streamPos);
+            int b = input.read();
+            if (b >= 0) {
+                streamPos++;
+                bytesRead++;
+            }
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            input.seek(streamPos);
+            int n = input.read(b, off, len);
+            if (n > 0) {
+                streamPos += n;
+                bytesRead += n;
+            }
+            return n;
+        }
+        
+        @Override
+        public long length() {
+            return input.length();
+        }
+        
+    }
+    
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class PerceptualHasherTest {
+    
+    /**
+     * Black to white from left to right w/ a few gray shapes, drawn in a
+     * 100x100 space scaled to the size.
+     */
+    static private BufferedImage image(int width, int height, int type) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.scale(width / 100.0d, height / 100.0d);
+        g.setPaint(new GradientPaint(0, 0, Color.BLACK, 100, 0, Color.WHITE));
+        g.fillRect(0, 0, 100, 100);
+        g.setColor(Color.DARK_GRAY);
+        g.fillRect(10, 10, 30, 40);
+        g.setColor(Color.LIGHT_GRAY);
+        g.fillOval(50, 55, 40, 35);
+        g.setColor(Color.GRAY);
+        g.fillRect(20, 70, 15, 20);
+        g.dispose();
+        return image;
+    }
+    
+    @Test
+    public void differenceHashGradient() {
+        BufferedImage image = new BufferedImage(90, 80, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, Color.BLACK, 90, 0, Color.WHITE));
+        g.fillRect(0, 0, 90, 80);
+        g.dispose();
+        
+        // every cell is brighter than its left neighbor
+        assertThat(new PerceptualHasher().differenceHash(image), is(-1L));
+    }
+    
+    @Test
+    public void averageHashHalves() {
+        BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, 64, 32);
+        g.dispose();
+        
+        // top half bright, bottom half dark
+        assertThat(new PerceptualHasher().averageHash(image), is(0xFFFFFFFF00000000L));
+    }
+    
+    @Test
+    public void transparentIsWhite() {
+        BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 32, 64, 32);
+        g.dispose();
+        
+        assertThat(new PerceptualHasher().averageHash(image), is(0xFFFFFFFF00000000L));
+    }
+    
+    @Test
+    public void similarAcrossSizes() {
+        PerceptualHasher hasher = new PerceptualHasher();
+        
+        BufferedImage large = image(640, 480, BufferedImage.TYPE_INT_RGB);
+        BufferedImage small = image(100, 75, BufferedImage.TYPE_3BYTE_BGR);
+        
+        assertTrue(Long.bitCount(hasher.perceptualHash(large) ^ hasher.perceptualHash(small)) <= 4);
+        assertTrue(Long.bitCount(hasher.differenceHash(large) ^ hasher.differenceHash(small)) <= 4);
+        assertTrue(Long.bitCount(hasher.averageHash(large) ^ hasher.averageHash(small)) <= 4);
+    }
+    
+    @Test
+    public void differentImages() {
+        PerceptualHasher hasher = new PerceptualHasher();
+        
+        BufferedImage image = image(320, 240, BufferedImage.TYPE_INT_RGB);
+        
+        // flipped horizontally
+        BufferedImage flipped = new BufferedImage(320, 240, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = flipped.createGraphics();
+        g.drawImage(image, 320, 0, -320, 240, null);
+        g.dispose();
+        
+        assertTrue(Long.bitCount(hasher.perceptualHash(image) ^ hasher.perceptualHash(flipped)) > 16);
+        assertTrue(Long.bitCount(hasher.differenceHash(image) ^ hasher.differenceHash(flipped)) > 16);
+    }
+    
+    @Test
+    public void smallerThanGrid() {
+        PerceptualHasher hasher = new PerceptualHasher();
+        
+        BufferedImage tiny = image(5, 3, BufferedImage.TYPE_INT_RGB);
+        
+        // every cell is sampled from some pixel, so hashing is repeatable
+        long hash = hasher.perceptualHash(tiny);
+        hasher.averageHash(image(640, 480, BufferedImage.TYPE_INT_RGB));
+        assertThat(hasher.perceptualHash(tiny), is(hash));
+        assertThat(hasher.differenceHash(tiny), not(is(hasher.averageHash(tiny))));
+    }
+    
+}
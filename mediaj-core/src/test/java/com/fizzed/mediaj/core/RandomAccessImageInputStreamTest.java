@@ -0,0 +1,111 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import com.fizzed.crux.util.Size2D;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+public class RandomAccessImageInputStreamTest {
+ 
+    private final Path file = Paths.get("src/test/resources/fixtures/sample1.jpg");
+    
+    @Test
+    public void readAndSeek() throws IOException {
+        byte[] expected = Files.readAllBytes(file);
+        
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+                RandomAccessImageInputStream input = new RandomAccessImageInputStream(channel, false, 16)) {
+            
+            assertThat(input.length(), is((long)expected.length));
+            assertThat(input.read(), is(0xff));
+            assertThat(input.read(), is(0xd8));
+            
+            // across window boundaries
+            byte[] buf = new byte[40];
+            input.readFully(buf);
+            assertThat(buf, is(Arrays.copyOfRange(expected, 2, 42)));
+            
+            // large read bypasses the window
+            input.seek(1000);
+            buf = new byte[100];
+            input.readFully(buf);
+            assertThat(buf, is(Arrays.copyOfRange(expected, 1000, 1100)));
+            
+            // backwards
+            input.seek(3);
+            assertThat(input.read(), is(expected[3] & 0xff));
+            
+            // end of file
+            input.seek(expected.length - 1);
+            assertThat(input.read(), is(expected[expected.length - 1] & 0xff));
+            assertThat(input.read(), is(-1));
+            assertThat(input.read(buf, 0, buf.length), is(-1));
+        }
+    }
+    
+    @Test
+    public void readSize() throws IOException {
+        try (RandomAccessImageInputStream input = new RandomAccessImageInputStream(FileChannel.open(file, StandardOpenOption.READ))) {
+            Size2D size = JPEGHeader.readSize(input);
+            
+            assertThat(size.getWidth(), is(1000.0d));
+            assertThat(size.getHeight(), is(672.0d));
+        }
+    }
+    
+    @Test
+    public void coalescesSourceReads() throws IOException {
+        byte[] data = Files.readAllBytes(file);
+        RandomAccessImageInputStream.Source source = new RandomAccessImageInputStream.Source() {
+            @Override
+            public long size() {
+                return data.length;
+            }
+            
+            @Override
+            public int readAt(long position, ByteBuffer buffer) {
+                if (position >= data.length) {
+                    return -1;
+                }
+                int length = (int)Math.min(buffer.remaining(), data.length - position);
+                buffer.put(data, (int)position, length);
+                return length;
+            }
+        };
+        
+        try (RandomAccessImageInputStream input = new RandomAccessImageInputStream(source, 64)) {
+            input.readFully(new byte[10]);
+            input.readFully(new byte[10]);
+            input.seek(20000);
+            input.read();
+            
+            assertThat(input.getReadCount(), is(2));
+            assertThat(input.getBytesFetched(), is(128L));
+            assertThat(input.length(), is((long)data.length));
+        }
+    }
+    
+}
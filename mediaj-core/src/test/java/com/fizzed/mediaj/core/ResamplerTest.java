@@ -0,0 +1,102 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class ResamplerTest {
+ 
+    @Test
+    public void fit() {
+        assertThat(Resampler.fit(4000, 3000, 200, 200), is(new Dimension(200, 150)));
+        assertThat(Resampler.fit(3000, 4000, 200, 200), is(new Dimension(150, 200)));
+        assertThat(Resampler.fit(1000, 10, 100, 100), is(new Dimension(100, 1)));
+        // never upscaled
+        assertThat(Resampler.fit(50, 40, 200, 200), is(new Dimension(50, 40)));
+        // at least 1x1
+        assertThat(Resampler.fit(10000, 1, 100, 100), is(new Dimension(100, 1)));
+    }
+    
+    @Test
+    public void cover() {
+        // wider than the box: the center columns
+        assertThat(Resampler.cover(300, 100, 50, 50), is(new Rectangle(100, 0, 100, 100)));
+        // taller than the box: the center rows
+        assertThat(Resampler.cover(100, 300, 100, 50), is(new Rectangle(0, 125, 100, 50)));
+        // same aspect ratio: everything
+        assertThat(Resampler.cover(400, 300, 40, 30), is(new Rectangle(0, 0, 400, 300)));
+    }
+    
+    @Test
+    public void subsampling() {
+        // decodes at least 2x the target
+        assertThat(Resampler.subsampling(8000, 6000, 200, 150), is(20));
+        assertThat(Resampler.subsampling(8000, 6000, 150, 150), is(20));
+        assertThat(Resampler.subsampling(799, 600, 200, 150), is(1));
+        assertThat(Resampler.subsampling(50, 40, 50, 40), is(1));
+        
+        // and less than 4x
+        for (int width = 200; width < 5000; width += 37) {
+            int subsampling = Resampler.subsampling(width, width, 100, 100);
+            int decoded = (width + subsampling - 1) / subsampling;
+            assertTrue(decoded >= 200 || subsampling == 1);
+            assertTrue(decoded < 400);
+        }
+    }
+    
+    @Test
+    public void scale() {
+        BufferedImage image = new BufferedImage(1000, 500, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.RED);
+        g.fillRect(0, 0, 500, 500);
+        g.setColor(Color.BLUE);
+        g.fillRect(500, 0, 500, 500);
+        g.dispose();
+        
+        BufferedImage scaled = Resampler.scale(image, 100, 50);
+        
+        assertThat(scaled.getWidth(), is(100));
+        assertThat(scaled.getHeight(), is(50));
+        assertThat(scaled.getType(), is(BufferedImage.TYPE_INT_RGB));
+        assertThat(scaled.getRGB(10, 25), is(Color.RED.getRGB()));
+        assertThat(scaled.getRGB(90, 25), is(Color.BLUE.getRGB()));
+        
+        // already the size and type
+        assertThat(Resampler.scale(scaled, 100, 50), is(sameInstance(scaled)));
+    }
+    
+    @Test
+    public void scaleKeepsAlpha() {
+        BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_4BYTE_ABGR);
+        
+        BufferedImage scaled = Resampler.scale(image, 16, 16);
+        
+        assertThat(scaled.getType(), is(BufferedImage.TYPE_INT_ARGB));
+        // transparent stays transparent (not blended onto black)
+        assertThat(scaled.getRGB(8, 8) >>> 24, is(0));
+    }
+    
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+public class SVGRootScannerTest {
+    
+    static private byte[] utf8(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+    
+    static private Map<String,String> attrs(String s) {
+        byte[] data = utf8(s);
+        return SVGRootScanner.readRootAttributes(data, 0, data.length);
+    }
+    
+    @Test
+    public void indexOfRoot() {
+        byte[] data = utf8("\uFEFF<?xml version=\"1.0\"?>\n<!-- <svg> -->\n"
+            + "<!DOCTYPE svg PUBLIC \"-//W3C//DTD SVG 1.1//EN\" [ <!ENTITY a \"b\"> ]>\n<svg width=\"1\">");
+        
+        int i = SVGRootScanner.indexOfRoot(data, 0, data.length);
+        
+        assertThat(new String(data, i, 4, StandardCharsets.UTF_8), is("<svg"));
+        assertThat(SVGRootScanner.indexOfRootEnd(data, 0, data.length), is(data.length));
+    }
+    
+    @Test
+    public void indexOfRootNotSvg() {
+        byte[] data = utf8("<?xml version=\"1.0\"?><html><svg></svg></html>");
+        
+        assertThat(SVGRootScanner.indexOfRoot(data, 0, data.length), is(-1));
+        
+        data = utf8("<svgfoo/>");
+        
+        assertThat(SVGRootScanner.indexOfRoot(data, 0, data.length), is(-1));
+    }
+    
+    @Test
+    public void indexOfRootEndIncomplete() {
+        byte[] data = utf8("<svg width=\"1\" title='a > b'");
+        
+        assertThat(SVGRootScanner.indexOfRoot(data, 0, data.length), is(0));
+        assertThat(SVGRootScanner.indexOfRootEnd(data, 0, data.length), is(-1));
+    }
+    
+    @Test
+    public void readRootAttributes() {
+        Map<String,String> attrs = attrs("<svg xmlns=\"http://www.w3.org/2000/svg\"\n"
+            + "  xmlns:xlink='http://www.w3.org/1999/xlink' width = \"476px\" HEIGHT='10'\tviewBox=\"0 0 1 2\"><g/></svg>");
+        
+        assertThat(attrs.size(), is(3));
+        assertThat(attrs.get("width"), is("476px"));
+        assertThat(attrs.get("height"), is("10"));
+        assertThat(attrs.get("viewbox"), is("0 0 1 2"));
+    }
+    
+    @Test
+    public void readRootAttributesSelfClosing() {
+        Map<String,String> attrs = attrs("<svg a:width=\"5\"/>");
+        
+        assertThat(attrs.get("width"), is("5"));
+        
+        assertThat(attrs("<svg/>").isEmpty(), is(true));
+    }
+    
+    @Test
+    public void readRootAttributesNeedsParser() {
+        assertThat(attrs("<svg width=\"&w;\">"), is(nullValue()));
+        assertThat(attrs("<svg width>"), is(nullValue()));
+        assertThat(attrs("<svg width=1>"), is(nullValue()));
+        assertThat(attrs("<svg:svg width=\"1\">"), is(nullValue()));
+        assertThat(attrs("<svg width=\"1"), is(nullValue()));
+    }
+    
+}
@@ -18,6 +18,7 @@ package com.fizzed.mediaj.core;
 import com.fizzed.crux.util.Resources;
 import com.fizzed.crux.util.Size2D;
 import com.fizzed.crux.util.StopWatch;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import org.apache.commons.io.input.CountingInputStream;
@@ -81,4 +82,80 @@ public class StreamingSVGDocumentTest {
         assertThat(size.getHeight(), is(394.7d));
     }
     
-}
\ No newline at end of file
+    @Test
+    public void readSize() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.svg");
+        
+        Size2D size = StreamingSVGDocument.readSize(data, 0, data.length);
+        
+        assertThat(size.getWidth(), is(472.0d));
+        assertThat(size.getHeight(), is(392.0d));
+        
+        InputStream input = Resources.newInputStream("/fixtures/sample3-no-wh.svg");
+        
+        size = StreamingSVGDocument.readSize(input);
+        
+        assertThat(size.getWidth(), is(473.3d));
+        assertThat(size.getHeight(), is(394.7d));
+    }
+    
+    @Test
+    public void readSizeFallsBackToParser() throws IOException {
+        // prefixed root element is beyond the scanner
+        byte[] data = ("<?xml version=\"1.0\"?>\n"
+            + "<s:svg xmlns:s=\"http://www.w3.org/2000/svg\" width=\"20\" height=\"10\"></s:svg>").getBytes("UTF-8");
+        
+        Size2D size = StreamingSVGDocument.readSize(data, 0, data.length);
+        
+        assertThat(size.getWidth(), is(20.0d));
+        assertThat(size.getHeight(), is(10.0d));
+        
+        size = StreamingSVGDocument.readSize(new ByteArrayInputStream(data));
+        
+        assertThat(size.getWidth(), is(20.0d));
+        assertThat(size.getHeight(), is(10.0d));
+    }
+    
+    @Test
+    public void parseSize() {
+        assertThat(StreamingSVGDocument.parseSize("476"), is(476.0d));
+        assertThat(StreamingSVGDocument.parseSize(" 576px "), is(576.0d));
+        assertThat(StreamingSVGDocument.parseSize("576.5 pt"), is(576.5d));
+        assertThat(StreamingSVGDocument.parseSize("1e3"), is(1000.0d));
+        assertThat(StreamingSVGDocument.parseSize("2em"), is(2.0d));
+        assertThat(StreamingSVGDocument.parseSize(".5"), is(0.5d));
+        // invalid or relative values are never an exception
+        assertThat(StreamingSVGDocument.parseSize("auto"), is(-1.0d));
+        assertThat(StreamingSVGDocument.parseSize("1e3%"), is(-1.0d));
+        assertThat(StreamingSVGDocument.parseSize("100%"), is(-1.0d));
+        assertThat(StreamingSVGDocument.parseSize("--1"), is(-1.0d));
+        assertThat(StreamingSVGDocument.parseSize("1.2.3"), is(-1.0d));
+        assertThat(StreamingSVGDocument.parseSize("1e999"), is(-1.0d));
+        assertThat(StreamingSVGDocument.parseSize("NaN"), is(-1.0d));
+        assertThat(StreamingSVGDocument.parseSize("\u0661\u0662"), is(-1.0d));
+        assertThat(StreamingSVGDocument.parseSize(""), is(-1.0d));
+    }
+    
+    @Test
+    public void parseViewBox() {
+        assertThat(StreamingSVGDocument.parseViewBox("0 0 472 392")[2], is(472.0d));
+        assertThat(StreamingSVGDocument.parseViewBox(" -1,-2, 472.3\t392.7 ")[3], is(392.7d));
+        assertThat(StreamingSVGDocument.parseViewBox("0 0 1e2 5")[2], is(100.0d));
+        assertThat(StreamingSVGDocument.parseViewBox("0 0 472"), is(nullValue()));
+        assertThat(StreamingSVGDocument.parseViewBox("0 0 472 392 1"), is(nullValue()));
+        assertThat(StreamingSVGDocument.parseViewBox("0 0 472px 392"), is(nullValue()));
+        assertThat(StreamingSVGDocument.parseViewBox("0 0 auto 392"), is(nullValue()));
+        assertThat(StreamingSVGDocument.parseViewBox("0,,0,1,2"), is(nullValue()));
+        assertThat(StreamingSVGDocument.parseViewBox("00 1 2"), is(nullValue()));
+    }
+    
+    @Test
+    public void toSizeFallsBackToViewBox() {
+        Size2D size = StreamingSVGDocument.toSize("100%", "auto", "0 0 472 392");
+        
+        assertThat(size.getWidth(), is(472.0d));
+        assertThat(size.getHeight(), is(392.0d));
+        assertThat(StreamingSVGDocument.toSize("auto", "1e3%", "junk"), is(nullValue()));
+    }
+    
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.core;
+
+import com.fizzed.crux.util.Base16;
+import com.fizzed.crux.util.Resources;
+import com.fizzed.crux.util.Size2D;
+import java.io.IOException;
+import javax.imageio.stream.ImageInputStream;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+public class WebPHeaderTest {
+ 
+    @Test
+    public void readSizeLossless() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.webp");
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            Size2D size = WebPHeader.readSize(input);
+            
+            assertThat(size.getWidth(), is(400.0d));
+            assertThat(size.getHeight(), is(301.0d));
+        }
+    }
+    
+    @Test
+    public void readSizeExtended() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample2.webp");
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            Size2D size = WebPHeader.readSize(input);
+            
+            assertThat(size.getWidth(), is(400.0d));
+            assertThat(size.getHeight(), is(301.0d));
+        }
+    }
+    
+    @Test
+    public void readSizeLossy() throws IOException {
+        // RIFF header + VP8 chunk w/ key frame tag, start code & 320x240
+        byte[] data = Base16.decode("52494646000000005745425056503820"
+            + "000000000000009d012a4001f000");
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            Size2D size = WebPHeader.readSize(input);
+            
+            assertThat(size.getWidth(), is(320.0d));
+            assertThat(size.getHeight(), is(240.0d));
+        }
+    }
+    
+    @Test
+    public void readSizeNotWebp() throws IOException {
+        byte[] data = Resources.readAllBytes("/fixtures/sample1.gif");
+        
+        try (ImageInputStream input = new ByteArrayImageInputStream(data)) {
+            assertThat(WebPHeader.readSize(input), is(nullValue()));
+        }
+    }
+    
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.fuzz;
+
+import com.fizzed.crux.util.Resources;
+import com.fizzed.mediaj.SampleImages;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import javax.imageio.ImageIO;
+
+/**
+ * The seed corpus: the fixtures shared from mediaj-core's tests plus a small
+ * generated BMP so the ImageIO fallback is fuzzed too, a JPEG with an EXIF
+ * thumbnail since none of the fixtures have one and a hybrid PDF whose
+ * XRefStm points back at its own xref table.
+ *
+ * @author jjlauer
+ */
+public class Corpus {
+
+    static public final String[] FIXTURES = {
+        "sample1.jpg", "sample2.jpg", "sample1.png", "sample1.gif", "sample1.webp",
+        "sample2.webp", "sample1.svg", "sample3-no-wh.svg", "sample1.pdf", "sample1.txt" };
+
+    static public List<byte[]> load() throws IOException {
+        List<byte[]> corpus = new ArrayList<>();
+        for (String fixture : FIXTURES) {
+            corpus.add(Resources.readAllBytes("/fixtures/" + fixture));
+        }
+        corpus.add(generate("bmp"));
+        corpus.add(SampleImages.withExifThumbnail(generate("jpg"), generate("jpg")));
+        corpus.add(generateSelfXrefStm());
+        return corpus;
+    }
+
+    static public List<byte[]> load(
+            String... fixtures) throws IOException {
+
+        List<byte[]> corpus = new ArrayList<>();
+        for (String fixture : fixtures) {
+            corpus.add(Resources.readAllBytes("/fixtures/" + fixture));
+        }
+        return corpus;
+    }
+
+    static private byte[] generate(
+            String format) throws IOException {
+
+        BufferedImage image = new BufferedImage(32, 16, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+
+    static private byte[] generateSelfXrefStm() {
+        String body = "%PDF-1.7\n"
+            + "1 0 obj\n<< /Type /Catalog /Pages 2 0 R >>\nendobj\n"
+            + "2 0 obj\n<< /Type /Page /MediaBox [0 0 1 1] >>\nendobj\n";
+        int xref = body.length();
+        String pdf = body
+            + "xref\n0 1\n0000000000 65535 f\r\n"
+            + "trailer\n<< /Size 3 /Root 1 0 R /XRefStm " + xref + " >>\n"
+            + "startxref\n" + xref + "\n%%EOF\n";
+        return pdf.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+}
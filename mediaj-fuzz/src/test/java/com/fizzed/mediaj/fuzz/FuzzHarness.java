@@ -0,0 +1,219 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.fuzz;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs a target over a corpus of seeds and their mutations, failing on the
+ * first input that throws anything other than an IOException (the contract
+ * of every probe for malformed input), exceeds the time limit or allocates
+ * more than the allocation limit.  The offending input is written to the
+ * failures directory so it can be replayed.
+ *
+ * Targets run on a dedicated (daemon) thread so a stalled parser is detected
+ * by the time limit rather than hanging the build, and so its allocations can
+ * be measured w/ the per-thread allocation counter (where the JVM has one).
+ *
+ * @author jjlauer
+ */
+public class FuzzHarness implements AutoCloseable {
+
+    public interface Target {
+
+        void accept(byte[] data) throws Exception;
+
+    }
+
+    static public int iterations() {
+        return Integer.getInteger("fuzz.iterations", 300);
+    }
+
+    static public long seed() {
+        return Long.getLong("fuzz.seed", 1L);
+    }
+
+    final private String name;
+    final private long maxMillis;
+    final private long maxAllocatedBytes;
+    final private long maxAllocatedBytesPerInputByte;
+    final private ExecutorService executor;
+
+    public FuzzHarness(
+            String name,
+            long maxMillis,
+            long maxAllocatedBytes,
+            long maxAllocatedBytesPerInputByte) {
+
+        this.name = name;
+        this.maxMillis = maxMillis;
+        this.maxAllocatedBytes = maxAllocatedBytes;
+        this.maxAllocatedBytesPerInputByte = maxAllocatedBytesPerInputByte;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "fuzz-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Runs every seed and then the given number of mutations of each.
+     *
+     * @param corpus The seeds
+     * @param iterations The mutations per seed
+     * @param seed The random seed of the mutator
+     * @param target The target
+     * @return The number of inputs run
+     * @throws Exception If an input failed
+     */
+    public int run(
+            List<byte[]> corpus,
+            int iterations,
+            long seed,
+            Target target) throws Exception {
+
+        // warm up (class loading, ImageIO registry, jit) outside the limits
+        for (byte[] data : corpus) {
+            runOnce(data, target, false);
+        }
+
+        Mutator mutator = new Mutator(seed, corpus);
+        int count = 0;
+        for (byte[] data : corpus) {
+            runOnce(data, target, true);
+            count++;
+            for (int i = 0; i < iterations; i++) {
+                runOnce(mutator.mutate(data), target, true);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void runOnce(
+            byte[] data,
+            Target target,
+            boolean enforceLimits) throws Exception {
+
+        Future<long[]> future = executor.submit(() -> measure(data, target));
+
+        long[] stats;
+        try {
+            // a generous bound on waiting so gc pauses don't fail the run,
+            // the measured time is checked against the real limit below
+            stats = future.get(Math.max(maxMillis * 10, 5000), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw failure("stalled (no result after " + Math.max(maxMillis * 10, 5000) + " ms)", data, null);
+        } catch (ExecutionException e) {
+            throw failure("threw " + e.getCause(), data, e.getCause());
+        }
+
+        if (!enforceLimits) {
+            return;
+        }
+
+        long millis = TimeUnit.NANOSECONDS.toMillis(stats[0]);
+        long allocated = stats[1];
+        if (millis > maxMillis) {
+            // one retry since a single gc pause or jit compile can exceed it
+            stats = executor.submit(() -> measure(data, target)).get();
+            millis = TimeUnit.NANOSECONDS.toMillis(stats[0]);
+            if (millis > maxMillis) {
+                throw failure("took " + millis + " ms (max " + maxMillis + " ms)", data, null);
+            }
+            if (stats[1] >= 0) {
+                allocated = stats[1];
+            }
+        }
+
+        long maxAllocated = maxAllocatedBytes + maxAllocatedBytesPerInputByte * data.length;
+        if (allocated > maxAllocated) {
+            throw failure("allocated " + allocated + " bytes (max " + maxAllocated + ")", data, null);
+        }
+    }
+
+    /**
+     * Runs the target on the calling thread.
+     *
+     * @return The elapsed nanos and the bytes allocated (or -1 if the JVM
+     *      can't measure it)
+     */
+    static private long[] measure(
+            byte[] data,
+            Target target) throws Exception {
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long allocatedBefore = allocatedBytes(threads);
+        long start = System.nanoTime();
+        try {
+            target.accept(data);
+        } catch (IOException e) {
+            // malformed input is expected to be reported this way
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = allocatedBefore >= 0 ? allocatedBytes(threads) - allocatedBefore : -1;
+        return new long[] { elapsed, allocated };
+    }
+
+    static private long allocatedBytes(
+            ThreadMXBean threads) {
+
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean)threads;
+            if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled()) {
+                return hotspot.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    private AssertionError failure(
+            String message,
+            byte[] data,
+            Throwable cause) throws IOException {
+
+        Path dir = Paths.get(System.getProperty("fuzz.failures", "target/fuzz-failures"));
+        Files.createDirectories(dir);
+        Path file = dir.resolve(name + "-" + Integer.toHexString(Arrays.hashCode(data)) + ".bin");
+        Files.write(file, data);
+
+        AssertionError error = new AssertionError(name + " " + message + " for input " + file);
+        if (cause != null) {
+            error.initCause(cause);
+        }
+        return error;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.fuzz;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic structure-unaware mutations of seed inputs (in the spirit of
+ * libFuzzer/Jazzer's default mutators): bit flips, interesting values,
+ * truncation, deletion, duplication, insertion and splicing with another
+ * seed.  The same random seed always produces the same inputs so any
+ * failure is reproducible.
+ *
+ * @author jjlauer
+ */
+public class Mutator {
+
+    static private final int[] INTERESTING_8 = { 0x00, 0x01, 0x7F, 0x80, 0xFF };
+    static private final int[] INTERESTING_32 = { 0, 1, -1, 0x7F, 0xFF, 0x7FFF, 0x8000, 0xFFFF,
+        0x7FFFFFFF, 0x80000000, 0x10000, 0x100000 };
+
+    final private Random random;
+    final private List<byte[]> corpus;
+
+    public Mutator(
+            long seed,
+            List<byte[]> corpus) {
+
+        this.random = new Random(seed);
+        this.corpus = corpus;
+    }
+
+    /**
+     * Creates a mutated copy of the input with 1 to 4 mutations stacked.
+     *
+     * @param input The input to mutate (not modified)
+     * @return The mutated copy
+     */
+    public byte[] mutate(
+            byte[] input) {
+
+        byte[] data = input;
+        int count = 1 + random.nextInt(4);
+        for (int i = 0; i < count; i++) {
+            data = mutateOnce(data);
+        }
+        return data;
+    }
+
+    private byte[] mutateOnce(
+            byte[] input) {
+
+        if (input.length == 0) {
+            return new byte[] { (byte)random.nextInt(256) };
+        }
+
+        byte[] data = Arrays.copyOf(input, input.length);
+        // bias towards the headers, where the parsers spend their time
+        int at = random.nextBoolean() ? random.nextInt(Math.min(data.length, 64)) : random.nextInt(data.length);
+
+        switch (random.nextInt(9)) {
+            case 0:
+                data[at] ^= 1 << random.nextInt(8);
+                return data;
+            case 1:
+                data[at] = (byte)INTERESTING_8[random.nextInt(INTERESTING_8.length)];
+                return data;
+            case 2: {
+                int value = INTERESTING_32[random.nextInt(INTERESTING_32.length)];
+                int width = random.nextBoolean() ? 2 : 4;
+                boolean bigEndian = random.nextBoolean();
+                for (int i = 0; i < width && at + i < data.length; i++) {
+                    int shift = 8 * (bigEndian ? width - 1 - i : i);
+                    data[at + i] = (byte)(value >>> shift);
+                }
+                return data;
+            }
+            case 3:
+                data[at] = (byte)random.nextInt(256);
+                return data;
+            case 4:
+                // truncate
+                return Arrays.copyOf(data, at);
+            case 5: {
+                // delete a range
+                int length = 1 + random.nextInt(Math.min(32, data.length - at));
+                byte[] out = new byte[data.length - length];
+                System.arraycopy(data, 0, out, 0, at);
+                System.arraycopy(data, at + length, out, at, data.length - at - length);
+                return out;
+            }
+            case 6: {
+                // duplicate a range in place
+                int length = 1 + random.nextInt(Math.min(32, data.length - at));
+                byte[] out = new byte[data.length + length];
+                System.arraycopy(data, 0, out, 0, at + length);
+                System.arraycopy(data, at, out, at + length, data.length - at);
+                return out;
+            }
+            case 7: {
+                // insert random bytes
+                int length = 1 + random.nextInt(16);
+                byte[] out = new byte[data.length + length];
+                System.arraycopy(data, 0, out, 0, at);
+                for (int i = 0; i < length; i++) {
+                    out[at + i] = (byte)random.nextInt(256);
+                }
+                System.arraycopy(data, at, out, at + length, data.length - at);
+                return out;
+            }
+            default: {
+                // splice the head of this input onto the tail of another seed
+                byte[] other = corpus.get(random.nextInt(corpus.size()));
+                int from = random.nextInt(other.length + 1);
+                byte[] out = new byte[at + other.length - from];
+                System.arraycopy(data, 0, out, 0, at);
+                System.arraycopy(other, from, out, at, other.length - from);
+                return out;
+            }
+        }
+    }
+
+}
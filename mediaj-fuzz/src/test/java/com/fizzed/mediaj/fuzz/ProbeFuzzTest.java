@@ -0,0 +1,156 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.fuzz;
+
+import com.fizzed.crux.mediatype.KnownMediaType;
+import com.fizzed.mediaj.ImageProbeSession;
+import com.fizzed.mediaj.ImageProber;
+import com.fizzed.mediaj.MetadataStripper;
+import com.fizzed.mediaj.ProbeOptions;
+import com.fizzed.mediaj.RandomAccessSource;
+import com.fizzed.mediaj.ValidationResult;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Fuzzes every ImageProber entry point (and the incremental session) w/
+ * mutations of the fixtures.  Every input must either succeed or throw an
+ * IOException within the time and allocation limits.
+ */
+public class ProbeFuzzTest {
+
+    // per input limits
+    static private final long MAX_MILLIS = 250L;
+    static private final long MAX_ALLOCATED_BYTES = 4L * 1024 * 1024;
+    static private final long MAX_ALLOCATED_BYTES_PER_INPUT_BYTE = 4L;
+
+    static private List<byte[]> corpus;
+
+    @BeforeClass
+    static public void loadCorpus() throws IOException {
+        corpus = Corpus.load();
+    }
+
+    private void fuzz(
+            String name,
+            FuzzHarness.Target target) throws Exception {
+
+        try (FuzzHarness harness = new FuzzHarness(name, MAX_MILLIS, MAX_ALLOCATED_BYTES, MAX_ALLOCATED_BYTES_PER_INPUT_BYTE)) {
+            int count = harness.run(corpus, FuzzHarness.iterations(), FuzzHarness.seed(), target);
+            assertThat(count, is(corpus.size() * (FuzzHarness.iterations() + 1)));
+        }
+    }
+
+    @Test
+    public void probeMediaType() throws Exception {
+        fuzz("probeMediaType", data -> ImageProber.probeMediaType(data));
+    }
+
+    @Test
+    public void probe() throws Exception {
+        fuzz("probe", data -> ImageProber.probe(data));
+    }
+
+    @Test
+    public void probeInputStream() throws Exception {
+        fuzz("probeInputStream", data -> ImageProber.probe(new ByteArrayInputStream(data)));
+    }
+
+    @Test
+    public void probeBudgeted() throws Exception {
+        ProbeOptions options = ProbeOptions.builder().maxBytesRead(512).build();
+
+        fuzz("probeBudgeted", data -> ImageProber.probe(data, options));
+    }
+
+    @Test
+    public void probeRandomAccess() throws Exception {
+        fuzz("probeRandomAccess", data -> ImageProber.probe(RandomAccessSource.of(data)));
+    }
+
+    @Test
+    public void probeSize() throws Exception {
+        // every parser regardless of what the data really is
+        fuzz("probeSize", data -> {
+            for (KnownMediaType mediaType : new KnownMediaType[] { KnownMediaType.IMAGE_JPEG,
+                    KnownMediaType.IMAGE_PNG, KnownMediaType.IMAGE_GIF, KnownMediaType.IMAGE_WEBP,
+                    KnownMediaType.IMAGE_SVG_XML, KnownMediaType.APPLICATION_PDF, KnownMediaType.IMAGE_BMP }) {
+                try {
+                    ImageProber.probeSize(mediaType, data);
+                } catch (IOException e) {
+                    // expected
+                }
+            }
+        });
+    }
+
+    @Test
+    public void probeInfo() throws Exception {
+        fuzz("probeInfo", data -> ImageProber.probeInfo(data));
+    }
+
+    @Test
+    public void extractEmbeddedThumbnail() throws Exception {
+        fuzz("extractEmbeddedThumbnail", data -> ImageProber.extractEmbeddedThumbnail(data));
+    }
+
+    @Test
+    public void validate() throws Exception {
+        fuzz("validate", data -> {
+            ValidationResult result = ImageProber.validate(data);
+            // streaming it must reach the same verdict
+            ValidationResult streamed = ImageProber.validate(new ByteArrayInputStream(data));
+            assertThat(streamed.getStatus(), is(result.getStatus()));
+            assertThat(streamed.getOffset(), is(result.getOffset()));
+        });
+    }
+
+    @Test
+    public void stripMetadata() throws Exception {
+        MetadataStripper stripper = MetadataStripper.builder().build();
+        fuzz("stripMetadata", data -> {
+            byte[] stripped;
+            try {
+                stripped = stripper.strip(data);
+            } catch (IOException e) {
+                return;     // expected
+            }
+            // stripping must never break an intact image
+            if (ImageProber.validate(data).isValid()) {
+                assertThat(ImageProber.validate(stripped).isValid(), is(true));
+            }
+        });
+    }
+
+    @Test
+    public void session() throws Exception {
+        fuzz("session", data -> {
+            ImageProbeSession session = new ImageProbeSession();
+            for (int i = 0; i < data.length; i += 100) {
+                if (session.offer(data, i, Math.min(100, data.length - i)) == ImageProbeSession.Status.COMPLETE) {
+                    break;
+                }
+            }
+            session.finish();
+        });
+    }
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.fuzz;
+
+import com.fizzed.crux.util.Size2D;
+import com.fizzed.mediaj.core.StreamingSVGDocument;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * Property based test of svg size parsing: root tags w/ width, height and
+ * viewBox values generated from numbers, units and junk must either produce
+ * a positive, finite size or none, but never throw anything other than an
+ * IOException.  Both the scanner fast path and the StAX path are covered
+ * (the latter by making the scanner bail out w/ an entity in another
+ * attribute).
+ */
+public class SVGSizeFuzzTest {
+
+    static private final String[] NUMBERS = { "0", "1", "-1", "476", "576.5", ".5", "5.", "-.", ".",
+        "1e3", "1E-2", "1e", "1e+", "1e999", "-1e999", "1e-999", "00012", "+3", "--1", "1.2.3",
+        "NaN", "Infinity", "-Infinity", "0x10", "9999999999999999999999", "" };
+    static private final String[] UNITS = { "", "px", "pt", "mm", "cm", "in", "em", "%", " ", "  px",
+        "auto", "d", "f", "e", "x" };
+    static private final String[] JUNK = { "auto", "inherit", "none", "", " ", ",", "1e3%", "100%",
+        "calc(100% - 1px)", "\u0661\u0662", "\uFF11" };
+    static private final String[] SEPARATORS = { " ", ",", ", ", "  ", "\t", "\n", ",,", "" };
+
+    final private Random random = new Random(FuzzHarness.seed());
+
+    private String length() {
+        if (random.nextInt(5) == 0) {
+            return JUNK[random.nextInt(JUNK.length)];
+        }
+        return NUMBERS[random.nextInt(NUMBERS.length)] + UNITS[random.nextInt(UNITS.length)];
+    }
+
+    private String viewBox() {
+        StringBuilder sb = new StringBuilder();
+        int count = random.nextInt(7);
+        for (int i = 0; i < count; i++) {
+            if (i > 0 || random.nextInt(4) == 0) {
+                sb.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+            }
+            sb.append(random.nextInt(3) == 0 ? length() : NUMBERS[random.nextInt(NUMBERS.length)]);
+        }
+        return sb.toString();
+    }
+
+    private String document(boolean forceStax) {
+        StringBuilder sb = new StringBuilder("<svg xmlns=\"http://www.w3.org/2000/svg\"");
+        if (forceStax) {
+            sb.append(" id=\"a&amp;b\"");
+        }
+        if (random.nextInt(4) != 0) {
+            sb.append(" width=\"").append(length()).append('"');
+        }
+        if (random.nextInt(4) != 0) {
+            sb.append(" height=\"").append(length()).append('"');
+        }
+        if (random.nextInt(3) != 0) {
+            sb.append(" viewBox=\"").append(viewBox()).append('"');
+        }
+        return sb.append("></svg>").toString();
+    }
+
+    @Test
+    public void sizeIsPositiveOrNull() throws Exception {
+        int iterations = FuzzHarness.iterations() * 20;
+
+        for (int i = 0; i < iterations; i++) {
+            boolean forceStax = random.nextBoolean();
+            String document = document(forceStax);
+            byte[] data = document.getBytes(StandardCharsets.UTF_8);
+
+            try {
+                Size2D size = random.nextBoolean()
+                    ? StreamingSVGDocument.readSize(data, 0, data.length)
+                    : StreamingSVGDocument.readSize(new ByteArrayInputStream(data));
+
+                if (size != null) {
+                    assertTrue(document, size.getWidth() > 0 && !Double.isInfinite(size.getWidth()));
+                    assertTrue(document, size.getHeight() > 0 && !Double.isInfinite(size.getHeight()));
+                }
+            } catch (IOException e) {
+                // malformed xml is fine
+            } catch (RuntimeException e) {
+                fail("Threw " + e + " for " + document);
+            }
+        }
+    }
+
+}
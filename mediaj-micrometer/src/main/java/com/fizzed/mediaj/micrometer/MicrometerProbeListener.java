@@ -0,0 +1,200 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.micrometer;
+
+import com.fizzed.crux.mediatype.KnownMediaType;
+import com.fizzed.mediaj.ImageProber;
+import com.fizzed.mediaj.ProbeListener;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Records ImageProber events as Micrometer meters.
+ *
+ * <ul>
+ *   <li>mediaj.probe (timer w/ histogram) tagged by operation and mediaType</li>
+ *   <li>mediaj.probe.bytes.read (summary) tagged by operation and mediaType</li>
+ *   <li>mediaj.probe.detection.misses (counter) tagged by operation</li>
+ *   <li>mediaj.probe.imageio.fallbacks (counter) tagged by mediaType</li>
+ *   <li>mediaj.probe.svg.failures (counter)</li>
+ *   <li>mediaj.probe.errors (counter) tagged by operation and exception</li>
+ * </ul>
+ *
+ * A media type of "none" is a detection miss.  Meters for each operation and
+ * media type are registered once and reused so recording does not allocate.
+ *
+ * <pre>
+ * ImageProber.setListener(new MicrometerProbeListener(registry));
+ * </pre>
+ *
+ * @author jjlauer
+ */
+public class MicrometerProbeListener implements ProbeListener {
+
+    static private final int MEDIA_TYPES = KnownMediaType.values().length + 1;
+
+    final private MeterRegistry registry;
+    final private AtomicReferenceArray<Timer> timers;
+    final private AtomicReferenceArray<DistributionSummary> bytesRead;
+    final private AtomicReferenceArray<Counter> misses;
+    final private AtomicReferenceArray<Counter> fallbacks;
+    final private Counter svgFailures;
+
+    public MicrometerProbeListener(
+            MeterRegistry registry) {
+
+        Objects.requireNonNull(registry, "registry was null");
+
+        int slots = Operation.values().length * MEDIA_TYPES;
+
+        this.registry = registry;
+        this.timers = new AtomicReferenceArray<>(slots);
+        this.bytesRead = new AtomicReferenceArray<>(slots);
+        this.misses = new AtomicReferenceArray<>(Operation.values().length);
+        this.fallbacks = new AtomicReferenceArray<>(MEDIA_TYPES);
+        this.svgFailures = Counter.builder("mediaj.probe.svg.failures")
+            .description("SVG documents whose size could not be parsed")
+            .register(registry);
+    }
+
+    /**
+     * Creates and installs a listener on ImageProber.
+     *
+     * @param registry The registry to record to
+     * @return The installed listener
+     */
+    static public MicrometerProbeListener install(
+            MeterRegistry registry) {
+
+        MicrometerProbeListener listener = new MicrometerProbeListener(registry);
+        ImageProber.setListener(listener);
+        return listener;
+    }
+
+    static private int index(
+            KnownMediaType mediaType) {
+
+        return mediaType != null ? mediaType.ordinal() + 1 : 0;
+    }
+
+    static private String tag(
+            KnownMediaType mediaType) {
+
+        return mediaType != null ? mediaType.getLabel() : "none";
+    }
+
+    static private String tag(
+            Operation operation) {
+
+        return operation.name().toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public void onComplete(
+            Operation operation,
+            KnownMediaType mediaType,
+            long durationNanos,
+            long bytesRead) {
+
+        int i = operation.ordinal() * MEDIA_TYPES + index(mediaType);
+
+        Timer timer = this.timers.get(i);
+        if (timer == null) {
+            // registering is idempotent so a race just looks up the same one
+            timer = Timer.builder("mediaj.probe")
+                .description("Latency of probes")
+                .tag("operation", tag(operation))
+                .tag("mediaType", tag(mediaType))
+                .publishPercentileHistogram()
+                .register(registry);
+            this.timers.set(i, timer);
+        }
+        timer.record(durationNanos, TimeUnit.NANOSECONDS);
+
+        if (bytesRead >= 0) {
+            DistributionSummary summary = this.bytesRead.get(i);
+            if (summary == null) {
+                summary = DistributionSummary.builder("mediaj.probe.bytes.read")
+                    .description("Bytes of the source read by probes")
+                    .baseUnit("bytes")
+                    .tag("operation", tag(operation))
+                    .tag("mediaType", tag(mediaType))
+                    .register(registry);
+                this.bytesRead.set(i, summary);
+            }
+            summary.record(bytesRead);
+        }
+
+        if (mediaType == null) {
+            int j = operation.ordinal();
+            Counter counter = this.misses.get(j);
+            if (counter == null) {
+                counter = Counter.builder("mediaj.probe.detection.misses")
+                    .description("Probes that could not detect a media type")
+                    .tag("operation", tag(operation))
+                    .register(registry);
+                this.misses.set(j, counter);
+            }
+            counter.increment();
+        }
+    }
+
+    @Override
+    public void onImageIOFallback(
+            KnownMediaType mediaType) {
+
+        int i = index(mediaType);
+
+        Counter counter = this.fallbacks.get(i);
+        if (counter == null) {
+            counter = Counter.builder("mediaj.probe.imageio.fallbacks")
+                .description("Sizes read w/ ImageIO rather than a native header parser")
+                .tag("mediaType", tag(mediaType))
+                .register(registry);
+            this.fallbacks.set(i, counter);
+        }
+        counter.increment();
+    }
+
+    @Override
+    public void onSvgParseFailure(
+            Throwable error) {
+
+        this.svgFailures.increment();
+    }
+
+    @Override
+    public void onError(
+            Operation operation,
+            KnownMediaType mediaType,
+            Throwable error) {
+
+        // rare enough to look up each time
+        Counter.builder("mediaj.probe.errors")
+            .description("Probes that failed with an exception")
+            .tag("operation", tag(operation))
+            .tag("exception", error.getClass().getSimpleName())
+            .register(registry)
+            .increment();
+    }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.mediaj.micrometer;
+
+import com.fizzed.crux.mediatype.KnownMediaType;
+import com.fizzed.mediaj.ImageProber;
+import com.fizzed.mediaj.ProbeListener.Operation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.After;
+import org.junit.Test;
+
+public class MicrometerProbeListenerTest {
+    
+    @After
+    public void after() {
+        ImageProber.setListener(null);
+    }
+    
+    @Test
+    public void records() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MicrometerProbeListener listener = new MicrometerProbeListener(registry);
+        
+        listener.onComplete(Operation.PROBE, KnownMediaType.IMAGE_PNG, 1000L, 24L);
+        listener.onComplete(Operation.PROBE, KnownMediaType.IMAGE_PNG, 3000L, 24L);
+        listener.onComplete(Operation.MEDIA_TYPE, null, 500L, -1L);
+        listener.onImageIOFallback(KnownMediaType.IMAGE_BMP);
+        listener.onSvgParseFailure(new IOException());
+        listener.onError(Operation.SIZE, KnownMediaType.IMAGE_SVG_XML, new IOException());
+        
+        assertThat(registry.get("mediaj.probe").tag("operation", "probe").tag("mediaType", "image/png").timer().count(), is(2L));
+        assertThat(registry.get("mediaj.probe.bytes.read").tag("mediaType", "image/png").summary().totalAmount(), is(48.0d));
+        assertThat(registry.get("mediaj.probe").tag("mediaType", "none").timer().count(), is(1L));
+        assertThat(registry.get("mediaj.probe.detection.misses").tag("operation", "media_type").counter().count(), is(1.0d));
+        assertThat(registry.get("mediaj.probe.imageio.fallbacks").counter().count(), is(1.0d));
+        assertThat(registry.get("mediaj.probe.svg.failures").counter().count(), is(1.0d));
+        assertThat(registry.get("mediaj.probe.errors").tag("exception", "IOException").counter().count(), is(1.0d));
+    }
+    
+    @Test
+    public void install() throws IOException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MicrometerProbeListener.install(registry);
+        
+        ImageProber.probeMediaType(new byte[] { 1, 2, 3 });
+        
+        assertThat(registry.get("mediaj.probe.detection.misses").counter().count(), is(1.0d));
+    }
+    
+}